@@ -3,21 +3,32 @@ package com.varachit.transistance;
 import com.varachit.transistance.entity.Route;
 import com.varachit.transistance.entity.Station;
 import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.entity.Trip;
 import com.varachit.transistance.repository.RouteRepository;
 import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.repository.TripRepository;
+import com.varachit.transistance.util.GeoUtils;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
 @Configuration
 public class TransistanceStartupRunner {
+    // Seeded service runs every 5 minutes from 05:30 to midnight, dwelling 30 seconds at each station
+    private static final int SERVICE_START = 5 * 3600 + 30 * 60;
+    private static final int SERVICE_END = 24 * 3600;
+    private static final int HEADWAY = 5 * 60;
+    private static final int DWELL = 30;
 
     @Bean
-    CommandLineRunner commandLineRunner(StationRepository stationRepository, RouteRepository routeRepository) {
+    CommandLineRunner commandLineRunner(StationRepository stationRepository, RouteRepository routeRepository,
+                                        TripRepository tripRepository) {
         return args -> {
 
             // Station
@@ -97,6 +108,38 @@ public class TransistanceStartupRunner {
 
             Route PurpleLine = new Route("Purple Line", "MRT Skytrain Purple Line", StationType.MRT, PurpleLineStations);
             routeRepository.save(PurpleLine);
+
+
+            /*
+             * Timetable
+             * Every route runs in both directions at a fixed headway, one frequency-based trip per direction
+             */
+            for(Route route : Arrays.asList(Sukhumvit, BlueLine, PurpleLine)) {
+                List<Station> stations = new ArrayList<>(route.getStations());
+                tripRepository.save(frequencyTrip(route, stations));
+                Collections.reverse(stations);
+                tripRepository.save(frequencyTrip(route, stations));
+            }
         };
     }
+
+    // Running times follow the great-circle distance between stations at the average speed of the route type
+    private static Trip frequencyTrip(Route route, List<Station> stations) {
+        Trip trip = new Trip(route, stations.get(stations.size() - 1).getName());
+        trip.setFrequency(SERVICE_START, SERVICE_END, HEADWAY);
+        int time = 0;
+        for(int index = 0; index < stations.size(); index++) {
+            if(index > 0) {
+                Station previous = stations.get(index - 1);
+                Station station = stations.get(index);
+                double metres = GeoUtils.haversine(previous.getLatitude(), previous.getLongitude(),
+                        station.getLatitude(), station.getLongitude());
+                time += (int) Math.ceil(metres / route.getType().getMetresPerSecond());
+            }
+            int departure = index < stations.size() - 1 ? time + DWELL : time;
+            trip.addStopTime(stations.get(index), time, departure);
+            time = departure;
+        }
+        return trip;
+    }
 }
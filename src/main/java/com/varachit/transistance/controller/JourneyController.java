@@ -0,0 +1,120 @@
+package com.varachit.transistance.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.varachit.transistance.dto.BatchJourney;
+import com.varachit.transistance.dto.Isochrone;
+import com.varachit.transistance.dto.Journey;
+import com.varachit.transistance.dto.JourneyPair;
+import com.varachit.transistance.graph.Criteria;
+import com.varachit.transistance.graph.SearchMode;
+import com.varachit.transistance.graph.TransitNetwork;
+import com.varachit.transistance.service.JourneyBatchService;
+import com.varachit.transistance.service.JourneyService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("api/v1/journey")
+public class JourneyController {
+    // Isochrones change with any station or route write, so caches revalidate them every time against the ETag
+    private static final CacheControl ISOCHRONE_CACHE_CONTROL = CacheControl.noCache().cachePublic();
+
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final JourneyService journeyService;
+    private final JourneyBatchService journeyBatchService;
+    private final ObjectMapper objectMapper;
+
+    public JourneyController(JourneyService journeyService, JourneyBatchService journeyBatchService,
+                             ObjectMapper objectMapper) {
+        this.journeyService = journeyService;
+        this.journeyBatchService = journeyBatchService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping
+    public ResponseEntity<Journey> planJourney(@RequestParam String from, @RequestParam String to,
+                                               @RequestParam(defaultValue = "DISTANCE") Criteria criteria,
+                                               @RequestParam(defaultValue = "DIJKSTRA") SearchMode mode) {
+        Journey journey = journeyService.planJourney(from, to, criteria, mode);
+        return new ResponseEntity<>(journey, HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/alternatives")
+    public ResponseEntity<List<Journey>> planAlternatives(@RequestParam String from, @RequestParam String to,
+                                                          @RequestParam(defaultValue = "DISTANCE") Criteria criteria,
+                                                          @RequestParam(defaultValue = "3") int k) {
+        List<Journey> journeys = journeyService.planAlternatives(from, to, criteria, k);
+        return new ResponseEntity<>(journeys, HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/isochrone")
+    public ResponseEntity<Isochrone> isochrone(@RequestParam String from, @RequestParam int minutes,
+                                               WebRequest request) {
+        // Answer revalidations for an unchanged catalogue without running the search, from any instance
+        TransitNetwork network = journeyService.getNetwork();
+        String eTag = isochroneETag(network.getFingerprint(), from, minutes);
+        if(request.checkNotModified(eTag)) {
+            return null;
+        }
+        Isochrone isochrone = journeyService.isochrone(network, from, minutes);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(ISOCHRONE_CACHE_CONTROL)
+                .body(isochrone);
+    }
+
+    /*
+     * Plan journeys for a list of origin-destination pairs, sent either as a JSON array or as NDJSON
+     * Results are streamed back as NDJSON, one line per pair, grouped by origin rather than in request order
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON},
+                 produces = APPLICATION_NDJSON)
+    public ResponseEntity<StreamingResponseBody> planJourneys(InputStream body,
+                                                              @RequestParam(defaultValue = "DISTANCE")
+                                                                      Criteria criteria) {
+        List<JourneyPair> pairs = readPairs(body);
+        StreamingResponseBody stream = outputStream -> {
+            OutputStream output = new BufferedOutputStream(outputStream);
+            journeyBatchService.planJourneys(pairs, criteria, journey -> writeLine(output, journey));
+            output.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON)).body(stream);
+    }
+
+    private List<JourneyPair> readPairs(InputStream body) {
+        // A root-level JSON array is unwrapped by the iterator, so both request formats read the same way
+        try(MappingIterator<JourneyPair> iterator = objectMapper.readerFor(JourneyPair.class).readValues(body)) {
+            return iterator.readAll();
+        } catch(IOException | RuntimeException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid journey pair");
+        }
+    }
+
+    private void writeLine(OutputStream output, BatchJourney journey) {
+        try {
+            output.write(objectMapper.writeValueAsBytes(journey));
+            output.write('\n');
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static String isochroneETag(long fingerprint, String from, int minutes) {
+        return "\"" + Long.toHexString(fingerprint) + "-" + from + "-" + minutes + "\"";
+    }
+}
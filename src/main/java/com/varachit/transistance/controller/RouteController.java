@@ -1,21 +1,45 @@
 package com.varachit.transistance.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.varachit.transistance.dto.CursorPage;
+import com.varachit.transistance.dto.GtfsImportResult;
+import com.varachit.transistance.dto.ImportResult;
+import com.varachit.transistance.dto.RouteSummary;
 import com.varachit.transistance.entity.Route;
 import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.service.CatalogueImportService;
+import com.varachit.transistance.service.GtfsImportService;
 import com.varachit.transistance.service.RouteService;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("api/v1/route")
 public class RouteController {
     private final RouteService routeService;
+    private final CatalogueImportService catalogueImportService;
+    private final GtfsImportService gtfsImportService;
+    private final ObjectMapper objectMapper;
 
-    public RouteController(RouteService routeService) {
+    public RouteController(RouteService routeService, CatalogueImportService catalogueImportService,
+                           GtfsImportService gtfsImportService, ObjectMapper objectMapper) {
         this.routeService = routeService;
+        this.catalogueImportService = catalogueImportService;
+        this.gtfsImportService = gtfsImportService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
@@ -24,6 +48,37 @@ public class RouteController {
         return new ResponseEntity<>(routes, HttpStatus.OK);
     }
 
+    @GetMapping(path = "/summary")
+    public ResponseEntity<List<RouteSummary>> getRouteSummaries() {
+        List<RouteSummary> routes = routeService.getRouteSummaries();
+        return new ResponseEntity<>(routes, HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/page")
+    public ResponseEntity<CursorPage<Route>> getRoutePage(@RequestParam(required = false) String cursor,
+                                                          @RequestParam(defaultValue = "100") int size) {
+        CursorPage<Route> page = routeService.getRoutePage(cursor, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    // Every route as one JSON array, written route by route so the response is never held in memory
+    @GetMapping(path = "/stream")
+    public ResponseEntity<StreamingResponseBody> streamRoutes() {
+        ObjectWriter writer = objectMapper.writerFor(Route.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody stream = outputStream -> {
+            // Closing the generator flushes the buffer once, the servlet stream itself is left to Spring to close
+            OutputStream output = new BufferedOutputStream(outputStream);
+            try(JsonGenerator generator = objectMapper.getFactory().createGenerator(output)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                routeService.streamRoutes(route -> writeElement(writer, generator, route));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(stream);
+    }
+
     @GetMapping(path = "/{routeId}")
     public ResponseEntity<Route> getRoute(@PathVariable("routeId") Long id) {
         Route route = routeService.getRoute(id);
@@ -37,6 +92,20 @@ public class RouteController {
         return new ResponseEntity<>(addedRoute, HttpStatus.CREATED);
     }
 
+    // Add routes with their new stations in bulk from NDJSON, one route per line; nothing is added if any is invalid
+    @PostMapping(path = "/import", consumes = JourneyController.APPLICATION_NDJSON)
+    public ResponseEntity<ImportResult> importRoutes(InputStream body) {
+        ImportResult result = catalogueImportService.importRoutes(body);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
+    // Import a GTFS zip placed in the configured import directory
+    @PostMapping(path = "/import/gtfs")
+    public ResponseEntity<GtfsImportResult> importGtfsFeed(@RequestParam String file) {
+        GtfsImportResult result = gtfsImportService.importFeed(file);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
     @PutMapping(path = "/{routeId}")
     public ResponseEntity<Route> updateRoute(@PathVariable("routeId") Long id, @RequestBody Route newRoute) {
         Route updatedRoute = routeService.updateRoute(id, newRoute);
@@ -61,4 +130,12 @@ public class RouteController {
         Route updatedRoute = routeService.deleteStationFromRoute(routeId, stationId);
         return new ResponseEntity<>(updatedRoute, HttpStatus.OK);
     }
+
+    private void writeElement(ObjectWriter writer, JsonGenerator generator, Object element) {
+        try {
+            writer.writeValue(generator, element);
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
 }
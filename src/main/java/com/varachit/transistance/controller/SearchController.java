@@ -0,0 +1,26 @@
+package com.varachit.transistance.controller;
+
+import com.varachit.transistance.dto.SearchHit;
+import com.varachit.transistance.service.CatalogueSearchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("api/v1/search")
+public class SearchController {
+    private final CatalogueSearchService catalogueSearchService;
+
+    public SearchController(CatalogueSearchService catalogueSearchService) {
+        this.catalogueSearchService = catalogueSearchService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<SearchHit>> search(@RequestParam String query,
+                                                  @RequestParam(defaultValue = "20") int limit) {
+        List<SearchHit> hits = catalogueSearchService.search(query, limit);
+        return new ResponseEntity<>(hits, HttpStatus.OK);
+    }
+}
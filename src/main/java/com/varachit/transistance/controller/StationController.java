@@ -1,23 +1,49 @@
 package com.varachit.transistance.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.varachit.transistance.dto.CursorPage;
+import com.varachit.transistance.dto.ImportResult;
 import com.varachit.transistance.entity.*;
+import com.varachit.transistance.service.CatalogueImportService;
+import com.varachit.transistance.service.StationAutocompleteService;
+import com.varachit.transistance.service.StationLocatorService;
 import com.varachit.transistance.service.StationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController @Slf4j
 @RequestMapping("api/v1/station")
 public class StationController {
     private final StationService stationService;
+    private final StationLocatorService stationLocatorService;
+    private final StationAutocompleteService stationAutocompleteService;
+    private final CatalogueImportService catalogueImportService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public StationController(StationService stationService) {
+    public StationController(StationService stationService, StationLocatorService stationLocatorService,
+                             StationAutocompleteService stationAutocompleteService,
+                             CatalogueImportService catalogueImportService, ObjectMapper objectMapper) {
         this.stationService = stationService;
+        this.stationLocatorService = stationLocatorService;
+        this.stationAutocompleteService = stationAutocompleteService;
+        this.catalogueImportService = catalogueImportService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
@@ -26,6 +52,31 @@ public class StationController {
         return new ResponseEntity<>(stations, HttpStatus.OK);
     }
 
+    @GetMapping(path = "/page")
+    public ResponseEntity<CursorPage<Station>> getStationPage(@RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "100") int size) {
+        CursorPage<Station> page = stationService.getStationPage(cursor, size);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    // Every station as one JSON array, written station by station so the response is never held in memory
+    @GetMapping(path = "/stream")
+    public ResponseEntity<StreamingResponseBody> streamStations() {
+        ObjectWriter writer = objectMapper.writerFor(Station.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody stream = outputStream -> {
+            // Closing the generator flushes the buffer once, the servlet stream itself is left to Spring to close
+            OutputStream output = new BufferedOutputStream(outputStream);
+            try(JsonGenerator generator = objectMapper.getFactory().createGenerator(output)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                stationService.streamStations(station -> writeElement(writer, generator, station));
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(stream);
+    }
+
     @GetMapping(path = "/{stationId}")
     public ResponseEntity<Station> getStation(@PathVariable("stationId") Long id) {
         Station station = stationService.getStation(id);
@@ -39,12 +90,65 @@ public class StationController {
         return new ResponseEntity<>(stations, HttpStatus.OK);
     }
 
+    // Stations matching every given filter, where several types or statuses match any of them
+    @GetMapping(path = "/filter")
+    public ResponseEntity<List<Station>> filterStations(@RequestParam(required = false) String stationName,
+                                                        @RequestParam(required = false) List<StationType> stationType,
+                                                        @RequestParam(required = false)
+                                                                List<StationStatus> stationStatus) {
+        List<Station> stations = stationService.searchStations(stationName, stationType, stationStatus);
+        return new ResponseEntity<>(stations, HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/autocomplete")
+    public ResponseEntity<List<Station>> autocompleteStations(@RequestParam String query,
+                                                              @RequestParam(defaultValue = "10") int limit) {
+        List<Station> stations = stationAutocompleteService.suggest(query, limit);
+        return new ResponseEntity<>(stations, HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/nearest")
+    public ResponseEntity<List<Station>> nearestStations(@RequestParam Double lat, @RequestParam Double lon,
+                                                         @RequestParam(defaultValue = "5") int k) {
+        List<Station> stations = stationLocatorService.nearestStations(lat, lon, k);
+        return new ResponseEntity<>(stations, HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/radius")
+    public ResponseEntity<List<Station>> stationsWithinRadius(@RequestParam Double lat, @RequestParam Double lon,
+                                                              @RequestParam(defaultValue = "800") Double radius,
+                                                              @RequestParam(required = false) StationType stationType,
+                                                              @RequestParam(required = false)
+                                                                      StationStatus stationStatus) {
+        List<Station> stations = stationLocatorService.stationsWithinRadius(lat, lon, radius, stationType,
+                stationStatus);
+        return new ResponseEntity<>(stations, HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/bbox")
+    public ResponseEntity<List<Station>> stationsWithinBox(@RequestParam Double minLat, @RequestParam Double minLon,
+                                                           @RequestParam Double maxLat, @RequestParam Double maxLon,
+                                                           @RequestParam(required = false) StationType stationType,
+                                                           @RequestParam(required = false)
+                                                                   StationStatus stationStatus) {
+        List<Station> stations = stationLocatorService.stationsWithinBox(minLat, minLon, maxLat, maxLon,
+                stationType, stationStatus);
+        return new ResponseEntity<>(stations, HttpStatus.OK);
+    }
+
     @PostMapping
     public ResponseEntity<Station> addStation(@RequestBody Station station) {
         Station addedStation = stationService.addStation(station);
         return new ResponseEntity<>(addedStation, HttpStatus.CREATED);
     }
 
+    // Add stations in bulk from NDJSON, one station per line; nothing is added if any station is invalid
+    @PostMapping(path = "/import", consumes = JourneyController.APPLICATION_NDJSON)
+    public ResponseEntity<ImportResult> importStations(InputStream body) {
+        ImportResult result = catalogueImportService.importStations(body);
+        return new ResponseEntity<>(result, HttpStatus.CREATED);
+    }
+
     @PutMapping(path = "/{stationId}")
     public ResponseEntity<Station> updateStation(@PathVariable("stationId") Long stationId,
                                                  @RequestBody Station station) {
@@ -66,4 +170,11 @@ public class StationController {
         return new ResponseEntity<>(deletedStatus, HttpStatus.OK);
     }
 
+    private void writeElement(ObjectWriter writer, JsonGenerator generator, Object element) {
+        try {
+            writer.writeValue(generator, element);
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
 }
@@ -0,0 +1,34 @@
+package com.varachit.transistance.controller;
+
+import com.varachit.transistance.dto.TimetableJourney;
+import com.varachit.transistance.service.TimetableService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("api/v1/timetable")
+public class TimetableController {
+    private final TimetableService timetableService;
+
+    public TimetableController(TimetableService timetableService) {
+        this.timetableService = timetableService;
+    }
+
+    @GetMapping(path = "/journey")
+    public ResponseEntity<TimetableJourney> planJourney(@RequestParam String from, @RequestParam String to,
+                                                        @RequestParam(required = false) String departure) {
+        TimetableJourney journey = timetableService.planJourney(from, to, departure);
+        return new ResponseEntity<>(journey, HttpStatus.OK);
+    }
+
+    @GetMapping(path = "/journey/pareto")
+    public ResponseEntity<List<TimetableJourney>> planParetoJourneys(@RequestParam String from, @RequestParam String to,
+                                                                     @RequestParam(required = false) String departure,
+                                                                     @RequestParam(defaultValue = "4") int maxTransfers) {
+        List<TimetableJourney> journeys = timetableService.planParetoJourneys(from, to, departure, maxTransfers);
+        return new ResponseEntity<>(journeys, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,27 @@
+package com.varachit.transistance.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// One line of a batch journey response, either a journey summary or the reason none could be planned
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchJourney {
+    private final String from;
+    private final String to;
+    // Total travelled distance in metres
+    private final Integer distance;
+    // Total travel time in seconds
+    private final Integer duration;
+    // Codes of the visited stations, origin and destination included
+    private final List<String> stops;
+    private final String error;
+
+    public static BatchJourney failed(String from, String to, String error) {
+        return new BatchJourney(from, to, null, null, null, error);
+    }
+}
@@ -0,0 +1,14 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// One keyset page of a listing, nextCursor is null on the last page
+@Getter
+@AllArgsConstructor
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class GtfsImportResult {
+    private final int routes;
+    private final int stations;
+    // Frequency-based GTFS trips become one trip per frequency period
+    private final int trips;
+    private final int stopTimes;
+    private final long elapsedMillis;
+}
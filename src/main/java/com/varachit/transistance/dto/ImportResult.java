@@ -0,0 +1,12 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ImportResult {
+    // Number of records read from the request, each imported route also brings its stations
+    private final int imported;
+    private final long elapsedMillis;
+}
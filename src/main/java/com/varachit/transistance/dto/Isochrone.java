@@ -0,0 +1,17 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class Isochrone {
+    private final String from;
+    // Travel-time budget in minutes
+    private final int minutes;
+    // Version of the transit network the isochrone was computed on
+    private final long version;
+    private final List<ReachableStation> stations;
+}
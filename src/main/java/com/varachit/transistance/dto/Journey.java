@@ -0,0 +1,24 @@
+package com.varachit.transistance.dto;
+
+import com.varachit.transistance.graph.Criteria;
+import com.varachit.transistance.graph.SearchMode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class Journey {
+    private final String from;
+    private final String to;
+    private final Criteria criteria;
+    private final SearchMode mode;
+    // Total travelled distance in metres
+    private final int distance;
+    // Total travel time in seconds
+    private final int duration;
+    // Nodes settled by the search, to compare the work done by each search mode
+    private final int settledNodes;
+    private final List<JourneyStop> stops;
+}
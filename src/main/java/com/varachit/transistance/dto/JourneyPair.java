@@ -0,0 +1,14 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter @Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class JourneyPair {
+    private String from;
+    private String to;
+}
@@ -0,0 +1,15 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class JourneyStop {
+    private final String code;
+    private final String name;
+    private final double latitude;
+    private final double longitude;
+    // Route used to arrive at this stop, null for the origin
+    private final String route;
+}
@@ -0,0 +1,15 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ReachableStation {
+    private final String code;
+    private final String name;
+    private final double latitude;
+    private final double longitude;
+    // Travel time from the origin in seconds
+    private final int duration;
+}
@@ -0,0 +1,15 @@
+package com.varachit.transistance.dto;
+
+import com.varachit.transistance.entity.StationType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Route without its stations, built by a JPQL constructor expression in RouteRepository
+@Getter
+@AllArgsConstructor
+public class RouteSummary {
+    private final Long id;
+    private final String name;
+    private final StationType type;
+    private final Long stationCount;
+}
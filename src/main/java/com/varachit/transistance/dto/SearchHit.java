@@ -0,0 +1,21 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Station or route matching a free-text search; code is only set for stations
+@Getter
+@AllArgsConstructor
+public class SearchHit {
+    private final Kind kind;
+    private final Long id;
+    private final String name;
+    private final String code;
+    // BM25 relevance, only comparable between hits of the same search
+    private final double score;
+
+    public enum Kind {
+        STATION,
+        ROUTE
+    }
+}
@@ -0,0 +1,21 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class TimetableJourney {
+    private final String from;
+    private final String to;
+    // Requested departure and arrival at the destination, HH:mm:ss
+    private final String departure;
+    private final String arrival;
+    // Seconds from the requested departure to the arrival
+    private final int duration;
+    // Vehicle changes, walking transfers are not counted
+    private final int transfers;
+    private final List<TimetableLeg> legs;
+}
@@ -0,0 +1,20 @@
+package com.varachit.transistance.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TimetableLeg {
+    private final String from;
+    private final String fromName;
+    private final String to;
+    private final String toName;
+    private final String departure;
+    private final String arrival;
+    // Route ridden on this leg, or the walking transfer label
+    private final String route;
+    private final String headsign;
+    // Trip ridden on this leg, null when walking
+    private final Long tripId;
+}
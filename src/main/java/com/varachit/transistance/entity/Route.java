@@ -1,5 +1,6 @@
 package com.varachit.transistance.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.hibernate.Hibernate;
 
@@ -9,21 +10,28 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 
-@Builder
+@Builder(toBuilder = true)
 @Getter @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "route")
+@Table(name = "route", uniqueConstraints = @UniqueConstraint(name = "uk_route_name", columnNames = "name"))
 public class Route implements Serializable {
+    // Pooled sequence ids are handed out without an insert round trip, so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "route_seq")
+    @SequenceGenerator(name = "route_seq", sequenceName = "route_seq", allocationSize = 500)
     private Long id;
     private String name;
     private String description;
     private StationType type;
+    // Incremented by Hibernate on every update, summed into the network fingerprint of graph snapshots
+    @Version @JsonIgnore
+    private Long version;
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    // Loaded on demand, RouteRepository fetch-joins it where stations are needed; the order column keeps line order
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @OrderColumn(name = "station_order")
     private List<Station> stations;
 
     public Route(String name, String description, StationType type, List<Station> stations) {
@@ -1,21 +1,28 @@
 package com.varachit.transistance.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Objects;
 
-@Builder
+@Builder(toBuilder = true)
 @Getter @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "station")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "station")
+@Table(name = "station", uniqueConstraints = @UniqueConstraint(name = "uk_station_code", columnNames = "code"))
 public class Station implements Serializable {
+    // Pooled sequence ids are handed out without an insert round trip, so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "station_seq")
+    @SequenceGenerator(name = "station_seq", sequenceName = "station_seq", allocationSize = 500)
     private Long id;
     private String name;
     private String code;
@@ -23,6 +30,9 @@ public class Station implements Serializable {
     private Double longitude;
     private StationType type;
     private StationStatus status;
+    // Incremented by Hibernate on every update, summed into the network fingerprint of graph snapshots
+    @Version @JsonIgnore
+    private Long version;
     @Transient
     private boolean isInterchangeable;
 
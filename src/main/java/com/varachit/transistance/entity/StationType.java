@@ -9,10 +9,31 @@ public enum StationType {
         ARL : Airport Rail Link
         SRL : State Railway Line
     */
-    BTS,
-    MRT,
-    ARL,
-    SRL;
+    BTS(35.0),
+    MRT(40.0),
+    ARL(55.0),
+    SRL(45.0);
+
+    // Scheduled average speed in kilometres per hour, dwell time at stations included
+    private final double averageSpeed;
+
+    StationType(double averageSpeed) {
+        this.averageSpeed = averageSpeed;
+    }
+
+    public double getAverageSpeed() {
+        return averageSpeed;
+    }
+
+    // Average speed in metres per second, the unit used by the journey planner
+    public double getMetresPerSecond() {
+        return averageSpeed / 3.6;
+    }
+
+    // The fastest average speed of any mode, a travel time lower bound for a given distance
+    public static double getFastestMetresPerSecond() {
+        return Stream.of(StationType.values()).mapToDouble(StationType::getMetresPerSecond).max().orElse(1.0);
+    }
 
     public String toString() {
         switch(this) {
@@ -0,0 +1,61 @@
+package com.varachit.transistance.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+// A trip calling at a station, times are seconds after midnight of the service day and may pass 24:00
+@Builder
+@Getter @Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "stop_time")
+public class StopTime implements Serializable {
+    // Pooled sequence ids, so the stop times of imported feeds are inserted in batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stop_time_seq")
+    @SequenceGenerator(name = "stop_time_seq", sequenceName = "stop_time_seq", allocationSize = 500)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "trip_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Trip trip;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "station_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Station station;
+
+    private Integer sequence;
+    private Integer arrivalTime;
+    private Integer departureTime;
+
+    public StopTime(Trip trip, Station station, Integer sequence, Integer arrivalTime, Integer departureTime) {
+        this.trip = trip;
+        this.station = station;
+        this.sequence = sequence;
+        this.arrivalTime = arrivalTime;
+        this.departureTime = departureTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) { return false; }
+        return id != null && Objects.equals(id, ((StopTime) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,77 @@
+package com.varachit.transistance.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * A vehicle run along a route, with its stop times
+ * When headway is set the trip is a template repeated every headway seconds from frequencyStart to
+ * frequencyEnd (seconds after midnight), and its stop times are shifted so the first departure matches each run
+ */
+@Builder
+@Getter @Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "trip")
+public class Trip implements Serializable {
+    // Pooled sequence ids, so the stop times of imported feeds are inserted in batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "trip_seq")
+    @SequenceGenerator(name = "trip_seq", sequenceName = "trip_seq", allocationSize = 500)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "route_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Route route;
+
+    private String headsign;
+    private Integer frequencyStart;
+    private Integer frequencyEnd;
+    private Integer headway;
+
+    @Builder.Default
+    @OneToMany(mappedBy = "trip", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("sequence")
+    private List<StopTime> stopTimes = new ArrayList<>();
+
+    public Trip(Route route, String headsign) {
+        this.route = route;
+        this.headsign = headsign;
+        this.stopTimes = new ArrayList<>();
+    }
+
+    // Repeat this trip every headway seconds, first departures within [frequencyStart, frequencyEnd)
+    public void setFrequency(int frequencyStart, int frequencyEnd, int headway) {
+        this.frequencyStart = frequencyStart;
+        this.frequencyEnd = frequencyEnd;
+        this.headway = headway;
+    }
+
+    public void addStopTime(Station station, int arrivalTime, int departureTime) {
+        this.stopTimes.add(new StopTime(this, station, stopTimes.size(), arrivalTime, departureTime));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+        if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) { return false; }
+        return id != null && Objects.equals(id, ((Trip) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
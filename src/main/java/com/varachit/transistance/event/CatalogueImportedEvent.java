@@ -0,0 +1,15 @@
+package com.varachit.transistance.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Published by CatalogueImportService once a bulk import has been committed
+ * Replaces one changed event per imported row, listeners reload their derived structures once instead
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogueImportedEvent {
+    private final int stationCount;
+    private final int routeCount;
+}
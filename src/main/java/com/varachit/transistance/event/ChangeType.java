@@ -0,0 +1,7 @@
+package com.varachit.transistance.event;
+
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
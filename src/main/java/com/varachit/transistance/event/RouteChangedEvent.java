@@ -0,0 +1,24 @@
+package com.varachit.transistance.event;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Published by RouteService after a route write has been persisted
+ * In-memory structures derived from the route table listen to it to stay in sync
+ */
+@Getter
+@AllArgsConstructor
+public class RouteChangedEvent {
+    private final Route route;
+    private final ChangeType changeType;
+    // Station added to (CREATED) or removed from (DELETED) the route by a station edit, otherwise null
+    private final Station station;
+    private final ChangeType stationChange;
+
+    public RouteChangedEvent(Route route, ChangeType changeType) {
+        this(route, changeType, null, null);
+    }
+}
@@ -0,0 +1,16 @@
+package com.varachit.transistance.event;
+
+import com.varachit.transistance.entity.Station;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*
+ * Published by StationService after a station write has been persisted
+ * In-memory structures derived from the station table listen to it to stay in sync
+ */
+@Getter
+@AllArgsConstructor
+public class StationChangedEvent {
+    private final Station station;
+    private final ChangeType changeType;
+}
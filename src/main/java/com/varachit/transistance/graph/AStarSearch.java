@@ -0,0 +1,62 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.util.GeoUtils;
+
+/*
+ * Point-to-point A* over a TransitGraph
+ * The heuristic is the great-circle distance to the destination, divided by the fastest mode speed
+ * when optimising for time. Edge lengths are rounded up from the same great-circle distance and edge times
+ * are never faster than the fastest mode, so the estimate is a consistent lower bound and the first time
+ * the destination is settled its path is optimal
+ */
+public final class AStarSearch {
+
+    private AStarSearch() {
+    }
+
+    // Shortest path from source to target, or null when the target cannot be reached
+    public static Path shortestPath(TransitGraph graph, int source, int target, Criteria criteria) {
+        int[] weights = graph.weights(criteria);
+        double scale = criteria == Criteria.TIME ? 1.0 / StationType.getFastestMetresPerSecond() : 1.0;
+        double targetLatitude = graph.latitude(target);
+        double targetLongitude = graph.longitude(target);
+
+        SearchSpace space = SearchSpace.acquire(graph.getNodeCount());
+        IntMinHeap heap = space.heap();
+        int sourceEstimate = estimate(graph, source, targetLatitude, targetLongitude, scale);
+        space.reach(source, 0, -1, -1, sourceEstimate);
+        heap.offer(source, sourceEstimate);
+
+        int settled = 0;
+        while(!heap.isEmpty()) {
+            int node = heap.poll();
+            settled++;
+            if(node == target) {
+                return Path.fromSearch(space, source, target, settled);
+            }
+            if(node != source && graph.isClosed(node)) {
+                continue;
+            }
+            int distance = space.distance(node);
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                int next = graph.target(edge);
+                int candidate = distance + weights[edge];
+                if(candidate < space.distance(next)) {
+                    int estimate = space.isReached(next) ? space.estimate(next)
+                            : estimate(graph, next, targetLatitude, targetLongitude, scale);
+                    space.reach(next, candidate, node, edge, estimate);
+                    heap.offer(next, candidate + estimate);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int estimate(TransitGraph graph, int node, double targetLatitude, double targetLongitude,
+                                double scale) {
+        double metres = GeoUtils.haversine(graph.latitude(node), graph.longitude(node),
+                targetLatitude, targetLongitude);
+        return (int) (metres * scale);
+    }
+}
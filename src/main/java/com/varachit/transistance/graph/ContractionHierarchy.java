@@ -0,0 +1,379 @@
+package com.varachit.transistance.graph;
+
+import java.util.Arrays;
+
+/*
+ * Contraction hierarchy over a TransitGraph for a single criteria
+ * Preprocessing contracts the nodes one by one in order of importance, adding a shortcut between two neighbours
+ * whenever the contracted node lies on their only shortest path. A query then only has to search upwards,
+ * towards more important nodes, from both ends and meet in the middle, settling a few dozen nodes at most.
+ *
+ * The transit graph is symmetric (every hop is added in both directions with the same weight), so a single
+ * upward graph serves both the forward and the backward search. Closed stations are left out of the hierarchy
+ */
+public final class ContractionHierarchy {
+    // Witness searches give up after settling this many nodes; a missed witness only costs an extra shortcut
+    private static final int WITNESS_SETTLE_LIMIT = 64;
+
+    private final TransitGraph graph;
+    private final Criteria criteria;
+    private final int[] rank;
+    private final int[] firstUp;
+    private final int[] upTarget;
+    private final int[] upWeight;
+    private final int[] upMiddle;
+    private final int shortcutCount;
+
+    private ContractionHierarchy(TransitGraph graph, Criteria criteria, int[] rank, int[] firstUp, int[] upTarget,
+                                 int[] upWeight, int[] upMiddle, int shortcutCount) {
+        this.graph = graph;
+        this.criteria = criteria;
+        this.rank = rank;
+        this.firstUp = firstUp;
+        this.upTarget = upTarget;
+        this.upWeight = upWeight;
+        this.upMiddle = upMiddle;
+        this.shortcutCount = shortcutCount;
+    }
+
+    public static ContractionHierarchy build(TransitGraph graph, Criteria criteria) {
+        return new Contractor(graph, criteria).contract();
+    }
+
+    public TransitGraph getGraph() {
+        return graph;
+    }
+
+    public Criteria getCriteria() {
+        return criteria;
+    }
+
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    public int rank(int node) {
+        return rank[node];
+    }
+
+    // Shortest path from source to target, or null when the target cannot be reached
+    public Path shortestPath(int source, int target) {
+        int nodeCount = graph.getNodeCount();
+        SearchSpace forward = SearchSpace.acquire(nodeCount, 0);
+        SearchSpace backward = SearchSpace.acquire(nodeCount, 1);
+        forward.reach(source, 0, -1, -1);
+        forward.heap().offer(source, 0);
+        backward.reach(target, 0, -1, -1);
+        backward.heap().offer(target, 0);
+
+        int best = SearchSpace.UNREACHED;
+        int meeting = -1;
+        int settled = 0;
+        while(true) {
+            int forwardKey = forward.heap().isEmpty() ? SearchSpace.UNREACHED : forward.heap().peekKey();
+            int backwardKey = backward.heap().isEmpty() ? SearchSpace.UNREACHED : backward.heap().peekKey();
+            if(Math.min(forwardKey, backwardKey) >= best) {
+                break;
+            }
+            SearchSpace space = forwardKey <= backwardKey ? forward : backward;
+            SearchSpace other = space == forward ? backward : forward;
+
+            int node = space.heap().poll();
+            settled++;
+            int distance = space.distance(node);
+            if(other.isReached(node) && distance + other.distance(node) < best) {
+                best = distance + other.distance(node);
+                meeting = node;
+            }
+            for(int edge = firstUp[node], end = firstUp[node + 1]; edge < end; edge++) {
+                int next = upTarget[edge];
+                int candidate = distance + upWeight[edge];
+                if(candidate < space.distance(next)) {
+                    space.reach(next, candidate, node, edge);
+                    space.heap().offer(next, candidate);
+                }
+            }
+        }
+        if(meeting < 0) {
+            return null;
+        }
+        return unpack(forward, backward, source, target, meeting, best, settled);
+    }
+
+    // Expand the shortcuts on both halves of the meeting path back into original graph hops
+    private Path unpack(SearchSpace forward, SearchSpace backward, int source, int target, int meeting,
+                        int weight, int settled) {
+        IntList upEdges = new IntList();
+        IntList upNodes = new IntList();
+        for(int node = meeting; node != source; node = forward.parent(node)) {
+            upNodes.add(node);
+            upEdges.add(forward.parentEdge(node));
+        }
+        IntList nodes = new IntList();
+        nodes.add(source);
+        int from = source;
+        for(int index = upEdges.size() - 1; index >= 0; index--) {
+            int to = upNodes.get(index);
+            expand(from, to, upEdges.get(index), nodes);
+            from = to;
+        }
+        for(int node = meeting; node != target; node = backward.parent(node)) {
+            int to = backward.parent(node);
+            expand(node, to, backward.parentEdge(node), nodes);
+        }
+
+        int[] pathNodes = nodes.toArray();
+        int[] pathEdges = new int[pathNodes.length - 1];
+        for(int index = 0; index < pathEdges.length; index++) {
+            pathEdges[index] = cheapestEdge(pathNodes[index], pathNodes[index + 1]);
+        }
+        return new Path(pathNodes, pathEdges, weight, settled);
+    }
+
+    // Append the nodes after 'from' up to and including 'to' for the upward edge joining them
+    private void expand(int from, int to, int upEdge, IntList nodes) {
+        int middle = upMiddle[upEdge];
+        if(middle < 0) {
+            nodes.add(to);
+            return;
+        }
+        expand(from, middle, upEdgeBetween(middle, from), nodes);
+        expand(middle, to, upEdgeBetween(middle, to), nodes);
+    }
+
+    private int upEdgeBetween(int lower, int higher) {
+        for(int edge = firstUp[lower], end = firstUp[lower + 1]; edge < end; edge++) {
+            if(upTarget[edge] == higher) {
+                return edge;
+            }
+        }
+        throw new IllegalStateException("Contraction hierarchy is missing the edge behind a shortcut");
+    }
+
+    private int cheapestEdge(int from, int to) {
+        int[] weights = graph.weights(criteria);
+        int cheapest = -1;
+        for(int edge = graph.firstEdge(from), end = graph.endEdge(from); edge < end; edge++) {
+            if(graph.target(edge) == to && (cheapest < 0 || weights[edge] < weights[cheapest])) {
+                cheapest = edge;
+            }
+        }
+        return cheapest;
+    }
+
+    /*
+     * Preprocessing state: a mutable undirected adjacency list holding at most one edge per node pair,
+     * shrinking as nodes are contracted and growing as shortcuts are added
+     */
+    private static final class Contractor {
+        private final TransitGraph graph;
+        private final Criteria criteria;
+        private final int nodeCount;
+        private final int[][] neighbours;
+        private final int[][] weights;
+        private final int[][] middles;
+        private final int[] degrees;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private final IntList upSource = new IntList();
+        private final IntList upTarget = new IntList();
+        private final IntList upWeight = new IntList();
+        private final IntList upMiddle = new IntList();
+        private final IntList liveNeighbours = new IntList();
+        private final IntList liveWeights = new IntList();
+        private int shortcutCount;
+
+        Contractor(TransitGraph graph, Criteria criteria) {
+            this.graph = graph;
+            this.criteria = criteria;
+            this.nodeCount = graph.getNodeCount();
+            this.neighbours = new int[nodeCount][];
+            this.weights = new int[nodeCount][];
+            this.middles = new int[nodeCount][];
+            this.degrees = new int[nodeCount];
+            this.contracted = new boolean[nodeCount];
+            this.contractedNeighbours = new int[nodeCount];
+
+            int[] edgeWeights = graph.weights(criteria);
+            for(int node = 0; node < nodeCount; node++) {
+                int capacity = Math.max(2, graph.endEdge(node) - graph.firstEdge(node));
+                neighbours[node] = new int[capacity];
+                weights[node] = new int[capacity];
+                middles[node] = new int[capacity];
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                if(graph.isClosed(node)) {
+                    continue;
+                }
+                for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                    int next = graph.target(edge);
+                    if(next != node && !graph.isClosed(next)) {
+                        connect(node, next, edgeWeights[edge], -1);
+                    }
+                }
+            }
+        }
+
+        ContractionHierarchy contract() {
+            IntMinHeap queue = new IntMinHeap(nodeCount);
+            for(int node = 0; node < nodeCount; node++) {
+                queue.offer(node, priority(node));
+            }
+
+            int[] rank = new int[nodeCount];
+            int order = 0;
+            while(!queue.isEmpty()) {
+                int node = queue.poll();
+                // Lazy update: priorities only drift upwards, so re-check before committing to this node
+                int priority = priority(node);
+                if(!queue.isEmpty() && priority > queue.peekKey()) {
+                    queue.offer(node, priority);
+                    continue;
+                }
+                contractNode(node);
+                rank[node] = order++;
+            }
+            return toHierarchy(rank);
+        }
+
+        private int priority(int node) {
+            int shortcuts = processShortcuts(node, false);
+            return 2 * (shortcuts - liveDegree(node)) + contractedNeighbours[node];
+        }
+
+        private void contractNode(int node) {
+            processShortcuts(node, true);
+            for(int index = 0; index < degrees[node]; index++) {
+                int next = neighbours[node][index];
+                if(!contracted[next]) {
+                    // Every neighbour still in the graph is contracted later, so this edge points upwards
+                    upSource.add(node);
+                    upTarget.add(next);
+                    upWeight.add(weights[node][index]);
+                    upMiddle.add(middles[node][index]);
+                    contractedNeighbours[next]++;
+                }
+            }
+            contracted[node] = true;
+        }
+
+        private int liveDegree(int node) {
+            int degree = 0;
+            for(int index = 0; index < degrees[node]; index++) {
+                if(!contracted[neighbours[node][index]]) {
+                    degree++;
+                }
+            }
+            return degree;
+        }
+
+        // Count, and optionally add, the shortcuts needed to preserve distances once the node is removed
+        private int processShortcuts(int node, boolean apply) {
+            liveNeighbours.clear();
+            liveWeights.clear();
+            int maxWeight = 0;
+            for(int index = 0; index < degrees[node]; index++) {
+                int next = neighbours[node][index];
+                if(!contracted[next]) {
+                    liveNeighbours.add(next);
+                    liveWeights.add(weights[node][index]);
+                    maxWeight = Math.max(maxWeight, weights[node][index]);
+                }
+            }
+
+            int[] candidates = liveNeighbours.toArray();
+            int[] candidateWeights = liveWeights.toArray();
+            int shortcuts = 0;
+            for(int i = 0; i < candidates.length - 1; i++) {
+                SearchSpace space = witnessSearch(candidates[i], node, candidateWeights[i] + maxWeight);
+                for(int j = i + 1; j < candidates.length; j++) {
+                    int via = candidateWeights[i] + candidateWeights[j];
+                    if(space.distance(candidates[j]) > via) {
+                        shortcuts++;
+                        if(apply) {
+                            connect(candidates[i], candidates[j], via, node);
+                            shortcutCount++;
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        // Bounded Dijkstra from source that avoids the node being contracted
+        private SearchSpace witnessSearch(int source, int excluded, int limit) {
+            SearchSpace space = SearchSpace.acquire(nodeCount);
+            IntMinHeap heap = space.heap();
+            space.reach(source, 0, -1, -1);
+            heap.offer(source, 0);
+            int settled = 0;
+            while(!heap.isEmpty() && heap.peekKey() <= limit && settled < WITNESS_SETTLE_LIMIT) {
+                int node = heap.poll();
+                settled++;
+                int distance = space.distance(node);
+                for(int index = 0; index < degrees[node]; index++) {
+                    int next = neighbours[node][index];
+                    if(next == excluded || contracted[next]) {
+                        continue;
+                    }
+                    int candidate = distance + weights[node][index];
+                    if(candidate < space.distance(next)) {
+                        space.reach(next, candidate, node, -1);
+                        heap.offer(next, candidate);
+                    }
+                }
+            }
+            return space;
+        }
+
+        private void connect(int a, int b, int weight, int middle) {
+            link(a, b, weight, middle);
+            link(b, a, weight, middle);
+        }
+
+        private void link(int from, int to, int weight, int middle) {
+            for(int index = 0; index < degrees[from]; index++) {
+                if(neighbours[from][index] == to) {
+                    if(weight < weights[from][index]) {
+                        weights[from][index] = weight;
+                        middles[from][index] = middle;
+                    }
+                    return;
+                }
+            }
+            if(degrees[from] == neighbours[from].length) {
+                int capacity = degrees[from] * 2;
+                neighbours[from] = Arrays.copyOf(neighbours[from], capacity);
+                weights[from] = Arrays.copyOf(weights[from], capacity);
+                middles[from] = Arrays.copyOf(middles[from], capacity);
+            }
+            neighbours[from][degrees[from]] = to;
+            weights[from][degrees[from]] = weight;
+            middles[from][degrees[from]] = middle;
+            degrees[from]++;
+        }
+
+        private ContractionHierarchy toHierarchy(int[] rank) {
+            int edgeCount = upSource.size();
+            int[] firstUp = new int[nodeCount + 1];
+            for(int edge = 0; edge < edgeCount; edge++) {
+                firstUp[upSource.get(edge) + 1]++;
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                firstUp[node + 1] += firstUp[node];
+            }
+            int[] cursor = Arrays.copyOf(firstUp, nodeCount);
+            int[] targets = new int[edgeCount];
+            int[] edgeWeights = new int[edgeCount];
+            int[] edgeMiddles = new int[edgeCount];
+            for(int edge = 0; edge < edgeCount; edge++) {
+                int slot = cursor[upSource.get(edge)]++;
+                targets[slot] = upTarget.get(edge);
+                edgeWeights[slot] = upWeight.get(edge);
+                edgeMiddles[slot] = upMiddle.get(edge);
+            }
+            return new ContractionHierarchy(graph, criteria, rank, firstUp, targets, edgeWeights, edgeMiddles,
+                    shortcutCount);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.varachit.transistance.graph;
+
+// What a journey is optimised for: travelled distance in metres or in-vehicle time in seconds
+public enum Criteria {
+    DISTANCE,
+    TIME
+}
@@ -0,0 +1,88 @@
+package com.varachit.transistance.graph;
+
+import java.util.Arrays;
+
+/*
+ * Point-to-point and one-to-many Dijkstra over a TransitGraph, weighted by edge distance or travel time
+ * Closed stations are never passed through; only the origin of the search may be expanded from one
+ */
+public final class DijkstraSearch {
+
+    private DijkstraSearch() {
+    }
+
+    // Shortest path from source to target, or null when the target cannot be reached
+    public static Path shortestPath(TransitGraph graph, int source, int target, Criteria criteria) {
+        int[] weights = graph.weights(criteria);
+        SearchSpace space = SearchSpace.acquire(graph.getNodeCount());
+        IntMinHeap heap = space.heap();
+        space.reach(source, 0, -1, -1);
+        heap.offer(source, 0);
+
+        int settled = 0;
+        while(!heap.isEmpty()) {
+            int node = heap.poll();
+            settled++;
+            if(node == target) {
+                return Path.fromSearch(space, source, target, settled);
+            }
+            if(node != source && graph.isClosed(node)) {
+                continue;
+            }
+            int distance = space.distance(node);
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                int next = graph.target(edge);
+                int candidate = distance + weights[edge];
+                if(candidate < space.distance(next)) {
+                    space.reach(next, candidate, node, edge);
+                    heap.offer(next, candidate);
+                }
+            }
+        }
+        return null;
+    }
+
+    /*
+     * Shortest paths from source to each of the targets with a single search, null where a target cannot be reached
+     * The search stops as soon as every distinct target has been settled
+     */
+    public static Path[] shortestPaths(TransitGraph graph, int source, int[] targets, Criteria criteria) {
+        int[] pending = Arrays.stream(targets).distinct().sorted().toArray();
+        int remaining = pending.length;
+        int[] weights = graph.weights(criteria);
+        SearchSpace space = SearchSpace.acquire(graph.getNodeCount());
+        IntMinHeap heap = space.heap();
+        space.reach(source, 0, -1, -1);
+        heap.offer(source, 0);
+
+        int settled = 0;
+        while(remaining > 0 && !heap.isEmpty()) {
+            int node = heap.poll();
+            settled++;
+            if(Arrays.binarySearch(pending, node) >= 0) {
+                remaining--;
+            }
+            if(node != source && graph.isClosed(node)) {
+                continue;
+            }
+            int distance = space.distance(node);
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                int next = graph.target(edge);
+                int candidate = distance + weights[edge];
+                if(candidate < space.distance(next)) {
+                    space.reach(next, candidate, node, edge);
+                    heap.offer(next, candidate);
+                }
+            }
+        }
+
+        // Every reached target has been settled: either all targets were, or the heap ran dry
+        Path[] paths = new Path[targets.length];
+        for(int index = 0; index < targets.length; index++) {
+            if(space.isReached(targets[index])) {
+                paths[index] = Path.fromSearch(space, source, targets[index], settled);
+            }
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,127 @@
+package com.varachit.transistance.graph;
+
+import java.util.Arrays;
+
+/*
+ * Indexed binary min-heap of node indexes keyed by an int priority
+ * Supports decrease-key through a node -> heap position table, so a node is queued at most once
+ */
+final class IntMinHeap {
+    private int[] nodes;
+    private int[] keys;
+    private int[] positions;
+    private int size;
+
+    IntMinHeap(int capacity) {
+        this.nodes = new int[capacity];
+        this.keys = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    void ensureCapacity(int capacity) {
+        if(capacity > positions.length) {
+            int oldCapacity = positions.length;
+            nodes = Arrays.copyOf(nodes, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, oldCapacity, capacity, -1);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int peekKey() {
+        return keys[0];
+    }
+
+    boolean contains(int node) {
+        return positions[node] >= 0;
+    }
+
+    // Insert the node, or lower its key when it is already queued with a larger one
+    void offer(int node, int key) {
+        int position = positions[node];
+        if(position < 0) {
+            position = size++;
+            nodes[position] = node;
+            keys[position] = key;
+            positions[node] = position;
+        } else if(key < keys[position]) {
+            keys[position] = key;
+        } else {
+            return;
+        }
+        siftUp(position);
+    }
+
+    int poll() {
+        int top = nodes[0];
+        positions[top] = -1;
+        size--;
+        if(size > 0) {
+            nodes[0] = nodes[size];
+            keys[0] = keys[size];
+            positions[nodes[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void clear() {
+        for(int position = 0; position < size; position++) {
+            positions[nodes[position]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int node = nodes[position];
+        int key = keys[position];
+        while(position > 0) {
+            int parent = (position - 1) >>> 1;
+            if(keys[parent] <= key) {
+                break;
+            }
+            move(parent, position);
+            position = parent;
+        }
+        place(node, key, position);
+    }
+
+    private void siftDown(int position) {
+        int node = nodes[position];
+        int key = keys[position];
+        int half = size >>> 1;
+        while(position < half) {
+            int child = 2 * position + 1;
+            if(child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if(key <= keys[child]) {
+                break;
+            }
+            move(child, position);
+            position = child;
+        }
+        place(node, key, position);
+    }
+
+    private void move(int from, int to) {
+        nodes[to] = nodes[from];
+        keys[to] = keys[from];
+        positions[nodes[to]] = to;
+    }
+
+    private void place(int node, int key, int position) {
+        nodes[position] = node;
+        keys[position] = key;
+        positions[node] = position;
+    }
+}
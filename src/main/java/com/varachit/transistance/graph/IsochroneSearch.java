@@ -0,0 +1,73 @@
+package com.varachit.transistance.graph;
+
+/*
+ * One-to-all Dijkstra by travel time, bounded by a time budget
+ * Nodes beyond the budget are never queued and the search stops at the first node popped over it,
+ * so the work is proportional to the reachable area rather than to the whole network
+ */
+public final class IsochroneSearch {
+
+    private IsochroneSearch() {
+    }
+
+    // Every open station reachable from source within budgetSeconds, in order of travel time
+    public static Reachability reachable(TransitGraph graph, int source, int budgetSeconds) {
+        int[] weights = graph.weights(Criteria.TIME);
+        SearchSpace space = SearchSpace.acquire(graph.getNodeCount());
+        IntMinHeap heap = space.heap();
+        space.reach(source, 0, -1, -1);
+        heap.offer(source, 0);
+
+        while(!heap.isEmpty()) {
+            int node = heap.poll();
+            int time = space.distance(node);
+            if(time > budgetSeconds) {
+                break;
+            }
+            if(node != source && graph.isClosed(node)) {
+                continue;
+            }
+            space.settle(node);
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                int next = graph.target(edge);
+                int candidate = time + weights[edge];
+                if(candidate <= budgetSeconds && candidate < space.distance(next)) {
+                    space.reach(next, candidate, node, edge);
+                    heap.offer(next, candidate);
+                }
+            }
+        }
+
+        int count = space.settledCount();
+        int[] nodes = new int[count];
+        int[] times = new int[count];
+        for(int index = 0; index < count; index++) {
+            nodes[index] = space.settled(index);
+            times[index] = space.distance(nodes[index]);
+        }
+        return new Reachability(nodes, times);
+    }
+
+    // Reached node indexes and their travel time in seconds, sorted by travel time
+    public static final class Reachability {
+        private final int[] nodes;
+        private final int[] times;
+
+        Reachability(int[] nodes, int[] times) {
+            this.nodes = nodes;
+            this.times = times;
+        }
+
+        public int size() {
+            return nodes.length;
+        }
+
+        public int node(int index) {
+            return nodes[index];
+        }
+
+        public int time(int index) {
+            return times[index];
+        }
+    }
+}
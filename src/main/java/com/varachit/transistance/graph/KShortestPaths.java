@@ -0,0 +1,201 @@
+package com.varachit.transistance.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/*
+ * Yen's k shortest loopless paths over a TransitGraph
+ * A one-to-all search from the destination is kept in the second search slot for the whole query. Since the
+ * graph is symmetric it holds the exact distance of every node to the destination, which guides each spur
+ * search as an A* heuristic: removing edges and nodes only makes paths longer, so the bound stays consistent
+ * and a spur search whose tree path is not blocked walks straight down it
+ */
+public final class KShortestPaths {
+
+    private KShortestPaths() {
+    }
+
+    /*
+     * Up to k shortest paths from source to target, in order of weight
+     * The search stops at the deadline (System.nanoTime()) and returns the paths completed so far, which are
+     * always the exact first paths of the full answer
+     */
+    public static List<Path> shortestPaths(TransitGraph graph, int source, int target, Criteria criteria, int k,
+                                           long deadline) {
+        List<Path> found = new ArrayList<>(k);
+        int[] weights = graph.weights(criteria);
+        SearchSpace tree = SearchSpace.acquire(graph.getNodeCount(), 1);
+        growTree(graph, weights, target, tree);
+        if(!tree.isReached(source) || k <= 0) {
+            return found;
+        }
+
+        boolean[] blockedNodes = new boolean[graph.getNodeCount()];
+        boolean[] blockedEdges = new boolean[graph.getEdgeCount()];
+        found.add(spur(graph, weights, tree, source, target, blockedNodes, blockedEdges));
+
+        PriorityQueue<Path> candidates = new PriorityQueue<>(
+                Comparator.comparingInt(Path::getWeight).thenComparingInt(Path::length));
+        Set<EdgeSequence> seen = new HashSet<>();
+        seen.add(new EdgeSequence(found.get(0)));
+        IntList blocked = new IntList();
+
+        while(found.size() < k) {
+            Path previous = found.get(found.size() - 1);
+            int rootWeight = 0;
+            for(int spurIndex = 0; spurIndex < previous.length() - 1; spurIndex++) {
+                if(System.nanoTime() > deadline) {
+                    return found;
+                }
+                int spurNode = previous.node(spurIndex);
+                // Leave the spur node by an edge no earlier path with the same root has taken
+                for(Path path : found) {
+                    if(sharesRoot(path, previous, spurIndex)) {
+                        int edge = path.edge(spurIndex + 1);
+                        blockedEdges[edge] = true;
+                        blocked.add(edge);
+                    }
+                }
+                // and never return to the root, which keeps every candidate loopless
+                for(int index = 0; index < spurIndex; index++) {
+                    blockedNodes[previous.node(index)] = true;
+                }
+
+                Path spurPath = spur(graph, weights, tree, spurNode, target, blockedNodes, blockedEdges);
+
+                for(int index = 0; index < blocked.size(); index++) {
+                    blockedEdges[blocked.get(index)] = false;
+                }
+                blocked.clear();
+                for(int index = 0; index < spurIndex; index++) {
+                    blockedNodes[previous.node(index)] = false;
+                }
+
+                if(spurPath != null) {
+                    Path candidate = join(previous, spurIndex, rootWeight, spurPath);
+                    if(seen.add(new EdgeSequence(candidate))) {
+                        candidates.add(candidate);
+                    }
+                }
+                rootWeight += weights[previous.edge(spurIndex + 1)];
+            }
+            if(candidates.isEmpty()) {
+                break;
+            }
+            found.add(candidates.poll());
+        }
+        return found;
+    }
+
+    // One-to-all Dijkstra from the target; on a symmetric graph these are the distances to the target
+    private static void growTree(TransitGraph graph, int[] weights, int target, SearchSpace tree) {
+        IntMinHeap heap = tree.heap();
+        tree.reach(target, 0, -1, -1);
+        heap.offer(target, 0);
+        while(!heap.isEmpty()) {
+            int node = heap.poll();
+            if(node != target && graph.isClosed(node)) {
+                continue;
+            }
+            int distance = tree.distance(node);
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                int next = graph.target(edge);
+                int candidate = distance + weights[edge];
+                if(candidate < tree.distance(next)) {
+                    tree.reach(next, candidate, node, edge);
+                    heap.offer(next, candidate);
+                }
+            }
+        }
+    }
+
+    // A* from source to target around the blocked nodes and edges, guided by the exact tree distances
+    private static Path spur(TransitGraph graph, int[] weights, SearchSpace tree, int source, int target,
+                             boolean[] blockedNodes, boolean[] blockedEdges) {
+        SearchSpace space = SearchSpace.acquire(graph.getNodeCount(), 0);
+        IntMinHeap heap = space.heap();
+        space.reach(source, 0, -1, -1);
+        heap.offer(source, tree.distance(source));
+
+        int settled = 0;
+        while(!heap.isEmpty()) {
+            int node = heap.poll();
+            settled++;
+            if(node == target) {
+                return Path.fromSearch(space, source, target, settled);
+            }
+            if(node != source && graph.isClosed(node)) {
+                continue;
+            }
+            int distance = space.distance(node);
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                int next = graph.target(edge);
+                // Nodes the unrestricted tree cannot connect to the target are dead ends here as well
+                if(blockedEdges[edge] || blockedNodes[next] || !tree.isReached(next)) {
+                    continue;
+                }
+                int candidate = distance + weights[edge];
+                if(candidate < space.distance(next)) {
+                    space.reach(next, candidate, node, edge);
+                    heap.offer(next, candidate + tree.distance(next));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean sharesRoot(Path path, Path root, int spurIndex) {
+        if(path.length() <= spurIndex + 1) {
+            return false;
+        }
+        for(int index = 0; index <= spurIndex; index++) {
+            if(path.node(index) != root.node(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The root of previous up to the spur node followed by the spur path
+    private static Path join(Path previous, int spurIndex, int rootWeight, Path spurPath) {
+        int length = spurIndex + spurPath.length();
+        int[] nodes = new int[length];
+        int[] edges = new int[length - 1];
+        for(int index = 0; index <= spurIndex; index++) {
+            nodes[index] = previous.node(index);
+            if(index > 0) {
+                edges[index - 1] = previous.edge(index);
+            }
+        }
+        for(int index = 1; index < spurPath.length(); index++) {
+            nodes[spurIndex + index] = spurPath.node(index);
+            edges[spurIndex + index - 1] = spurPath.edge(index);
+        }
+        return new Path(nodes, edges, rootWeight + spurPath.getWeight(), spurPath.getSettledNodes());
+    }
+
+    private static final class EdgeSequence {
+        private final int[] edges;
+        private final int hash;
+
+        EdgeSequence(Path path) {
+            this.edges = path.getEdges();
+            this.hash = Arrays.hashCode(edges);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EdgeSequence && Arrays.equals(edges, ((EdgeSequence) o).edges);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
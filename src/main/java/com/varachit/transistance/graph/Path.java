@@ -0,0 +1,66 @@
+package com.varachit.transistance.graph;
+
+/*
+ * Result of a point-to-point search: the visited node indexes, the edges taken between them,
+ * the total weight, and the number of nodes the search settled to find it
+ */
+public final class Path {
+    private final int[] nodes;
+    private final int[] edges;
+    private final int weight;
+    private final int settledNodes;
+
+    public Path(int[] nodes, int[] edges, int weight, int settledNodes) {
+        this.nodes = nodes;
+        this.edges = edges;
+        this.weight = weight;
+        this.settledNodes = settledNodes;
+    }
+
+    public int[] getNodes() {
+        return nodes.clone();
+    }
+
+    public int[] getEdges() {
+        return edges.clone();
+    }
+
+    public int length() {
+        return nodes.length;
+    }
+
+    public int node(int index) {
+        return nodes[index];
+    }
+
+    // Edge used to arrive at nodes[index], or -1 for the origin
+    public int edge(int index) {
+        return index == 0 ? -1 : edges[index - 1];
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    // Walk the parent pointers of a finished search back from target to the origin
+    static Path fromSearch(SearchSpace space, int source, int target, int settledNodes) {
+        int hops = 0;
+        for(int node = target; node != source; node = space.parent(node)) {
+            hops++;
+        }
+        int[] nodes = new int[hops + 1];
+        int[] edges = new int[hops];
+        int node = target;
+        for(int index = hops; index > 0; index--) {
+            nodes[index] = node;
+            edges[index - 1] = space.parentEdge(node);
+            node = space.parent(node);
+        }
+        nodes[0] = source;
+        return new Path(nodes, edges, space.distance(target), settledNodes);
+    }
+}
@@ -0,0 +1,12 @@
+package com.varachit.transistance.graph;
+
+/*
+    DIJKSTRA : Plain Dijkstra, settles every node closer than the destination
+    ASTAR    : A* guided by a great-circle lower bound to the destination
+    CH       : Bidirectional upward search over a precomputed contraction hierarchy
+*/
+public enum SearchMode {
+    DIJKSTRA,
+    ASTAR,
+    CH
+}
@@ -0,0 +1,116 @@
+package com.varachit.transistance.graph;
+
+import java.util.Arrays;
+
+/*
+ * Per-thread scratch arrays for graph searches
+ * Entries are tagged with a generation stamp instead of being cleared, so starting a new search is O(1)
+ * and a search allocates nothing once the arrays have grown to the size of the graph
+ */
+final class SearchSpace {
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    // Independent search spaces per thread, so bidirectional searches can run a forward and a backward search
+    static final int SLOTS = 2;
+
+    private static final ThreadLocal<SearchSpace[]> LOCAL = ThreadLocal.withInitial(() -> {
+        SearchSpace[] spaces = new SearchSpace[SLOTS];
+        for(int slot = 0; slot < SLOTS; slot++) {
+            spaces[slot] = new SearchSpace();
+        }
+        return spaces;
+    });
+
+    private int[] distances = new int[0];
+    private int[] parentEdges = new int[0];
+    private int[] parents = new int[0];
+    private int[] estimates = new int[0];
+    private int[] stamps = new int[0];
+    private int[] settled = new int[0];
+    private int settledCount;
+    private int stamp;
+    private final IntMinHeap heap = new IntMinHeap(0);
+
+    private SearchSpace() {
+    }
+
+    // Borrow the calling thread's search space, prepared for a fresh search over nodeCount nodes
+    static SearchSpace acquire(int nodeCount) {
+        return acquire(nodeCount, 0);
+    }
+
+    static SearchSpace acquire(int nodeCount, int slot) {
+        SearchSpace space = LOCAL.get()[slot];
+        space.begin(nodeCount);
+        return space;
+    }
+
+    private void begin(int nodeCount) {
+        if(stamps.length < nodeCount) {
+            distances = new int[nodeCount];
+            parentEdges = new int[nodeCount];
+            parents = new int[nodeCount];
+            estimates = new int[nodeCount];
+            stamps = new int[nodeCount];
+            settled = new int[nodeCount];
+            stamp = 0;
+        }
+        settledCount = 0;
+        heap.ensureCapacity(nodeCount);
+        heap.clear();
+        if(++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    IntMinHeap heap() {
+        return heap;
+    }
+
+    boolean isReached(int node) {
+        return stamps[node] == stamp;
+    }
+
+    int distance(int node) {
+        return stamps[node] == stamp ? distances[node] : UNREACHED;
+    }
+
+    int parentEdge(int node) {
+        return parentEdges[node];
+    }
+
+    int parent(int node) {
+        return parents[node];
+    }
+
+    // Heuristic estimate cached by A* when the node was first reached
+    int estimate(int node) {
+        return estimates[node];
+    }
+
+    // Record a node in settling order, for searches that report every node they settle
+    void settle(int node) {
+        settled[settledCount++] = node;
+    }
+
+    int settledCount() {
+        return settledCount;
+    }
+
+    int settled(int index) {
+        return settled[index];
+    }
+
+    void reach(int node, int distance, int parent, int parentEdge, int estimate) {
+        reach(node, distance, parent, parentEdge);
+        estimates[node] = estimate;
+    }
+
+    void reach(int node, int distance, int parent, int parentEdge) {
+        stamps[node] = stamp;
+        distances[node] = distance;
+        parents[node] = parent;
+        parentEdges[node] = parentEdge;
+    }
+}
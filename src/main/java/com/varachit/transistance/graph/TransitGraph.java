@@ -0,0 +1,214 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+
+import java.util.*;
+
+/*
+ * Immutable, int-indexed view of the transit network used by the journey planner
+ * Stations are dense node indexes backed by primitive arrays and adjacency is stored in CSR form:
+ * the outgoing edges of node n are the edge indexes firstEdge[n] until firstEdge[n + 1] (exclusive)
+ */
+public final class TransitGraph {
+    // Route index of walking transfer edges between nearby stations
+    public static final int TRANSFER = -1;
+
+    private static final StationType[] STATION_TYPES = StationType.values();
+
+    private final long version;
+    private final long[] stationIds;
+    private final String[] codes;
+    private final String[] names;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final byte[] types;
+    private final boolean[] closed;
+    private final int[] firstEdge;
+    private final int[] edgeTarget;
+    private final int[] edgeDistance;
+    private final int[] edgeTime;
+    private final int[] edgeRoute;
+    private final String[] routeNames;
+    private final Map<String, Integer> codeIndex;
+
+    TransitGraph(long version, long[] stationIds, String[] codes, String[] names, double[] latitudes,
+                 double[] longitudes, byte[] types, boolean[] closed, int[] firstEdge, int[] edgeTarget,
+                 int[] edgeDistance, int[] edgeTime, int[] edgeRoute, String[] routeNames,
+                 Map<String, Integer> codeIndex) {
+        this.version = version;
+        this.stationIds = stationIds;
+        this.codes = codes;
+        this.names = names;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.types = types;
+        this.closed = closed;
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeDistance = edgeDistance;
+        this.edgeTime = edgeTime;
+        this.edgeRoute = edgeRoute;
+        this.routeNames = routeNames;
+        this.codeIndex = codeIndex;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getNodeCount() {
+        return codes.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeTarget.length;
+    }
+
+    // Node index of the station with the given code, or -1 when the station is not part of any route
+    public int indexOf(String code) {
+        Integer node = code == null ? null : codeIndex.get(code);
+        return node == null ? -1 : node;
+    }
+
+    public long stationId(int node) {
+        return stationIds[node];
+    }
+
+    public String code(int node) {
+        return codes[node];
+    }
+
+    public String name(int node) {
+        return names[node];
+    }
+
+    public double latitude(int node) {
+        return latitudes[node];
+    }
+
+    public double longitude(int node) {
+        return longitudes[node];
+    }
+
+    public StationType type(int node) {
+        return STATION_TYPES[types[node]];
+    }
+
+    public boolean isClosed(int node) {
+        return closed[node];
+    }
+
+    public int firstEdge(int node) {
+        return firstEdge[node];
+    }
+
+    public int endEdge(int node) {
+        return firstEdge[node + 1];
+    }
+
+    public int target(int edge) {
+        return edgeTarget[edge];
+    }
+
+    // Edge length in metres
+    public int distance(int edge) {
+        return edgeDistance[edge];
+    }
+
+    // Edge travel time in seconds
+    public int time(int edge) {
+        return edgeTime[edge];
+    }
+
+    public int weight(int edge, Criteria criteria) {
+        return criteria == Criteria.TIME ? edgeTime[edge] : edgeDistance[edge];
+    }
+
+    // Backing weight array for the searches in this package, which must treat it as read-only
+    int[] weights(Criteria criteria) {
+        return criteria == Criteria.TIME ? edgeTime : edgeDistance;
+    }
+
+    // Index of the route the edge belongs to, or TRANSFER for a walking transfer
+    public int route(int edge) {
+        return edgeRoute[edge];
+    }
+
+    public boolean isTransfer(int edge) {
+        return edgeRoute[edge] == TRANSFER;
+    }
+
+    // A station is an interchange when it is served by several routes or a walking transfer leaves from it
+    public boolean isInterchange(int node) {
+        int firstRoute = TRANSFER;
+        for(int edge = firstEdge[node], end = firstEdge[node + 1]; edge < end; edge++) {
+            int route = edgeRoute[edge];
+            if(route == TRANSFER || (firstRoute != TRANSFER && route != firstRoute)) {
+                return true;
+            }
+            firstRoute = route;
+        }
+        return false;
+    }
+
+    public String routeName(int route) {
+        return route < 0 ? null : routeNames[route];
+    }
+
+    // Index of the route with the given name, or -1 when no station of the graph is on it
+    public int indexOfRoute(String name) {
+        for(int route = 0; route < routeNames.length; route++) {
+            if(routeNames[route].equals(name)) {
+                return route;
+            }
+        }
+        return -1;
+    }
+
+    public int getRouteCount() {
+        return routeNames.length;
+    }
+
+    // New version sharing the station and edge arrays of this graph, used by TransitGraphPatch
+    TransitGraph withClosed(long version, boolean[] closed) {
+        return withEdges(version, closed, List.of(), firstEdge, edgeTarget, edgeDistance, edgeTime, edgeRoute);
+    }
+
+    /*
+     * New version with the given edges and its closed flags when closed is null. The station arrays are shared
+     * unless stations are appended, which become the nodes after the existing ones in the given order
+     */
+    TransitGraph withEdges(long version, boolean[] closed, List<Station> addedStations, int[] firstEdge,
+                           int[] edgeTarget, int[] edgeDistance, int[] edgeTime, int[] edgeRoute) {
+        boolean[] baseClosed = closed != null ? closed : this.closed;
+        if(addedStations.isEmpty()) {
+            return new TransitGraph(version, stationIds, codes, names, latitudes, longitudes, types, baseClosed,
+                    firstEdge, edgeTarget, edgeDistance, edgeTime, edgeRoute, routeNames, codeIndex);
+        }
+        int nodeCount = codes.length + addedStations.size();
+        long[] patchedIds = Arrays.copyOf(stationIds, nodeCount);
+        String[] patchedCodes = Arrays.copyOf(codes, nodeCount);
+        String[] patchedNames = Arrays.copyOf(names, nodeCount);
+        double[] patchedLatitudes = Arrays.copyOf(latitudes, nodeCount);
+        double[] patchedLongitudes = Arrays.copyOf(longitudes, nodeCount);
+        byte[] patchedTypes = Arrays.copyOf(types, nodeCount);
+        boolean[] patchedClosed = Arrays.copyOf(baseClosed, nodeCount);
+        Map<String, Integer> patchedIndex = new HashMap<>(codeIndex);
+        for(int index = 0; index < addedStations.size(); index++) {
+            Station station = addedStations.get(index);
+            int node = codes.length + index;
+            patchedIds[node] = station.getId() == null ? -1 : station.getId();
+            patchedCodes[node] = station.getCode();
+            patchedNames[node] = station.getName();
+            patchedLatitudes[node] = station.getLatitude();
+            patchedLongitudes[node] = station.getLongitude();
+            patchedTypes[node] = TransitGraphBuilder.typeOf(station);
+            patchedClosed[node] = TransitGraphBuilder.isClosed(station);
+            patchedIndex.put(station.getCode(), node);
+        }
+        return new TransitGraph(version, patchedIds, patchedCodes, patchedNames, patchedLatitudes,
+                patchedLongitudes, patchedTypes, patchedClosed, firstEdge, edgeTarget, edgeDistance, edgeTime,
+                edgeRoute, routeNames, Collections.unmodifiableMap(patchedIndex));
+    }
+}
@@ -0,0 +1,220 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.index.SpatialGrid;
+import com.varachit.transistance.util.GeoUtils;
+
+import java.util.*;
+
+/*
+ * Collects stations and the hops between consecutive stations of every route,
+ * then packs them into an immutable TransitGraph
+ * Stations are keyed by their unique code, so a station shared by several routes becomes a single node
+ */
+public class TransitGraphBuilder {
+    // Average walking speed in metres per second used for transfers between nearby stations
+    public static final double WALKING_SPEED = 1.2;
+
+    private final Map<String, Integer> codeIndex = new HashMap<>();
+    private final List<Station> stations = new ArrayList<>();
+    private final List<IntList> stationRoutes = new ArrayList<>();
+    private final List<String> routeNames = new ArrayList<>();
+    private int[] edgeSource = new int[64];
+    private int[] edgeTarget = new int[64];
+    private int[] edgeDistance = new int[64];
+    private int[] edgeTime = new int[64];
+    private int[] edgeRoute = new int[64];
+    private int edgeCount;
+
+    public TransitGraphBuilder addRoutes(Collection<Route> routes) {
+        routes.forEach(this::addRoute);
+        return this;
+    }
+
+    public TransitGraphBuilder addRoute(Route route) {
+        if(route.getStations() == null) {
+            return this;
+        }
+        int routeIndex = routeNames.size();
+        routeNames.add(route.getName());
+
+        int previous = -1;
+        for(Station station : route.getStations()) {
+            int node = addStation(station);
+            if(node < 0) {
+                continue;
+            }
+            IntList routes = stationRoutes.get(node);
+            if(routes.isEmpty() || routes.get(routes.size() - 1) != routeIndex) {
+                routes.add(routeIndex);
+            }
+            if(previous >= 0 && previous != node) {
+                StationType mode = route.getType() != null ? route.getType() : station.getType();
+                int distance = distanceBetween(previous, node);
+                int time = travelTime(distance, mode);
+                addEdge(previous, node, distance, time, routeIndex);
+                addEdge(node, previous, distance, time, routeIndex);
+            }
+            previous = node;
+        }
+        return this;
+    }
+
+    /*
+     * Connect every pair of stations within radiusMetres of each other that do not share a route
+     * with walking transfer edges, e.g. BTS Asok and MRT Sukhumvit
+     * Candidates come from a uniform grid with cells the size of the radius, so the pass stays near-linear
+     */
+    public TransitGraphBuilder addTransfers(double radiusMetres) {
+        int nodeCount = stations.size();
+        if(radiusMetres <= 0 || nodeCount < 2) {
+            return this;
+        }
+        double[] latitudes = new double[nodeCount];
+        double[] longitudes = new double[nodeCount];
+        for(int node = 0; node < nodeCount; node++) {
+            latitudes[node] = stations.get(node).getLatitude();
+            longitudes[node] = stations.get(node).getLongitude();
+        }
+
+        SpatialGrid grid = SpatialGrid.build(latitudes, longitudes, radiusMetres);
+        for(int node = 0; node < nodeCount; node++) {
+            for(int nearby : grid.withinRadius(latitudes[node], longitudes[node], radiusMetres)) {
+                if(nearby > node && !shareRoute(node, nearby)) {
+                    int distance = distanceBetween(node, nearby);
+                    int time = Math.max(1, (int) Math.ceil(distance / WALKING_SPEED));
+                    addEdge(node, nearby, distance, time, TransitGraph.TRANSFER);
+                    addEdge(nearby, node, distance, time, TransitGraph.TRANSFER);
+                }
+            }
+        }
+        return this;
+    }
+
+    public TransitGraph build(long version) {
+        int nodeCount = stations.size();
+        long[] stationIds = new long[nodeCount];
+        String[] codes = new String[nodeCount];
+        String[] names = new String[nodeCount];
+        double[] latitudes = new double[nodeCount];
+        double[] longitudes = new double[nodeCount];
+        byte[] types = new byte[nodeCount];
+        boolean[] closed = new boolean[nodeCount];
+
+        for(int node = 0; node < nodeCount; node++) {
+            Station station = stations.get(node);
+            stationIds[node] = station.getId() == null ? -1 : station.getId();
+            codes[node] = station.getCode();
+            names[node] = station.getName();
+            latitudes[node] = station.getLatitude();
+            longitudes[node] = station.getLongitude();
+            types[node] = typeOf(station);
+            closed[node] = isClosed(station);
+        }
+
+        // Counting sort of the edge list by source node into CSR arrays
+        int[] firstEdge = new int[nodeCount + 1];
+        for(int edge = 0; edge < edgeCount; edge++) {
+            firstEdge[edgeSource[edge] + 1]++;
+        }
+        for(int node = 0; node < nodeCount; node++) {
+            firstEdge[node + 1] += firstEdge[node];
+        }
+        int[] cursor = Arrays.copyOf(firstEdge, nodeCount);
+        int[] targets = new int[edgeCount];
+        int[] distances = new int[edgeCount];
+        int[] times = new int[edgeCount];
+        int[] routes = new int[edgeCount];
+        for(int edge = 0; edge < edgeCount; edge++) {
+            int slot = cursor[edgeSource[edge]]++;
+            targets[slot] = edgeTarget[edge];
+            distances[slot] = edgeDistance[edge];
+            times[slot] = edgeTime[edge];
+            routes[slot] = edgeRoute[edge];
+        }
+
+        return new TransitGraph(version, stationIds, codes, names, latitudes, longitudes, types, closed,
+                firstEdge, targets, distances, times, routes, routeNames.toArray(new String[0]),
+                Collections.unmodifiableMap(new HashMap<>(codeIndex)));
+    }
+
+    private int addStation(Station station) {
+        if(!isLocated(station)) {
+            return -1;
+        }
+        Integer existing = codeIndex.get(station.getCode());
+        if(existing != null) {
+            return existing;
+        }
+        int node = stations.size();
+        stations.add(station);
+        stationRoutes.add(new IntList(2));
+        codeIndex.put(station.getCode(), node);
+        return node;
+    }
+
+    static byte typeOf(Station station) {
+        return (byte) (station.getType() == null ? 0 : station.getType().ordinal());
+    }
+
+    static boolean isClosed(Station station) {
+        return station.getStatus() != null && station.getStatus() != StationStatus.OPENED;
+    }
+
+    // Whether the station can become a node: it has a code and a location
+    static boolean isLocated(Station station) {
+        return station != null && station.getCode() != null
+                && station.getLatitude() != null && station.getLongitude() != null;
+    }
+
+    private boolean shareRoute(int a, int b) {
+        IntList routesOfA = stationRoutes.get(a);
+        IntList routesOfB = stationRoutes.get(b);
+        for(int i = 0; i < routesOfA.size(); i++) {
+            for(int j = 0; j < routesOfB.size(); j++) {
+                if(routesOfA.get(i) == routesOfB.get(j)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int distanceBetween(int from, int to) {
+        Station a = stations.get(from);
+        Station b = stations.get(to);
+        return distance(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude());
+    }
+
+    static int distance(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double metres = GeoUtils.haversine(fromLatitude, fromLongitude, toLatitude, toLongitude);
+        // Rounded up so no path is ever shorter than the great-circle distance the A* heuristic assumes,
+        // and co-located stations still cost something so paths never tie on zero-length hops
+        return Math.max(1, (int) Math.ceil(metres));
+    }
+
+    static int travelTime(int distance, StationType mode) {
+        double metresPerSecond = mode != null ? mode.getMetresPerSecond() : StationType.getFastestMetresPerSecond();
+        return Math.max(1, (int) Math.ceil(distance / metresPerSecond));
+    }
+
+    private void addEdge(int from, int to, int distance, int time, int route) {
+        if(edgeCount == edgeSource.length) {
+            int capacity = edgeCount * 2;
+            edgeSource = Arrays.copyOf(edgeSource, capacity);
+            edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+            edgeDistance = Arrays.copyOf(edgeDistance, capacity);
+            edgeTime = Arrays.copyOf(edgeTime, capacity);
+            edgeRoute = Arrays.copyOf(edgeRoute, capacity);
+        }
+        edgeSource[edgeCount] = from;
+        edgeTarget[edgeCount] = to;
+        edgeDistance[edgeCount] = distance;
+        edgeTime[edgeCount] = time;
+        edgeRoute[edgeCount] = route;
+        edgeCount++;
+    }
+}
@@ -0,0 +1,155 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Copy-on-write edit of an immutable TransitGraph
+ * Changes are collected first and apply() packs them into a new version that shares every array it does not
+ * modify with the original, which queries already running keep reading untouched.
+ * Stations can be appended as new nodes, numbered after the nodes of the graph.
+ * Walking transfers are left as they are, only the next full build recomputes them
+ */
+public final class TransitGraphPatch {
+    private final TransitGraph graph;
+    private boolean[] closed;
+    private final List<Station> addedStations = new ArrayList<>();
+    // Five ints per added edge: source, target, distance, time and route
+    private final IntList addedEdges = new IntList(10);
+    // Three ints per removed edge: source, target and route
+    private final IntList removedEdges = new IntList(6);
+
+    public TransitGraphPatch(TransitGraph graph) {
+        this.graph = graph;
+    }
+
+    public TransitGraphPatch setClosed(int node, boolean isClosed) {
+        if(closed == null) {
+            closed = new boolean[graph.getNodeCount()];
+            for(int index = 0; index < closed.length; index++) {
+                closed[index] = graph.isClosed(index);
+            }
+        }
+        closed[node] = isClosed;
+        return this;
+    }
+
+    // Append the station as a new node and return it, or -1 when it has no code or location
+    public int addStation(Station station) {
+        if(!TransitGraphBuilder.isLocated(station)) {
+            return -1;
+        }
+        addedStations.add(station);
+        return graph.getNodeCount() + addedStations.size() - 1;
+    }
+
+    // Connect two stations with a hop of the route in both directions, weighted like TransitGraphBuilder does
+    public TransitGraphPatch addRouteEdge(int from, int to, int route, StationType mode) {
+        int distance = TransitGraphBuilder.distance(latitude(from), longitude(from), latitude(to), longitude(to));
+        int time = TransitGraphBuilder.travelTime(distance, mode);
+        addEdge(from, to, distance, time, route);
+        addEdge(to, from, distance, time, route);
+        return this;
+    }
+
+    // Remove the hops of the route between two stations in both directions
+    public TransitGraphPatch removeRouteEdges(int from, int to, int route) {
+        removedEdges.add(from);
+        removedEdges.add(to);
+        removedEdges.add(route);
+        removedEdges.add(to);
+        removedEdges.add(from);
+        removedEdges.add(route);
+        return this;
+    }
+
+    public TransitGraph apply(long version) {
+        // Cloned so applying the patch again after further edits never changes a published graph
+        boolean[] patchedClosed = closed != null ? closed.clone() : null;
+        if(addedEdges.isEmpty() && removedEdges.isEmpty() && addedStations.isEmpty()) {
+            return graph.withClosed(version, patchedClosed);
+        }
+        int baseCount = graph.getNodeCount();
+        int nodeCount = baseCount + addedStations.size();
+        boolean[] removed = new boolean[graph.getEdgeCount()];
+        int[] firstEdge = new int[nodeCount + 1];
+        for(int node = 0; node < baseCount; node++) {
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                removed[edge] = isRemoved(node, graph.target(edge), graph.route(edge));
+                if(!removed[edge]) {
+                    firstEdge[node + 1]++;
+                }
+            }
+        }
+        for(int index = 0; index < addedEdges.size(); index += 5) {
+            firstEdge[addedEdges.get(index) + 1]++;
+        }
+        for(int node = 0; node < nodeCount; node++) {
+            firstEdge[node + 1] += firstEdge[node];
+        }
+
+        int edgeCount = firstEdge[nodeCount];
+        int[] targets = new int[edgeCount];
+        int[] distances = new int[edgeCount];
+        int[] times = new int[edgeCount];
+        int[] routes = new int[edgeCount];
+        int[] cursor = new int[nodeCount];
+        for(int node = baseCount; node < nodeCount; node++) {
+            cursor[node] = firstEdge[node];
+        }
+        for(int node = 0; node < baseCount; node++) {
+            int slot = firstEdge[node];
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                if(!removed[edge]) {
+                    targets[slot] = graph.target(edge);
+                    distances[slot] = graph.distance(edge);
+                    times[slot] = graph.time(edge);
+                    routes[slot] = graph.route(edge);
+                    slot++;
+                }
+            }
+            cursor[node] = slot;
+        }
+        // Added edges go after the kept ones of their source node
+        for(int index = 0; index < addedEdges.size(); index += 5) {
+            int slot = cursor[addedEdges.get(index)]++;
+            targets[slot] = addedEdges.get(index + 1);
+            distances[slot] = addedEdges.get(index + 2);
+            times[slot] = addedEdges.get(index + 3);
+            routes[slot] = addedEdges.get(index + 4);
+        }
+        return graph.withEdges(version, patchedClosed, List.copyOf(addedStations), firstEdge, targets, distances,
+                times, routes);
+    }
+
+    private double latitude(int node) {
+        int added = node - graph.getNodeCount();
+        return added < 0 ? graph.latitude(node) : addedStations.get(added).getLatitude();
+    }
+
+    private double longitude(int node) {
+        int added = node - graph.getNodeCount();
+        return added < 0 ? graph.longitude(node) : addedStations.get(added).getLongitude();
+    }
+
+    private boolean isRemoved(int from, int to, int route) {
+        for(int index = 0; index < removedEdges.size(); index += 3) {
+            if(removedEdges.get(index) == from && removedEdges.get(index + 1) == to
+                    && removedEdges.get(index + 2) == route) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addEdge(int from, int to, int distance, int time, int route) {
+        addedEdges.add(from);
+        addedEdges.add(to);
+        addedEdges.add(distance);
+        addedEdges.add(time);
+        addedEdges.add(route);
+    }
+}
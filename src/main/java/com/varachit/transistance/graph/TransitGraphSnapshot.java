@@ -0,0 +1,209 @@
+package com.varachit.transistance.graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Compact binary file holding a whole TransitGraph, so a restarted node can skip the database and the build
+ * Layout (big-endian): header, station arrays, CSR adjacency with the route of every edge, route names,
+ * then a CRC32 of everything before it. The header stores the fingerprint of the database state the graph was
+ * built from, a snapshot is only loaded while the database still has that fingerprint
+ */
+public final class TransitGraphSnapshot {
+    private static final int MAGIC = 0x54524E53; // "TRNS"
+    // Bump whenever the layout changes, older files are then ignored and rewritten
+    private static final int FORMAT = 1;
+
+    private TransitGraphSnapshot() {}
+
+    // Write to a temporary file first and move it over the snapshot, so readers never see a partial file
+    public static void write(TransitGraph graph, long fingerprint, File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try(DataOutputStream output = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16), checksum))) {
+            int nodeCount = graph.getNodeCount();
+            int edgeCount = graph.getEdgeCount();
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT);
+            output.writeLong(graph.getVersion());
+            output.writeLong(fingerprint);
+            output.writeInt(nodeCount);
+            output.writeInt(edgeCount);
+            output.writeInt(graph.getRouteCount());
+
+            for(int node = 0; node < nodeCount; node++) {
+                output.writeLong(graph.stationId(node));
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                output.writeDouble(graph.latitude(node));
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                output.writeDouble(graph.longitude(node));
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                output.writeByte(graph.type(node).ordinal());
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                output.writeBoolean(graph.isClosed(node));
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                writeString(output, graph.code(node));
+            }
+            for(int node = 0; node < nodeCount; node++) {
+                writeString(output, graph.name(node));
+            }
+
+            for(int node = 0; node < nodeCount; node++) {
+                output.writeInt(graph.firstEdge(node));
+            }
+            output.writeInt(edgeCount);
+            for(int edge = 0; edge < edgeCount; edge++) {
+                output.writeInt(graph.target(edge));
+            }
+            for(int edge = 0; edge < edgeCount; edge++) {
+                output.writeInt(graph.distance(edge));
+            }
+            for(int edge = 0; edge < edgeCount; edge++) {
+                output.writeInt(graph.time(edge));
+            }
+            for(int edge = 0; edge < edgeCount; edge++) {
+                output.writeInt(graph.route(edge));
+            }
+            for(int route = 0; route < graph.getRouteCount(); route++) {
+                writeString(output, graph.routeName(route));
+            }
+            // Taken before it is written, so the checksum covers everything but itself
+            output.writeLong(checksum.getValue());
+        }
+        try {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException exception) {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /*
+     * Memory-map the snapshot and unpack it into a graph
+     * Returns null when the file is missing, has another format or was built from another database state,
+     * and throws when it is truncated or its checksum does not match
+     */
+    public static TransitGraph read(File file, long fingerprint) throws IOException {
+        if(!file.isFile()) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if(buffer.capacity() < 44 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT
+                || buffer.getLong(16) != fingerprint) {
+            return null;
+        }
+        int end = buffer.capacity() - Long.BYTES;
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().limit(end));
+        if(checksum.getValue() != buffer.getLong(end)) {
+            throw new IOException("Checksum mismatch in transit graph snapshot " + file);
+        }
+
+        try {
+            buffer.position(8);
+            buffer.limit(end);
+            long version = buffer.getLong();
+            buffer.getLong();
+            int nodeCount = buffer.getInt();
+            int edgeCount = buffer.getInt();
+            int routeCount = buffer.getInt();
+
+            long[] stationIds = new long[nodeCount];
+            buffer.asLongBuffer().get(stationIds);
+            skip(buffer, Long.BYTES * nodeCount);
+            double[] latitudes = new double[nodeCount];
+            buffer.asDoubleBuffer().get(latitudes);
+            skip(buffer, Double.BYTES * nodeCount);
+            double[] longitudes = new double[nodeCount];
+            buffer.asDoubleBuffer().get(longitudes);
+            skip(buffer, Double.BYTES * nodeCount);
+            byte[] types = new byte[nodeCount];
+            buffer.get(types);
+            boolean[] closed = new boolean[nodeCount];
+            for(int node = 0; node < nodeCount; node++) {
+                closed[node] = buffer.get() != 0;
+            }
+            String[] codes = new String[nodeCount];
+            Map<String, Integer> codeIndex = new HashMap<>(nodeCount * 2);
+            for(int node = 0; node < nodeCount; node++) {
+                codes[node] = readString(buffer);
+                codeIndex.put(codes[node], node);
+            }
+            String[] names = new String[nodeCount];
+            for(int node = 0; node < nodeCount; node++) {
+                names[node] = readString(buffer);
+            }
+
+            int[] firstEdge = readInts(buffer, nodeCount + 1);
+            int[] targets = readInts(buffer, edgeCount);
+            int[] distances = readInts(buffer, edgeCount);
+            int[] times = readInts(buffer, edgeCount);
+            int[] routes = readInts(buffer, edgeCount);
+            String[] routeNames = new String[routeCount];
+            for(int route = 0; route < routeCount; route++) {
+                routeNames[route] = readString(buffer);
+            }
+            return new TransitGraph(version, stationIds, codes, names, latitudes, longitudes, types, closed,
+                    firstEdge, targets, distances, times, routes, routeNames, Collections.unmodifiableMap(codeIndex));
+        } catch(RuntimeException exception) {
+            throw new IOException("Malformed transit graph snapshot " + file, exception);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        skip(buffer, Integer.BYTES * count);
+        return values;
+    }
+
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    // Length-prefixed UTF-8, -1 for null
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if(value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if(length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,58 @@
+package com.varachit.transistance.graph;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/*
+ * Immutable bundle of a transit graph, the contraction hierarchies preprocessed from it and the fingerprint of the
+ * database it reflects
+ * The planner publishes a whole network at once, so a query never mixes a graph with a hierarchy of another version
+ */
+public final class TransitNetwork {
+    private final TransitGraph graph;
+    private final Map<Criteria, ContractionHierarchy> hierarchies;
+    private final long fingerprint;
+
+    public TransitNetwork(TransitGraph graph, Map<Criteria, ContractionHierarchy> hierarchies, long fingerprint) {
+        this.graph = graph;
+        this.fingerprint = fingerprint;
+        this.hierarchies = hierarchies.isEmpty() ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new EnumMap<>(hierarchies));
+    }
+
+    // Build the graph's hierarchies for every criteria
+    public static TransitNetwork preprocess(TransitGraph graph, long fingerprint) {
+        Map<Criteria, ContractionHierarchy> hierarchies = new EnumMap<>(Criteria.class);
+        for(Criteria criteria : Criteria.values()) {
+            hierarchies.put(criteria, ContractionHierarchy.build(graph, criteria));
+        }
+        return new TransitNetwork(graph, hierarchies, fingerprint);
+    }
+
+    public TransitGraph getGraph() {
+        return graph;
+    }
+
+    public long getVersion() {
+        return graph.getVersion();
+    }
+
+    /*
+     * Fingerprint of the stations and routes the network reflects, read when it was built or patched
+     * Unlike the version it is the same in every instance and across restarts while the catalogue is unchanged
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    // False for a patched network published before its hierarchies were preprocessed again
+    public boolean hasHierarchies() {
+        return !hierarchies.isEmpty();
+    }
+
+    // Hierarchy for the criteria, or null when it has not been preprocessed
+    public ContractionHierarchy getHierarchy(Criteria criteria) {
+        return hierarchies.get(criteria);
+    }
+}
@@ -0,0 +1,221 @@
+package com.varachit.transistance.gtfs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * RFC 4180 record reader over a byte range, as GTFS files are written
+ * Fields are kept as offsets into the buffer and only become Strings when asked for; integers and times are
+ * parsed straight from the bytes, so reading a record allocates nothing. Quoted fields may hold commas,
+ * line breaks and doubled quotes
+ */
+public final class CsvReader {
+    private final byte[] data;
+    private final int end;
+    private int position;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] escaped = new boolean[16];
+    private int fieldCount;
+
+    public CsvReader(byte[] data, int from, int to) {
+        this.data = data;
+        this.position = from;
+        this.end = to;
+        // Skip the UTF-8 byte order mark some feeds start with
+        if(to - from >= 3 && (data[from] & 0xFF) == 0xEF && (data[from + 1] & 0xFF) == 0xBB
+                && (data[from + 2] & 0xFF) == 0xBF) {
+            this.position += 3;
+        }
+    }
+
+    public CsvReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    // Advance to the next non-empty record, false at the end of the range
+    public boolean next() {
+        while(position < end) {
+            fieldCount = 0;
+            boolean lineEnd = false;
+            while(!lineEnd) {
+                int start = position;
+                int stop;
+                boolean quoted = position < end && data[position] == '"';
+                boolean hasEscapes = false;
+                if(quoted) {
+                    start = ++position;
+                    while(position < end) {
+                        if(data[position] == '"') {
+                            if(position + 1 < end && data[position + 1] == '"') {
+                                hasEscapes = true;
+                                position += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        position++;
+                    }
+                    stop = position;
+                    // Skip the closing quote and anything up to the delimiter
+                    while(position < end && data[position] != ',' && data[position] != '\n') {
+                        position++;
+                    }
+                } else {
+                    while(position < end && data[position] != ',' && data[position] != '\n') {
+                        position++;
+                    }
+                    stop = position;
+                }
+                if(position >= end || data[position] == '\n') {
+                    lineEnd = true;
+                    if(!quoted && stop > start && data[stop - 1] == '\r') {
+                        stop--;
+                    }
+                }
+                addField(start, stop, hasEscapes);
+                position++;
+            }
+            if(fieldCount > 1 || ends[0] > starts[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Offset just past the current record
+    public int position() {
+        return Math.min(position, end);
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    // Field as a String, empty when the column is missing from this record
+    public String string(int column) {
+        if(column < 0 || column >= fieldCount) {
+            return "";
+        }
+        String value = new String(data, starts[column], ends[column] - starts[column], StandardCharsets.UTF_8);
+        return escaped[column] ? value.replace("\"\"", "\"") : value;
+    }
+
+    public boolean isEmpty(int column) {
+        return column < 0 || column >= fieldCount || ends[column] <= starts[column];
+    }
+
+    public int integer(int column, int missing) {
+        if(isEmpty(column)) {
+            return missing;
+        }
+        int value = 0;
+        boolean negative = false;
+        for(int index = starts[column]; index < ends[column]; index++) {
+            byte digit = data[index];
+            if(digit == '-' && index == starts[column]) {
+                negative = true;
+            } else if(digit >= '0' && digit <= '9') {
+                value = value * 10 + (digit - '0');
+            } else if(digit != ' ') {
+                throw new IllegalArgumentException("Invalid integer " + string(column));
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    // H:MM:SS as seconds after midnight of the service day, hours may pass 24; missing when empty
+    public int time(int column, int missing) {
+        if(isEmpty(column)) {
+            return missing;
+        }
+        int time = 0;
+        int part = 0;
+        int parts = 1;
+        for(int index = starts[column]; index < ends[column]; index++) {
+            byte digit = data[index];
+            if(digit == ':') {
+                time = time * 60 + part;
+                part = 0;
+                parts++;
+            } else if(digit >= '0' && digit <= '9') {
+                part = part * 10 + (digit - '0');
+            } else if(digit != ' ') {
+                throw new IllegalArgumentException("Invalid time " + string(column));
+            }
+        }
+        if(parts != 3) {
+            throw new IllegalArgumentException("Invalid time " + string(column));
+        }
+        return time * 60 + part;
+    }
+
+    public double decimal(int column) {
+        return Double.parseDouble(string(column).trim());
+    }
+
+    // Whether the field holds exactly the given bytes, without building a String
+    public boolean fieldEquals(int column, byte[] value) {
+        if(value == null || column < 0 || column >= fieldCount || escaped[column]
+                || ends[column] - starts[column] != value.length) {
+            return false;
+        }
+        for(int index = 0; index < value.length; index++) {
+            if(data[starts[column] + index] != value[index]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] bytes(int column) {
+        if(column < 0 || column >= fieldCount) {
+            return new byte[0];
+        }
+        byte[] value = new byte[ends[column] - starts[column]];
+        System.arraycopy(data, starts[column], value, 0, value.length);
+        return value;
+    }
+
+    // Column index by name from the header record, read from the current record
+    public Map<String, Integer> header() {
+        Map<String, Integer> columns = new HashMap<>();
+        for(int column = 0; column < fieldCount; column++) {
+            columns.put(string(column).trim(), column);
+        }
+        return columns;
+    }
+
+    /*
+     * End of the last complete record in data[from, to), or from if there is none
+     * The range must start at a record boundary, so quote parity tells which line breaks end a record
+     */
+    static int lastRecordEnd(byte[] data, int from, int to) {
+        boolean inQuotes = false;
+        int last = from;
+        for(int index = from; index < to; index++) {
+            byte value = data[index];
+            if(value == '"') {
+                inQuotes = !inQuotes;
+            } else if(value == '\n' && !inQuotes) {
+                last = index + 1;
+            }
+        }
+        return last;
+    }
+
+    private void addField(int start, int stop, boolean hasEscapes) {
+        if(fieldCount == starts.length) {
+            int capacity = fieldCount * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            escaped = Arrays.copyOf(escaped, capacity);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = stop;
+        escaped[fieldCount] = hasEscapes;
+        fieldCount++;
+    }
+}
@@ -0,0 +1,490 @@
+package com.varachit.transistance.gtfs;
+
+import com.varachit.transistance.graph.IntList;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+ * The parts of a GTFS feed the planner uses, read straight out of the zip without extracting it
+ * agency, stops, routes, trips and frequencies are small and read whole. stop_times.txt is inflated block by block:
+ * each block is cut at its last complete record and parsed on a worker while the next block is read, with a bounded
+ * number of blocks in flight. Stop times are kept as int columns, no object per row
+ */
+public final class GtfsFeed {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final List<Stop> stops = new ArrayList<>();
+    private final Map<String, Integer> stopIndex = new HashMap<>();
+    private final List<Route> routes = new ArrayList<>();
+    private final List<Trip> trips = new ArrayList<>();
+    private final Map<String, Integer> tripIndex = new HashMap<>();
+    private final Map<Integer, List<Frequency>> frequencies = new HashMap<>();
+
+    // Stop time columns, one entry per row of stop_times.txt in file order
+    private final IntList stopTimeTrips = new IntList();
+    private final IntList stopTimeStops = new IntList();
+    private final IntList stopTimeSequences = new IntList();
+    private final IntList stopTimeArrivals = new IntList();
+    private final IntList stopTimeDepartures = new IntList();
+
+    private GtfsFeed() {
+    }
+
+    public static GtfsFeed read(File file, int parallelism) throws IOException {
+        return read(file, parallelism, DEFAULT_BLOCK_SIZE);
+    }
+
+    static GtfsFeed read(File file, int parallelism, int blockSize) throws IOException {
+        GtfsFeed feed = new GtfsFeed();
+        try(ZipFile zip = new ZipFile(file)) {
+            Map<String, String> agencies = feed.readAgencies(zip);
+            feed.readStops(readEntry(zip, "stops.txt", true));
+            feed.readRoutes(readEntry(zip, "routes.txt", true), agencies);
+            feed.readTrips(readEntry(zip, "trips.txt", true));
+            feed.readFrequencies(readEntry(zip, "frequencies.txt", false));
+            feed.readStopTimes(zip, entry(zip, "stop_times.txt", true), parallelism, blockSize);
+        }
+        return feed;
+    }
+
+    public List<Stop> getStops() {
+        return stops;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    public List<Trip> getTrips() {
+        return trips;
+    }
+
+    public List<Frequency> getFrequencies(int trip) {
+        return frequencies.getOrDefault(trip, Collections.emptyList());
+    }
+
+    public int stopTimeCount() {
+        return stopTimeTrips.size();
+    }
+
+    public int stopTimeTrip(int row) {
+        return stopTimeTrips.get(row);
+    }
+
+    public int stopTimeStop(int row) {
+        return stopTimeStops.get(row);
+    }
+
+    public int stopTimeSequence(int row) {
+        return stopTimeSequences.get(row);
+    }
+
+    // Seconds after midnight of the service day, -1 where the feed leaves the time to be interpolated
+    public int stopTimeArrival(int row) {
+        return stopTimeArrivals.get(row);
+    }
+
+    public int stopTimeDeparture(int row) {
+        return stopTimeDepartures.get(row);
+    }
+
+    private Map<String, String> readAgencies(ZipFile zip) throws IOException {
+        Map<String, String> agencies = new HashMap<>();
+        byte[] data = readEntry(zip, "agency.txt", false);
+        if(data == null) {
+            return agencies;
+        }
+        CsvReader reader = new CsvReader(data);
+        Map<String, Integer> columns = header(reader, "agency.txt");
+        int id = column(columns, "agency_id", false);
+        int name = column(columns, "agency_name", false);
+        while(reader.next()) {
+            agencies.put(reader.string(id), reader.string(name));
+        }
+        return agencies;
+    }
+
+    private void readStops(byte[] data) {
+        CsvReader reader = new CsvReader(data);
+        Map<String, Integer> columns = header(reader, "stops.txt");
+        int id = column(columns, "stop_id", true);
+        int code = column(columns, "stop_code", false);
+        int name = column(columns, "stop_name", false);
+        int latitude = column(columns, "stop_lat", false);
+        int longitude = column(columns, "stop_lon", false);
+        int locationType = column(columns, "location_type", false);
+        int parent = column(columns, "parent_station", false);
+        while(reader.next()) {
+            String stopId = reader.string(id);
+            int type = reader.integer(locationType, 0);
+            // Entrances, nodes and boarding areas have no stop times
+            if(type > 1) {
+                continue;
+            }
+            stopIndex.put(stopId, stops.size());
+            stops.add(new Stop(stopId, reader.isEmpty(code) ? stopId : reader.string(code), reader.string(name),
+                    reader.isEmpty(latitude) ? 0 : reader.decimal(latitude),
+                    reader.isEmpty(longitude) ? 0 : reader.decimal(longitude),
+                    type == 1, reader.string(parent)));
+        }
+    }
+
+    private void readRoutes(byte[] data, Map<String, String> agencies) {
+        CsvReader reader = new CsvReader(data);
+        Map<String, Integer> columns = header(reader, "routes.txt");
+        int id = column(columns, "route_id", true);
+        int agency = column(columns, "agency_id", false);
+        int shortName = column(columns, "route_short_name", false);
+        int longName = column(columns, "route_long_name", false);
+        int description = column(columns, "route_desc", false);
+        int type = column(columns, "route_type", true);
+        while(reader.next()) {
+            // A feed with a single agency may leave agency_id out
+            String agencyName = agencies.size() == 1 && reader.isEmpty(agency)
+                    ? agencies.values().iterator().next() : agencies.getOrDefault(reader.string(agency), "");
+            routes.add(new Route(reader.string(id), agencyName, reader.string(shortName), reader.string(longName),
+                    reader.string(description), reader.integer(type, -1)));
+        }
+    }
+
+    private void readTrips(byte[] data) {
+        Map<String, Integer> routeIndex = new HashMap<>();
+        for(int route = 0; route < routes.size(); route++) {
+            routeIndex.put(routes.get(route).getId(), route);
+        }
+        CsvReader reader = new CsvReader(data);
+        Map<String, Integer> columns = header(reader, "trips.txt");
+        int id = column(columns, "trip_id", true);
+        int route = column(columns, "route_id", true);
+        int headsign = column(columns, "trip_headsign", false);
+        while(reader.next()) {
+            Integer tripRoute = routeIndex.get(reader.string(route));
+            if(tripRoute == null) {
+                throw new IllegalArgumentException("Unknown route " + reader.string(route) + " in trips.txt");
+            }
+            tripIndex.put(reader.string(id), trips.size());
+            trips.add(new Trip(reader.string(id), tripRoute, reader.string(headsign)));
+        }
+    }
+
+    private void readFrequencies(byte[] data) {
+        if(data == null) {
+            return;
+        }
+        CsvReader reader = new CsvReader(data);
+        Map<String, Integer> columns = header(reader, "frequencies.txt");
+        int trip = column(columns, "trip_id", true);
+        int start = column(columns, "start_time", true);
+        int end = column(columns, "end_time", true);
+        int headway = column(columns, "headway_secs", true);
+        while(reader.next()) {
+            Integer index = tripIndex.get(reader.string(trip));
+            if(index != null) {
+                frequencies.computeIfAbsent(index, key -> new ArrayList<>()).add(new Frequency(
+                        reader.time(start, 0), reader.time(end, 0), reader.integer(headway, 0)));
+            }
+        }
+    }
+
+    private void readStopTimes(ZipFile zip, ZipEntry entry, int parallelism, int blockSize) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        Deque<Future<StopTimeBlock>> inFlight = new ArrayDeque<>();
+        try(InputStream input = zip.getInputStream(entry)) {
+            byte[] buffer = new byte[blockSize];
+            int filled = fill(input, buffer, 0);
+            // The header must fit in the first block
+            while(filled == buffer.length && CsvReader.lastRecordEnd(buffer, 0, filled) == 0) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                filled = fill(input, buffer, filled);
+            }
+            CsvReader headerReader = new CsvReader(buffer, 0, filled);
+            Map<String, Integer> columns = header(headerReader, "stop_times.txt");
+            int[] layout = {column(columns, "trip_id", true), column(columns, "stop_id", true),
+                    column(columns, "stop_sequence", true), column(columns, "arrival_time", false),
+                    column(columns, "departure_time", false)};
+            int from = headerReader.position();
+            while(true) {
+                boolean last = filled < buffer.length;
+                int cut = last ? filled : CsvReader.lastRecordEnd(buffer, from, filled);
+                if(cut == from && !last) {
+                    // A single record longer than the block, grow the buffer and keep reading
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    filled = fill(input, buffer, filled);
+                    continue;
+                }
+                byte[] block = buffer;
+                int blockFrom = from;
+                int blockTo = cut;
+                inFlight.add(executor.submit(() -> parseStopTimes(block, blockFrom, blockTo, layout)));
+                // Bound the blocks held in memory, merging the oldest in file order
+                while(inFlight.size() > parallelism * 2) {
+                    merge(inFlight.poll());
+                }
+                if(last) {
+                    break;
+                }
+                byte[] next = new byte[Math.max(blockSize, filled - cut + 1)];
+                System.arraycopy(buffer, cut, next, 0, filled - cut);
+                buffer = next;
+                from = 0;
+                filled = fill(input, buffer, filled - cut);
+            }
+            while(!inFlight.isEmpty()) {
+                merge(inFlight.poll());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private StopTimeBlock parseStopTimes(byte[] data, int from, int to, int[] layout) {
+        CsvReader reader = new CsvReader(data, from, to);
+        StopTimeBlock block = new StopTimeBlock();
+        // stop_times.txt is usually grouped by trip, so consecutive rows reuse the trip lookup
+        byte[] lastTripId = null;
+        int lastTrip = -1;
+        while(reader.next()) {
+            if(!reader.fieldEquals(layout[0], lastTripId)) {
+                String tripId = reader.string(layout[0]);
+                Integer trip = tripIndex.get(tripId);
+                if(trip == null) {
+                    throw new IllegalArgumentException("Unknown trip " + tripId + " in stop_times.txt");
+                }
+                lastTripId = reader.bytes(layout[0]);
+                lastTrip = trip;
+            }
+            Integer stop = stopIndex.get(reader.string(layout[1]));
+            if(stop == null) {
+                throw new IllegalArgumentException("Unknown stop " + reader.string(layout[1]) + " in stop_times.txt");
+            }
+            block.trips.add(lastTrip);
+            block.stops.add(stop);
+            block.sequences.add(reader.integer(layout[2], 0));
+            block.arrivals.add(reader.time(layout[3], -1));
+            block.departures.add(reader.time(layout[4], -1));
+        }
+        return block;
+    }
+
+    private void merge(Future<StopTimeBlock> future) throws IOException {
+        StopTimeBlock block;
+        try {
+            block = future.get();
+        } catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading stop_times.txt", exception);
+        } catch(ExecutionException exception) {
+            if(exception.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exception.getCause();
+            }
+            throw new IOException(exception.getCause());
+        }
+        for(int row = 0; row < block.trips.size(); row++) {
+            stopTimeTrips.add(block.trips.get(row));
+            stopTimeStops.add(block.stops.get(row));
+            stopTimeSequences.add(block.sequences.get(row));
+            stopTimeArrivals.add(block.arrivals.get(row));
+            stopTimeDepartures.add(block.departures.get(row));
+        }
+    }
+
+    // Read until the buffer is full or the stream ends, returning the number of bytes in the buffer
+    private static int fill(InputStream input, byte[] buffer, int filled) throws IOException {
+        while(filled < buffer.length) {
+            int read = input.read(buffer, filled, buffer.length - filled);
+            if(read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        return filled;
+    }
+
+    private static ZipEntry entry(ZipFile zip, String name, boolean required) {
+        ZipEntry entry = zip.getEntry(name);
+        if(entry == null && required) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return entry;
+    }
+
+    private static byte[] readEntry(ZipFile zip, String name, boolean required) throws IOException {
+        ZipEntry entry = entry(zip, name, required);
+        if(entry == null) {
+            return null;
+        }
+        try(InputStream input = zip.getInputStream(entry)) {
+            return input.readAllBytes();
+        }
+    }
+
+    private static Map<String, Integer> header(CsvReader reader, String file) {
+        if(!reader.next()) {
+            throw new IllegalArgumentException("Empty " + file);
+        }
+        return reader.header();
+    }
+
+    private static int column(Map<String, Integer> columns, String name, boolean required) {
+        Integer column = columns.get(name);
+        if(column == null && required) {
+            throw new IllegalArgumentException("Missing column " + name);
+        }
+        return column == null ? -1 : column;
+    }
+
+    private static final class StopTimeBlock {
+        final IntList trips = new IntList();
+        final IntList stops = new IntList();
+        final IntList sequences = new IntList();
+        final IntList arrivals = new IntList();
+        final IntList departures = new IntList();
+    }
+
+    public static final class Stop {
+        private final String id;
+        private final String code;
+        private final String name;
+        private final double latitude;
+        private final double longitude;
+        private final boolean station;
+        private final String parentId;
+
+        Stop(String id, String code, String name, double latitude, double longitude, boolean station,
+             String parentId) {
+            this.id = id;
+            this.code = code;
+            this.name = name;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.station = station;
+            this.parentId = parentId;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        // A station (location_type 1) grouping the platforms that name it as their parent
+        public boolean isStation() {
+            return station;
+        }
+
+        public String getParentId() {
+            return parentId;
+        }
+    }
+
+    public static final class Route {
+        private final String id;
+        private final String agencyName;
+        private final String shortName;
+        private final String longName;
+        private final String description;
+        private final int type;
+
+        Route(String id, String agencyName, String shortName, String longName, String description, int type) {
+            this.id = id;
+            this.agencyName = agencyName;
+            this.shortName = shortName;
+            this.longName = longName;
+            this.description = description;
+            this.type = type;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getAgencyName() {
+            return agencyName;
+        }
+
+        public String getShortName() {
+            return shortName;
+        }
+
+        public String getLongName() {
+            return longName;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public int getType() {
+            return type;
+        }
+    }
+
+    public static final class Trip {
+        private final String id;
+        private final int route;
+        private final String headsign;
+
+        Trip(String id, int route, String headsign) {
+            this.id = id;
+            this.route = route;
+            this.headsign = headsign;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        // Index into getRoutes()
+        public int getRoute() {
+            return route;
+        }
+
+        public String getHeadsign() {
+            return headsign;
+        }
+    }
+
+    public static final class Frequency {
+        private final int start;
+        private final int end;
+        private final int headway;
+
+        Frequency(int start, int end, int headway) {
+            this.start = start;
+            this.end = end;
+            this.headway = headway;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public int getHeadway() {
+            return headway;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.varachit.transistance.gtfs;
+
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.graph.IntList;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/*
+ * A GTFS feed mapped onto the planner's model, where a route is one ordered line of stations served in both
+ * directions and every station belongs to exactly one route
+ * Platforms are merged into their parent station. Each distinct stop sequence of a GTFS route becomes one route
+ * (a sequence and its reverse are the same line), with its own stations; stations of different lines at the same
+ * place are joined by walking transfers like the rest of the network. Routes of modes the planner has no station
+ * type for (buses, ferries), trips without usable times and loop trips calling at a station twice are left out
+ */
+public final class GtfsNetwork {
+    private static final Pattern INVALID_NAME = Pattern.compile("[^a-zA-Z0-9 ]+");
+    private static final Pattern INVALID_CODE = Pattern.compile("[^A-Z0-9]+");
+    private static final Pattern SPACES = Pattern.compile(" {2,}");
+    private static final Pattern AIRPORT_RAIL_LINK = Pattern.compile("\\bAIRPORT RAIL LINK\\b|\\bARL\\b");
+    private static final Pattern SKY_TRAIN = Pattern.compile("\\bBTS\\b|\\bSKYTRAIN\\b");
+    private static final Pattern METRO = Pattern.compile("\\bMRT\\b|\\bMETRO\\b|\\bSUBWAY\\b");
+    private static final Pattern STATE_RAILWAY = Pattern.compile("\\bSRT\\b|\\bRAILWAY\\b");
+
+    private final GtfsFeed feed;
+    // Stop index of the station each stop belongs to, the parent station of a platform
+    private final int[] stationOf;
+    // Stop time rows grouped by trip in stop_sequence order, trip t owns rows[tripOffsets[t], tripOffsets[t + 1])
+    private final int[] rows;
+    private final int[] tripOffsets;
+    private final StationType[] routeTypes;
+    private final List<LinePattern> patterns = new ArrayList<>();
+    private final int[] tripPatterns;
+    private final boolean[] tripReversed;
+
+    private GtfsNetwork(GtfsFeed feed) {
+        this.feed = feed;
+        this.stationOf = stationOf(feed);
+        this.tripOffsets = new int[feed.getTrips().size() + 1];
+        this.rows = groupByTrip(feed, tripOffsets);
+        this.routeTypes = new StationType[feed.getRoutes().size()];
+        for(int route = 0; route < routeTypes.length; route++) {
+            routeTypes[route] = stationType(feed.getRoutes().get(route));
+        }
+        this.tripPatterns = new int[feed.getTrips().size()];
+        this.tripReversed = new boolean[feed.getTrips().size()];
+    }
+
+    public static GtfsNetwork build(GtfsFeed feed) {
+        GtfsNetwork network = new GtfsNetwork(feed);
+        network.assignPatterns();
+        return network;
+    }
+
+    public GtfsFeed getFeed() {
+        return feed;
+    }
+
+    public List<LinePattern> getPatterns() {
+        return patterns;
+    }
+
+    // Index into getPatterns() of the line the trip runs on, -1 when the trip is not imported
+    public int getTripPattern(int trip) {
+        return tripPatterns[trip];
+    }
+
+    public StationType getRouteType(int route) {
+        return routeTypes[route];
+    }
+
+    /*
+     * Calls of an imported trip in running order: the position of each station in its pattern and the arrival and
+     * departure times, with times the feed leaves out interpolated between the surrounding timepoints
+     */
+    public TripStops tripStops(int trip) {
+        IntList stations = new IntList();
+        IntList arrivals = new IntList();
+        IntList departures = new IntList();
+        collapse(trip, stations, arrivals, departures);
+        int[] arrival = arrivals.toArray();
+        int[] departure = departures.toArray();
+        interpolate(arrival, departure);
+        int length = stations.size();
+        int[] positions = new int[length];
+        for(int index = 0; index < length; index++) {
+            positions[index] = tripReversed[trip] ? length - 1 - index : index;
+        }
+        return new TripStops(positions, arrival, departure);
+    }
+
+    public String stationName(int station) {
+        GtfsFeed.Stop stop = feed.getStops().get(station);
+        String name = name(stop.getName());
+        return name.isEmpty() ? code(stop.getCode()) : name;
+    }
+
+    // Mode of a rail route from its agency and names where they tell it, otherwise from the GTFS route type
+    static StationType stationType(GtfsFeed.Route route) {
+        int type = route.getType();
+        // Buses, coaches, trolleybuses and ferries have no station type
+        if(type == 3 || type == 4 || type == 11 || (type >= 200 && type < 300) || (type >= 700 && type < 900)
+                || (type >= 1000 && type < 1300)) {
+            return null;
+        }
+        String text = (route.getAgencyName() + " " + route.getShortName() + " " + route.getLongName())
+                .toUpperCase(Locale.ROOT);
+        if(AIRPORT_RAIL_LINK.matcher(text).find()) {
+            return StationType.ARL;
+        }
+        if(SKY_TRAIN.matcher(text).find()) {
+            return StationType.BTS;
+        }
+        if(METRO.matcher(text).find()) {
+            return StationType.MRT;
+        }
+        if(STATE_RAILWAY.matcher(text).find()) {
+            return StationType.SRL;
+        }
+        if(type == 1 || (type >= 400 && type < 500)) {
+            return StationType.MRT;
+        }
+        if(type == 2 || (type >= 100 && type < 200)) {
+            return StationType.SRL;
+        }
+        // Light rail, cable and monorail lines run like the elevated sky train
+        if(type == 0 || type == 5 || type == 6 || type == 7 || type == 12 || (type >= 900 && type < 1000)) {
+            return StationType.BTS;
+        }
+        return null;
+    }
+
+    // Letters, digits and single spaces, as station and route names are validated
+    static String name(String value) {
+        return value == null ? "" : SPACES.matcher(INVALID_NAME.matcher(value).replaceAll(" ")).replaceAll(" ").trim();
+    }
+
+    // Upper case letters and digits, as station codes are validated
+    static String code(String value) {
+        return value == null ? "" : INVALID_CODE.matcher(value.toUpperCase(Locale.ROOT)).replaceAll("");
+    }
+
+    private void assignPatterns() {
+        Map<StationSequence, Integer> patternIndex = new HashMap<>();
+        int[] patternCounts = new int[routeTypes.length];
+        IntList stations = new IntList();
+        IntList arrivals = new IntList();
+        IntList departures = new IntList();
+        for(int trip = 0; trip < tripPatterns.length; trip++) {
+            tripPatterns[trip] = -1;
+            int route = feed.getTrips().get(trip).getRoute();
+            if(routeTypes[route] == null) {
+                continue;
+            }
+            collapse(trip, stations, arrivals, departures);
+            if(stations.size() < 2 || !hasEndTimes(arrivals, departures) || revisits(stations)) {
+                continue;
+            }
+            int[] forward = stations.toArray();
+            int[] backward = reverse(forward);
+            boolean reversed = Arrays.compare(backward, forward) < 0;
+            StationSequence sequence = new StationSequence(route, reversed ? backward : forward);
+            Integer pattern = patternIndex.get(sequence);
+            if(pattern == null) {
+                pattern = patterns.size();
+                patternIndex.put(sequence, pattern);
+                patterns.add(new LinePattern(route, sequence.stations, ++patternCounts[route]));
+            }
+            tripPatterns[trip] = pattern;
+            tripReversed[trip] = reversed;
+        }
+        for(LinePattern pattern : patterns) {
+            pattern.assignName(feed.getRoutes().get(pattern.route), patternCounts[pattern.route] > 1);
+        }
+    }
+
+    // Stations a trip calls at in order, consecutive calls at platforms of one station merged into a single call
+    private void collapse(int trip, IntList stations, IntList arrivals, IntList departures) {
+        stations.clear();
+        arrivals.clear();
+        departures.clear();
+        for(int index = tripOffsets[trip]; index < tripOffsets[trip + 1]; index++) {
+            int row = rows[index];
+            int station = stationOf[feed.stopTimeStop(row)];
+            int last = stations.size() - 1;
+            if(last >= 0 && stations.get(last) == station) {
+                int departure = feed.stopTimeDeparture(row);
+                if(departure >= 0) {
+                    departures.set(last, departure);
+                }
+                continue;
+            }
+            stations.add(station);
+            arrivals.add(feed.stopTimeArrival(row));
+            departures.add(feed.stopTimeDeparture(row));
+        }
+    }
+
+    // A route holds each station once, so loop trips calling at a station twice cannot be mapped
+    private static boolean revisits(IntList stations) {
+        Set<Integer> seen = new HashSet<>();
+        for(int index = 0; index < stations.size(); index++) {
+            if(!seen.add(stations.get(index))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasEndTimes(IntList arrivals, IntList departures) {
+        int last = arrivals.size() - 1;
+        return (arrivals.get(0) >= 0 || departures.get(0) >= 0)
+                && (arrivals.get(last) >= 0 || departures.get(last) >= 0);
+    }
+
+    // Fill missing times linearly by call index between the surrounding timepoints
+    private static void interpolate(int[] arrivals, int[] departures) {
+        int length = arrivals.length;
+        for(int index = 0; index < length; index++) {
+            if(arrivals[index] < 0) {
+                arrivals[index] = departures[index];
+            } else if(departures[index] < 0) {
+                departures[index] = arrivals[index];
+            }
+        }
+        int previous = 0;
+        for(int index = 1; index < length; index++) {
+            if(arrivals[index] < 0) {
+                continue;
+            }
+            int gap = index - previous;
+            for(int missing = previous + 1; missing < index; missing++) {
+                int time = departures[previous] + (arrivals[index] - departures[previous]) * (missing - previous) / gap;
+                arrivals[missing] = time;
+                departures[missing] = time;
+            }
+            previous = index;
+        }
+    }
+
+    private static int[] stationOf(GtfsFeed feed) {
+        List<GtfsFeed.Stop> stops = feed.getStops();
+        Map<String, Integer> stationIndex = new HashMap<>();
+        for(int stop = 0; stop < stops.size(); stop++) {
+            if(stops.get(stop).isStation()) {
+                stationIndex.put(stops.get(stop).getId(), stop);
+            }
+        }
+        int[] stationOf = new int[stops.size()];
+        for(int stop = 0; stop < stops.size(); stop++) {
+            Integer parent = stationIndex.get(stops.get(stop).getParentId());
+            stationOf[stop] = parent == null ? stop : parent;
+        }
+        return stationOf;
+    }
+
+    // Counting sort of the stop time rows by trip, then by stop_sequence within each trip
+    private static int[] groupByTrip(GtfsFeed feed, int[] tripOffsets) {
+        int count = feed.stopTimeCount();
+        for(int row = 0; row < count; row++) {
+            tripOffsets[feed.stopTimeTrip(row) + 1]++;
+        }
+        for(int trip = 1; trip < tripOffsets.length; trip++) {
+            tripOffsets[trip] += tripOffsets[trip - 1];
+        }
+        int[] rows = new int[count];
+        int[] next = Arrays.copyOf(tripOffsets, tripOffsets.length - 1);
+        for(int row = 0; row < count; row++) {
+            rows[next[feed.stopTimeTrip(row)]++] = row;
+        }
+        // Feeds list stop times in sequence order almost always, so insertion sort is close to linear
+        for(int trip = 0; trip + 1 < tripOffsets.length; trip++) {
+            for(int index = tripOffsets[trip] + 1; index < tripOffsets[trip + 1]; index++) {
+                int row = rows[index];
+                int sequence = feed.stopTimeSequence(row);
+                int position = index - 1;
+                while(position >= tripOffsets[trip] && feed.stopTimeSequence(rows[position]) > sequence) {
+                    rows[position + 1] = rows[position];
+                    position--;
+                }
+                rows[position + 1] = row;
+            }
+        }
+        return rows;
+    }
+
+    private static int[] reverse(int[] values) {
+        int[] reversed = new int[values.length];
+        for(int index = 0; index < values.length; index++) {
+            reversed[index] = values[values.length - 1 - index];
+        }
+        return reversed;
+    }
+
+    // One line of a GTFS route: its stations (stop indices) in line order, and the route name and codes to use
+    public static final class LinePattern {
+        private final int route;
+        private final int[] stations;
+        private final int number;
+        private String name;
+        private String codePrefix;
+
+        LinePattern(int route, int[] stations, int number) {
+            this.route = route;
+            this.stations = stations;
+            this.number = number;
+        }
+
+        private void assignName(GtfsFeed.Route gtfsRoute, boolean numbered) {
+            String base = name(gtfsRoute.getShortName());
+            if(base.isEmpty()) {
+                base = name(gtfsRoute.getLongName());
+            }
+            String key = code(gtfsRoute.getShortName().isEmpty() ? gtfsRoute.getId() : gtfsRoute.getShortName());
+            this.name = (base.isEmpty() ? key : base) + (numbered ? " " + number : "");
+            this.codePrefix = key + (numbered ? "P" + number : "");
+        }
+
+        // Index into GtfsFeed.getRoutes()
+        public int getRoute() {
+            return route;
+        }
+
+        public int[] getStations() {
+            return stations;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Station codes are unique across routes, so each line prefixes the GTFS stop codes with its own key
+        public String stationCode(GtfsFeed feed, int position) {
+            return codePrefix + code(feed.getStops().get(stations[position]).getCode());
+        }
+
+        public String getDescription(GtfsFeed feed) {
+            GtfsFeed.Route gtfsRoute = feed.getRoutes().get(route);
+            String description = !gtfsRoute.getLongName().isEmpty() ? gtfsRoute.getLongName()
+                    : gtfsRoute.getDescription();
+            return description.isEmpty() ? name : description;
+        }
+    }
+
+    public static final class TripStops {
+        private final int[] positions;
+        private final int[] arrivals;
+        private final int[] departures;
+
+        TripStops(int[] positions, int[] arrivals, int[] departures) {
+            this.positions = positions;
+            this.arrivals = arrivals;
+            this.departures = departures;
+        }
+
+        // Position of each call's station in LinePattern.getStations()
+        public int[] getPositions() {
+            return positions;
+        }
+
+        public int[] getArrivals() {
+            return arrivals;
+        }
+
+        public int[] getDepartures() {
+            return departures;
+        }
+    }
+
+    private static final class StationSequence {
+        private final int route;
+        private final int[] stations;
+        private final int hash;
+
+        StationSequence(int route, int[] stations) {
+            this.route = route;
+            this.stations = stations;
+            this.hash = 31 * route + Arrays.hashCode(stations);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StationSequence && route == ((StationSequence) o).route
+                    && Arrays.equals(stations, ((StationSequence) o).stations);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
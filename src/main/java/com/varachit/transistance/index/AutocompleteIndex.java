@@ -0,0 +1,389 @@
+package com.varachit.transistance.index;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/*
+ * Ranked prefix and typo-tolerant lookup over the names and codes of documents identified by long ids
+ * Terms are normalised (lower case, accents and punctuation removed) and the code, the name and every later word
+ * of the name are kept in a compressed (radix) trie, so "phr" completes "Phrom Phong" and "khan" "Phra Khanong".
+ * Completions are collected shortest term first. When they do not fill the limit, names sharing enough trigrams
+ * with the query are added, which absorbs a dropped, swapped or mistyped letter.
+ * Maintained and guarded like FullTextIndex, whose ordinal allocation and posting lists it shares
+ */
+public final class AutocompleteIndex {
+    // Completions gathered before ranking, so a better ranked match a little deeper in the trie is not missed
+    private static final int CANDIDATE_FACTOR = 4;
+    private static final int MIN_CANDIDATES = 32;
+    // Jaccard similarity of trigram sets below which a name is not offered as a correction
+    private static final double MIN_SIMILARITY = 0.3;
+
+    private final Node root = new Node("");
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private final OrdinalAllocator<Long> ordinals = new OrdinalAllocator<>();
+    private long[] ids = new long[16];
+    private String[] names = new String[16];
+    private String[] codes = new String[16];
+    private int[] trigramCounts = new int[16];
+
+    // Add the document, or replace its name and code
+    public void put(long id, String name, String code) {
+        remove(id);
+        String normalisedName = normalise(name);
+        String normalisedCode = normalise(code);
+        int ordinal = allocate(id);
+        names[ordinal] = normalisedName;
+        codes[ordinal] = normalisedCode;
+        for(String term : terms(normalisedName, normalisedCode)) {
+            insert(term, ordinal);
+        }
+        Set<Long> nameTrigrams = trigrams(normalisedName);
+        trigramCounts[ordinal] = nameTrigrams.size();
+        for(long trigram : nameTrigrams) {
+            trigrams.computeIfAbsent(trigram, key -> new Postings()).add(ordinal);
+        }
+    }
+
+    public void remove(long id) {
+        Integer ordinal = ordinals.release(id);
+        if(ordinal == null) {
+            return;
+        }
+        for(String term : terms(names[ordinal], codes[ordinal])) {
+            delete(term, ordinal);
+        }
+        for(long trigram : trigrams(names[ordinal])) {
+            Postings postings = trigrams.get(trigram);
+            if(postings != null && postings.remove(ordinal) && postings.size == 0) {
+                trigrams.remove(trigram);
+            }
+        }
+        names[ordinal] = null;
+        codes[ordinal] = null;
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    /*
+     * Ids of up to limit documents matching the query, best first:
+     * an exact name or code, then name prefixes, code prefixes, prefixes of a later word and finally near misses.
+     * Ties go to the shorter name
+     */
+    public long[] suggest(String query, int limit) {
+        String normalisedQuery = normalise(query);
+        if(normalisedQuery.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for(int ordinal : complete(normalisedQuery, Math.max(MIN_CANDIDATES, limit * CANDIDATE_FACTOR))) {
+            if(seen.add(ordinal)) {
+                candidates.add(new Candidate(ordinal, prefixRank(normalisedQuery, ordinal)));
+            }
+        }
+        if(candidates.size() < limit) {
+            addNearMisses(normalisedQuery, seen, candidates);
+        }
+        candidates.sort(Comparator.comparingDouble((Candidate candidate) -> -candidate.score)
+                .thenComparingInt(candidate -> names[candidate.ordinal].length())
+                .thenComparing(candidate -> names[candidate.ordinal]));
+
+        int count = Math.min(limit, candidates.size());
+        long[] result = new long[count];
+        for(int index = 0; index < count; index++) {
+            result[index] = ids[candidates.get(index).ordinal];
+        }
+        return result;
+    }
+
+    // Lower case letters and digits separated by single spaces, accents dropped
+    public static String normalise(String text) {
+        if(text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        boolean space = false;
+        for(int index = 0; index < decomposed.length(); index++) {
+            char character = decomposed.charAt(index);
+            if(Character.getType(character) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if(Character.isLetterOrDigit(character)) {
+                if(space && builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append(Character.toLowerCase(character));
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return builder.toString();
+    }
+
+    private double prefixRank(String query, int ordinal) {
+        String name = names[ordinal];
+        String code = codes[ordinal];
+        if(name.equals(query) || code.equals(query)) {
+            return 4;
+        } else if(name.startsWith(query)) {
+            return 3;
+        } else if(code.startsWith(query)) {
+            return 2;
+        }
+        return 1;
+    }
+
+    // Names sharing enough trigrams with the query, scored by similarity below every prefix match
+    private void addNearMisses(String query, Set<Integer> seen, List<Candidate> candidates) {
+        Set<Long> queryTrigrams = trigrams(query);
+        // Shared trigram count per ordinal, with the ordinals touched listed so only those are scored
+        int[] shared = new int[ordinals.count()];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for(long trigram : queryTrigrams) {
+            Postings postings = trigrams.get(trigram);
+            if(postings == null) {
+                continue;
+            }
+            for(int index = 0; index < postings.size; index++) {
+                int ordinal = postings.ordinals[index];
+                if(shared[ordinal]++ == 0) {
+                    if(touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = ordinal;
+                }
+            }
+        }
+        for(int index = 0; index < touchedCount; index++) {
+            int ordinal = touched[index];
+            int common = shared[ordinal];
+            double similarity = (double) common / (queryTrigrams.size() + trigramCounts[ordinal] - common);
+            if(similarity >= MIN_SIMILARITY && seen.add(ordinal)) {
+                candidates.add(new Candidate(ordinal, similarity));
+            }
+        }
+    }
+
+    // Code, name and the name from each later word on
+    private static Set<String> terms(String name, String code) {
+        Set<String> terms = new LinkedHashSet<>();
+        if(!code.isEmpty()) {
+            terms.add(code);
+        }
+        if(!name.isEmpty()) {
+            terms.add(name);
+            for(int index = name.indexOf(' '); index >= 0; index = name.indexOf(' ', index + 1)) {
+                terms.add(name.substring(index + 1));
+            }
+        }
+        return terms;
+    }
+
+    // Trigrams of the text padded with two leading and one trailing space, packed three chars to a long
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        if(text == null || text.isEmpty()) {
+            return trigrams;
+        }
+        String padded = "  " + text + " ";
+        for(int index = 0; index + 3 <= padded.length(); index++) {
+            trigrams.add(((long) padded.charAt(index) << 32) | ((long) padded.charAt(index + 1) << 16)
+                    | padded.charAt(index + 2));
+        }
+        return trigrams;
+    }
+
+    private int allocate(long id) {
+        int ordinal = ordinals.allocate(id);
+        if(ordinal == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            codes = Arrays.copyOf(codes, capacity);
+            trigramCounts = Arrays.copyOf(trigramCounts, capacity);
+        }
+        ids[ordinal] = id;
+        return ordinal;
+    }
+
+    private void insert(String term, int ordinal) {
+        Node node = root;
+        int position = 0;
+        while(position < term.length()) {
+            Node child = node.child(term.charAt(position));
+            if(child == null) {
+                Node leaf = new Node(term.substring(position));
+                leaf.postings.add(ordinal);
+                node.addChild(leaf);
+                return;
+            }
+            int common = commonPrefix(child.label, term, position);
+            if(common < child.label.length()) {
+                // Split the edge where the term leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                node.replaceChild(child, middle);
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                child = middle;
+            }
+            node = child;
+            position += common;
+        }
+        node.postings.add(ordinal);
+    }
+
+    private void delete(String term, int ordinal) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        int position = 0;
+        while(position < term.length()) {
+            Node child = node.child(term.charAt(position));
+            if(child == null || !term.startsWith(child.label, position)) {
+                return;
+            }
+            path.push(node);
+            node = child;
+            position += child.label.length();
+        }
+        node.postings.remove(ordinal);
+        // Drop the nodes left without documents or children
+        while(!path.isEmpty() && node.postings.size == 0 && node.children.length == 0) {
+            Node parent = path.pop();
+            parent.removeChild(node);
+            node = parent;
+        }
+    }
+
+    // Ordinals under the node the prefix leads to, shortest term first, stopping once cap are found
+    private List<Integer> complete(String prefix, int cap) {
+        Node node = root;
+        int position = 0;
+        int depth = 0;
+        while(position < prefix.length()) {
+            Node child = node.child(prefix.charAt(position));
+            if(child == null) {
+                return List.of();
+            }
+            int common = commonPrefix(child.label, prefix, position);
+            if(common < child.label.length() && position + common < prefix.length()) {
+                return List.of();
+            }
+            node = child;
+            position += common;
+            depth += child.label.length();
+        }
+
+        List<Integer> found = new ArrayList<>();
+        PriorityQueue<Reached> queue = new PriorityQueue<>(Comparator.comparingInt((Reached reached) -> reached.depth));
+        queue.add(new Reached(node, depth));
+        while(!queue.isEmpty() && found.size() < cap) {
+            Reached reached = queue.poll();
+            Postings postings = reached.node.postings;
+            for(int index = 0; index < postings.size && found.size() < cap; index++) {
+                found.add(postings.ordinals[index]);
+            }
+            for(Node child : reached.node.children) {
+                queue.add(new Reached(child, reached.depth + child.label.length()));
+            }
+        }
+        return found;
+    }
+
+    private static int commonPrefix(String label, String term, int offset) {
+        int length = Math.min(label.length(), term.length() - offset);
+        int index = 0;
+        while(index < length && label.charAt(index) == term.charAt(offset + index)) {
+            index++;
+        }
+        return index;
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private String label;
+        // Sorted by the first character of their label, which is unique among siblings
+        private Node[] children = NO_CHILDREN;
+        private final Postings postings = new Postings();
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while(low <= high) {
+                int middle = (low + high) >>> 1;
+                char key = children[middle].label.charAt(0);
+                if(key < first) {
+                    low = middle + 1;
+                } else if(key > first) {
+                    high = middle - 1;
+                } else {
+                    return children[middle];
+                }
+            }
+            return null;
+        }
+
+        private void addChild(Node child) {
+            char first = child.label.charAt(0);
+            int position = 0;
+            while(position < children.length && children[position].label.charAt(0) < first) {
+                position++;
+            }
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, position);
+            grown[position] = child;
+            System.arraycopy(children, position, grown, position + 1, children.length - position);
+            children = grown;
+        }
+
+        private void replaceChild(Node previous, Node replacement) {
+            for(int index = 0; index < children.length; index++) {
+                if(children[index] == previous) {
+                    children[index] = replacement;
+                    return;
+                }
+            }
+        }
+
+        private void removeChild(Node child) {
+            for(int index = 0; index < children.length; index++) {
+                if(children[index] == child) {
+                    Node[] shrunk = new Node[children.length - 1];
+                    System.arraycopy(children, 0, shrunk, 0, index);
+                    System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+                    children = shrunk;
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Reached {
+        private final Node node;
+        private final int depth;
+
+        private Reached(Node node, int depth) {
+            this.node = node;
+            this.depth = depth;
+        }
+    }
+
+    private static final class Candidate {
+        private final int ordinal;
+        private final double score;
+
+        private Candidate(int ordinal, double score) {
+            this.ordinal = ordinal;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.varachit.transistance.index;
+
+import java.util.Arrays;
+
+/*
+ * Immutable set of ordinals in [0, universe), for combining filters with AND and OR
+ * Like a single roaring container it picks the smaller of two layouts: a sorted int array while fewer than one
+ * ordinal in 32 is set, otherwise one bit per ordinal in long words. Rare values stay a few ints, common values
+ * are combined a word (64 ordinals) at a time
+ */
+public final class Bitmap {
+    private static final int BITS_PER_VALUE = 32;
+
+    private final int universe;
+    private final int cardinality;
+    // Exactly one of the two layouts is set
+    private final int[] values;
+    private final long[] words;
+
+    private Bitmap(int universe, int[] values, long[] words, int cardinality) {
+        this.universe = universe;
+        this.values = values;
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+
+    // Bitmap of the given ordinals, which must be ascending, distinct and below universe
+    public static Bitmap of(int universe, int... ordinals) {
+        return fromValues(universe, ordinals.clone(), ordinals.length);
+    }
+
+    public static Bitmap empty(int universe) {
+        return new Bitmap(universe, new int[0], null, 0);
+    }
+
+    public static Bitmap full(int universe) {
+        long[] words = new long[wordCount(universe)];
+        Arrays.fill(words, -1L);
+        if(universe % 64 != 0) {
+            words[words.length - 1] = (1L << universe) - 1;
+        }
+        return fromWords(universe, words);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    public boolean contains(int ordinal) {
+        if(ordinal < 0 || ordinal >= universe) {
+            return false;
+        }
+        if(words != null) {
+            return (words[ordinal >>> 6] & (1L << ordinal)) != 0;
+        }
+        return Arrays.binarySearch(values, ordinal) >= 0;
+    }
+
+    public Bitmap and(Bitmap other) {
+        int resultUniverse = Math.min(universe, other.universe);
+        if(words != null && other.words != null) {
+            long[] result = new long[wordCount(resultUniverse)];
+            for(int index = 0; index < result.length; index++) {
+                result[index] = words[index] & other.words[index];
+            }
+            return fromWords(resultUniverse, result);
+        }
+        if(words != null) {
+            return other.and(this);
+        }
+        // This one is sparse: keep the values the other one contains, merging when both are sparse
+        int[] result = new int[Math.min(cardinality, other.cardinality)];
+        int count = 0;
+        if(other.words != null) {
+            for(int value : values) {
+                if(other.contains(value)) {
+                    result[count++] = value;
+                }
+            }
+        } else {
+            int left = 0;
+            int right = 0;
+            while(left < values.length && right < other.values.length) {
+                if(values[left] < other.values[right]) {
+                    left++;
+                } else if(values[left] > other.values[right]) {
+                    right++;
+                } else {
+                    result[count++] = values[left];
+                    left++;
+                    right++;
+                }
+            }
+        }
+        return fromValues(resultUniverse, result, count);
+    }
+
+    public Bitmap or(Bitmap other) {
+        int resultUniverse = Math.max(universe, other.universe);
+        if(words == null && other.words == null) {
+            int[] result = new int[cardinality + other.cardinality];
+            int count = 0;
+            int left = 0;
+            int right = 0;
+            while(left < values.length || right < other.values.length) {
+                if(right == other.values.length || (left < values.length && values[left] < other.values[right])) {
+                    result[count++] = values[left++];
+                } else if(left == values.length || values[left] > other.values[right]) {
+                    result[count++] = other.values[right++];
+                } else {
+                    result[count++] = values[left];
+                    left++;
+                    right++;
+                }
+            }
+            return fromValues(resultUniverse, result, count);
+        }
+        long[] result = new long[wordCount(resultUniverse)];
+        for(Bitmap bitmap : new Bitmap[]{this, other}) {
+            if(bitmap.words != null) {
+                for(int index = 0; index < bitmap.words.length; index++) {
+                    result[index] |= bitmap.words[index];
+                }
+            } else {
+                for(int value : bitmap.values) {
+                    result[value >>> 6] |= 1L << value;
+                }
+            }
+        }
+        return fromWords(resultUniverse, result);
+    }
+
+    // Same ordinals with the given one, which must be below universe, added
+    public Bitmap with(int ordinal) {
+        if(contains(ordinal)) {
+            return this;
+        }
+        if(words != null) {
+            long[] result = words.clone();
+            result[ordinal >>> 6] |= 1L << ordinal;
+            return new Bitmap(universe, null, result, cardinality + 1);
+        }
+        int index = -Arrays.binarySearch(values, ordinal) - 1;
+        int[] result = new int[cardinality + 1];
+        System.arraycopy(values, 0, result, 0, index);
+        result[index] = ordinal;
+        System.arraycopy(values, index, result, index + 1, cardinality - index);
+        return fromValues(universe, result, result.length);
+    }
+
+    // Same ordinals with the given one removed
+    public Bitmap without(int ordinal) {
+        if(!contains(ordinal)) {
+            return this;
+        }
+        if(words != null) {
+            long[] result = words.clone();
+            result[ordinal >>> 6] &= ~(1L << ordinal);
+            return fromWords(universe, result);
+        }
+        int index = Arrays.binarySearch(values, ordinal);
+        int[] result = new int[cardinality - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, cardinality - index - 1);
+        return new Bitmap(universe, result, null, result.length);
+    }
+
+    /*
+     * Bitmap over one more ordinal, opening a slot at the given one (at most universe): every ordinal from it up
+     * moves one higher and the slot itself is set when asked. Used when a row is inserted into the sorted rows
+     */
+    public Bitmap insert(int ordinal, boolean set) {
+        if(words != null) {
+            long[] result = new long[wordCount(universe + 1)];
+            int first = ordinal >>> 6;
+            System.arraycopy(words, 0, result, 0, first);
+            long carry = 0;
+            for(int index = first; index < words.length; index++) {
+                long word = words[index];
+                long shifted = (word << 1) | carry;
+                carry = word >>> 63;
+                if(index == first) {
+                    // Ordinals of the first word below the slot stay where they are, the slot starts empty
+                    long below = (1L << ordinal) - 1;
+                    shifted = (word & below) | (shifted & ~below & ~(1L << ordinal));
+                }
+                result[index] = shifted;
+            }
+            if(carry != 0) {
+                result[words.length] = carry;
+            }
+            if(set) {
+                result[first] |= 1L << ordinal;
+            }
+            return fromWords(universe + 1, result);
+        }
+        int found = Arrays.binarySearch(values, ordinal);
+        int index = found >= 0 ? found : -found - 1;
+        int offset = set ? 1 : 0;
+        int[] result = new int[cardinality + offset];
+        System.arraycopy(values, 0, result, 0, index);
+        if(set) {
+            result[index] = ordinal;
+        }
+        for(int next = index; next < cardinality; next++) {
+            result[next + offset] = values[next] + 1;
+        }
+        return fromValues(universe + 1, result, result.length);
+    }
+
+    // Bitmap over one ordinal less, closing the slot at the given one: every higher ordinal moves one lower
+    public Bitmap remove(int ordinal) {
+        if(words != null) {
+            long[] result = new long[wordCount(universe - 1)];
+            int first = ordinal >>> 6;
+            System.arraycopy(words, 0, result, 0, Math.min(first, result.length));
+            for(int index = first; index < result.length; index++) {
+                long word = words[index];
+                long next = index + 1 < words.length ? words[index + 1] : 0;
+                long shifted = (word >>> 1) | (next << 63);
+                if(index == first) {
+                    long below = (1L << ordinal) - 1;
+                    shifted = (word & below) | (shifted & ~below);
+                }
+                result[index] = shifted;
+            }
+            return fromWords(universe - 1, result);
+        }
+        int found = Arrays.binarySearch(values, ordinal);
+        int index = found >= 0 ? found : -found - 1;
+        int offset = found >= 0 ? 1 : 0;
+        int[] result = new int[cardinality - offset];
+        System.arraycopy(values, 0, result, 0, index);
+        for(int next = index + offset; next < cardinality; next++) {
+            result[next - offset] = values[next] - 1;
+        }
+        return fromValues(universe - 1, result, result.length);
+    }
+
+    // The ordinals in ascending order
+    public int[] toArray() {
+        if(words == null) {
+            return values.clone();
+        }
+        int[] result = new int[cardinality];
+        int count = 0;
+        for(int index = 0; index < words.length; index++) {
+            long word = words[index];
+            while(word != 0) {
+                result[count++] = (index << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    private static Bitmap fromValues(int universe, int[] values, int count) {
+        if((long) count * BITS_PER_VALUE < universe) {
+            return new Bitmap(universe, count == values.length ? values : Arrays.copyOf(values, count), null, count);
+        }
+        long[] words = new long[wordCount(universe)];
+        for(int index = 0; index < count; index++) {
+            words[values[index] >>> 6] |= 1L << values[index];
+        }
+        return new Bitmap(universe, null, words, count);
+    }
+
+    private static Bitmap fromWords(int universe, long[] words) {
+        int cardinality = 0;
+        for(long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        Bitmap dense = new Bitmap(universe, null, words, cardinality);
+        if((long) cardinality * BITS_PER_VALUE < universe) {
+            return new Bitmap(universe, dense.toArray(), null, cardinality);
+        }
+        return dense;
+    }
+
+    private static int wordCount(int universe) {
+        return (universe + 63) >>> 6;
+    }
+}
@@ -0,0 +1,515 @@
+package com.varachit.transistance.index;
+
+import com.varachit.transistance.dto.RouteSummary;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+
+import java.util.*;
+
+/*
+ * Immutable copy of the station and route tables, indexed by id, code, name and type
+ * A station's position in id order is its ordinal, and each type and status has a bitmap of ordinals so filters
+ * on several of them combine with AND and OR instead of scanning.
+ * Every entity is copied in, so nothing here belongs to a persistence context or is reachable from a write path.
+ * A change produces a new snapshot through with*()/without*(), readers holding the previous one are unaffected.
+ * Changes are applied to copies of the sorted arrays with binary-search inserts and removals, only the bitmaps and
+ * name and type lists of the changed stations are adjusted, and a row older than the copy it would replace (by its
+ * @Version) is ignored, so events handled out of order never bring back an earlier state
+ */
+public final class CatalogueSnapshot {
+    private final Station[] stations;
+    private final long[] stationIds;
+    private final Map<String, Station> stationsByCode;
+    private final Map<String, List<Station>> stationsByName;
+    private final Map<StationType, List<Station>> stationsByType;
+    private final Map<StationType, Bitmap> typeBitmaps;
+    private final Map<StationStatus, Bitmap> statusBitmaps;
+    private final Route[] routes;
+    private final long[] routeIds;
+    private final List<RouteSummary> routeSummaries;
+
+    private CatalogueSnapshot(Station[] stations, Route[] routes) {
+        this.stations = stations;
+        this.stationIds = new long[stations.length];
+        Map<String, Station> byCode = new HashMap<>();
+        Map<String, List<Station>> byName = new HashMap<>();
+        Map<StationType, List<Station>> byType = new EnumMap<>(StationType.class);
+        Map<StationType, List<Integer>> typeOrdinals = new EnumMap<>(StationType.class);
+        Map<StationStatus, List<Integer>> statusOrdinals = new EnumMap<>(StationStatus.class);
+        for(int index = 0; index < stations.length; index++) {
+            Station station = stations[index];
+            stationIds[index] = station.getId();
+            if(station.getType() != null) {
+                typeOrdinals.computeIfAbsent(station.getType(), type -> new ArrayList<>()).add(index);
+            }
+            if(station.getStatus() != null) {
+                statusOrdinals.computeIfAbsent(station.getStatus(), status -> new ArrayList<>()).add(index);
+            }
+            if(station.getCode() != null) {
+                byCode.put(station.getCode(), station);
+            }
+            if(station.getName() != null) {
+                byName.computeIfAbsent(station.getName(), name -> new ArrayList<>()).add(station);
+            }
+            if(station.getType() != null) {
+                byType.computeIfAbsent(station.getType(), type -> new ArrayList<>()).add(station);
+            }
+        }
+        byName.replaceAll((name, named) -> Collections.unmodifiableList(named));
+        byType.replaceAll((type, typed) -> Collections.unmodifiableList(typed));
+        this.stationsByCode = byCode;
+        this.stationsByName = byName;
+        this.stationsByType = byType;
+        this.typeBitmaps = bitmaps(typeOrdinals, stations.length);
+        this.statusBitmaps = bitmaps(statusOrdinals, stations.length);
+
+        this.routes = routes;
+        this.routeIds = new long[routes.length];
+        List<RouteSummary> summaries = new ArrayList<>(routes.length);
+        for(int index = 0; index < routes.length; index++) {
+            Route route = routes[index];
+            routeIds[index] = route.getId();
+            summaries.add(summary(route));
+        }
+        this.routeSummaries = Collections.unmodifiableList(summaries);
+    }
+
+    private CatalogueSnapshot(Station[] stations, long[] stationIds, Map<String, Station> stationsByCode,
+                              Map<String, List<Station>> stationsByName,
+                              Map<StationType, List<Station>> stationsByType, Map<StationType, Bitmap> typeBitmaps,
+                              Map<StationStatus, Bitmap> statusBitmaps, Route[] routes, long[] routeIds,
+                              List<RouteSummary> routeSummaries) {
+        this.stations = stations;
+        this.stationIds = stationIds;
+        this.stationsByCode = stationsByCode;
+        this.stationsByName = stationsByName;
+        this.stationsByType = stationsByType;
+        this.typeBitmaps = typeBitmaps;
+        this.statusBitmaps = statusBitmaps;
+        this.routes = routes;
+        this.routeIds = routeIds;
+        this.routeSummaries = routeSummaries;
+    }
+
+    // Snapshot of the given rows; rows without an id have not been persisted and are left out
+    public static CatalogueSnapshot build(Collection<Station> stations, Collection<Route> routes) {
+        Map<Long, Station> copies = new HashMap<>();
+        for(Station station : stations) {
+            if(station != null && station.getId() != null) {
+                copies.put(station.getId(), copy(station));
+            }
+        }
+        List<Route> routeRows = new ArrayList<>(routes.size());
+        for(Route route : routes) {
+            if(route != null && route.getId() != null) {
+                routeRows.add(route);
+            }
+        }
+        return index(copies, routeRows);
+    }
+
+    public List<Station> getStations() {
+        return Collections.unmodifiableList(Arrays.asList(stations));
+    }
+
+    public int stationCount() {
+        return stations.length;
+    }
+
+    public Optional<Station> findStation(long id) {
+        int index = Arrays.binarySearch(stationIds, id);
+        return index >= 0 ? Optional.of(stations[index]) : Optional.empty();
+    }
+
+    public Optional<Station> findStationByCode(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(stationsByCode.get(code));
+    }
+
+    public List<Station> findStationsByName(String name) {
+        return name == null ? List.of() : stationsByName.getOrDefault(name, List.of());
+    }
+
+    public List<Station> findStationsByType(StationType type) {
+        return type == null ? List.of() : stationsByType.getOrDefault(type, List.of());
+    }
+
+    // Ordinals of every station, the starting point of a filter
+    public Bitmap allStations() {
+        return Bitmap.full(stations.length);
+    }
+
+    public Bitmap stationsOfType(StationType type) {
+        return typeBitmaps.getOrDefault(type, Bitmap.empty(stations.length));
+    }
+
+    public Bitmap stationsWithStatus(StationStatus status) {
+        return statusBitmaps.getOrDefault(status, Bitmap.empty(stations.length));
+    }
+
+    public Bitmap stationsNamed(String name) {
+        List<Station> named = findStationsByName(name);
+        int[] ordinals = new int[named.size()];
+        for(int index = 0; index < ordinals.length; index++) {
+            ordinals[index] = Arrays.binarySearch(stationIds, named.get(index).getId());
+        }
+        return Bitmap.of(stations.length, ordinals);
+    }
+
+    // The stations whose ordinals are in the bitmap, in id order
+    public List<Station> stationsIn(Bitmap ordinals) {
+        List<Station> selected = new ArrayList<>(ordinals.cardinality());
+        for(int ordinal : ordinals.toArray()) {
+            selected.add(stations[ordinal]);
+        }
+        return selected;
+    }
+
+    // Up to limit stations with an id greater than lastId, in id order
+    public List<Station> stationsAfter(long lastId, int limit) {
+        int from = firstAfter(stationIds, lastId);
+        return getStations().subList(from, Math.min(stations.length, from + limit));
+    }
+
+    public List<Route> getRoutes() {
+        return Collections.unmodifiableList(Arrays.asList(routes));
+    }
+
+    public Optional<Route> findRoute(long id) {
+        int index = Arrays.binarySearch(routeIds, id);
+        return index >= 0 ? Optional.of(routes[index]) : Optional.empty();
+    }
+
+    public List<Route> routesAfter(long lastId, int limit) {
+        int from = firstAfter(routeIds, lastId);
+        return getRoutes().subList(from, Math.min(routes.length, from + limit));
+    }
+
+    public List<RouteSummary> getRouteSummaries() {
+        return routeSummaries;
+    }
+
+    // Snapshot with the station added or replaced, routes calling at it see the new copy
+    public CatalogueSnapshot withStation(Station station) {
+        if(station == null || station.getId() == null) {
+            return this;
+        }
+        Optional<Station> current = findStation(station.getId());
+        if(current.isPresent() && isOlder(station.getVersion(), current.get().getVersion())) {
+            return this;
+        }
+        Edit edit = new Edit();
+        edit.putStation(station);
+        return edit.apply();
+    }
+
+    // Snapshot without the station, which is also dropped from every route calling at it
+    public CatalogueSnapshot withoutStation(Long stationId) {
+        if(stationId == null || findStation(stationId).isEmpty()) {
+            return this;
+        }
+        Edit edit = new Edit();
+        edit.removeStation(stationId);
+        return edit.apply();
+    }
+
+    // Snapshot with the route added or replaced; its stations were read with it, so they replace the current copies
+    public CatalogueSnapshot withRoute(Route route) {
+        if(route == null || route.getId() == null) {
+            return this;
+        }
+        Optional<Route> current = findRoute(route.getId());
+        if(current.isPresent() && isOlder(route.getVersion(), current.get().getVersion())) {
+            return this;
+        }
+        Edit edit = new Edit();
+        edit.putRoute(route);
+        return edit.apply();
+    }
+
+    // Snapshot without the route and its stations, which are deleted with it (Route.stations cascades)
+    public CatalogueSnapshot withoutRoute(Long routeId) {
+        Optional<Route> route = routeId == null ? Optional.empty() : findRoute(routeId);
+        if(route.isEmpty()) {
+            return this;
+        }
+        Edit edit = new Edit();
+        for(Station station : route.get().getStations()) {
+            if(station.getId() != null) {
+                edit.removeStation(station.getId());
+            }
+        }
+        edit.removeRoute(routeId);
+        return edit.apply();
+    }
+
+    /*
+     * Sort the copied stations by id and copy every route over them, so each route lists the same station objects
+     * as the station indexes; a route station missing from the map keeps a copy of its own
+     */
+    private static CatalogueSnapshot index(Map<Long, Station> copies, List<Route> routeRows) {
+        Station[] stations = copies.values().toArray(new Station[0]);
+        Arrays.sort(stations, Comparator.comparing(Station::getId));
+
+        Route[] routes = new Route[routeRows.size()];
+        for(int index = 0; index < routes.length; index++) {
+            Route route = routeRows.get(index);
+            List<Station> routeStations = new ArrayList<>();
+            if(route.getStations() != null) {
+                for(Station station : route.getStations()) {
+                    Station shared = station.getId() == null ? null : copies.get(station.getId());
+                    routeStations.add(shared != null ? shared : copy(station));
+                }
+            }
+            routes[index] = route.toBuilder().stations(Collections.unmodifiableList(routeStations)).build();
+        }
+        Arrays.sort(routes, Comparator.comparing(Route::getId));
+        return new CatalogueSnapshot(stations, routes);
+    }
+
+    // Detached copy; the interchange flag depends on the transit graph and is filled in when the station is read
+    private static Station copy(Station station) {
+        return station.toBuilder().isInterchangeable(false).build();
+    }
+
+    // Ordinals were added in ascending order, as the bitmaps require
+    private static <T> Map<T, Bitmap> bitmaps(Map<T, List<Integer>> ordinals, int universe) {
+        Map<T, Bitmap> bitmaps = new HashMap<>();
+        ordinals.forEach((value, valueOrdinals) -> bitmaps.put(value,
+                Bitmap.of(universe, valueOrdinals.stream().mapToInt(Integer::intValue).toArray())));
+        return bitmaps;
+    }
+
+    // Whether a row of the given version is older than the copy of the current version, unknown versions never are
+    private static boolean isOlder(Long version, Long current) {
+        return version != null && current != null && version < current;
+    }
+
+    private static RouteSummary summary(Route route) {
+        return new RouteSummary(route.getId(), route.getName(), route.getType(), (long) route.getStations().size());
+    }
+
+    private static long id(Object row) {
+        return row instanceof Station ? ((Station) row).getId() : ((Route) row).getId();
+    }
+
+    private static long[] ids(List<?> rows) {
+        long[] ids = new long[rows.size()];
+        for(int index = 0; index < ids.length; index++) {
+            ids[index] = id(rows.get(index));
+        }
+        return ids;
+    }
+
+    // Position of the id among stations or routes sorted by id, or -(insertion point) - 1 like Arrays.binarySearch
+    private static int indexOf(List<?> rows, long id) {
+        int low = 0;
+        int high = rows.size() - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = id(rows.get(middle));
+            if(middleId < id) {
+                low = middle + 1;
+            } else if(middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    private static int firstAfter(long[] ids, long lastId) {
+        int index = Arrays.binarySearch(ids, lastId);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /*
+     * Changes to this snapshot, applied to shallow copies of its arrays, maps and bitmaps
+     * A station inserted or removed moves the ordinals after it, which every bitmap follows with a word shift.
+     * Routes calling at a replaced or removed station are copied once in apply(), however many stations changed
+     */
+    private final class Edit {
+        private final List<Station> stations = new ArrayList<>(Arrays.asList(CatalogueSnapshot.this.stations));
+        private final Map<String, Station> byCode = new HashMap<>(stationsByCode);
+        private final Map<String, List<Station>> byName = new HashMap<>(stationsByName);
+        private final Map<StationType, Bitmap> types = new HashMap<>(typeBitmaps);
+        private final Map<StationStatus, Bitmap> statuses = new HashMap<>(statusBitmaps);
+        private final Set<StationType> changedTypes = EnumSet.noneOf(StationType.class);
+        private final Map<Long, Station> replaced = new HashMap<>();
+        private final Set<Long> removed = new HashSet<>();
+        private final List<Route> routes = new ArrayList<>(Arrays.asList(CatalogueSnapshot.this.routes));
+        private final List<RouteSummary> summaries = new ArrayList<>(routeSummaries);
+
+        // Add or replace the station unless the current copy is newer, and return the copy the snapshot keeps
+        Station putStation(Station station) {
+            int ordinal = indexOf(stations, station.getId());
+            Station current = ordinal >= 0 ? stations.get(ordinal) : null;
+            if(current != null && isOlder(station.getVersion(), current.getVersion())) {
+                return current;
+            }
+            Station added = copy(station);
+            if(current != null) {
+                stations.set(ordinal, added);
+                unindex(current);
+                retag(types, ordinal, current.getType(), added.getType());
+                retag(statuses, ordinal, current.getStatus(), added.getStatus());
+                changed(current.getType());
+            } else {
+                ordinal = -ordinal - 1;
+                stations.add(ordinal, added);
+                insert(types, ordinal, added.getType());
+                insert(statuses, ordinal, added.getStatus());
+            }
+            index(added);
+            changed(added.getType());
+            replaced.put(added.getId(), added);
+            removed.remove(added.getId());
+            return added;
+        }
+
+        void removeStation(Long stationId) {
+            int ordinal = indexOf(stations, stationId);
+            if(ordinal < 0) {
+                return;
+            }
+            Station current = stations.remove(ordinal);
+            unindex(current);
+            types.replaceAll((type, bitmap) -> bitmap.remove(ordinal));
+            statuses.replaceAll((status, bitmap) -> bitmap.remove(ordinal));
+            changed(current.getType());
+            replaced.remove(stationId);
+            removed.add(stationId);
+        }
+
+        void putRoute(Route route) {
+            List<Station> routeStations = new ArrayList<>();
+            if(route.getStations() != null) {
+                for(Station station : route.getStations()) {
+                    routeStations.add(station.getId() == null ? copy(station) : putStation(station));
+                }
+            }
+            Route added = route.toBuilder().stations(Collections.unmodifiableList(routeStations)).build();
+            RouteSummary summary = summary(added);
+            int index = indexOf(routes, route.getId());
+            if(index >= 0) {
+                routes.set(index, added);
+                summaries.set(index, summary);
+            } else {
+                routes.add(-index - 1, added);
+                summaries.add(-index - 1, summary);
+            }
+        }
+
+        void removeRoute(Long routeId) {
+            int index = indexOf(routes, routeId);
+            if(index >= 0) {
+                routes.remove(index);
+                summaries.remove(index);
+            }
+        }
+
+        CatalogueSnapshot apply() {
+            if(!replaced.isEmpty() || !removed.isEmpty()) {
+                for(int index = 0; index < routes.size(); index++) {
+                    Route route = routes.get(index);
+                    List<Station> routeStations = relink(route.getStations());
+                    if(routeStations != null) {
+                        Route relinked = route.toBuilder().stations(Collections.unmodifiableList(routeStations)).build();
+                        routes.set(index, relinked);
+                        summaries.set(index, summary(relinked));
+                    }
+                }
+            }
+            Station[] stationArray = stations.toArray(new Station[0]);
+            Map<StationType, List<Station>> byType = new EnumMap<>(StationType.class);
+            byType.putAll(stationsByType);
+            for(StationType type : changedTypes) {
+                Bitmap typed = types.get(type);
+                if(typed == null || typed.isEmpty()) {
+                    byType.remove(type);
+                    continue;
+                }
+                List<Station> typeStations = new ArrayList<>(typed.cardinality());
+                for(int ordinal : typed.toArray()) {
+                    typeStations.add(stationArray[ordinal]);
+                }
+                byType.put(type, Collections.unmodifiableList(typeStations));
+            }
+            return new CatalogueSnapshot(stationArray, ids(stations), byCode, byName, byType, types, statuses,
+                    routes.toArray(new Route[0]), ids(routes), Collections.unmodifiableList(summaries));
+        }
+
+        // The route's stations with replaced copies swapped in and removed ones dropped, null when none changed
+        private List<Station> relink(List<Station> routeStations) {
+            List<Station> relinked = null;
+            for(int index = 0; index < routeStations.size(); index++) {
+                Station station = routeStations.get(index);
+                Station replacement = station.getId() == null ? null : replaced.get(station.getId());
+                boolean drop = station.getId() != null && removed.contains(station.getId());
+                if(relinked == null && (drop || (replacement != null && replacement != station))) {
+                    relinked = new ArrayList<>(routeStations.subList(0, index));
+                }
+                if(relinked != null && !drop) {
+                    relinked.add(replacement != null ? replacement : station);
+                }
+            }
+            return relinked;
+        }
+
+        private void index(Station station) {
+            if(station.getCode() != null) {
+                byCode.put(station.getCode(), station);
+            }
+            if(station.getName() != null) {
+                List<Station> named = new ArrayList<>(byName.getOrDefault(station.getName(), List.of()));
+                int position = indexOf(named, station.getId());
+                named.add(position >= 0 ? position : -position - 1, station);
+                byName.put(station.getName(), Collections.unmodifiableList(named));
+            }
+        }
+
+        private void unindex(Station station) {
+            if(station.getCode() != null && byCode.get(station.getCode()) == station) {
+                byCode.remove(station.getCode());
+            }
+            List<Station> named = station.getName() == null ? null : byName.get(station.getName());
+            if(named != null) {
+                List<Station> kept = new ArrayList<>(named);
+                kept.remove(station);
+                if(kept.isEmpty()) {
+                    byName.remove(station.getName());
+                } else {
+                    byName.put(station.getName(), Collections.unmodifiableList(kept));
+                }
+            }
+        }
+
+        private void changed(StationType type) {
+            if(type != null) {
+                changedTypes.add(type);
+            }
+        }
+
+        private <T> void retag(Map<T, Bitmap> bitmaps, int ordinal, T previous, T value) {
+            if(Objects.equals(previous, value)) {
+                return;
+            }
+            if(previous != null) {
+                bitmaps.computeIfPresent(previous, (key, bitmap) -> bitmap.without(ordinal));
+            }
+            if(value != null) {
+                bitmaps.put(value, bitmaps.getOrDefault(value, Bitmap.empty(stations.size())).with(ordinal));
+            }
+        }
+
+        // Open the ordinal in every bitmap, set only in the bitmap of the station's value
+        private <T> void insert(Map<T, Bitmap> bitmaps, int ordinal, T value) {
+            if(value != null && !bitmaps.containsKey(value)) {
+                bitmaps.put(value, Bitmap.empty(stations.size() - 1));
+            }
+            bitmaps.replaceAll((key, bitmap) -> bitmap.insert(ordinal, key == value));
+        }
+    }
+}
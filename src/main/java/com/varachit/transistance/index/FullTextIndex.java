@@ -0,0 +1,160 @@
+package com.varachit.transistance.index;
+
+import java.util.*;
+
+/*
+ * In-memory inverted index ranking documents against free-text queries with BM25
+ * Text is split into normalised words (see AutocompleteIndex.normalise); each word maps to a posting list of the
+ * ordinals of the documents containing it, kept as sorted int arrays with the word's frequency alongside.
+ * A query scores every document holding any of its words, so documents matching more and rarer words rank first.
+ * Documents are added and removed in place, their ordinals reused through an OrdinalAllocator. The class is not
+ * thread-safe, callers serialise writes against reads
+ */
+public final class FullTextIndex<K> {
+    // Usual BM25 constants: term frequency saturation and how strongly long documents are penalised
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final OrdinalAllocator<K> ordinals = new OrdinalAllocator<>();
+    private Object[] keys = new Object[16];
+    private String[][] documentTerms = new String[16][];
+    private int[] lengths = new int[16];
+    private long totalLength;
+
+    // Add the document made of the given fields, or replace its text; null fields are skipped
+    public void put(K key, String... fields) {
+        remove(key);
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        int length = 0;
+        for(String field : fields) {
+            for(String term : tokenise(field)) {
+                frequencies.merge(term, 1, Integer::sum);
+                length++;
+            }
+        }
+        int ordinal = allocate(key);
+        documentTerms[ordinal] = frequencies.keySet().toArray(new String[0]);
+        lengths[ordinal] = length;
+        totalLength += length;
+        for(Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new Postings()).add(ordinal, entry.getValue());
+        }
+    }
+
+    public void remove(K key) {
+        Integer ordinal = ordinals.release(key);
+        if(ordinal == null) {
+            return;
+        }
+        for(String term : documentTerms[ordinal]) {
+            Postings termPostings = postings.get(term);
+            if(termPostings != null && termPostings.remove(ordinal) && termPostings.size == 0) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= lengths[ordinal];
+        keys[ordinal] = null;
+        documentTerms[ordinal] = null;
+        lengths[ordinal] = 0;
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    // Up to limit documents containing at least one query word, highest BM25 score first, ties to the shorter one
+    public List<Hit<K>> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenise(query));
+        int documentCount = ordinals.size();
+        if(terms.isEmpty() || limit <= 0 || documentCount == 0) {
+            return List.of();
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / documentCount);
+
+        // Score accumulated per ordinal, with the ordinals touched listed so only those are ranked
+        double[] scores = new double[ordinals.count()];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        for(String term : terms) {
+            Postings termPostings = postings.get(term);
+            if(termPostings == null) {
+                continue;
+            }
+            int documentFrequency = termPostings.size;
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for(int index = 0; index < termPostings.size; index++) {
+                int ordinal = termPostings.ordinals[index];
+                int frequency = termPostings.frequencies[index];
+                double norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                if(scores[ordinal] == 0) {
+                    if(touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = ordinal;
+                }
+                scores[ordinal] += idf * frequency * (K1 + 1) / (frequency + norm);
+            }
+        }
+
+        // Keep the best limit ordinals in a heap whose head is the worst of them
+        Comparator<Integer> ranking = Comparator.comparingDouble((Integer ordinal) -> scores[ordinal])
+                .thenComparing(ordinal -> -lengths[ordinal])
+                .thenComparing(ordinal -> -ordinal);
+        PriorityQueue<Integer> best = new PriorityQueue<>(ranking);
+        for(int index = 0; index < touchedCount; index++) {
+            best.add(touched[index]);
+            if(best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Hit<K>> hits = new ArrayList<>(best.size());
+        while(!best.isEmpty()) {
+            int ordinal = best.poll();
+            hits.add(new Hit<>(key(ordinal), scores[ordinal]));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    // Normalised words of the text, in order and with repeats
+    public static List<String> tokenise(String text) {
+        String normalised = AutocompleteIndex.normalise(text);
+        return normalised.isEmpty() ? List.of() : Arrays.asList(normalised.split(" "));
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int ordinal) {
+        return (K) keys[ordinal];
+    }
+
+    private int allocate(K key) {
+        int ordinal = ordinals.allocate(key);
+        if(ordinal == keys.length) {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            documentTerms = Arrays.copyOf(documentTerms, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        keys[ordinal] = key;
+        return ordinal;
+    }
+
+    public static final class Hit<K> {
+        private final K key;
+        private final double score;
+
+        private Hit(K key, double score) {
+            this.key = key;
+            this.score = score;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.varachit.transistance.index;
+
+import com.varachit.transistance.util.GeoUtils;
+
+/*
+ * Static 3-d tree over points on the unit sphere, identified by their dense int index
+ * Coordinates are converted to unit vectors, where straight-line (chord) distance grows monotonically with
+ * great-circle distance, so a Euclidean nearest-neighbour search returns the great-circle nearest points.
+ * The tree is implicit: each node is the median of a sub-range of the point arrays, so there are no node objects
+ */
+public final class KdTree {
+    private final int[] points;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final byte[] axes;
+
+    private KdTree(int[] points, double[] xs, double[] ys, double[] zs, byte[] axes) {
+        this.points = points;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.axes = axes;
+    }
+
+    public static KdTree build(double[] latitudes, double[] longitudes) {
+        int count = latitudes.length;
+        int[] points = new int[count];
+        double[][] coordinates = new double[3][count];
+        for(int point = 0; point < count; point++) {
+            points[point] = point;
+            double latitude = Math.toRadians(latitudes[point]);
+            double longitude = Math.toRadians(longitudes[point]);
+            coordinates[0][point] = Math.cos(latitude) * Math.cos(longitude);
+            coordinates[1][point] = Math.cos(latitude) * Math.sin(longitude);
+            coordinates[2][point] = Math.sin(latitude);
+        }
+        byte[] axes = new byte[count];
+        split(points, coordinates, axes, 0, count);
+        return new KdTree(points, coordinates[0], coordinates[1], coordinates[2], axes);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    // Up to k points nearest to the coordinate, nearest first
+    public int[] nearest(double latitude, double longitude, int k) {
+        int limit = Math.min(k, points.length);
+        if(limit <= 0) {
+            return new int[0];
+        }
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double[] query = {Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat)};
+
+        Candidates candidates = new Candidates(limit);
+        search(query, 0, points.length, candidates);
+        return candidates.sorted();
+    }
+
+    // Great-circle distance in metres represented by a squared chord length on the unit sphere
+    public static double toMetres(double squaredChord) {
+        return 2 * GeoUtils.EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(squaredChord) / 2));
+    }
+
+    private void search(double[] query, int from, int to, Candidates candidates) {
+        if(from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        double dx = xs[middle] - query[0];
+        double dy = ys[middle] - query[1];
+        double dz = zs[middle] - query[2];
+        candidates.offer(points[middle], dx * dx + dy * dy + dz * dz);
+
+        int axis = axes[middle];
+        double delta = axis == 0 ? -dx : axis == 1 ? -dy : -dz;
+        // Descend into the side of the splitting plane holding the query first
+        if(delta < 0) {
+            search(query, from, middle, candidates);
+            if(delta * delta < candidates.worst()) {
+                search(query, middle + 1, to, candidates);
+            }
+        } else {
+            search(query, middle + 1, to, candidates);
+            if(delta * delta < candidates.worst()) {
+                search(query, from, middle, candidates);
+            }
+        }
+    }
+
+    // Recursively place the median along the widest axis of each sub-range at its middle slot
+    private static void split(int[] points, double[][] coordinates, byte[] axes, int from, int to) {
+        if(to - from <= 0) {
+            return;
+        }
+        int axis = widestAxis(coordinates, from, to);
+        int middle = (from + to) >>> 1;
+        select(points, coordinates, axis, from, to - 1, middle);
+        axes[middle] = (byte) axis;
+        split(points, coordinates, axes, from, middle);
+        split(points, coordinates, axes, middle + 1, to);
+    }
+
+    private static int widestAxis(double[][] coordinates, int from, int to) {
+        int widest = 0;
+        double widestSpread = -1;
+        for(int axis = 0; axis < 3; axis++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for(int index = from; index < to; index++) {
+                min = Math.min(min, coordinates[axis][index]);
+                max = Math.max(max, coordinates[axis][index]);
+            }
+            if(max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = axis;
+            }
+        }
+        return widest;
+    }
+
+    // Quickselect: reorder [left, right] so the element at nth is where it would be if sorted along the axis
+    private static void select(int[] points, double[][] coordinates, int axis, int left, int right, int nth) {
+        double[] values = coordinates[axis];
+        while(left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while(i <= j) {
+                while(values[i] < pivot) {
+                    i++;
+                }
+                while(values[j] > pivot) {
+                    j--;
+                }
+                if(i <= j) {
+                    swap(points, coordinates, i++, j--);
+                }
+            }
+            if(nth <= j) {
+                right = j;
+            } else if(nth >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(int[] points, double[][] coordinates, int a, int b) {
+        int point = points[a];
+        points[a] = points[b];
+        points[b] = point;
+        for(double[] values : coordinates) {
+            double value = values[a];
+            values[a] = values[b];
+            values[b] = value;
+        }
+    }
+
+    // Bounded max-heap of the k best candidates found so far, keyed by squared chord length
+    private static final class Candidates {
+        private final int[] points;
+        private final double[] distances;
+        private int size;
+
+        Candidates(int capacity) {
+            this.points = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        double worst() {
+            return size < points.length ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(int point, double distance) {
+            if(size < points.length) {
+                int position = size++;
+                while(position > 0) {
+                    int parent = (position - 1) >>> 1;
+                    if(distances[parent] >= distance) {
+                        break;
+                    }
+                    points[position] = points[parent];
+                    distances[position] = distances[parent];
+                    position = parent;
+                }
+                points[position] = point;
+                distances[position] = distance;
+            } else if(distance < distances[0]) {
+                siftDown(point, distance);
+            }
+        }
+
+        // Pop the farthest candidate into the back of the result until the heap is empty, nearest ends up first
+        int[] sorted() {
+            int[] result = new int[size];
+            while(size > 0) {
+                result[size - 1] = points[0];
+                size--;
+                if(size > 0) {
+                    siftDown(points[size], distances[size]);
+                }
+            }
+            return result;
+        }
+
+        // Replace the root with the given candidate and restore the heap order
+        private void siftDown(int point, double distance) {
+            int position = 0;
+            while(true) {
+                int child = 2 * position + 1;
+                if(child >= size) {
+                    break;
+                }
+                if(child + 1 < size && distances[child + 1] > distances[child]) {
+                    child++;
+                }
+                if(distances[child] <= distance) {
+                    break;
+                }
+                points[position] = points[child];
+                distances[position] = distances[child];
+                position = child;
+            }
+            points[position] = point;
+            distances[position] = distance;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.varachit.transistance.index;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Dense int ordinals for the keys of an index, which address its per-document arrays and posting lists
+ * Released ordinals are handed out again before new ones, so the arrays only grow with the live document count
+ */
+final class OrdinalAllocator<K> {
+    private final Map<K, Integer> ordinals = new HashMap<>();
+    private final Deque<Integer> free = new ArrayDeque<>();
+    private int count;
+
+    // Ordinal for the new key: a released one, or else count() before the call, which callers grow their arrays to
+    int allocate(K key) {
+        int ordinal = free.isEmpty() ? count++ : free.pop();
+        ordinals.put(key, ordinal);
+        return ordinal;
+    }
+
+    // Release the key's ordinal and return it, or null when the key has none
+    Integer release(K key) {
+        Integer ordinal = ordinals.remove(key);
+        if(ordinal != null) {
+            free.push(ordinal);
+        }
+        return ordinal;
+    }
+
+    // Number of keys holding an ordinal
+    int size() {
+        return ordinals.size();
+    }
+
+    // Every ordinal handed out is below this bound
+    int count() {
+        return count;
+    }
+}
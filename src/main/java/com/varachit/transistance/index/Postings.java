@@ -0,0 +1,61 @@
+package com.varachit.transistance.index;
+
+import java.util.Arrays;
+
+/*
+ * Sorted set of document ordinals, optionally with a count per ordinal (the frequency of a word in the document)
+ * New documents take the highest ordinal, so adding is usually an append. The counts are only allocated once one
+ * is given, so posting lists without them stay a single array
+ */
+final class Postings {
+    int[] ordinals = new int[2];
+    int[] frequencies;
+    int size;
+
+    void add(int ordinal) {
+        insert(ordinal, 0);
+    }
+
+    // Add the ordinal with its count, or replace the count when the ordinal is already in the set
+    void add(int ordinal, int frequency) {
+        if(frequencies == null) {
+            frequencies = new int[ordinals.length];
+        }
+        insert(ordinal, frequency);
+    }
+
+    boolean remove(int ordinal) {
+        int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if(position < 0) {
+            return false;
+        }
+        System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+        if(frequencies != null) {
+            System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+        }
+        size--;
+        return true;
+    }
+
+    private void insert(int ordinal, int frequency) {
+        int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+        if(position < 0) {
+            position = -position - 1;
+            if(size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                if(frequencies != null) {
+                    frequencies = Arrays.copyOf(frequencies, size * 2);
+                }
+            }
+            System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+            if(frequencies != null) {
+                System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+            }
+            ordinals[position] = ordinal;
+            size++;
+        }
+        if(frequencies != null) {
+            frequencies[position] = frequency;
+        }
+    }
+}
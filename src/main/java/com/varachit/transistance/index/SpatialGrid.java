@@ -0,0 +1,158 @@
+package com.varachit.transistance.index;
+
+import com.varachit.transistance.util.GeoUtils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+ * Uniform latitude/longitude grid over a fixed set of points, identified by their dense int index
+ * Points are bucketed by cell and the buckets are laid out contiguously in cell key order,
+ * so a query only touches the populated cells overlapping its area, found by a binary search per populated row,
+ * and a large viewport over a sparse grid costs no more than the stations inside it
+ */
+public final class SpatialGrid {
+    // Metres per degree of latitude on the mean earth sphere
+    public static final double METRES_PER_DEGREE = GeoUtils.EARTH_RADIUS * Math.PI / 180;
+
+    private final double cellSize;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long[] cellKeys;
+    private final int[] cellStart;
+    private final int[] points;
+
+    private SpatialGrid(double cellSize, double[] latitudes, double[] longitudes, long[] cellKeys,
+                        int[] cellStart, int[] points) {
+        this.cellSize = cellSize;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.cellKeys = cellKeys;
+        this.cellStart = cellStart;
+        this.points = points;
+    }
+
+    // Index the points with square cells of roughly cellMetres along the meridian
+    public static SpatialGrid build(double[] latitudes, double[] longitudes, double cellMetres) {
+        double cellSize = Math.max(cellMetres, 1.0) / METRES_PER_DEGREE;
+        int count = latitudes.length;
+
+        // Sort (cell key, point) pairs, then collapse runs of equal keys into buckets
+        long[] keys = new long[count];
+        Integer[] order = new Integer[count];
+        for(int point = 0; point < count; point++) {
+            keys[point] = cellKey(row(latitudes[point], cellSize), column(longitudes[point], cellSize));
+            order[point] = point;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        int[] points = new int[count];
+        long[] cellKeys = new long[count];
+        int[] cellStart = new int[count + 1];
+        int cells = 0;
+        for(int index = 0; index < count; index++) {
+            int point = order[index];
+            points[index] = point;
+            if(cells == 0 || cellKeys[cells - 1] != keys[point]) {
+                cellKeys[cells] = keys[point];
+                cellStart[cells] = index;
+                cells++;
+            }
+        }
+        cellStart[cells] = count;
+        return new SpatialGrid(cellSize, latitudes, longitudes, Arrays.copyOf(cellKeys, cells),
+                Arrays.copyOf(cellStart, cells + 1), points);
+    }
+
+    public int size() {
+        return points.length;
+    }
+
+    // Points within radiusMetres great-circle distance of the coordinate, in no particular order
+    public int[] withinRadius(double latitude, double longitude, double radiusMetres) {
+        double latitudeSpan = radiusMetres / METRES_PER_DEGREE;
+        double longitudeSpan = latitudeSpan / Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        Collector collector = new Collector();
+        scan(latitude - latitudeSpan, longitude - longitudeSpan, latitude + latitudeSpan, longitude + longitudeSpan,
+                point -> {
+                    if(GeoUtils.haversine(latitude, longitude, latitudes[point], longitudes[point]) <= radiusMetres) {
+                        collector.add(point);
+                    }
+                });
+        return collector.toArray();
+    }
+
+    // Points inside the latitude/longitude box, edges included
+    public int[] withinBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        Collector collector = new Collector();
+        scan(minLatitude, minLongitude, maxLatitude, maxLongitude, point -> {
+            if(latitudes[point] >= minLatitude && latitudes[point] <= maxLatitude
+                    && longitudes[point] >= minLongitude && longitudes[point] <= maxLongitude) {
+                collector.add(point);
+            }
+        });
+        return collector.toArray();
+    }
+
+    // Walk the populated cells of each populated row in the box, jumping over empty rows and columns by binary search
+    private void scan(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude,
+                      IntConsumer consumer) {
+        long maxRow = row(maxLatitude, cellSize);
+        long minColumn = column(minLongitude, cellSize);
+        long maxColumn = column(maxLongitude, cellSize);
+        int cell = lowerBound(cellKey(row(minLatitude, cellSize), minColumn), 0);
+        while(cell < cellKeys.length) {
+            long row = cellKeys[cell] >> 32;
+            if(row > maxRow) {
+                break;
+            }
+            long first = cellKey(row, minColumn);
+            if(cellKeys[cell] < first) {
+                cell = lowerBound(first, cell);
+                continue;
+            }
+            long last = cellKey(row, maxColumn);
+            for(; cell < cellKeys.length && cellKeys[cell] <= last; cell++) {
+                for(int index = cellStart[cell]; index < cellStart[cell + 1]; index++) {
+                    consumer.accept(points[index]);
+                }
+            }
+            cell = lowerBound(cellKey(row + 1, minColumn), cell);
+        }
+    }
+
+    // First cell at or after from whose key is not below the given key
+    private int lowerBound(long key, int from) {
+        int cell = Arrays.binarySearch(cellKeys, from, cellKeys.length, key);
+        return cell >= 0 ? cell : -cell - 1;
+    }
+
+    private static long row(double latitude, double cellSize) {
+        return (long) Math.floor(latitude / cellSize);
+    }
+
+    private static long column(double longitude, double cellSize) {
+        return (long) Math.floor(longitude / cellSize);
+    }
+
+    // Row in the high half, column offset into unsigned range in the low half, so keys sort by row then column
+    private static long cellKey(long row, long column) {
+        return (row << 32) | ((column + 0x80000000L) & 0xffffffffL);
+    }
+
+    private static final class Collector {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if(size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
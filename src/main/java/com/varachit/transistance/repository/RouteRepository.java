@@ -1,14 +1,36 @@
 package com.varachit.transistance.repository;
 
 import com.varachit.transistance.entity.Route;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RouteRepository extends JpaRepository<Route, Long> {
-    @Query("SELECT r FROM Route r")
+    // Every route with its stations in a single join fetch, DISTINCT only removes the duplicated roots in memory
+    @Override
+    @Query("SELECT DISTINCT r FROM Route r LEFT JOIN FETCH r.stations ORDER BY r.id")
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    List<Route> findAll();
+
+    // Writes run outside a session (open-in-view is off), so the stations they read are fetched with the route
+    @Override
+    @EntityGraph(attributePaths = "stations")
+    Optional<Route> findById(Long id);
+
+    // Keyed lookup on the unique name index
     Optional<Route> findByName(String name);
+
+    @Query("SELECT r.name FROM Route r")
+    List<String> findNames();
+
+    @Query("SELECT COUNT(r) AS rowCount, COALESCE(SUM(r.version), 0) AS versionSum, COALESCE(MAX(r.id), 0) AS maxId " +
+           "FROM Route r")
+    TableFingerprint findFingerprint();
 }
@@ -5,19 +5,19 @@ import org.springframework.data.jpa.repository.*;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface StationRepository extends JpaRepository<Station, Long> {
-    @Query("SELECT s FROM Station s")
-    Optional<Station> findByCode(String code);
+    // Code and id of every station, without loading station entities
+    @Query("SELECT s.id AS id, s.code AS code FROM Station s")
+    List<StationCodeRow> findCodeRows();
 
-    @Query("SELECT s FROM Station s WHERE s.name = ?1")
-    List<Station> searchStationsByName(String name);
+    @Query("SELECT COUNT(s) AS rowCount, COALESCE(SUM(s.version), 0) AS versionSum, COALESCE(MAX(s.id), 0) AS maxId " +
+           "FROM Station s")
+    TableFingerprint findFingerprint();
 
-    @Query("SELECT s FROM Station s WHERE s.type = ?1")
-    List<Station> searchStationsByType(StationType type);
-
-    @Query("SELECT s FROM Station s WHERE s.name = ?1 AND s.type = ?2")
-    List<Station> searchStationsByNameAndType(String name, StationType type);
+    interface StationCodeRow {
+        Long getId();
+        String getCode();
+    }
 }
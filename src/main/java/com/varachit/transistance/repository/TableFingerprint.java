@@ -0,0 +1,8 @@
+package com.varachit.transistance.repository;
+
+// Row count, sum of row versions and highest id of a table, which change with any insert, update or delete
+public interface TableFingerprint {
+    Long getRowCount();
+    Long getVersionSum();
+    Long getMaxId();
+}
@@ -0,0 +1,41 @@
+package com.varachit.transistance.repository;
+
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.Trip;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TripRepository extends JpaRepository<Trip, Long> {
+    // Flat rows for building the timetable, without loading trip and stop time entities
+    @Query("SELECT t.id AS tripId, r.name AS routeName, t.headsign AS headsign, " +
+           "t.frequencyStart AS frequencyStart, t.frequencyEnd AS frequencyEnd, t.headway AS headway " +
+           "FROM Trip t JOIN t.route r ORDER BY t.id")
+    List<TripRow> findTripRows();
+
+    @Query("SELECT st.trip.id AS tripId, s.code AS stationCode, s.name AS stationName, s.status AS stationStatus, " +
+           "st.arrivalTime AS arrivalTime, st.departureTime AS departureTime " +
+           "FROM StopTime st JOIN st.station s ORDER BY st.trip.id, st.sequence")
+    List<StopTimeRow> findStopTimeRows();
+
+    interface TripRow {
+        Long getTripId();
+        String getRouteName();
+        String getHeadsign();
+        Integer getFrequencyStart();
+        Integer getFrequencyEnd();
+        Integer getHeadway();
+    }
+
+    interface StopTimeRow {
+        Long getTripId();
+        String getStationCode();
+        String getStationName();
+        StationStatus getStationStatus();
+        Integer getArrivalTime();
+        Integer getDepartureTime();
+    }
+}
@@ -0,0 +1,197 @@
+package com.varachit.transistance.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.varachit.transistance.dto.ImportResult;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.util.RouteUtils;
+import com.varachit.transistance.util.StationUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/*
+ * Bulk import of stations and routes from NDJSON, one record per line in the same shape as the add endpoints
+ * Records are read by a streaming parser in chunks of the JDBC batch size; each chunk is validated in parallel,
+ * checked for duplicate codes and names, inserted in batches, then flushed and cleared from the persistence context,
+ * so memory stays flat however large the import. The whole import runs in one transaction: any invalid record
+ * rolls it back, and listeners are notified once after the commit instead of once per row
+ */
+@Service @Slf4j
+public class CatalogueImportService {
+    // Matches spring.jpa.properties.hibernate.jdbc.batch_size and the id sequence allocation size
+    public static final int CHUNK_SIZE = 500;
+
+    private final StationRepository stationRepository;
+    private final RouteRepository routeRepository;
+    private final StationCodeService stationCodeService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final StationUtils stationUtils;
+    private final RouteUtils routeUtils;
+
+    public CatalogueImportService(StationRepository stationRepository, RouteRepository routeRepository,
+                                  StationCodeService stationCodeService, EntityManager entityManager,
+                                  PlatformTransactionManager transactionManager,
+                                  ApplicationEventPublisher eventPublisher, ObjectMapper objectMapper) {
+        this.stationRepository = stationRepository;
+        this.routeRepository = routeRepository;
+        this.stationCodeService = stationCodeService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.stationUtils = new StationUtils();
+        this.routeUtils = new RouteUtils();
+    }
+
+    public ImportResult importStations(InputStream body) {
+        long startTime = System.nanoTime();
+        Set<String> codes = new HashSet<>();
+        int imported = importRecords(body, Station.class, "station", this::validateStation, stations -> {
+            stations.forEach(station -> claimCode(station, codes));
+            stationRepository.saveAllAndFlush(stations);
+        });
+        eventPublisher.publishEvent(new CatalogueImportedEvent(imported, 0));
+        return result(imported, startTime, "stations");
+    }
+
+    public ImportResult importRoutes(InputStream body) {
+        long startTime = System.nanoTime();
+        Set<String> names = new HashSet<>(routeRepository.findNames());
+        Set<String> codes = new HashSet<>();
+        int[] stationCount = new int[1];
+        int imported = importRecords(body, Route.class, "route", this::validateRoute, routes -> {
+            for(Route route : routes) {
+                if(!names.add(route.getName())) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Unable to import route due to the name " + route.getName() + " already exists");
+                }
+                route.getStations().forEach(station -> claimCode(station, codes));
+                stationCount[0] += route.getStations().size();
+            }
+            routeRepository.saveAllAndFlush(routes);
+        });
+        eventPublisher.publishEvent(new CatalogueImportedEvent(stationCount[0], imported));
+        return result(imported, startTime, "routes");
+    }
+
+    private <T> int importRecords(InputStream body, Class<T> type, String kind, Consumer<T> validator,
+                                  Consumer<List<T>> persister) {
+        try {
+            Integer imported = transactionTemplate.execute(status -> {
+                try(MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(body)) {
+                    int count = 0;
+                    List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+                    while(readChunk(iterator, chunk, kind, count)) {
+                        validate(chunk, kind, count, validator);
+                        // The persister saves and flushes the chunk through a repository, whose proxy turns a unique
+                        // key clash into a DataIntegrityViolationException; then drop the persisted entities
+                        persister.accept(chunk);
+                        entityManager.clear();
+                        count += chunk.size();
+                        chunk = new ArrayList<>(CHUNK_SIZE);
+                    }
+                    return count;
+                } catch(IOException exception) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + kind + " import");
+                }
+            });
+            return imported == null ? 0 : imported;
+        } catch(DataIntegrityViolationException exception) {
+            // Another request added a conflicting code or name during the import
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to import " + kind + "s due to a code or name already exists");
+        }
+    }
+
+    private <T> boolean readChunk(MappingIterator<T> iterator, List<T> chunk, String kind, int count) {
+        try {
+            while(chunk.size() < CHUNK_SIZE && iterator.hasNextValue()) {
+                chunk.add(iterator.nextValue());
+            }
+        } catch(IOException | RuntimeException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Invalid " + kind + " record " + (count + chunk.size() + 1));
+        }
+        return !chunk.isEmpty();
+    }
+
+    // Validate a chunk on the common pool; the first invalid record in input order is the one reported
+    private static <T> void validate(List<T> chunk, String kind, int count, Consumer<T> validator) {
+        OptionalInt invalid = IntStream.range(0, chunk.size()).parallel()
+                .filter(index -> !isValid(chunk.get(index), validator))
+                .min();
+        if(invalid.isPresent()) {
+            try {
+                validator.accept(chunk.get(invalid.getAsInt()));
+            } catch(ResponseStatusException exception) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invalid " + kind + " record " + (count + invalid.getAsInt() + 1) + ": " +
+                        exception.getReason());
+            }
+        }
+    }
+
+    private static <T> boolean isValid(T record, Consumer<T> validator) {
+        try {
+            validator.accept(record);
+            return true;
+        } catch(ResponseStatusException exception) {
+            return false;
+        }
+    }
+
+    private void validateStation(Station station) {
+        stationUtils.validateStation(station.getName(), station.getCode(), station.getLatitude(),
+                station.getLongitude(), station.getType() == null ? null : station.getType().name());
+        if(station.getId() != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid station id");
+        }
+        if(station.getStatus() == null) {
+            station.setStatus(StationStatus.OPENED);
+        }
+    }
+
+    private void validateRoute(Route route) {
+        routeUtils.validateRoute(route.getName(), route.getDescription(),
+                route.getType() == null ? null : route.getType().name(), route.getStations());
+        if(route.getId() != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid route id");
+        }
+        route.getStations().forEach(this::validateStation);
+    }
+
+    // Codes must be unique within the import and against the stored stations
+    private void claimCode(Station station, Set<String> codes) {
+        if(!codes.add(station.getCode()) || stationCodeService.exists(station.getCode())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to import station due to the code " + station.getCode() + " already exists");
+        }
+    }
+
+    private static ImportResult result(int imported, long startTime, String kind) {
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+        log.info("Imported {} {} in {} ms", imported, kind, elapsedMillis);
+        return new ImportResult(imported, elapsedMillis);
+    }
+}
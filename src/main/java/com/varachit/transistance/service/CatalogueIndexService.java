@@ -0,0 +1,155 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.index.CatalogueSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+ * Base of the services answering from a mutable in-memory index over the catalogue read model
+ * The index is built from the read model on first use and then kept in step with each station and route write,
+ * a bulk import drops it so the next read builds it again. Lookups share a read lock, index writes take the write lock
+ */
+@Slf4j
+public abstract class CatalogueIndexService<I> {
+    protected final CatalogueReadModel catalogueReadModel;
+    private final String description;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private I index;
+
+    protected CatalogueIndexService(CatalogueReadModel catalogueReadModel, String description) {
+        this.catalogueReadModel = catalogueReadModel;
+        this.description = description;
+    }
+
+    protected abstract I build(CatalogueSnapshot snapshot);
+
+    protected abstract int size(I index);
+
+    protected abstract void putStation(I index, Station station);
+
+    protected abstract void removeStation(I index, long stationId);
+
+    // Routes are only indexed by services that search them
+    protected void putRoute(I index, Route route) {
+    }
+
+    protected void removeRoute(I index, long routeId) {
+    }
+
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        Station station = event.getStation();
+        if(station == null || station.getId() == null) {
+            return;
+        }
+        update(current -> {
+            if(event.getChangeType() == ChangeType.DELETED) {
+                removeStation(current, station.getId());
+            } else {
+                putStation(current, station);
+            }
+        });
+    }
+
+    /*
+     * Route.stations cascades: a route write creates its new stations and deleting a route deletes its stations,
+     * neither is announced by a station event
+     */
+    @EventListener
+    public void onRouteChanged(RouteChangedEvent event) {
+        Route route = event.getRoute();
+        if(route == null) {
+            return;
+        }
+        Station station = event.getStation();
+        boolean deleted = event.getChangeType() == ChangeType.DELETED;
+        update(current -> {
+            if(route.getId() != null) {
+                if(deleted) {
+                    removeRoute(current, route.getId());
+                } else {
+                    putRoute(current, route);
+                }
+            }
+            if(route.getStations() != null) {
+                for(Station routeStation : route.getStations()) {
+                    if(routeStation.getId() == null) {
+                        continue;
+                    }
+                    if(deleted) {
+                        removeStation(current, routeStation.getId());
+                    } else {
+                        putStation(current, routeStation);
+                    }
+                }
+            }
+            if(station != null && station.getId() != null && event.getStationChange() == ChangeType.CREATED) {
+                putStation(current, station);
+            }
+        });
+    }
+
+    @EventListener
+    public void onCatalogueImported(CatalogueImportedEvent event) {
+        lock.writeLock().lock();
+        try {
+            index = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A read lock cannot be upgraded, so a missing index is built under the write lock and the lookup retried
+    protected <R> R lookup(Function<I, R> query) {
+        while(true) {
+            lock.readLock().lock();
+            try {
+                if(index != null) {
+                    return query.apply(index);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            buildIndex();
+        }
+    }
+
+    // Apply the change to the index if it has been built, otherwise the next build reads it from the read model
+    private void update(Consumer<I> change) {
+        lock.writeLock().lock();
+        try {
+            if(index != null) {
+                change.accept(index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void buildIndex() {
+        lock.writeLock().lock();
+        try {
+            if(index != null) {
+                return;
+            }
+            long startTime = System.nanoTime();
+            I built = build(catalogueReadModel.getSnapshot());
+            index = built;
+            log.info("Indexed {} entries for {} in {} ms", size(built), description,
+                    (System.nanoTime() - startTime) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
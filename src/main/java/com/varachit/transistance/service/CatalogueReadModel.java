@@ -0,0 +1,94 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.index.CatalogueSnapshot;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/*
+ * Read side of the station and route catalogue, every GET of StationService and RouteService is answered from here
+ * The snapshot is loaded from the repositories once, then patched from the events published after each committed
+ * write, so reads are a volatile read of an immutable snapshot and never open a Hibernate session.
+ * A bulk import replaces too many rows to patch, the snapshot is reloaded on the next read instead
+ */
+@Service @Slf4j
+public class CatalogueReadModel {
+    private final StationRepository stationRepository;
+    private final RouteRepository routeRepository;
+    private final AtomicReference<CatalogueSnapshot> snapshot = new AtomicReference<>();
+
+    public CatalogueReadModel(StationRepository stationRepository, RouteRepository routeRepository) {
+        this.stationRepository = stationRepository;
+        this.routeRepository = routeRepository;
+    }
+
+    public CatalogueSnapshot getSnapshot() {
+        CatalogueSnapshot current = snapshot.get();
+        return current != null ? current : load();
+    }
+
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        Station station = event.getStation();
+        if(station == null) {
+            return;
+        }
+        patch(current -> event.getChangeType() == ChangeType.DELETED
+                ? current.withoutStation(station.getId()) : current.withStation(station));
+    }
+
+    @EventListener
+    public void onRouteChanged(RouteChangedEvent event) {
+        Route route = event.getRoute();
+        if(route == null) {
+            return;
+        }
+        patch(current -> event.getChangeType() == ChangeType.DELETED
+                ? current.withoutRoute(route.getId()) : current.withRoute(route));
+    }
+
+    @EventListener
+    public void onCatalogueImported(CatalogueImportedEvent event) {
+        invalidate();
+    }
+
+    // Drop the snapshot, the next read loads it again from the database
+    public synchronized void invalidate() {
+        snapshot.set(null);
+    }
+
+    // Synchronized with load() so a patch is never lost to a snapshot built from rows read before the write
+    private synchronized void patch(UnaryOperator<CatalogueSnapshot> change) {
+        CatalogueSnapshot current = snapshot.get();
+        if(current != null) {
+            snapshot.set(change.apply(current));
+        }
+    }
+
+    private synchronized CatalogueSnapshot load() {
+        CatalogueSnapshot current = snapshot.get();
+        if(current != null) {
+            return current;
+        }
+        long startTime = System.nanoTime();
+        List<Station> stations = stationRepository.findAll();
+        List<Route> routes = routeRepository.findAll();
+        CatalogueSnapshot built = CatalogueSnapshot.build(stations, routes);
+        snapshot.set(built);
+        log.info("Loaded {} stations and {} routes into the read model in {} ms", built.stationCount(),
+                routes.size(), (System.nanoTime() - startTime) / 1_000_000);
+        return built;
+    }
+}
@@ -0,0 +1,125 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.dto.SearchHit;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.index.CatalogueSnapshot;
+import com.varachit.transistance.index.FullTextIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/*
+ * Free-text search over station names and codes and route names and descriptions, ranked by BM25
+ * Stations and routes share one inverted index so their scores are comparable
+ */
+@Service
+public class CatalogueSearchService extends CatalogueIndexService<FullTextIndex<CatalogueSearchService.Document>> {
+    public static final int MAX_RESULTS = 100;
+
+    @Autowired
+    public CatalogueSearchService(CatalogueReadModel catalogueReadModel) {
+        super(catalogueReadModel, "catalogue search");
+    }
+
+    // Get up to limit stations and routes matching any word of the query, most relevant first
+    public List<SearchHit> search(String query, int limit) {
+        if(limit < 1 || limit > MAX_RESULTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid number of results");
+        }
+        if(query == null || query.isBlank()) {
+            return List.of();
+        }
+
+        List<FullTextIndex.Hit<Document>> hits = lookup(index -> index.search(query, limit));
+        CatalogueSnapshot snapshot = catalogueReadModel.getSnapshot();
+        List<SearchHit> results = new ArrayList<>(hits.size());
+        for(FullTextIndex.Hit<Document> hit : hits) {
+            Document document = hit.getKey();
+            if(document.kind == SearchHit.Kind.STATION) {
+                Optional<Station> station = snapshot.findStation(document.id);
+                station.ifPresent(found -> results.add(new SearchHit(SearchHit.Kind.STATION, found.getId(),
+                        found.getName(), found.getCode(), hit.getScore())));
+            } else {
+                Optional<Route> route = snapshot.findRoute(document.id);
+                route.ifPresent(found -> results.add(new SearchHit(SearchHit.Kind.ROUTE, found.getId(),
+                        found.getName(), null, hit.getScore())));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    protected FullTextIndex<Document> build(CatalogueSnapshot snapshot) {
+        FullTextIndex<Document> built = new FullTextIndex<>();
+        for(Station station : snapshot.getStations()) {
+            putStation(built, station);
+        }
+        for(Route route : snapshot.getRoutes()) {
+            putRoute(built, route);
+        }
+        return built;
+    }
+
+    @Override
+    protected int size(FullTextIndex<Document> index) {
+        return index.size();
+    }
+
+    @Override
+    protected void putStation(FullTextIndex<Document> index, Station station) {
+        index.put(Document.station(station.getId()), station.getName(), station.getCode());
+    }
+
+    @Override
+    protected void removeStation(FullTextIndex<Document> index, long stationId) {
+        index.remove(Document.station(stationId));
+    }
+
+    @Override
+    protected void putRoute(FullTextIndex<Document> index, Route route) {
+        index.put(Document.route(route.getId()), route.getName(), route.getDescription());
+    }
+
+    @Override
+    protected void removeRoute(FullTextIndex<Document> index, long routeId) {
+        index.remove(Document.route(routeId));
+    }
+
+    // Key of a station or route in the index, station and route ids are separate sequences
+    static final class Document {
+        private final SearchHit.Kind kind;
+        private final long id;
+
+        private Document(SearchHit.Kind kind, long id) {
+            this.kind = kind;
+            this.id = id;
+        }
+
+        private static Document station(long id) {
+            return new Document(SearchHit.Kind.STATION, id);
+        }
+
+        private static Document route(long id) {
+            return new Document(SearchHit.Kind.ROUTE, id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) { return true; }
+            if(!(o instanceof Document)) { return false; }
+            return kind == ((Document) o).kind && id == ((Document) o).id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, id);
+        }
+    }
+}
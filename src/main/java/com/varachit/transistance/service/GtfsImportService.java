@@ -0,0 +1,246 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.dto.GtfsImportResult;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.entity.Trip;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.gtfs.GtfsFeed;
+import com.varachit.transistance.gtfs.GtfsNetwork;
+import com.varachit.transistance.gtfs.GtfsNetwork.LinePattern;
+import com.varachit.transistance.gtfs.GtfsNetwork.TripStops;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.TripRepository;
+import com.varachit.transistance.util.StationUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/*
+ * Imports a GTFS zip from the configured directory into routes, stations, trips and stop times
+ * The feed is parsed by GtfsFeed and mapped by GtfsNetwork, then written in one transaction through batched inserts:
+ * routes with their stations first, then trips with their stop times, flushing and clearing the persistence context
+ * every chunk so only the parsed feed stays in memory, not the entities written from it.
+ * Chunks are flushed through the repositories rather than the shared EntityManager, so a unique key clash surfaces
+ * as a DataIntegrityViolationException and is answered with 400
+ */
+@Service @Slf4j
+public class GtfsImportService {
+    // Stations or stop times written per flush, a multiple of the JDBC batch size
+    public static final int CHUNK_SIZE = 5_000;
+
+    private final File directory;
+    private final int parallelism;
+    private final RouteRepository routeRepository;
+    private final TripRepository tripRepository;
+    private final StationCodeService stationCodeService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StationUtils stationUtils;
+
+    @Autowired
+    public GtfsImportService(@Value("${transistance.import.gtfs-directory:}") String directory,
+                             RouteRepository routeRepository, TripRepository tripRepository,
+                             StationCodeService stationCodeService, EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher) {
+        this(directory.isEmpty() ? null : new File(directory), Runtime.getRuntime().availableProcessors(),
+                routeRepository, tripRepository, stationCodeService, entityManager, transactionManager,
+                eventPublisher);
+    }
+
+    GtfsImportService(File directory, int parallelism, RouteRepository routeRepository,
+                      TripRepository tripRepository, StationCodeService stationCodeService,
+                      EntityManager entityManager, PlatformTransactionManager transactionManager,
+                      ApplicationEventPublisher eventPublisher) {
+        this.directory = directory;
+        this.parallelism = parallelism;
+        this.routeRepository = routeRepository;
+        this.tripRepository = tripRepository;
+        this.stationCodeService = stationCodeService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.stationUtils = new StationUtils();
+    }
+
+    public GtfsImportResult importFeed(String fileName) {
+        File file = resolve(fileName);
+        long startTime = System.nanoTime();
+        GtfsNetwork network;
+        try {
+            network = GtfsNetwork.build(GtfsFeed.read(file, parallelism));
+        } catch(IOException | RuntimeException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid GTFS feed: " + exception.getMessage());
+        }
+        checkConflicts(network);
+
+        GtfsImportResult result;
+        try {
+            result = transactionTemplate.execute(status -> persist(network, startTime));
+        } catch(DataIntegrityViolationException exception) {
+            // Another request added a conflicting code or name during the import
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to import GTFS feed due to a station code or route name already exists");
+        }
+        Objects.requireNonNull(result);
+        eventPublisher.publishEvent(new CatalogueImportedEvent(result.getStations(), result.getRoutes()));
+        log.info("Imported GTFS feed {} with {} routes, {} stations, {} trips and {} stop times in {} ms",
+                file.getName(), result.getRoutes(), result.getStations(), result.getTrips(), result.getStopTimes(),
+                result.getElapsedMillis());
+        return result;
+    }
+
+    // Feeds are only read from the configured directory, never from an arbitrary path
+    private File resolve(String fileName) {
+        if(directory == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "GTFS import is not configured");
+        }
+        try {
+            File file = new File(directory, fileName == null ? "" : fileName).getCanonicalFile();
+            if(file.getParentFile() != null && file.getParentFile().equals(directory.getCanonicalFile())
+                    && file.isFile()) {
+                return file;
+            }
+        } catch(IOException exception) {
+            log.warn("Unable to resolve GTFS feed {}", fileName, exception);
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "GTFS feed with the specified name does not exist");
+    }
+
+    // Route names and station codes must be unique within the feed and against the stored catalogue
+    private void checkConflicts(GtfsNetwork network) {
+        Set<String> names = new HashSet<>(routeRepository.findNames());
+        Set<String> codes = new HashSet<>();
+        for(LinePattern pattern : network.getPatterns()) {
+            if(!names.add(pattern.getName())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unable to import GTFS feed due to the route name " + pattern.getName() + " already exists");
+            }
+            for(int position = 0; position < pattern.getStations().length; position++) {
+                String code = pattern.stationCode(network.getFeed(), position);
+                if(!codes.add(code) || stationCodeService.exists(code)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Unable to import GTFS feed due to the station code " + code + " already exists");
+                }
+            }
+        }
+    }
+
+    private GtfsImportResult persist(GtfsNetwork network, long startTime) {
+        GtfsFeed feed = network.getFeed();
+        List<LinePattern> patterns = network.getPatterns();
+        long[] routeIds = new long[patterns.size()];
+        long[][] stationIds = new long[patterns.size()][];
+
+        int stationCount = 0;
+        List<Route> routes = new ArrayList<>();
+        int chunkStations = 0;
+        for(int index = 0; index < patterns.size(); index++) {
+            Route route = route(network, patterns.get(index));
+            routes.add(route);
+            chunkStations += route.getStations().size();
+            if(chunkStations >= CHUNK_SIZE || index == patterns.size() - 1) {
+                routeRepository.saveAllAndFlush(routes);
+                // Ids are assigned on save, keep them to reference the stations once they are detached
+                for(int offset = 0; offset < routes.size(); offset++) {
+                    int pattern = index - routes.size() + 1 + offset;
+                    routeIds[pattern] = routes.get(offset).getId();
+                    stationIds[pattern] = routes.get(offset).getStations().stream()
+                            .mapToLong(Station::getId).toArray();
+                }
+                stationCount += chunkStations;
+                entityManager.clear();
+                routes.clear();
+                chunkStations = 0;
+            }
+        }
+
+        int tripCount = 0;
+        int stopTimeCount = 0;
+        List<Trip> trips = new ArrayList<>();
+        int chunkStopTimes = 0;
+        for(int trip = 0; trip < feed.getTrips().size(); trip++) {
+            int pattern = network.getTripPattern(trip);
+            if(pattern < 0) {
+                continue;
+            }
+            TripStops stops = network.tripStops(trip);
+            List<GtfsFeed.Frequency> frequencies = feed.getFrequencies(trip);
+            for(int run = 0; run < Math.max(1, frequencies.size()); run++) {
+                Trip entity = trip(network, trip, stops, routeIds[pattern], stationIds[pattern]);
+                if(!frequencies.isEmpty()) {
+                    GtfsFeed.Frequency frequency = frequencies.get(run);
+                    entity.setFrequency(frequency.getStart(), frequency.getEnd(), frequency.getHeadway());
+                }
+                trips.add(entity);
+                chunkStopTimes += entity.getStopTimes().size();
+            }
+            if(chunkStopTimes >= CHUNK_SIZE) {
+                tripRepository.saveAllAndFlush(trips);
+                entityManager.clear();
+                tripCount += trips.size();
+                stopTimeCount += chunkStopTimes;
+                trips.clear();
+                chunkStopTimes = 0;
+            }
+        }
+        tripRepository.saveAllAndFlush(trips);
+        entityManager.clear();
+        tripCount += trips.size();
+        stopTimeCount += chunkStopTimes;
+
+        return new GtfsImportResult(patterns.size(), stationCount, tripCount, stopTimeCount,
+                (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    private Route route(GtfsNetwork network, LinePattern pattern) {
+        GtfsFeed feed = network.getFeed();
+        StationType type = network.getRouteType(pattern.getRoute());
+        List<Station> stations = new ArrayList<>(pattern.getStations().length);
+        for(int position = 0; position < pattern.getStations().length; position++) {
+            int stop = pattern.getStations()[position];
+            GtfsFeed.Stop gtfsStop = feed.getStops().get(stop);
+            Station station = new Station(network.stationName(stop), pattern.stationCode(feed, position),
+                    gtfsStop.getLatitude(), gtfsStop.getLongitude(), type);
+            try {
+                stationUtils.validateStation(station.getName(), station.getCode(), station.getLatitude(),
+                        station.getLongitude(), type.name());
+            } catch(ResponseStatusException exception) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invalid GTFS stop " + gtfsStop.getId() + ": " + exception.getReason());
+            }
+            stations.add(station);
+        }
+        return new Route(pattern.getName(), pattern.getDescription(feed), type, stations);
+    }
+
+    private Trip trip(GtfsNetwork network, int trip, TripStops stops, long routeId, long[] stationIds) {
+        GtfsFeed.Trip gtfsTrip = network.getFeed().getTrips().get(trip);
+        int[] positions = stops.getPositions();
+        String headsign = gtfsTrip.getHeadsign().isEmpty()
+                ? network.stationName(network.getPatterns().get(network.getTripPattern(trip))
+                        .getStations()[positions[positions.length - 1]])
+                : gtfsTrip.getHeadsign();
+        Trip entity = new Trip(entityManager.getReference(Route.class, routeId), headsign);
+        for(int call = 0; call < positions.length; call++) {
+            entity.addStopTime(entityManager.getReference(Station.class, stationIds[positions[call]]),
+                    stops.getArrivals()[call], stops.getDepartures()[call]);
+        }
+        return entity;
+    }
+}
@@ -0,0 +1,174 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.dto.BatchJourney;
+import com.varachit.transistance.dto.JourneyPair;
+import com.varachit.transistance.graph.Criteria;
+import com.varachit.transistance.graph.DijkstraSearch;
+import com.varachit.transistance.graph.Path;
+import com.varachit.transistance.graph.TransitGraph;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/*
+ * Plans journeys for many origin-destination pairs at once
+ * Pairs are grouped by origin and each origin is answered by one single-source search, origins are spread
+ * across a dedicated ForkJoinPool. Results are handed back on the calling thread, one origin at a time,
+ * so the consumer may write them to a response without synchronisation
+ */
+@Service @Slf4j
+public class JourneyBatchService {
+    // How long the calling thread waits for an origin before checking whether the searches have failed
+    private static final long RESULT_POLL_MILLIS = 100;
+
+    private final JourneyService journeyService;
+    private final TransitGraphService transitGraphService;
+    private final ForkJoinPool batchPool;
+
+    @Autowired
+    public JourneyBatchService(JourneyService journeyService, TransitGraphService transitGraphService,
+                               @Value("${transistance.planner.batch-parallelism:0}") int parallelism) {
+        this.journeyService = journeyService;
+        this.transitGraphService = transitGraphService;
+        this.batchPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    // Plan every pair against a single network version, passing results to the sink as each origin completes
+    public void planJourneys(List<JourneyPair> pairs, Criteria criteria, Consumer<BatchJourney> sink) {
+        TransitGraph graph = transitGraphService.getGraph();
+        Map<String, List<JourneyPair>> origins = new LinkedHashMap<>();
+        for(JourneyPair pair : pairs) {
+            if(pair == null || pair.getFrom() == null || pair.getTo() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid journey pair");
+            }
+            origins.computeIfAbsent(pair.getFrom(), from -> new ArrayList<>()).add(pair);
+        }
+
+        long startTime = System.nanoTime();
+        BlockingQueue<List<BatchJourney>> completed = new LinkedBlockingQueue<>();
+        // Cancelling the task does not stop a parallel stream, so origins not started yet check this flag instead
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ForkJoinTask<?> task = batchPool.submit(() -> origins.values().parallelStream().forEach(group -> {
+            if(!cancelled.get()) {
+                completed.add(planFromOrigin(graph, group, criteria));
+            }
+        }));
+
+        int remaining = origins.size();
+        try {
+            while(remaining > 0) {
+                List<BatchJourney> results = completed.poll(RESULT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(results == null) {
+                    if(task.isDone()) {
+                        // Surface a failed task; otherwise every origin was queued before it completed
+                        task.join();
+                        List<List<BatchJourney>> queued = new ArrayList<>();
+                        completed.drainTo(queued);
+                        for(List<BatchJourney> origin : queued) {
+                            origin.forEach(sink);
+                        }
+                        break;
+                    }
+                    continue;
+                }
+                results.forEach(sink);
+                remaining--;
+            }
+        } catch(InterruptedException exception) {
+            cancelled.set(true);
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Batch journey planning was interrupted");
+        } catch(RuntimeException exception) {
+            // The consumer failed, typically because the client went away; stop the remaining searches
+            cancelled.set(true);
+            task.cancel(true);
+            throw exception;
+        }
+        log.info("Planned {} journeys from {} origins in {} ms", pairs.size(), origins.size(),
+                (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    private List<BatchJourney> planFromOrigin(TransitGraph graph, List<JourneyPair> group, Criteria criteria) {
+        List<BatchJourney> results = new ArrayList<>(group.size());
+        String from = group.get(0).getFrom();
+        int source;
+        try {
+            source = journeyService.findNode(graph, from);
+        } catch(ResponseStatusException exception) {
+            group.forEach(pair -> results.add(BatchJourney.failed(from, pair.getTo(), exception.getReason())));
+            return results;
+        }
+
+        // Targets that cannot be resolved keep -1 and are answered with the lookup error
+        int[] targets = new int[group.size()];
+        String[] errors = new String[group.size()];
+        int resolved = 0;
+        for(int index = 0; index < group.size(); index++) {
+            try {
+                targets[index] = journeyService.findNode(graph, group.get(index).getTo());
+                resolved++;
+            } catch(ResponseStatusException exception) {
+                targets[index] = -1;
+                errors[index] = exception.getReason();
+            }
+        }
+
+        int[] resolvedTargets = new int[resolved];
+        for(int index = 0, next = 0; index < targets.length; index++) {
+            if(targets[index] >= 0) {
+                resolvedTargets[next++] = targets[index];
+            }
+        }
+        Path[] paths = DijkstraSearch.shortestPaths(graph, source, resolvedTargets, criteria);
+
+        for(int index = 0, next = 0; index < group.size(); index++) {
+            String to = group.get(index).getTo();
+            if(targets[index] < 0) {
+                results.add(BatchJourney.failed(from, to, errors[index]));
+                continue;
+            }
+            Path path = paths[next++];
+            results.add(path == null
+                    ? BatchJourney.failed(from, to, "Unable to find a journey between the specified stations")
+                    : toBatchJourney(graph, from, to, path));
+        }
+        return results;
+    }
+
+    private BatchJourney toBatchJourney(TransitGraph graph, String from, String to, Path path) {
+        List<String> stops = new ArrayList<>(path.length());
+        int distance = 0;
+        int duration = 0;
+        for(int index = 0; index < path.length(); index++) {
+            int edge = path.edge(index);
+            if(edge >= 0) {
+                distance += graph.distance(edge);
+                duration += graph.time(edge);
+            }
+            stops.add(graph.code(path.node(index)));
+        }
+        return new BatchJourney(from, to, distance, duration, stops, null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchPool.shutdownNow();
+    }
+}
@@ -0,0 +1,234 @@
+package com.varachit.transistance.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.varachit.transistance.dto.Isochrone;
+import com.varachit.transistance.dto.Journey;
+import com.varachit.transistance.dto.JourneyStop;
+import com.varachit.transistance.dto.ReachableStation;
+import com.varachit.transistance.graph.AStarSearch;
+import com.varachit.transistance.graph.ContractionHierarchy;
+import com.varachit.transistance.graph.Criteria;
+import com.varachit.transistance.graph.DijkstraSearch;
+import com.varachit.transistance.graph.IsochroneSearch;
+import com.varachit.transistance.graph.KShortestPaths;
+import com.varachit.transistance.graph.Path;
+import com.varachit.transistance.graph.SearchMode;
+import com.varachit.transistance.graph.TransitGraph;
+import com.varachit.transistance.graph.TransitNetwork;
+import com.varachit.transistance.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+@Service
+public class JourneyService {
+    // Route label of stops reached by walking from a nearby station
+    public static final String WALKING_TRANSFER = "Walking transfer";
+    public static final int MAX_ISOCHRONE_MINUTES = 180;
+    public static final int MAX_ALTERNATIVES = 10;
+    // Latency budget for the alternatives search; journeys found by then are returned
+    public static final long ALTERNATIVES_TIME_BUDGET_MILLIS = 250;
+
+    private static final long DEFAULT_CACHE_SIZE = 10_000;
+    private static final long DEFAULT_COALESCING_TIMEOUT_MILLIS = 2_000;
+
+    private final TransitGraphService transitGraphService;
+    /*
+     * Planned journeys keyed by origin, destination, criteria, mode and network version
+     * A station or route write publishes a new version, so older entries are never hit again and simply age out;
+     * Caffeine's W-TinyLFU eviction keeps the frequently requested pairs over one-off queries
+     */
+    private final Cache<JourneyKey, Journey> journeys;
+    // Identical searches that miss the cache at the same time run once, e.g. when a popular event ends
+    private final SingleFlight<JourneyKey, Journey> searches;
+
+    @Autowired
+    public JourneyService(TransitGraphService transitGraphService, MeterRegistry meterRegistry,
+                          @Value("${transistance.planner.journey-cache-size:10000}") long cacheSize,
+                          @Value("${transistance.planner.coalescing-timeout-millis:2000}") long coalescingTimeout) {
+        this.transitGraphService = transitGraphService;
+        this.journeys = Caffeine.newBuilder().maximumSize(cacheSize).recordStats().build();
+        this.searches = new SingleFlight<>(coalescingTimeout);
+        if(meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, journeys, "journeys");
+        }
+    }
+
+    JourneyService(TransitGraphService transitGraphService) {
+        this(transitGraphService, null, DEFAULT_CACHE_SIZE, DEFAULT_COALESCING_TIMEOUT_MILLIS);
+    }
+
+    public Journey planJourney(String fromCode, String toCode) {
+        return planJourney(fromCode, toCode, Criteria.DISTANCE, SearchMode.DIJKSTRA);
+    }
+
+    // Find the shortest journey between two station codes over the in-memory transit graph
+    public Journey planJourney(String fromCode, String toCode, Criteria criteria, SearchMode mode) {
+        TransitNetwork network = transitGraphService.getNetwork();
+        JourneyKey key = new JourneyKey(fromCode, toCode, criteria, mode, network.getVersion());
+        Journey cached = journeys.getIfPresent(key);
+        if(cached != null) {
+            return cached;
+        }
+        // Failed searches throw and leave nothing in the cache
+        return searches.execute(key, () -> {
+            Journey journey = planJourney(network, fromCode, toCode, criteria, mode);
+            journeys.put(key, journey);
+            return journey;
+        });
+    }
+
+    private Journey planJourney(TransitNetwork network, String fromCode, String toCode, Criteria criteria,
+                                SearchMode mode) {
+        TransitGraph graph = network.getGraph();
+        int source = findNode(graph, fromCode);
+        int target = findNode(graph, toCode);
+
+        Path path;
+        switch(mode) {
+            case CH:
+                ContractionHierarchy hierarchy = network.getHierarchy(criteria);
+                path = hierarchy != null ? hierarchy.shortestPath(source, target)
+                        : AStarSearch.shortestPath(graph, source, target, criteria);
+                break;
+            case ASTAR:
+                path = AStarSearch.shortestPath(graph, source, target, criteria);
+                break;
+            case DIJKSTRA:
+            default:
+                path = DijkstraSearch.shortestPath(graph, source, target, criteria);
+        }
+        if(path == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Unable to find a journey between the specified stations");
+        }
+        return toJourney(graph, path, criteria, mode);
+    }
+
+    // Find up to k shortest loopless journeys between two station codes, shortest first
+    public List<Journey> planAlternatives(String fromCode, String toCode, Criteria criteria, int k) {
+        if(k < 1 || k > MAX_ALTERNATIVES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid number of journeys");
+        }
+        TransitGraph graph = transitGraphService.getGraph();
+        int source = findNode(graph, fromCode);
+        int target = findNode(graph, toCode);
+
+        long deadline = System.nanoTime() + ALTERNATIVES_TIME_BUDGET_MILLIS * 1_000_000;
+        List<Path> paths = KShortestPaths.shortestPaths(graph, source, target, criteria, k, deadline);
+        if(paths.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Unable to find a journey between the specified stations");
+        }
+        List<Journey> journeys = new ArrayList<>(paths.size());
+        for(Path path : paths) {
+            journeys.add(toJourney(graph, path, criteria, SearchMode.ASTAR));
+        }
+        return journeys;
+    }
+
+    // Find every station reachable from the origin within the travel-time budget
+    public Isochrone isochrone(String fromCode, int minutes) {
+        return isochrone(getNetwork(), fromCode, minutes);
+    }
+
+    // Same search over the given network, for callers that also read its version or fingerprint
+    public Isochrone isochrone(TransitNetwork network, String fromCode, int minutes) {
+        if(minutes < 1 || minutes > MAX_ISOCHRONE_MINUTES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid travel-time budget");
+        }
+        TransitGraph graph = network.getGraph();
+        int source = findNode(graph, fromCode);
+
+        IsochroneSearch.Reachability reachability = IsochroneSearch.reachable(graph, source, minutes * 60);
+        List<ReachableStation> stations = new ArrayList<>(reachability.size());
+        for(int index = 0; index < reachability.size(); index++) {
+            int node = reachability.node(index);
+            stations.add(new ReachableStation(graph.code(node), graph.name(node),
+                    graph.latitude(node), graph.longitude(node), reachability.time(index)));
+        }
+        return new Isochrone(graph.code(source), minutes, graph.getVersion(), stations);
+    }
+
+    // The network queries are currently answered from, replaced after every station or route write
+    public TransitNetwork getNetwork() {
+        return transitGraphService.getNetwork();
+    }
+
+    // Version of the network queries are currently answered from, changes after every station or route write
+    public long getNetworkVersion() {
+        return getNetwork().getVersion();
+    }
+
+    int findNode(TransitGraph graph, String code) {
+        int node = graph.indexOf(code);
+        if(node < 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Station with the specified code is not served by any route");
+        }
+        if(graph.isClosed(node)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to plan a journey due to the specified station is not opened");
+        }
+        return node;
+    }
+
+    Journey toJourney(TransitGraph graph, Path path, Criteria criteria, SearchMode mode) {
+        List<JourneyStop> stops = new ArrayList<>(path.length());
+        int distance = 0;
+        int duration = 0;
+        for(int index = 0; index < path.length(); index++) {
+            int node = path.node(index);
+            int edge = path.edge(index);
+            String route = edge < 0 ? null
+                    : graph.isTransfer(edge) ? WALKING_TRANSFER : graph.routeName(graph.route(edge));
+            if(edge >= 0) {
+                distance += graph.distance(edge);
+                duration += graph.time(edge);
+            }
+            stops.add(new JourneyStop(graph.code(node), graph.name(node),
+                    graph.latitude(node), graph.longitude(node), route));
+        }
+        return new Journey(graph.code(path.node(0)), graph.code(path.node(path.length() - 1)), criteria, mode,
+                distance, duration, path.getSettledNodes(), stops);
+    }
+
+    private static final class JourneyKey {
+        private final String from;
+        private final String to;
+        private final Criteria criteria;
+        private final SearchMode mode;
+        private final long version;
+
+        JourneyKey(String from, String to, Criteria criteria, SearchMode mode, long version) {
+            this.from = from;
+            this.to = to;
+            this.criteria = criteria;
+            this.mode = mode;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+            if (!(o instanceof JourneyKey)) { return false; }
+            JourneyKey key = (JourneyKey) o;
+            return version == key.version && criteria == key.criteria && mode == key.mode
+                    && Objects.equals(from, key.from) && Objects.equals(to, key.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to, criteria, mode, version);
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.varachit.transistance.service;
 
+import com.varachit.transistance.dto.CursorPage;
+import com.varachit.transistance.dto.RouteSummary;
 import com.varachit.transistance.entity.Route;
 import com.varachit.transistance.entity.Station;
 import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
 import com.varachit.transistance.repository.RouteRepository;
-import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.util.CursorUtils;
 import com.varachit.transistance.util.RouteUtils;
 import com.varachit.transistance.util.StationUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -14,28 +20,60 @@ import org.springframework.web.server.ResponseStatusException;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class RouteService {
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final RouteRepository routeRepository;
     private final RouteUtils routeUtils;
     private final StationUtils stationUtils;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogueReadModel catalogueReadModel;
+    private final StationCodeService stationCodeService;
 
-    public RouteService(RouteRepository routeRepository) {
+    // Reads are answered from the CatalogueReadModel snapshot, writes go through the repository
+    public RouteService(RouteRepository routeRepository, ApplicationEventPublisher eventPublisher,
+                        CatalogueReadModel catalogueReadModel, StationCodeService stationCodeService) {
         this.routeRepository = routeRepository;
         this.routeUtils = new RouteUtils();
         this.stationUtils = new StationUtils();
+        this.eventPublisher = eventPublisher;
+        this.catalogueReadModel = catalogueReadModel;
+        this.stationCodeService = stationCodeService;
     }
 
-    // Get all stations
+    // Get all routes with their stations
     public List<Route> getRoutes() {
-        return routeRepository.findAll();
+        return catalogueReadModel.getSnapshot().getRoutes();
+    }
+
+    // Get id, name, type and number of stations of every route
+    public List<RouteSummary> getRouteSummaries() {
+        return catalogueReadModel.getSnapshot().getRouteSummaries();
+    }
+
+    // Get up to size routes with their stations after the cursor in id order, with the cursor of the following page
+    public CursorPage<Route> getRoutePage(String cursor, int size) {
+        if(size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page size");
+        }
+        List<Route> routes = catalogueReadModel.getSnapshot().routesAfter(CursorUtils.decode(cursor), size);
+        String nextCursor = routes.size() < size ? null : CursorUtils.encode(routes.get(routes.size() - 1).getId());
+        return new CursorPage<>(routes, nextCursor);
+    }
+
+    // Hand every route with its stations to the consumer in id order
+    public void streamRoutes(Consumer<Route> consumer) {
+        catalogueReadModel.getSnapshot().getRoutes().forEach(consumer);
     }
 
-    // Get a station with an ID
+    // Get a route with an ID
     public Route getRoute(Long routeId) {
-        Optional<Route> routeOptional = routeRepository.findById(routeId);
+        Optional<Route> routeOptional = routeId == null ? Optional.empty()
+                : catalogueReadModel.getSnapshot().findRoute(routeId);
         if(routeOptional.isPresent()) {
             return routeOptional.get();
         }
@@ -50,7 +88,24 @@ public class RouteService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Unable to add route due to the specified name already exists");
         }
-        return routeRepository.save(route);
+        if(route.getStations() != null && route.getStations().stream().anyMatch(this::isCodeTaken)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to add route due to a station code already exists");
+        }
+        Route addedRoute;
+        try {
+            addedRoute = routeRepository.save(route);
+        } catch(DataIntegrityViolationException exception) {
+            // Another request added the same name or one of the station codes after the checks above
+            if(routeRepository.findByName(route.getName()).isPresent()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unable to add route due to the specified name already exists");
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to add route due to a station code already exists");
+        }
+        eventPublisher.publishEvent(new RouteChangedEvent(addedRoute, ChangeType.CREATED));
+        return addedRoute;
     }
 
     public Route updateRoute(Long routeId, Route newRoute) {
@@ -62,6 +117,10 @@ public class RouteService {
                         "Unable to update route due to the specified route does not exists"));
 
         if(!Objects.equals(route.getName(), newRoute.getName())) {
+            if(routeRepository.findByName(newRoute.getName()).isPresent()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unable to update route due to the specified name already exists");
+            }
             route.setName(newRoute.getName());
         }
 
@@ -76,8 +135,9 @@ public class RouteService {
         if(!Objects.equals(route.getStations(), newRoute.getStations())) {
             route.setStations(newRoute.getStations());
         }
-        routeRepository.save(route);
-        return route;
+        Route updatedRoute = routeRepository.save(route);
+        eventPublisher.publishEvent(new RouteChangedEvent(updatedRoute, ChangeType.UPDATED));
+        return updatedRoute;
     }
 
     public Route deleteRoute(Long routeId) {
@@ -85,6 +145,7 @@ public class RouteService {
         if(routeOptional.isPresent()) {
             Route routeToDelete = routeOptional.get();
             routeRepository.delete(routeToDelete);
+            eventPublisher.publishEvent(new RouteChangedEvent(routeToDelete, ChangeType.DELETED));
             return routeToDelete;
         }
         throw new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -103,9 +164,31 @@ public class RouteService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Unable to add station to route due to the specified route already exists");
         }
+        // Station codes are unique across routes, not only within this one
+        if(stationCodeService.exists(station.getCode())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to add station to route due to the specified code already exists");
+        }
         existingRoute.addStation(station);
-        routeRepository.save(existingRoute);
-        return existingRoute;
+        Route updatedRoute;
+        try {
+            updatedRoute = routeRepository.save(existingRoute);
+        } catch(DataIntegrityViolationException exception) {
+            // Another request added the same code after the check above
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to add station to route due to the specified code already exists");
+        }
+        // The route is merged into a new copy, only the copy of the station carries its generated id
+        Station addedStation = updatedRoute.getStations().stream()
+                .filter(routeStation -> station.getCode().equals(routeStation.getCode())).findFirst().orElse(station);
+        eventPublisher.publishEvent(new RouteChangedEvent(updatedRoute, ChangeType.UPDATED, addedStation,
+                ChangeType.CREATED));
+        return updatedRoute;
+    }
+
+    // The station's code belongs to a different station
+    private boolean isCodeTaken(Station station) {
+        return stationCodeService.findId(station.getCode()).filter(id -> !id.equals(station.getId())).isPresent();
     }
 
     public Route deleteStationFromRoute(Long routeId, Long stationId) {
@@ -113,13 +196,17 @@ public class RouteService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
                         "Unable to delete station from route due to the specified route does not exists"));
 
-        if(stationId != null && existingRoute.getStations().stream().map(Station::getId).anyMatch(stationId::equals)) {
+        Station removedStation = stationId == null ? null : existingRoute.getStations().stream()
+                .filter(station -> stationId.equals(station.getId())).findFirst().orElse(null);
+        if(removedStation != null) {
             existingRoute.removeStation(stationId);
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,
                     "Unable to delete station from route due to the specified station does not exists");
         }
-        routeRepository.save(existingRoute);
-        return existingRoute;
+        Route updatedRoute = routeRepository.save(existingRoute);
+        eventPublisher.publishEvent(new RouteChangedEvent(updatedRoute, ChangeType.UPDATED, removedStation,
+                ChangeType.DELETED));
+        return updatedRoute;
     }
 }
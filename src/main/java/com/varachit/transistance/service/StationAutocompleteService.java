@@ -0,0 +1,65 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.index.AutocompleteIndex;
+import com.varachit.transistance.index.CatalogueSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Station name autocomplete for search boxes, answered from an AutocompleteIndex over station names and codes
+@Service
+public class StationAutocompleteService extends CatalogueIndexService<AutocompleteIndex> {
+    public static final int MAX_SUGGESTIONS = 50;
+
+    @Autowired
+    public StationAutocompleteService(CatalogueReadModel catalogueReadModel) {
+        super(catalogueReadModel, "station autocomplete");
+    }
+
+    // Get up to limit stations whose name or code completes or closely matches the query, best match first
+    public List<Station> suggest(String query, int limit) {
+        if(limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid number of suggestions");
+        }
+        if(query == null || query.isBlank()) {
+            return List.of();
+        }
+
+        long[] ids = lookup(index -> index.suggest(query, limit));
+        CatalogueSnapshot snapshot = catalogueReadModel.getSnapshot();
+        List<Station> stations = new ArrayList<>(ids.length);
+        for(long id : ids) {
+            snapshot.findStation(id).ifPresent(stations::add);
+        }
+        return stations;
+    }
+
+    @Override
+    protected AutocompleteIndex build(CatalogueSnapshot snapshot) {
+        AutocompleteIndex built = new AutocompleteIndex();
+        for(Station station : snapshot.getStations()) {
+            putStation(built, station);
+        }
+        return built;
+    }
+
+    @Override
+    protected int size(AutocompleteIndex index) {
+        return index.size();
+    }
+
+    @Override
+    protected void putStation(AutocompleteIndex index, Station station) {
+        index.put(station.getId(), station.getName(), station.getCode());
+    }
+
+    @Override
+    protected void removeStation(AutocompleteIndex index, long stationId) {
+        index.remove(stationId);
+    }
+}
@@ -0,0 +1,113 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.repository.StationRepository.StationCodeRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * In-memory station code -> id map, so code uniqueness checks do not query the database
+ * Loaded from code and id rows on first use and kept in sync by the station and route events published after each
+ * write. The unique index on the code column still guards against two writers racing on one code
+ */
+@Service @Slf4j
+public class StationCodeService {
+    private final StationRepository stationRepository;
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+    // Reverse map, so an update can drop the station's previous code
+    private final Map<Long, String> codes = new HashMap<>();
+    private volatile boolean loaded;
+
+    public StationCodeService(StationRepository stationRepository) {
+        this.stationRepository = stationRepository;
+    }
+
+    // Id of the station with the given code
+    public Optional<Long> findId(String code) {
+        if(!loaded) {
+            load();
+        }
+        return code == null ? Optional.empty() : Optional.ofNullable(ids.get(code));
+    }
+
+    public boolean exists(String code) {
+        return findId(code).isPresent();
+    }
+
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        apply(event.getStation(), event.getChangeType());
+    }
+
+    /*
+     * Route.stations cascades, so a route write creates its new stations and deleting a route deletes its stations
+     * Stations removed from a route by a station edit stay in the station table and keep their code
+     */
+    @EventListener
+    public void onRouteChanged(RouteChangedEvent event) {
+        Route route = event.getRoute();
+        if(route != null && route.getStations() != null) {
+            ChangeType changeType = event.getChangeType() == ChangeType.DELETED ? ChangeType.DELETED
+                    : ChangeType.UPDATED;
+            for(Station station : route.getStations()) {
+                apply(station, changeType);
+            }
+        }
+        if(event.getStationChange() == ChangeType.CREATED) {
+            apply(event.getStation(), ChangeType.CREATED);
+        }
+    }
+
+    // A bulk import adds codes without per-station events, the map is reloaded on next use instead
+    @EventListener
+    public synchronized void onCatalogueImported(CatalogueImportedEvent event) {
+        loaded = false;
+        ids.clear();
+        codes.clear();
+    }
+
+    private synchronized void load() {
+        if(loaded) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        for(StationCodeRow row : stationRepository.findCodeRows()) {
+            put(row.getId(), row.getCode());
+        }
+        loaded = true;
+        log.info("Loaded {} station codes in {} ms", ids.size(), (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    // Waits for a load in progress; before the first load there is nothing to update
+    private synchronized void apply(Station station, ChangeType changeType) {
+        if(!loaded || station == null || station.getId() == null) {
+            return;
+        }
+        String previous = codes.remove(station.getId());
+        if(previous != null) {
+            ids.remove(previous, station.getId());
+        }
+        if(changeType != ChangeType.DELETED) {
+            put(station.getId(), station.getCode());
+        }
+    }
+
+    private void put(Long id, String code) {
+        if(id != null && code != null) {
+            ids.put(code, id);
+            codes.put(id, code);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.index.CatalogueSnapshot;
+import com.varachit.transistance.index.KdTree;
+import com.varachit.transistance.index.SpatialGrid;
+import com.varachit.transistance.util.GeoUtils;
+import com.varachit.transistance.util.StationUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Answers location queries from an in-memory index over the stations of the catalogue read model
+ * The index is built on the first query after the read model's snapshot changes, so a burst of writes costs one
+ * rebuild and a rebuild never reads the station table
+ */
+@Service @Slf4j
+public class StationLocatorService {
+    public static final int MAX_NEAREST = 100;
+    public static final double MAX_RADIUS = 50_000;
+    // Roughly the spacing of urban stations, so a viewport-sized query touches few empty cells
+    private static final double GRID_CELL_METRES = 500;
+
+    private final CatalogueReadModel catalogueReadModel;
+    private final TransitGraphService transitGraphService;
+    private final StationUtils stationUtils;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    @Autowired
+    public StationLocatorService(CatalogueReadModel catalogueReadModel, TransitGraphService transitGraphService) {
+        this.catalogueReadModel = catalogueReadModel;
+        this.transitGraphService = transitGraphService;
+        this.stationUtils = new StationUtils();
+    }
+
+    // Get the k stations closest to the coordinate by great-circle distance, nearest first
+    public List<Station> nearestStations(Double latitude, Double longitude, int k) {
+        stationUtils.validateLatitude(latitude);
+        stationUtils.validateLongitude(longitude);
+        if(k < 1 || k > MAX_NEAREST) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid number of stations");
+        }
+
+        Snapshot current = getSnapshot();
+        int[] nearest = current.kdTree.nearest(latitude, longitude, k);
+        List<Station> stations = new ArrayList<>(nearest.length);
+        for(int point : nearest) {
+            stations.add(markInterchange(current.stations[point]));
+        }
+        return stations;
+    }
+
+    // Get the stations within radiusMetres of the coordinate, nearest first, optionally filtered by type and status
+    public List<Station> stationsWithinRadius(Double latitude, Double longitude, Double radiusMetres,
+                                              StationType stationType, StationStatus stationStatus) {
+        stationUtils.validateLatitude(latitude);
+        stationUtils.validateLongitude(longitude);
+        if(radiusMetres == null || radiusMetres <= 0 || radiusMetres > MAX_RADIUS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid search radius");
+        }
+
+        Snapshot current = getSnapshot();
+        List<Station> stations = filter(current, current.grid.withinRadius(latitude, longitude, radiusMetres),
+                stationType, stationStatus);
+        stations.sort(Comparator.comparingDouble(station ->
+                GeoUtils.haversine(latitude, longitude, station.getLatitude(), station.getLongitude())));
+        return stations;
+    }
+
+    // Get the stations inside the bounding box, edges included, optionally filtered by type and status
+    public List<Station> stationsWithinBox(Double minLatitude, Double minLongitude, Double maxLatitude,
+                                           Double maxLongitude, StationType stationType,
+                                           StationStatus stationStatus) {
+        stationUtils.validateLatitude(minLatitude);
+        stationUtils.validateLatitude(maxLatitude);
+        stationUtils.validateLongitude(minLongitude);
+        stationUtils.validateLongitude(maxLongitude);
+        if(minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid bounding box");
+        }
+
+        Snapshot current = getSnapshot();
+        return filter(current, current.grid.withinBox(minLatitude, minLongitude, maxLatitude, maxLongitude),
+                stationType, stationStatus);
+    }
+
+    private List<Station> filter(Snapshot current, int[] points, StationType stationType,
+                                 StationStatus stationStatus) {
+        List<Station> stations = new ArrayList<>(points.length);
+        for(int point : points) {
+            Station station = current.stations[point];
+            if((Objects.isNull(stationType) || stationType == station.getType())
+                    && (Objects.isNull(stationStatus) || stationStatus == station.getStatus())) {
+                stations.add(markInterchange(station));
+            }
+        }
+        return stations;
+    }
+
+    // Copy of the station flagged as it is in the current network, which graph patches change between rebuilds
+    private Station markInterchange(Station station) {
+        return station.toBuilder().isInterchangeable(transitGraphService.isInterchange(station.getCode())).build();
+    }
+
+    // The index of the read model's current snapshot, which is replaced on every write
+    private Snapshot getSnapshot() {
+        CatalogueSnapshot catalogue = catalogueReadModel.getSnapshot();
+        Snapshot current = snapshot.get();
+        return current != null && current.catalogue == catalogue ? current : rebuild(catalogue);
+    }
+
+    private synchronized Snapshot rebuild(CatalogueSnapshot catalogue) {
+        Snapshot current = snapshot.get();
+        if(current != null && current.catalogue == catalogue) {
+            return current;
+        }
+        long startTime = System.nanoTime();
+        List<Station> all = catalogue.getStations();
+        List<Station> located = new ArrayList<>(all.size());
+        for(Station station : all) {
+            if(station.getLatitude() != null && station.getLongitude() != null) {
+                located.add(station);
+            }
+        }
+
+        Station[] stations = located.toArray(new Station[0]);
+        double[] latitudes = new double[stations.length];
+        double[] longitudes = new double[stations.length];
+        for(int point = 0; point < stations.length; point++) {
+            latitudes[point] = stations[point].getLatitude();
+            longitudes[point] = stations[point].getLongitude();
+        }
+        Snapshot built = new Snapshot(catalogue, stations, KdTree.build(latitudes, longitudes),
+                SpatialGrid.build(latitudes, longitudes, GRID_CELL_METRES));
+        snapshot.set(built);
+        log.info("Indexed {} stations in {} ms", stations.length, (System.nanoTime() - startTime) / 1_000_000);
+        return built;
+    }
+
+    private static final class Snapshot {
+        // The read model snapshot the index was built from
+        private final CatalogueSnapshot catalogue;
+        private final Station[] stations;
+        private final KdTree kdTree;
+        private final SpatialGrid grid;
+
+        private Snapshot(CatalogueSnapshot catalogue, Station[] stations, KdTree kdTree, SpatialGrid grid) {
+            this.catalogue = catalogue;
+            this.stations = stations;
+            this.kdTree = kdTree;
+            this.grid = grid;
+        }
+    }
+}
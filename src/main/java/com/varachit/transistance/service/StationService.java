@@ -1,64 +1,108 @@
 package com.varachit.transistance.service;
 
+import com.varachit.transistance.dto.CursorPage;
 import com.varachit.transistance.entity.*;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.index.Bitmap;
+import com.varachit.transistance.index.CatalogueSnapshot;
 import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.util.CursorUtils;
 import com.varachit.transistance.util.StationUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.*;
-import java.util.stream.*;
+import java.util.function.Consumer;
 
 @Service
 public class StationService {
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final StationRepository stationRepository;
     private final StationUtils stationUtils;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransitGraphService transitGraphService;
+    private final StationCodeService stationCodeService;
+    private final CatalogueReadModel catalogueReadModel;
 
+    /*
+     * Reads are answered from the immutable snapshot of CatalogueReadModel and never reach the repository,
+     * writes go through the repository and reach the snapshot through the StationChangedEvent published after them
+     */
     @Autowired
-    public StationService(StationRepository stationRepository) {
+    public StationService(StationRepository stationRepository, ApplicationEventPublisher eventPublisher,
+                          TransitGraphService transitGraphService, StationCodeService stationCodeService,
+                          CatalogueReadModel catalogueReadModel) {
         this.stationRepository = stationRepository;
         this.stationUtils = new StationUtils();
+        this.eventPublisher = eventPublisher;
+        this.transitGraphService = transitGraphService;
+        this.stationCodeService = stationCodeService;
+        this.catalogueReadModel = catalogueReadModel;
     }
 
     // Get all stations
     public List<Station> getStations() {
-        return stationRepository.findAll();
+        return markInterchanges(catalogueReadModel.getSnapshot().getStations());
+    }
+
+    // Get up to size stations after the cursor in id order, with the cursor of the following page
+    public CursorPage<Station> getStationPage(String cursor, int size) {
+        if(size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page size");
+        }
+        List<Station> stations = catalogueReadModel.getSnapshot().stationsAfter(CursorUtils.decode(cursor), size);
+        String nextCursor = stations.size() < size ? null
+                : CursorUtils.encode(stations.get(stations.size() - 1).getId());
+        return new CursorPage<>(markInterchanges(stations), nextCursor);
+    }
+
+    // Hand every station to the consumer in id order, one copy at a time so memory does not grow with the catalogue
+    public void streamStations(Consumer<Station> consumer) {
+        for(Station station : catalogueReadModel.getSnapshot().getStations()) {
+            consumer.accept(markInterchange(station));
+        }
     }
 
     // Get a station with an ID
     public Station getStation(Long id) {
-        Optional<Station> stationOptional = stationRepository.findById(id);
+        Optional<Station> stationOptional = id == null ? Optional.empty()
+                : catalogueReadModel.getSnapshot().findStation(id);
         if(stationOptional.isPresent()) {
-            return stationOptional.get();
+            return markInterchange(stationOptional.get());
         }
         throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Station with the specified ID does not exist");
     }
 
     // Search for the station with required NAME and optional TYPE
     public List<Station> searchStation(String stationName, StationType stationType) {
-        List<Station> stations = new ArrayList<>();
-
-        if(Objects.isNull(stationType)) {
-            stations = stationRepository.searchStationsByName(stationName);
-        } else if(Objects.isNull(stationName) || stationName.length() <= 0) {
-            stations = stationRepository.searchStationsByType(stationType);
-        } else {
-            if(Stream.of(StationType.values()).map(Enum::name)
-                     .collect(Collectors.toList())
-                     .contains(stationType.toString())) {
-                stations = stationRepository.searchStationsByNameAndType(stationName, stationType);
+        if(Objects.nonNull(stationType) || !isBlank(stationName)) {
+            CatalogueSnapshot snapshot = catalogueReadModel.getSnapshot();
+            List<StationType> stationTypes = Objects.isNull(stationType) ? List.of() : List.of(stationType);
+            List<Station> stations = snapshot.stationsIn(select(snapshot, stationName, stationTypes, List.of()));
+            if(!stations.isEmpty()) {
+                return markInterchanges(stations);
             }
         }
-
-        if(!stations.isEmpty()) {
-            return stations;
-        }
         throw new ResponseStatusException(HttpStatus.NOT_FOUND,
                 "Station with the specified name and/or type does not exist");
     }
 
+    /*
+     * Search for the stations with the optional NAME, any of the TYPES and any of the STATUSES, in id order
+     * An empty criterion does not filter, so no criteria at all returns every station
+     */
+    public List<Station> searchStations(String stationName, Collection<StationType> stationTypes,
+                                        Collection<StationStatus> stationStatuses) {
+        CatalogueSnapshot snapshot = catalogueReadModel.getSnapshot();
+        return markInterchanges(snapshot.stationsIn(select(snapshot, stationName, stationTypes, stationStatuses)));
+    }
+
     /*
      * Add station, Station Object is being passed in to the method and validate using StationUtils
      * If validation is completed and passed, the exception will not be thrown from validateStation() method
@@ -68,13 +112,20 @@ public class StationService {
         stationUtils.validateStation(station.getName(), station.getCode(), station.getLatitude(),
                                      station.getLongitude(), station.getType().name());
 
-        Optional<Station> existingStationCode = stationRepository.findByCode(station.getCode());
-
-        if(existingStationCode.isPresent()) {
+        if(stationCodeService.exists(station.getCode())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unable to add station due to the specified code already exists");
+        }
+        Station addedStation;
+        try {
+            addedStation = stationRepository.save(station);
+        } catch(DataIntegrityViolationException exception) {
+            // Another request added the same code after the check above
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Unable to add station due to the specified code already exists");
         }
-        return stationRepository.save(station);
+        eventPublisher.publishEvent(new StationChangedEvent(addedStation, ChangeType.CREATED));
+        return addedStation;
     }
 
     /*
@@ -92,15 +143,21 @@ public class StationService {
         // Format validation
         stationUtils.validateStation(newStationName, newStationCode, newLatitude, newLongitude, newType.name());
 
-        // Additional validation is required as the Station Code must be unique
-        Optional<Station> stationOptional = stationRepository.findByCode(newStationCode);
-        if(stationOptional.isEmpty()) {
+        // Additional validation is required as the Station Code must be unique, the station may keep its own code
+        Optional<Long> existingId = stationCodeService.findId(newStationCode);
+        if(existingId.isEmpty() || existingId.get().equals(stationId)) {
             station.setName(newStationName);
             station.setCode(newStationCode);
             station.setLatitude(newLatitude);
             station.setLongitude(newLongitude);
             station.setType(StationType.valueOf(newType.toString()));
-            stationRepository.save(station);
+            try {
+                stationRepository.save(station);
+            } catch(DataIntegrityViolationException exception) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unable to update station code due to the specified code already exists");
+            }
+            eventPublisher.publishEvent(new StationChangedEvent(station, ChangeType.UPDATED));
             return station;
         }
         throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
@@ -118,16 +175,56 @@ public class StationService {
         if(!Objects.equals(station.getStatus(), newStatus)) {
             station.setStatus(StationStatus.valueOf(newStatus.toString()));
             stationRepository.save(station);
+            eventPublisher.publishEvent(new StationChangedEvent(station, ChangeType.UPDATED));
         }
         return station;
     }
 
+    // Ordinals matching every given criterion, values within a criterion are alternatives
+    private Bitmap select(CatalogueSnapshot snapshot, String stationName, Collection<StationType> stationTypes,
+                          Collection<StationStatus> stationStatuses) {
+        Bitmap selected = isBlank(stationName) ? snapshot.allStations() : snapshot.stationsNamed(stationName);
+        if(Objects.nonNull(stationTypes) && !stationTypes.isEmpty()) {
+            Bitmap typed = Bitmap.empty(snapshot.stationCount());
+            for(StationType stationType : stationTypes) {
+                typed = typed.or(snapshot.stationsOfType(stationType));
+            }
+            selected = selected.and(typed);
+        }
+        if(Objects.nonNull(stationStatuses) && !stationStatuses.isEmpty()) {
+            Bitmap withStatus = Bitmap.empty(snapshot.stationCount());
+            for(StationStatus stationStatus : stationStatuses) {
+                withStatus = withStatus.or(snapshot.stationsWithStatus(stationStatus));
+            }
+            selected = selected.and(withStatus);
+        }
+        return selected;
+    }
+
+    private static boolean isBlank(String value) {
+        return Objects.isNull(value) || value.isBlank();
+    }
+
+    // Copy of a snapshot station with the transient interchange flag filled in from the transit network
+    private Station markInterchange(Station station) {
+        return station.toBuilder().isInterchangeable(transitGraphService.isInterchange(station.getCode())).build();
+    }
+
+    private List<Station> markInterchanges(List<Station> stations) {
+        List<Station> marked = new ArrayList<>(stations.size());
+        for(Station station : stations) {
+            marked.add(markInterchange(station));
+        }
+        return marked;
+    }
+
     // Delete a station with an ID
     public Station deleteStation(Long stationId) {
         Optional<Station> stationOptional = stationRepository.findById(stationId);
         if(stationOptional.isPresent()) {
             Station stationToDelete = stationOptional.get();
             stationRepository.delete(stationToDelete);
+            eventPublisher.publishEvent(new StationChangedEvent(stationToDelete, ChangeType.DELETED));
             return stationToDelete; // Return DELETED Station
         }
         throw new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -0,0 +1,237 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.dto.TimetableJourney;
+import com.varachit.transistance.dto.TimetableLeg;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.event.RouteChangedEvent;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.graph.IntList;
+import com.varachit.transistance.graph.TransitGraph;
+import com.varachit.transistance.repository.TripRepository;
+import com.varachit.transistance.repository.TripRepository.StopTimeRow;
+import com.varachit.transistance.repository.TripRepository.TripRow;
+import com.varachit.transistance.timetable.ConnectionScan;
+import com.varachit.transistance.timetable.Itinerary;
+import com.varachit.transistance.timetable.Raptor;
+import com.varachit.transistance.timetable.Timetable;
+import com.varachit.transistance.timetable.TimetableBuilder;
+import com.varachit.transistance.util.TimeUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Owns the in-memory timetable built from trips and stop times
+ * Frequency-based trips are expanded into one run per departure. Stops at stations that are not opened are
+ * dropped, so vehicles pass through them, and the walking transfers of the transit graph become footpaths.
+ * Station and route writes invalidate the timetable and the next query rebuilds it
+ */
+@Service @Slf4j
+public class TimetableService {
+    public static final int MAX_TRANSFERS = 6;
+    private final TripRepository tripRepository;
+    private final TransitGraphService transitGraphService;
+    private final AtomicReference<Timetable> timetable = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    @Autowired
+    public TimetableService(TripRepository tripRepository, TransitGraphService transitGraphService) {
+        this.tripRepository = tripRepository;
+        this.transitGraphService = transitGraphService;
+    }
+
+    public Timetable getTimetable() {
+        Timetable current = timetable.get();
+        return current != null ? current : rebuild();
+    }
+
+    // Find the earliest arrival between two station codes leaving at or after the departure time (default now)
+    public TimetableJourney planJourney(String fromCode, String toCode, String departureTime) {
+        int departure = departureTime == null ? TimeUtils.now() : TimeUtils.parse(departureTime);
+        Timetable current = getTimetable();
+        int source = findStop(current, fromCode);
+        int target = findStop(current, toCode);
+
+        Itinerary itinerary = ConnectionScan.earliestArrival(current, source, target, departure);
+        if(itinerary == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Unable to find a journey between the specified stations");
+        }
+        return toJourney(current, source, target, itinerary);
+    }
+
+    // Pareto set over arrival time and transfers: each journey arrives earlier than the ones with fewer transfers
+    public List<TimetableJourney> planParetoJourneys(String fromCode, String toCode, String departureTime,
+                                                     int maxTransfers) {
+        if(maxTransfers < 0 || maxTransfers > MAX_TRANSFERS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid number of transfers");
+        }
+        int departure = departureTime == null ? TimeUtils.now() : TimeUtils.parse(departureTime);
+        Timetable current = getTimetable();
+        int source = findStop(current, fromCode);
+        int target = findStop(current, toCode);
+
+        List<Itinerary> itineraries = Raptor.paretoJourneys(current, source, target, departure, maxTransfers + 1);
+        if(itineraries.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Unable to find a journey between the specified stations");
+        }
+        List<TimetableJourney> journeys = new ArrayList<>(itineraries.size());
+        for(Itinerary itinerary : itineraries) {
+            journeys.add(toJourney(current, source, target, itinerary));
+        }
+        return journeys;
+    }
+
+    int findStop(Timetable current, String code) {
+        int stop = current.indexOf(code);
+        if(stop < 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Station with the specified code is not served by any trip");
+        }
+        return stop;
+    }
+
+    TimetableJourney toJourney(Timetable current, int source, int target, Itinerary itinerary) {
+        List<TimetableLeg> legs = new ArrayList<>(itinerary.getLegs().size());
+        int rides = 0;
+        for(Itinerary.Leg leg : itinerary.getLegs()) {
+            if(!leg.isWalk()) {
+                rides++;
+            }
+            legs.add(new TimetableLeg(current.code(leg.getFromStop()), current.name(leg.getFromStop()),
+                    current.code(leg.getToStop()), current.name(leg.getToStop()),
+                    TimeUtils.format(leg.getDeparture()), TimeUtils.format(leg.getArrival()),
+                    leg.isWalk() ? JourneyService.WALKING_TRANSFER : current.routeName(leg.getRun()),
+                    leg.isWalk() ? null : current.headsign(leg.getRun()),
+                    leg.isWalk() ? null : current.tripId(leg.getRun())));
+        }
+        return new TimetableJourney(current.code(source), current.code(target),
+                TimeUtils.format(itinerary.getDeparture()), TimeUtils.format(itinerary.getArrival()),
+                itinerary.getArrival() - itinerary.getDeparture(), Math.max(0, rides - 1), legs);
+    }
+
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        invalidate();
+    }
+
+    @EventListener
+    public void onRouteChanged(RouteChangedEvent event) {
+        invalidate();
+    }
+
+    @EventListener
+    public void onCatalogueImported(CatalogueImportedEvent event) {
+        invalidate();
+    }
+
+    // Drop the timetable after a trip, station or route write; synchronized with rebuild() like the locator
+    public synchronized void invalidate() {
+        timetable.set(null);
+    }
+
+    synchronized Timetable rebuild() {
+        Timetable current = timetable.get();
+        if(current != null) {
+            return current;
+        }
+        long startTime = System.nanoTime();
+        TimetableBuilder builder = new TimetableBuilder();
+        Map<Long, TripRow> trips = new HashMap<>();
+        for(TripRow trip : tripRepository.findTripRows()) {
+            trips.put(trip.getTripId(), trip);
+        }
+
+        int skipped = 0;
+        List<StopTimeRow> rows = tripRepository.findStopTimeRows();
+        for(int start = 0; start < rows.size(); ) {
+            Long tripId = rows.get(start).getTripId();
+            int end = start;
+            while(end < rows.size() && Objects.equals(rows.get(end).getTripId(), tripId)) {
+                end++;
+            }
+            if(!addTrip(builder, trips.get(tripId), rows.subList(start, end))) {
+                skipped++;
+            }
+            start = end;
+        }
+
+        TransitGraph graph = transitGraphService.getGraph();
+        for(int node = 0; node < graph.getNodeCount(); node++) {
+            for(int edge = graph.firstEdge(node), last = graph.endEdge(node); edge < last; edge++) {
+                // Transfer edges come in both directions, the builder adds the reverse of each one
+                if(graph.isTransfer(edge) && node < graph.target(edge)) {
+                    builder.addFootpath(graph.code(node), graph.code(graph.target(edge)), graph.time(edge));
+                }
+            }
+        }
+
+        Timetable built = builder.build(versions.incrementAndGet());
+        timetable.set(built);
+        log.info("Built timetable version {} with {} stops, {} runs and {} connections in {} ms, {} trips skipped",
+                built.getVersion(), built.getStopCount(), built.getRunCount(), built.getConnectionCount(),
+                (System.nanoTime() - startTime) / 1_000_000, skipped);
+        return built;
+    }
+
+    // Add the runs of one trip, false when its stop times are incomplete or inconsistent
+    private boolean addTrip(TimetableBuilder builder, TripRow trip, List<StopTimeRow> rows) {
+        if(trip == null) {
+            return false;
+        }
+        Integer first = null;
+        IntList stops = new IntList(rows.size());
+        IntList arrivals = new IntList(rows.size());
+        IntList departures = new IntList(rows.size());
+        for(StopTimeRow row : rows) {
+            Integer arrival = row.getArrivalTime() != null ? row.getArrivalTime() : row.getDepartureTime();
+            Integer departure = row.getDepartureTime() != null ? row.getDepartureTime() : row.getArrivalTime();
+            if(arrival == null) {
+                return false;
+            }
+            if(first == null) {
+                first = departure;
+            }
+            if(row.getStationStatus() != null && row.getStationStatus() != StationStatus.OPENED) {
+                continue;
+            }
+            stops.add(builder.addStop(row.getStationCode(), row.getStationName()));
+            arrivals.add(arrival);
+            departures.add(departure);
+        }
+
+        int tripIndex = builder.addTrip(trip.getTripId(), trip.getRouteName(), trip.getHeadsign());
+        int[] stopArray = stops.toArray();
+        if(trip.getHeadway() == null || trip.getHeadway() <= 0 || trip.getFrequencyStart() == null
+                || trip.getFrequencyEnd() == null || stopArray.length == 0) {
+            return builder.addRun(tripIndex, stopArray, arrivals.toArray(), departures.toArray());
+        }
+
+        // Frequency template: shift every stop time so the run leaves its first stop at each scheduled departure
+        int[] shiftedArrivals = new int[stopArray.length];
+        int[] shiftedDepartures = new int[stopArray.length];
+        boolean added = true;
+        for(int leave = trip.getFrequencyStart(); leave < trip.getFrequencyEnd(); leave += trip.getHeadway()) {
+            int shift = leave - first;
+            for(int index = 0; index < stopArray.length; index++) {
+                shiftedArrivals[index] = arrivals.get(index) + shift;
+                shiftedDepartures[index] = departures.get(index) + shift;
+            }
+            added &= builder.addRun(tripIndex, stopArray, shiftedArrivals, shiftedDepartures);
+        }
+        return added;
+    }
+}
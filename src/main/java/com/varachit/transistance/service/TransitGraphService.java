@@ -0,0 +1,355 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.graph.IntList;
+import com.varachit.transistance.graph.TransitGraph;
+import com.varachit.transistance.graph.TransitGraphBuilder;
+import com.varachit.transistance.graph.TransitGraphPatch;
+import com.varachit.transistance.graph.TransitGraphSnapshot;
+import com.varachit.transistance.graph.TransitNetwork;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.repository.TableFingerprint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Owns the in-memory transit network derived from the route table
+ * It is built once the application is ready, or by the first query if that fails. Station status changes and single stations added to or removed from
+ * a route are applied as copy-on-write patches of the current graph, published at once without hierarchies
+ * (CH queries fall back to A*) while the hierarchies are preprocessed again in the background.
+ * Every other station or route write schedules a full rebuild on a background thread.
+ * Queries never lock: they keep using the network they read until a new one is published with an atomic swap.
+ * When a snapshot path is configured every full build is written to it, and startup loads it instead
+ * of building while the database still has the fingerprint the snapshot was built from
+ */
+@Service @Slf4j
+public class TransitGraphService {
+    private final RouteRepository routeRepository;
+    private final StationRepository stationRepository;
+    private final Executor rebuildExecutor;
+    private final double transferRadius;
+    private final File snapshotFile;
+    private final AtomicReference<TransitNetwork> network = new AtomicReference<>();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final AtomicBoolean preprocessPending = new AtomicBoolean();
+    private final AtomicLong versions = new AtomicLong();
+
+    @Autowired
+    public TransitGraphService(RouteRepository routeRepository, StationRepository stationRepository,
+                               @Value("${transistance.planner.transfer-radius:300}") double transferRadius,
+                               @Value("${transistance.planner.snapshot-path:}") String snapshotPath) {
+        this(routeRepository, stationRepository, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transit-graph-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        }), transferRadius, snapshotPath.isEmpty() ? null : new File(snapshotPath));
+    }
+
+    TransitGraphService(RouteRepository routeRepository, Executor rebuildExecutor, double transferRadius) {
+        this(routeRepository, null, rebuildExecutor, transferRadius, null);
+    }
+
+    TransitGraphService(RouteRepository routeRepository, StationRepository stationRepository,
+                        Executor rebuildExecutor, double transferRadius, File snapshotFile) {
+        this.routeRepository = routeRepository;
+        this.stationRepository = stationRepository;
+        this.rebuildExecutor = rebuildExecutor;
+        this.transferRadius = transferRadius;
+        this.snapshotFile = snapshotFile;
+    }
+
+    public TransitNetwork getNetwork() {
+        TransitNetwork current = network.get();
+        return current != null ? current : initialise();
+    }
+
+    public TransitGraph getGraph() {
+        return getNetwork().getGraph();
+    }
+
+    /*
+     * Whether the station with the given code is an interchange in the current network
+     * Station reads call this, so it never builds the network: before the first one is published it answers false
+     */
+    public boolean isInterchange(String code) {
+        TransitNetwork current = network.get();
+        if(current == null) {
+            return false;
+        }
+        TransitGraph graph = current.getGraph();
+        int node = graph.indexOf(code);
+        return node >= 0 && graph.isInterchange(node);
+    }
+
+    // Schedule a background rebuild; requests arriving while one is queued are folded into it
+    public void requestRebuild() {
+        if(rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                try {
+                    rebuild();
+                } catch(RuntimeException exception) {
+                    log.error("Unable to rebuild transit network, keeping version {}",
+                            network.get() == null ? 0 : network.get().getVersion(), exception);
+                }
+            });
+        }
+    }
+
+    // Warm start, so the first query does not pay for loading or building the network
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            initialise();
+        } catch(RuntimeException exception) {
+            log.warn("Unable to build transit network on startup, the first query will build it", exception);
+        }
+    }
+
+    private synchronized TransitNetwork initialise() {
+        TransitNetwork current = network.get();
+        if(current != null) {
+            return current;
+        }
+        TransitNetwork loaded = loadSnapshot();
+        return loaded != null ? loaded : rebuild();
+    }
+
+    // Publish the snapshot without hierarchies when it matches the database, null when it is missing or stale
+    private TransitNetwork loadSnapshot() {
+        if(snapshotFile == null) {
+            return null;
+        }
+        long startTime = System.nanoTime();
+        try {
+            long fingerprint = fingerprint();
+            TransitGraph graph = TransitGraphSnapshot.read(snapshotFile, fingerprint);
+            if(graph == null) {
+                log.info("Transit graph snapshot {} is missing or stale, building from the database", snapshotFile);
+                return null;
+            }
+            versions.accumulateAndGet(graph.getVersion(), Math::max);
+            TransitNetwork loaded = new TransitNetwork(graph, Collections.emptyMap(), fingerprint);
+            network.set(loaded);
+            log.info("Loaded transit network version {} with {} stations and {} edges from {} in {} ms",
+                    graph.getVersion(), graph.getNodeCount(), graph.getEdgeCount(), snapshotFile,
+                    (System.nanoTime() - startTime) / 1_000_000);
+            requestPreprocess();
+            return loaded;
+        } catch(IOException | RuntimeException exception) {
+            log.warn("Unable to load transit graph snapshot {}, building from the database", snapshotFile, exception);
+            return null;
+        }
+    }
+
+    private void writeSnapshot(TransitGraph graph, long fingerprint) {
+        try {
+            TransitGraphSnapshot.write(graph, fingerprint, snapshotFile);
+        } catch(IOException exception) {
+            log.warn("Unable to write transit graph snapshot {}", snapshotFile, exception);
+        }
+    }
+
+    // Changes with every station or route write, and with the settings the graph is built with
+    long fingerprint() {
+        if(stationRepository == null) {
+            return 0;
+        }
+        long fingerprint = Double.doubleToLongBits(transferRadius);
+        for(TableFingerprint table : new TableFingerprint[]{stationRepository.findFingerprint(),
+                routeRepository.findFingerprint()}) {
+            fingerprint = fingerprint * 31 + table.getRowCount();
+            fingerprint = fingerprint * 31 + table.getVersionSum();
+            fingerprint = fingerprint * 31 + table.getMaxId();
+        }
+        return fingerprint;
+    }
+
+    synchronized TransitNetwork rebuild() {
+        long startTime = System.nanoTime();
+        // Read before the routes, so a write in between makes the snapshot look stale rather than current
+        long fingerprint = fingerprint();
+        TransitGraph graph = new TransitGraphBuilder()
+                .addRoutes(routeRepository.findAll())
+                .addTransfers(transferRadius)
+                .build(versions.incrementAndGet());
+        long graphTime = System.nanoTime();
+        TransitNetwork built = TransitNetwork.preprocess(graph, fingerprint);
+        network.set(built);
+        log.info("Built transit network version {} with {} stations and {} edges in {} ms, hierarchies in {} ms",
+                graph.getVersion(), graph.getNodeCount(), graph.getEdgeCount(),
+                (graphTime - startTime) / 1_000_000, (System.nanoTime() - graphTime) / 1_000_000);
+        if(snapshotFile != null) {
+            writeSnapshot(graph, fingerprint);
+        }
+        return built;
+    }
+
+    // Preprocess the hierarchies of a patched network in the background, unless a newer network replaced it
+    private void requestPreprocess() {
+        if(preprocessPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                preprocessPending.set(false);
+                TransitNetwork current = network.get();
+                if(current == null || current.hasHierarchies()) {
+                    return;
+                }
+                try {
+                    long startTime = System.nanoTime();
+                    if(network.compareAndSet(current,
+                            TransitNetwork.preprocess(current.getGraph(), current.getFingerprint()))) {
+                        log.info("Preprocessed hierarchies of transit network version {} in {} ms",
+                                current.getVersion(), (System.nanoTime() - startTime) / 1_000_000);
+                    }
+                } catch(RuntimeException exception) {
+                    log.error("Unable to preprocess hierarchies of transit network version {}",
+                            current.getVersion(), exception);
+                }
+            });
+        }
+    }
+
+    // Open or close the station in place, false when the write changed more than its status
+    synchronized boolean patchStation(Station station) {
+        TransitNetwork current = network.get();
+        if(current == null) {
+            return true;
+        }
+        TransitGraph graph = current.getGraph();
+        int node = station == null ? -1 : graph.indexOf(station.getCode());
+        long stationId = station == null || station.getId() == null ? -1 : station.getId();
+        if(node < 0 || graph.stationId(node) != stationId || !graph.name(node).equals(station.getName())
+                || station.getLatitude() == null || graph.latitude(node) != station.getLatitude()
+                || station.getLongitude() == null || graph.longitude(node) != station.getLongitude()
+                || station.getType() == null || graph.type(node) != station.getType()) {
+            return false;
+        }
+        boolean closed = station.getStatus() != null && station.getStatus() != StationStatus.OPENED;
+        if(graph.isClosed(node) != closed) {
+            publish(current, new TransitGraphPatch(graph).setClosed(node, closed));
+        }
+        return true;
+    }
+
+    // Insert or remove the hops of a single station edit of a route, false when it needs a full rebuild
+    synchronized boolean patchRoute(Route route, Station station, ChangeType stationChange) {
+        TransitNetwork current = network.get();
+        if(current == null) {
+            return true;
+        }
+        TransitGraph graph = current.getGraph();
+        int routeIndex = graph.indexOfRoute(route.getName());
+        int node = graph.indexOf(station.getCode());
+        List<Station> stations = route.getStations();
+        if(routeIndex < 0 || stations == null) {
+            return false;
+        }
+
+        TransitGraphPatch patch = new TransitGraphPatch(graph);
+        if(stationChange == ChangeType.CREATED) {
+            // RouteService appends the station, so its only hop is from the previous last station of the route
+            int last = stations.size() - 1;
+            if(last < 1 || !station.getCode().equals(stations.get(last).getCode())) {
+                return false;
+            }
+            int previous = graph.indexOf(stations.get(last - 1).getCode());
+            if(previous < 0 || previous == node) {
+                return false;
+            }
+            // A station added with the route write is not in the graph yet and becomes a new node
+            if(node < 0) {
+                node = patch.addStation(station);
+                if(node < 0) {
+                    return false;
+                }
+            }
+            StationType mode = route.getType() != null ? route.getType() : station.getType();
+            patch.addRouteEdge(previous, node, routeIndex, mode);
+        } else if(stationChange == ChangeType.DELETED && node >= 0) {
+            IntList neighbours = new IntList(2);
+            int degree = graph.endEdge(node) - graph.firstEdge(node);
+            for(int edge = graph.firstEdge(node), end = graph.endEdge(node); edge < end; edge++) {
+                if(graph.route(edge) == routeIndex) {
+                    neighbours.add(graph.target(edge));
+                }
+            }
+            // A station left without any hop disappears from the graph, which only a full rebuild does
+            if(neighbours.isEmpty() || neighbours.size() > 2 || neighbours.size() == degree) {
+                return false;
+            }
+            for(int index = 0; index < neighbours.size(); index++) {
+                patch.removeRouteEdges(node, neighbours.get(index), routeIndex);
+            }
+            if(neighbours.size() == 2) {
+                int next = neighbours.get(1);
+                StationType mode = route.getType() != null ? route.getType() : graph.type(next);
+                patch.addRouteEdge(neighbours.get(0), next, routeIndex, mode);
+            }
+        } else {
+            return false;
+        }
+        publish(current, patch);
+        return true;
+    }
+
+    // The listeners run after the write, so the fingerprint read here already includes it
+    private void publish(TransitNetwork current, TransitGraphPatch patch) {
+        long startTime = System.nanoTime();
+        long fingerprint = fingerprint();
+        TransitGraph patched = patch.apply(versions.incrementAndGet());
+        network.set(new TransitNetwork(patched, Collections.emptyMap(), fingerprint));
+        log.info("Patched transit network version {} into version {} in {} us", current.getVersion(),
+                patched.getVersion(), (System.nanoTime() - startTime) / 1_000);
+        requestPreprocess();
+    }
+
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        if(event.getChangeType() != ChangeType.UPDATED || !patchStation(event.getStation())) {
+            requestRebuild();
+        }
+    }
+
+    @EventListener
+    public void onRouteChanged(RouteChangedEvent event) {
+        if(event.getStation() == null || !patchRoute(event.getRoute(), event.getStation(), event.getStationChange())) {
+            requestRebuild();
+        }
+    }
+
+    @EventListener
+    public void onCatalogueImported(CatalogueImportedEvent event) {
+        requestRebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if(rebuildExecutor instanceof ExecutorService) {
+            ((ExecutorService) rebuildExecutor).shutdownNow();
+        }
+    }
+}
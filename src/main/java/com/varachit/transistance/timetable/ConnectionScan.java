@@ -0,0 +1,87 @@
+package com.varachit.transistance.timetable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Earliest-arrival Connection Scan Algorithm
+ * Connections are scanned once in departure order from the first one leaving at the requested time; a connection
+ * is usable when its run has already been boarded or the rider is at its departure stop in time. The scan ends
+ * at the first connection leaving after the best known arrival at the destination. Footpaths are relaxed from
+ * every improved arrival, which is exact for the one-hop walking transfers of the network
+ */
+public final class ConnectionScan {
+
+    private ConnectionScan() {
+    }
+
+    // Earliest arrival from source to target leaving at or after departure, or null when it cannot be reached
+    public static Itinerary earliestArrival(Timetable timetable, int source, int target, int departure) {
+        ScanSpace space = ScanSpace.acquire(timetable.getStopCount(), timetable.getRunCount());
+        space.arrive(source, departure, -1, -1);
+        walkFrom(timetable, space, source, departure);
+
+        int connections = timetable.getConnectionCount();
+        for(int connection = timetable.firstConnectionAfter(departure); connection < connections; connection++) {
+            int leaving = timetable.departureTime(connection);
+            if(leaving >= space.arrival(target)) {
+                break;
+            }
+            int run = timetable.run(connection);
+            if(!space.isBoarded(run)) {
+                if(space.arrival(timetable.departureStop(connection)) > leaving) {
+                    continue;
+                }
+                space.board(run, connection);
+            }
+            int stop = timetable.arrivalStop(connection);
+            int arriving = timetable.arrivalTime(connection);
+            if(arriving < space.arrival(stop)) {
+                space.arrive(stop, arriving, connection, -1);
+                walkFrom(timetable, space, stop, arriving);
+            }
+        }
+
+        if(space.arrival(target) == ScanSpace.UNREACHED) {
+            return null;
+        }
+        return new Itinerary(legs(timetable, space, source, target), departure, space.arrival(target));
+    }
+
+    private static void walkFrom(Timetable timetable, ScanSpace space, int stop, int time) {
+        for(int footpath = timetable.firstFootpath(stop), end = timetable.endFootpath(stop); footpath < end;
+            footpath++) {
+            int next = timetable.footpathTarget(footpath);
+            int arriving = time + timetable.footpathTime(footpath);
+            if(arriving < space.arrival(next)) {
+                space.arrive(next, arriving, -1, stop);
+            }
+        }
+    }
+
+    // Follow the journey pointers back from the target, one ride or walk per leg
+    private static List<Itinerary.Leg> legs(Timetable timetable, ScanSpace space, int source, int target) {
+        List<Itinerary.Leg> legs = new ArrayList<>();
+        int stop = target;
+        // Bounded by the stop count, pointers form a chain back to the source
+        for(int step = 0; stop != source && step < timetable.getStopCount(); step++) {
+            int connection = space.viaConnection(stop);
+            if(connection >= 0) {
+                int run = timetable.run(connection);
+                int boarding = space.boarding(run);
+                legs.add(new Itinerary.Leg(timetable.departureStop(boarding), stop,
+                        timetable.departureTime(boarding), timetable.arrivalTime(connection), run));
+                stop = timetable.departureStop(boarding);
+            } else {
+                int from = space.viaStop(stop);
+                int arriving = space.arrival(stop);
+                int walk = arriving - space.arrival(from);
+                legs.add(new Itinerary.Leg(from, stop, arriving - walk, arriving, -1));
+                stop = from;
+            }
+        }
+        Collections.reverse(legs);
+        return legs;
+    }
+}
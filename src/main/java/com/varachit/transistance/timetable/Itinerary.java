@@ -0,0 +1,72 @@
+package com.varachit.transistance.timetable;
+
+import java.util.Collections;
+import java.util.List;
+
+// Result of a timetable query: the legs from origin to destination in travel order
+public final class Itinerary {
+    private final List<Leg> legs;
+    private final int departure;
+    private final int arrival;
+
+    Itinerary(List<Leg> legs, int departure, int arrival) {
+        this.legs = Collections.unmodifiableList(legs);
+        this.departure = departure;
+        this.arrival = arrival;
+    }
+
+    public List<Leg> getLegs() {
+        return legs;
+    }
+
+    // Requested departure time, seconds after midnight
+    public int getDeparture() {
+        return departure;
+    }
+
+    // Arrival time at the destination, seconds after midnight
+    public int getArrival() {
+        return arrival;
+    }
+
+    // A ride on one run between two stops, or a walk when run is -1
+    public static final class Leg {
+        private final int fromStop;
+        private final int toStop;
+        private final int departure;
+        private final int arrival;
+        private final int run;
+
+        Leg(int fromStop, int toStop, int departure, int arrival, int run) {
+            this.fromStop = fromStop;
+            this.toStop = toStop;
+            this.departure = departure;
+            this.arrival = arrival;
+            this.run = run;
+        }
+
+        public int getFromStop() {
+            return fromStop;
+        }
+
+        public int getToStop() {
+            return toStop;
+        }
+
+        public int getDeparture() {
+            return departure;
+        }
+
+        public int getArrival() {
+            return arrival;
+        }
+
+        public int getRun() {
+            return run;
+        }
+
+        public boolean isWalk() {
+            return run < 0;
+        }
+    }
+}
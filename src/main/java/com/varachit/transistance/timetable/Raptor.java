@@ -0,0 +1,196 @@
+package com.varachit.transistance.timetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Round-based public transit routing (RAPTOR)
+ * Round k finds the earliest arrival at every stop using at most k rides: each route pattern serving a stop
+ * improved in the previous round is scanned once from that stop, hopping on the earliest run that can be caught,
+ * followed by the footpaths from the stops it improved. No priority queue is involved.
+ * Only interchange stops are carried into the next round, a rider at any other stop can only continue on the
+ * pattern they are already on. Every round that improves the arrival at the destination yields one journey of the
+ * Pareto set over arrival time and number of transfers
+ */
+public final class Raptor {
+
+    private Raptor() {
+    }
+
+    // Pareto-optimal journeys leaving at or after departure with at most maxRides rides, fewest transfers first
+    public static List<Itinerary> paretoJourneys(Timetable timetable, int source, int target, int departure,
+                                                 int maxRides) {
+        int stopCount = timetable.getStopCount();
+        RaptorSpace space = RaptorSpace.acquire(stopCount, timetable.getPatternCount(), maxRides);
+        int[] best = space.best;
+        List<Itinerary> journeys = new ArrayList<>();
+
+        int[] origin = space.arrivals[0];
+        origin[source] = departure;
+        best[source] = departure;
+        space.kinds[0][source] = RaptorSpace.ORIGIN;
+        int markedCount = 0;
+        space.markedStops[markedCount++] = source;
+        space.marked[source] = true;
+        markedCount = walk(timetable, space, 0, target, 0, 1, markedCount);
+        if(origin[target] != RaptorSpace.UNREACHED) {
+            journeys.add(itinerary(timetable, space, source, target, 0, departure));
+        }
+
+        for(int round = 1; round <= maxRides && markedCount > 0; round++) {
+            int[] previous = space.arrivals[round - 1];
+            int[] current = space.arrivals[round];
+            System.arraycopy(previous, 0, current, 0, stopCount);
+            Arrays.fill(space.kinds[round], 0, stopCount, RaptorSpace.INHERITED);
+
+            // Queue every pattern serving a marked stop, from the earliest marked position along it
+            int queuedCount = 0;
+            for(int index = 0; index < markedCount; index++) {
+                int stop = space.markedStops[index];
+                space.marked[stop] = false;
+                for(int entry = timetable.firstStopPattern(stop), end = timetable.endStopPattern(stop);
+                    entry < end; entry++) {
+                    int pattern = timetable.stopPattern(entry);
+                    int position = timetable.stopPatternPosition(entry);
+                    if(space.queuedPosition[pattern] < 0) {
+                        space.queuedPatterns[queuedCount++] = pattern;
+                        space.queuedPosition[pattern] = position;
+                    } else if(position < space.queuedPosition[pattern]) {
+                        space.queuedPosition[pattern] = position;
+                    }
+                }
+            }
+
+            markedCount = 0;
+            for(int index = 0; index < queuedCount; index++) {
+                int pattern = space.queuedPatterns[index];
+                markedCount = scanPattern(timetable, space, round, target, pattern,
+                        space.queuedPosition[pattern], markedCount);
+                space.queuedPosition[pattern] = -1;
+            }
+            markedCount = walk(timetable, space, round, target, 0, markedCount, markedCount);
+
+            if(current[target] < previous[target]) {
+                journeys.add(itinerary(timetable, space, source, target, round, departure));
+            }
+        }
+        return journeys;
+    }
+
+    private static int scanPattern(Timetable timetable, RaptorSpace space, int round, int target, int pattern,
+                                   int from, int markedCount) {
+        int[] previous = space.arrivals[round - 1];
+        int[] current = space.arrivals[round];
+        int[] best = space.best;
+        int runs = timetable.patternRunCount(pattern);
+        int run = -1;
+        int boardedPosition = -1;
+        for(int position = from, length = timetable.patternLength(pattern); position < length; position++) {
+            int stop = timetable.patternStop(pattern, position);
+            if(run >= 0) {
+                int arrival = timetable.patternArrival(pattern, run, position);
+                if(arrival < Math.min(best[stop], best[target])) {
+                    current[stop] = arrival;
+                    best[stop] = arrival;
+                    space.kinds[round][stop] = RaptorSpace.RIDE;
+                    space.parentStops[round][stop] = timetable.patternStop(pattern, boardedPosition);
+                    space.parentDepartures[round][stop] = timetable.patternDeparture(pattern, run, boardedPosition);
+                    space.parentRuns[round][stop] = timetable.patternRun(pattern, run);
+                    markedCount = mark(timetable, space, stop, markedCount);
+                }
+            }
+            // Hop on an earlier run if the rider reached this stop in time for it in the previous round
+            int ready = previous[stop];
+            if(ready != RaptorSpace.UNREACHED
+                    && (run < 0 || ready <= timetable.patternDeparture(pattern, run, position))) {
+                int earliest = earliestRun(timetable, pattern, position, ready, run < 0 ? runs : run + 1);
+                if(earliest >= 0 && earliest != run) {
+                    run = earliest;
+                    boardedPosition = position;
+                }
+            }
+        }
+        return markedCount;
+    }
+
+    // Earliest run among the first limit runs of the pattern leaving the position at or after time, or -1
+    private static int earliestRun(Timetable timetable, int pattern, int position, int time, int limit) {
+        int low = 0;
+        int high = limit;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(timetable.patternDeparture(pattern, middle, position) < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < limit ? low : -1;
+    }
+
+    // Relax the footpaths of the stops marked in [from, to), returning the new marked count
+    private static int walk(Timetable timetable, RaptorSpace space, int round, int target, int from, int to,
+                            int markedCount) {
+        int[] current = space.arrivals[round];
+        int[] best = space.best;
+        for(int index = from; index < to; index++) {
+            int stop = space.markedStops[index];
+            int leaving = current[stop];
+            for(int footpath = timetable.firstFootpath(stop), end = timetable.endFootpath(stop); footpath < end;
+                footpath++) {
+                int next = timetable.footpathTarget(footpath);
+                int arrival = leaving + timetable.footpathTime(footpath);
+                if(arrival < Math.min(best[next], best[target])) {
+                    current[next] = arrival;
+                    best[next] = arrival;
+                    space.kinds[round][next] = RaptorSpace.WALK;
+                    space.parentStops[round][next] = stop;
+                    space.parentDepartures[round][next] = leaving;
+                    markedCount = mark(timetable, space, next, markedCount);
+                }
+            }
+        }
+        return markedCount;
+    }
+
+    // Carry an improved stop into the next round when a rider could change to another pattern there
+    private static int mark(Timetable timetable, RaptorSpace space, int stop, int markedCount) {
+        if(!space.marked[stop] && timetable.isInterchange(stop)) {
+            space.marked[stop] = true;
+            space.markedStops[markedCount++] = stop;
+        }
+        return markedCount;
+    }
+
+    // Follow the parent labels back from the target, dropping a round after each ride
+    private static Itinerary itinerary(Timetable timetable, RaptorSpace space, int source, int target, int round,
+                                       int departure) {
+        List<Itinerary.Leg> legs = new ArrayList<>();
+        int stop = target;
+        int arrival = space.arrivals[round][target];
+        for(int step = 0; step < 4 * timetable.getStopCount() + round; step++) {
+            byte kind = space.kinds[round][stop];
+            if(kind == RaptorSpace.ORIGIN) {
+                break;
+            }
+            if(kind == RaptorSpace.INHERITED) {
+                round--;
+                continue;
+            }
+            int parent = space.parentStops[round][stop];
+            if(kind == RaptorSpace.RIDE) {
+                legs.add(new Itinerary.Leg(parent, stop, space.parentDepartures[round][stop],
+                        space.arrivals[round][stop], space.parentRuns[round][stop]));
+                round--;
+            } else {
+                legs.add(new Itinerary.Leg(parent, stop, space.parentDepartures[round][stop],
+                        space.arrivals[round][stop], -1));
+            }
+            stop = parent;
+        }
+        Collections.reverse(legs);
+        return new Itinerary(legs, departure, arrival);
+    }
+}
@@ -0,0 +1,63 @@
+package com.varachit.transistance.timetable;
+
+import java.util.Arrays;
+
+/*
+ * Per-thread scratch arrays for RAPTOR queries, one row of labels per round
+ * Rows are reset with a fill at the start of the round that uses them, which costs a fraction of the route scans
+ */
+final class RaptorSpace {
+    static final int UNREACHED = Integer.MAX_VALUE;
+    static final byte INHERITED = 0;
+    static final byte ORIGIN = 1;
+    static final byte RIDE = 2;
+    static final byte WALK = 3;
+
+    private static final ThreadLocal<RaptorSpace> LOCAL = ThreadLocal.withInitial(RaptorSpace::new);
+
+    int[][] arrivals = new int[0][];
+    byte[][] kinds = new byte[0][];
+    // Boarding stop of a ride, or the stop walked from
+    int[][] parentStops = new int[0][];
+    // Departure time of the ride or walk
+    int[][] parentDepartures = new int[0][];
+    int[][] parentRuns = new int[0][];
+    int[] best = new int[0];
+    int[] queuedPosition = new int[0];
+    boolean[] marked = new boolean[0];
+    int[] markedStops = new int[0];
+    int[] queuedPatterns = new int[0];
+
+    private RaptorSpace() {
+    }
+
+    static RaptorSpace acquire(int stopCount, int patternCount, int rounds) {
+        RaptorSpace space = LOCAL.get();
+        space.begin(stopCount, patternCount, rounds);
+        return space;
+    }
+
+    private void begin(int stopCount, int patternCount, int rounds) {
+        if(arrivals.length < rounds + 1 || best.length < stopCount) {
+            int rows = Math.max(rounds + 1, arrivals.length);
+            int columns = Math.max(stopCount, best.length);
+            arrivals = new int[rows][columns];
+            kinds = new byte[rows][columns];
+            parentStops = new int[rows][columns];
+            parentDepartures = new int[rows][columns];
+            parentRuns = new int[rows][columns];
+            best = new int[columns];
+            marked = new boolean[columns];
+            markedStops = new int[columns];
+        }
+        if(queuedPosition.length < patternCount) {
+            queuedPosition = new int[patternCount];
+            queuedPatterns = new int[patternCount];
+        }
+        Arrays.fill(queuedPosition, 0, patternCount, -1);
+        Arrays.fill(marked, 0, stopCount, false);
+        Arrays.fill(best, 0, stopCount, UNREACHED);
+        Arrays.fill(arrivals[0], 0, stopCount, UNREACHED);
+        Arrays.fill(kinds[0], 0, stopCount, INHERITED);
+    }
+}
@@ -0,0 +1,88 @@
+package com.varachit.transistance.timetable;
+
+import java.util.Arrays;
+
+/*
+ * Per-thread scratch arrays for timetable queries
+ * Like the graph search space, entries are tagged with a generation stamp instead of being cleared,
+ * so a query costs nothing to start and allocates nothing once the arrays have grown
+ */
+final class ScanSpace {
+    static final int UNREACHED = Integer.MAX_VALUE;
+
+    private static final ThreadLocal<ScanSpace> LOCAL = ThreadLocal.withInitial(ScanSpace::new);
+
+    private int[] arrivals = new int[0];
+    private int[] viaConnections = new int[0];
+    private int[] viaStops = new int[0];
+    private int[] stopStamps = new int[0];
+    private int[] boardings = new int[0];
+    private int[] runStamps = new int[0];
+    private int stamp;
+
+    private ScanSpace() {
+    }
+
+    static ScanSpace acquire(int stopCount, int runCount) {
+        ScanSpace space = LOCAL.get();
+        space.begin(stopCount, runCount);
+        return space;
+    }
+
+    private void begin(int stopCount, int runCount) {
+        if(stopStamps.length < stopCount) {
+            arrivals = new int[stopCount];
+            viaConnections = new int[stopCount];
+            viaStops = new int[stopCount];
+            stopStamps = new int[stopCount];
+            Arrays.fill(runStamps, 0);
+            stamp = 0;
+        }
+        if(runStamps.length < runCount) {
+            boardings = new int[runCount];
+            runStamps = new int[runCount];
+            Arrays.fill(stopStamps, 0);
+            stamp = 0;
+        }
+        if(++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stopStamps, 0);
+            Arrays.fill(runStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    int arrival(int stop) {
+        return stopStamps[stop] == stamp ? arrivals[stop] : UNREACHED;
+    }
+
+    // Connection that brought the earliest arrival at the stop, or -1 when it was walked to or is the origin
+    int viaConnection(int stop) {
+        return viaConnections[stop];
+    }
+
+    // Stop walked from to reach the stop, or -1
+    int viaStop(int stop) {
+        return viaStops[stop];
+    }
+
+    void arrive(int stop, int time, int viaConnection, int viaStop) {
+        stopStamps[stop] = stamp;
+        arrivals[stop] = time;
+        viaConnections[stop] = viaConnection;
+        viaStops[stop] = viaStop;
+    }
+
+    boolean isBoarded(int run) {
+        return runStamps[run] == stamp;
+    }
+
+    // First connection of the run the rider can be on
+    int boarding(int run) {
+        return boardings[run];
+    }
+
+    void board(int run, int connection) {
+        runStamps[run] = stamp;
+        boardings[run] = connection;
+    }
+}
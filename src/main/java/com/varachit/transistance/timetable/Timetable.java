@@ -0,0 +1,225 @@
+package com.varachit.transistance.timetable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * Immutable timetable laid out for the Connection Scan Algorithm
+ * Every elementary connection (a vehicle run leaving one stop and arriving at the next) is stored in parallel
+ * primitive arrays sorted by departure time, so an earliest-arrival query is a forward scan over contiguous memory.
+ * Runs are the individual vehicle journeys, a frequency-based trip contributes one run per departure.
+ * Footpaths between nearby stops are kept in compressed sparse row form.
+ * For round-based planning the runs are also grouped into route patterns, runs calling at the same stops in
+ * departure order, with a row-major arrival and departure matrix per pattern and the patterns serving each stop
+ */
+public final class Timetable {
+    private final long version;
+    private final String[] codes;
+    private final String[] names;
+    private final Map<String, Integer> stopIndex;
+
+    private final int[] departureStop;
+    private final int[] arrivalStop;
+    private final int[] departureTime;
+    private final int[] arrivalTime;
+    private final int[] connectionRun;
+
+    private final int[] runTrip;
+    private final long[] tripIds;
+    private final String[] tripRoutes;
+    private final String[] tripHeadsigns;
+
+    private final int[] firstFootpath;
+    private final int[] footpathTarget;
+    private final int[] footpathTime;
+
+    private final int[] patternStopStart;
+    private final int[] patternStops;
+    private final int[] patternRunStart;
+    private final int[] patternRuns;
+    private final int[] patternTimeStart;
+    private final int[] patternArrivals;
+    private final int[] patternDepartures;
+    private final int[] firstStopPattern;
+    private final int[] stopPatterns;
+    private final int[] stopPatternPositions;
+    private final boolean[] interchange;
+
+    Timetable(long version, String[] codes, String[] names, Map<String, Integer> stopIndex,
+              int[] departureStop, int[] arrivalStop, int[] departureTime, int[] arrivalTime, int[] connectionRun,
+              int[] runTrip, long[] tripIds, String[] tripRoutes, String[] tripHeadsigns,
+              int[] firstFootpath, int[] footpathTarget, int[] footpathTime,
+              int[] patternStopStart, int[] patternStops, int[] patternRunStart, int[] patternRuns,
+              int[] patternTimeStart, int[] patternArrivals, int[] patternDepartures,
+              int[] firstStopPattern, int[] stopPatterns, int[] stopPatternPositions, boolean[] interchange) {
+        this.version = version;
+        this.codes = codes;
+        this.names = names;
+        this.stopIndex = stopIndex;
+        this.departureStop = departureStop;
+        this.arrivalStop = arrivalStop;
+        this.departureTime = departureTime;
+        this.arrivalTime = arrivalTime;
+        this.connectionRun = connectionRun;
+        this.runTrip = runTrip;
+        this.tripIds = tripIds;
+        this.tripRoutes = tripRoutes;
+        this.tripHeadsigns = tripHeadsigns;
+        this.firstFootpath = firstFootpath;
+        this.footpathTarget = footpathTarget;
+        this.footpathTime = footpathTime;
+        this.patternStopStart = patternStopStart;
+        this.patternStops = patternStops;
+        this.patternRunStart = patternRunStart;
+        this.patternRuns = patternRuns;
+        this.patternTimeStart = patternTimeStart;
+        this.patternArrivals = patternArrivals;
+        this.patternDepartures = patternDepartures;
+        this.firstStopPattern = firstStopPattern;
+        this.stopPatterns = stopPatterns;
+        this.stopPatternPositions = stopPatternPositions;
+        this.interchange = interchange;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getStopCount() {
+        return codes.length;
+    }
+
+    public int getConnectionCount() {
+        return departureTime.length;
+    }
+
+    public int getRunCount() {
+        return runTrip.length;
+    }
+
+    // Stop index of a station code, or -1 when no trip calls at it
+    public int indexOf(String code) {
+        Integer index = stopIndex.get(code);
+        return index == null ? -1 : index;
+    }
+
+    public String code(int stop) {
+        return codes[stop];
+    }
+
+    public String name(int stop) {
+        return names[stop];
+    }
+
+    public int departureStop(int connection) {
+        return departureStop[connection];
+    }
+
+    public int arrivalStop(int connection) {
+        return arrivalStop[connection];
+    }
+
+    public int departureTime(int connection) {
+        return departureTime[connection];
+    }
+
+    public int arrivalTime(int connection) {
+        return arrivalTime[connection];
+    }
+
+    public int run(int connection) {
+        return connectionRun[connection];
+    }
+
+    public long tripId(int run) {
+        return tripIds[runTrip[run]];
+    }
+
+    public String routeName(int run) {
+        return tripRoutes[runTrip[run]];
+    }
+
+    public String headsign(int run) {
+        return tripHeadsigns[runTrip[run]];
+    }
+
+    public int firstFootpath(int stop) {
+        return firstFootpath[stop];
+    }
+
+    public int endFootpath(int stop) {
+        return firstFootpath[stop + 1];
+    }
+
+    public int footpathTarget(int footpath) {
+        return footpathTarget[footpath];
+    }
+
+    public int footpathTime(int footpath) {
+        return footpathTime[footpath];
+    }
+
+    public int getPatternCount() {
+        return patternStopStart.length - 1;
+    }
+
+    public int patternLength(int pattern) {
+        return patternStopStart[pattern + 1] - patternStopStart[pattern];
+    }
+
+    public int patternStop(int pattern, int position) {
+        return patternStops[patternStopStart[pattern] + position];
+    }
+
+    public int patternRunCount(int pattern) {
+        return patternRunStart[pattern + 1] - patternRunStart[pattern];
+    }
+
+    // Run index of the pattern's index-th run, in departure order
+    public int patternRun(int pattern, int index) {
+        return patternRuns[patternRunStart[pattern] + index];
+    }
+
+    public int patternArrival(int pattern, int index, int position) {
+        return patternArrivals[patternTimeStart[pattern] + index * patternLength(pattern) + position];
+    }
+
+    public int patternDeparture(int pattern, int index, int position) {
+        return patternDepartures[patternTimeStart[pattern] + index * patternLength(pattern) + position];
+    }
+
+    public int firstStopPattern(int stop) {
+        return firstStopPattern[stop];
+    }
+
+    public int endStopPattern(int stop) {
+        return firstStopPattern[stop + 1];
+    }
+
+    public int stopPattern(int index) {
+        return stopPatterns[index];
+    }
+
+    // Position of the stop within stopPattern(index)
+    public int stopPatternPosition(int index) {
+        return stopPatternPositions[index];
+    }
+
+    // Whether riders can change runs at the stop: it is served by two patterns or has a footpath
+    public boolean isInterchange(int stop) {
+        return interchange[stop];
+    }
+
+    // Index of the first connection departing at or after the given time
+    public int firstConnectionAfter(int time) {
+        int index = Arrays.binarySearch(departureTime, time);
+        if(index < 0) {
+            return -index - 1;
+        }
+        // Step back over connections sharing the departure time
+        while(index > 0 && departureTime[index - 1] == time) {
+            index--;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,319 @@
+package com.varachit.transistance.timetable;
+
+import com.varachit.transistance.graph.IntList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Collects stops, trips, runs and footpaths, then lays them out as an immutable Timetable
+ * Connections are appended run by run and sorted by departure time once in build(); ties keep insertion
+ * order, so the connections of a run stay in travel order even when a hop takes no time
+ */
+public final class TimetableBuilder {
+    private final Map<String, Integer> stopIndex = new HashMap<>();
+    private final List<String> codes = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+
+    private final IntList departureStops = new IntList(1024);
+    private final IntList arrivalStops = new IntList(1024);
+    private final IntList departureTimes = new IntList(1024);
+    private final IntList arrivalTimes = new IntList(1024);
+    private final IntList connectionRuns = new IntList(1024);
+    private final IntList runTrips = new IntList();
+    // Stop times of every run, compressed sparse row by run, kept to lay out the route patterns
+    private final IntList runStopStart = new IntList();
+    private final IntList runStops = new IntList(1024);
+    private final IntList runArrivals = new IntList(1024);
+    private final IntList runDepartures = new IntList(1024);
+
+    private final List<Long> tripIds = new ArrayList<>();
+    private final List<String> tripRoutes = new ArrayList<>();
+    private final List<String> tripHeadsigns = new ArrayList<>();
+
+    private final IntList footpathFrom = new IntList();
+    private final IntList footpathTo = new IntList();
+    private final IntList footpathTimes = new IntList();
+
+    public int addStop(String code, String name) {
+        Integer existing = stopIndex.get(code);
+        if(existing != null) {
+            return existing;
+        }
+        int stop = codes.size();
+        stopIndex.put(code, stop);
+        codes.add(code);
+        names.add(name);
+        return stop;
+    }
+
+    public int addTrip(long tripId, String routeName, String headsign) {
+        tripIds.add(tripId);
+        tripRoutes.add(routeName);
+        tripHeadsigns.add(headsign);
+        return tripIds.size() - 1;
+    }
+
+    /*
+     * Add one vehicle run of the trip calling at the stops with the given times, in seconds after midnight
+     * Returns false and adds nothing when the times are negative or run backwards
+     */
+    public boolean addRun(int trip, int[] stops, int[] arrivals, int[] departures) {
+        if(stops.length < 2) {
+            return false;
+        }
+        for(int index = 0; index < stops.length; index++) {
+            if(arrivals[index] < 0 || departures[index] < arrivals[index]
+                    || (index > 0 && arrivals[index] < departures[index - 1])) {
+                return false;
+            }
+        }
+        int run = runTrips.size();
+        runTrips.add(trip);
+        runStopStart.add(runStops.size());
+        for(int index = 0; index < stops.length; index++) {
+            runStops.add(stops[index]);
+            runArrivals.add(arrivals[index]);
+            runDepartures.add(departures[index]);
+        }
+        for(int index = 0; index + 1 < stops.length; index++) {
+            departureStops.add(stops[index]);
+            arrivalStops.add(stops[index + 1]);
+            departureTimes.add(departures[index]);
+            arrivalTimes.add(arrivals[index + 1]);
+            connectionRuns.add(run);
+        }
+        return true;
+    }
+
+    // Add a walking link in both directions between two stops already added
+    public TimetableBuilder addFootpath(String fromCode, String toCode, int seconds) {
+        Integer from = stopIndex.get(fromCode);
+        Integer to = stopIndex.get(toCode);
+        if(from != null && to != null && !from.equals(to)) {
+            footpathFrom.add(from);
+            footpathTo.add(to);
+            footpathTimes.add(seconds);
+            footpathFrom.add(to);
+            footpathTo.add(from);
+            footpathTimes.add(seconds);
+        }
+        return this;
+    }
+
+    public Timetable build(long version) {
+        int connections = departureTimes.size();
+        // Departure time in the high half, insertion order in the low half: one primitive sort, stable on ties
+        long[] keys = new long[connections];
+        for(int connection = 0; connection < connections; connection++) {
+            keys[connection] = ((long) departureTimes.get(connection) << 32) | connection;
+        }
+        Arrays.sort(keys);
+
+        int[] departureStop = new int[connections];
+        int[] arrivalStop = new int[connections];
+        int[] departureTime = new int[connections];
+        int[] arrivalTime = new int[connections];
+        int[] connectionRun = new int[connections];
+        for(int index = 0; index < connections; index++) {
+            int connection = (int) keys[index];
+            departureStop[index] = departureStops.get(connection);
+            arrivalStop[index] = arrivalStops.get(connection);
+            departureTime[index] = departureTimes.get(connection);
+            arrivalTime[index] = arrivalTimes.get(connection);
+            connectionRun[index] = connectionRuns.get(connection);
+        }
+
+        // Counting sort of the footpaths by origin stop
+        int stops = codes.size();
+        int[] firstFootpath = new int[stops + 1];
+        for(int index = 0; index < footpathFrom.size(); index++) {
+            firstFootpath[footpathFrom.get(index) + 1]++;
+        }
+        for(int stop = 0; stop < stops; stop++) {
+            firstFootpath[stop + 1] += firstFootpath[stop];
+        }
+        int[] cursor = Arrays.copyOf(firstFootpath, stops);
+        int[] footpathTarget = new int[footpathFrom.size()];
+        int[] footpathTime = new int[footpathFrom.size()];
+        for(int index = 0; index < footpathFrom.size(); index++) {
+            int slot = cursor[footpathFrom.get(index)]++;
+            footpathTarget[slot] = footpathTo.get(index);
+            footpathTime[slot] = footpathTimes.get(index);
+        }
+
+        long[] ids = new long[tripIds.size()];
+        for(int trip = 0; trip < ids.length; trip++) {
+            ids[trip] = tripIds.get(trip);
+        }
+        Patterns patterns = buildPatterns(stops, firstFootpath);
+        return new Timetable(version, codes.toArray(new String[0]), names.toArray(new String[0]),
+                new HashMap<>(stopIndex), departureStop, arrivalStop, departureTime, arrivalTime, connectionRun,
+                runTrips.toArray(), ids, tripRoutes.toArray(new String[0]), tripHeadsigns.toArray(new String[0]),
+                firstFootpath, footpathTarget, footpathTime,
+                patterns.stopStart, patterns.stops, patterns.runStart, patterns.runs, patterns.timeStart,
+                patterns.arrivals, patterns.departures, patterns.firstStopPattern, patterns.stopPatterns,
+                patterns.stopPatternPositions, patterns.interchange);
+    }
+
+    /*
+     * Group runs calling at the same stop sequence into route patterns, with runs ordered by departure
+     * A run that would overtake the previous run of a pattern starts a new pattern with the same stops, so within
+     * a pattern the earliest run boardable at one stop is also the earliest at every later stop
+     */
+    private Patterns buildPatterns(int stopCount, int[] firstFootpath) {
+        int runCount = runTrips.size();
+        int[] starts = Arrays.copyOf(runStopStart.toArray(), runCount + 1);
+        starts[runCount] = runStops.size();
+        Integer[] order = new Integer[runCount];
+        for(int run = 0; run < runCount; run++) {
+            order[run] = run;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(runDepartures.get(starts[a]),
+                runDepartures.get(starts[b])));
+
+        Map<StopSequence, List<IntList>> bySequence = new HashMap<>();
+        List<IntList> patternRuns = new ArrayList<>();
+        for(int run : order) {
+            List<IntList> candidates = bySequence.computeIfAbsent(new StopSequence(runStops, starts, run),
+                    sequence -> new ArrayList<>());
+            IntList pattern = null;
+            for(IntList candidate : candidates) {
+                if(!overtakes(starts, run, candidate.get(candidate.size() - 1))) {
+                    pattern = candidate;
+                    break;
+                }
+            }
+            if(pattern == null) {
+                pattern = new IntList(8);
+                candidates.add(pattern);
+                patternRuns.add(pattern);
+            }
+            pattern.add(run);
+        }
+
+        Patterns patterns = new Patterns(patternRuns.size());
+        IntList stops = new IntList(1024);
+        IntList runs = new IntList(1024);
+        IntList arrivals = new IntList(1024);
+        IntList departures = new IntList(1024);
+        for(int pattern = 0; pattern < patternRuns.size(); pattern++) {
+            IntList members = patternRuns.get(pattern);
+            int first = members.get(0);
+            int length = starts[first + 1] - starts[first];
+            patterns.stopStart[pattern] = stops.size();
+            patterns.runStart[pattern] = runs.size();
+            patterns.timeStart[pattern] = arrivals.size();
+            for(int position = 0; position < length; position++) {
+                stops.add(runStops.get(starts[first] + position));
+            }
+            for(int member = 0; member < members.size(); member++) {
+                int run = members.get(member);
+                runs.add(run);
+                for(int position = 0; position < length; position++) {
+                    arrivals.add(runArrivals.get(starts[run] + position));
+                    departures.add(runDepartures.get(starts[run] + position));
+                }
+            }
+        }
+        int patternCount = patternRuns.size();
+        patterns.stopStart[patternCount] = stops.size();
+        patterns.runStart[patternCount] = runs.size();
+        patterns.timeStart[patternCount] = arrivals.size();
+        patterns.stops = stops.toArray();
+        patterns.runs = runs.toArray();
+        patterns.arrivals = arrivals.toArray();
+        patterns.departures = departures.toArray();
+
+        // Patterns serving each stop, and whether a rider can change to another pattern there
+        patterns.firstStopPattern = new int[stopCount + 1];
+        for(int index = 0; index < patterns.stops.length; index++) {
+            patterns.firstStopPattern[patterns.stops[index] + 1]++;
+        }
+        for(int stop = 0; stop < stopCount; stop++) {
+            patterns.firstStopPattern[stop + 1] += patterns.firstStopPattern[stop];
+        }
+        int[] cursor = Arrays.copyOf(patterns.firstStopPattern, stopCount);
+        patterns.stopPatterns = new int[patterns.stops.length];
+        patterns.stopPatternPositions = new int[patterns.stops.length];
+        for(int pattern = 0; pattern < patternCount; pattern++) {
+            for(int index = patterns.stopStart[pattern]; index < patterns.stopStart[pattern + 1]; index++) {
+                int stop = patterns.stops[index];
+                int slot = cursor[stop]++;
+                patterns.stopPatterns[slot] = pattern;
+                patterns.stopPatternPositions[slot] = index - patterns.stopStart[pattern];
+            }
+        }
+        /*
+         * Patterns, not route names: runs of one route split into several patterns when they skip stops or
+         * overtake, and a rider can change from a stopping run to the express passing it
+         */
+        patterns.interchange = new boolean[stopCount];
+        for(int stop = 0; stop < stopCount; stop++) {
+            patterns.interchange[stop] = patterns.firstStopPattern[stop + 1] - patterns.firstStopPattern[stop] > 1
+                    || firstFootpath[stop + 1] > firstFootpath[stop];
+        }
+        return patterns;
+    }
+
+    // Whether run leaves or arrives anywhere earlier than the run before it
+    private boolean overtakes(int[] starts, int run, int previous) {
+        int start = starts[run];
+        int previousStart = starts[previous];
+        for(int position = 0; position < starts[run + 1] - start; position++) {
+            if(runArrivals.get(start + position) < runArrivals.get(previousStart + position)
+                    || runDepartures.get(start + position) < runDepartures.get(previousStart + position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Patterns {
+        private final int[] stopStart;
+        private final int[] runStart;
+        private final int[] timeStart;
+        private int[] stops;
+        private int[] runs;
+        private int[] arrivals;
+        private int[] departures;
+        private int[] firstStopPattern;
+        private int[] stopPatterns;
+        private int[] stopPatternPositions;
+        private boolean[] interchange;
+
+        Patterns(int patternCount) {
+            this.stopStart = new int[patternCount + 1];
+            this.runStart = new int[patternCount + 1];
+            this.timeStart = new int[patternCount + 1];
+        }
+    }
+
+    // Stop sequence of a run, compared by value to group runs into patterns
+    private static final class StopSequence {
+        private final int[] stops;
+        private final int hash;
+
+        StopSequence(IntList runStops, int[] starts, int run) {
+            int start = starts[run];
+            this.stops = new int[starts[run + 1] - start];
+            for(int position = 0; position < stops.length; position++) {
+                stops[position] = runStops.get(start + position);
+            }
+            this.hash = Arrays.hashCode(stops);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StopSequence && Arrays.equals(stops, ((StopSequence) o).stops);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.varachit.transistance.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Keyset page cursors are the last id of the previous page, encoded so clients treat them as opaque tokens
+public final class CursorUtils {
+    private CursorUtils() {
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                     .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // A missing cursor starts from the first page, ids are generated from 1 upwards
+    public static long decode(String cursor) {
+        if(cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            long lastId = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+            if(lastId < 0) {
+                throw new NumberFormatException();
+            }
+            return lastId;
+        } catch(IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
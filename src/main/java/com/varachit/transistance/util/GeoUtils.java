@@ -0,0 +1,19 @@
+package com.varachit.transistance.util;
+
+public final class GeoUtils {
+    // Mean earth radius in metres (IUGG)
+    public static final double EARTH_RADIUS = 6_371_008.8;
+
+    private GeoUtils() {
+    }
+
+    // Great-circle distance in metres between two coordinates using the haversine formula
+    public static double haversine(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
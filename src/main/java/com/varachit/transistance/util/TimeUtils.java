@@ -0,0 +1,37 @@
+package com.varachit.transistance.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Timetable times are seconds after midnight of the service day, written as HH:mm[:ss] and allowed past 24:00
+public final class TimeUtils {
+    private static final Pattern TIME_PATTERN = Pattern.compile("(\\d{1,2}):(\\d{2})(?::(\\d{2}))?");
+
+    private TimeUtils() {
+    }
+
+    public static int parse(String time) {
+        Matcher matcher = time == null ? null : TIME_PATTERN.matcher(time.trim());
+        if(matcher == null || !matcher.matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid time");
+        }
+        int minutes = Integer.parseInt(matcher.group(2));
+        int seconds = matcher.group(3) == null ? 0 : Integer.parseInt(matcher.group(3));
+        if(minutes > 59 || seconds > 59) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid time");
+        }
+        return Integer.parseInt(matcher.group(1)) * 3600 + minutes * 60 + seconds;
+    }
+
+    public static String format(int time) {
+        return String.format("%02d:%02d:%02d", time / 3600, time / 60 % 60, time % 60);
+    }
+
+    public static int now() {
+        return LocalTime.now().toSecondOfDay();
+    }
+}
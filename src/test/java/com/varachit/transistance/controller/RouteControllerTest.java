@@ -1,11 +1,15 @@
 package com.varachit.transistance.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.varachit.transistance.dto.RouteSummary;
 import com.varachit.transistance.entity.Route;
 import com.varachit.transistance.entity.Station;
 import com.varachit.transistance.entity.StationStatus;
 import com.varachit.transistance.entity.StationType;
 import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.TableFingerprint;
+import com.varachit.transistance.repository.TripRepository;
+import com.varachit.transistance.service.CatalogueReadModel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -31,7 +35,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+// The repositories are mocked, so there is no database fingerprint to write a graph snapshot against
+@SpringBootTest(properties = "transistance.planner.snapshot-path=")
 @AutoConfigureMockMvc
 class RouteControllerTest {
     @Autowired
@@ -39,13 +44,23 @@ class RouteControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private CatalogueReadModel catalogueReadModel;
+
     @MockBean
     private RouteRepository routeRepository;
+    // The seeded trips call at the stations of the seeded routes, which the mocked repository never saves
+    @MockBean
+    private TripRepository tripRepository;
     final Logger logger = LoggerFactory.getLogger(RouteControllerTest.class);
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // Every build or patch of the transit network reads the fingerprint of both tables
+        Mockito.when(routeRepository.findFingerprint()).thenReturn(Mockito.mock(TableFingerprint.class));
+        // Reads are served from the read model, reload it from the stubs of each test
+        catalogueReadModel.invalidate();
     }
 
     @Test
@@ -79,6 +94,42 @@ class RouteControllerTest {
         assertThat(actualJsonResponse).isEqualToIgnoringWhitespace(expectedJsonResponse);
     }
 
+    @Test
+    void getRouteSummariesTest_ShouldReturnRoutesWithoutStations_ThenAssertionSucceeds() throws Exception {
+        // GET : getRouteSummaries - /api/v1/route/summary
+        String URI = "/api/v1/route/summary";
+
+        Route SukhumvitLineNorth = Route.builder()
+                .id(1L)
+                .name("North Sukhumvit Line")
+                .type(StationType.BTS)
+                .stations(new LinkedList<>(List.of(
+                        new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                        new Station("Ratchathewi", "N1", 13.7474478, 100.5331504, StationType.BTS))))
+                .build();
+
+        Route BlueLine = Route.builder()
+                .id(2L)
+                .name("Blue Line")
+                .type(StationType.MRT)
+                .stations(new LinkedList<>())
+                .build();
+
+        List<RouteSummary> summaries = Arrays.asList(
+                new RouteSummary(1L, "North Sukhumvit Line", StationType.BTS, 2L),
+                new RouteSummary(2L, "Blue Line", StationType.MRT, 0L));
+
+        Mockito.when(routeRepository.findAll()).thenReturn(Arrays.asList(SukhumvitLineNorth, BlueLine));
+        ResultActions resultActions = mockMvc.perform(MockMvcRequestBuilders.get(URI))
+                .andDo(print()).andExpect(status().isOk());
+        MvcResult mvcResult = resultActions.andReturn();
+
+        String expectedJsonResponse = objectMapper.writeValueAsString(summaries);
+        String actualJsonResponse = mvcResult.getResponse().getContentAsString();
+        assertThat(actualJsonResponse).isEqualToIgnoringWhitespace(expectedJsonResponse);
+        assertThat(actualJsonResponse).doesNotContain("stations");
+    }
+
     @Test
     void getRouteTest_ShouldReturnARoute_ThenAssertionSucceeds_IfARouteWithIdIsExists() throws Exception {
         // GET : getRoute - /api/v1/route/{routeId}
@@ -93,7 +144,7 @@ class RouteControllerTest {
                 .stations(new LinkedList<>())
                 .build();
 
-        Mockito.when(routeRepository.findById(3L)).thenReturn(Optional.of(SilomLine));
+        Mockito.when(routeRepository.findAll()).thenReturn(List.of(SilomLine));
         ResultActions resultActions = mockMvc.perform(MockMvcRequestBuilders.get(URI))
                 .andDo(print()).andExpect(status().isOk());
         MvcResult mvcResult = resultActions.andReturn();
@@ -170,6 +221,7 @@ class RouteControllerTest {
                 .build();
 
         Mockito.when(routeRepository.findById(5L)).thenReturn(Optional.of(PurpleLine));
+        Mockito.when(routeRepository.save(PurpleLine)).thenReturn(PurpleLine);
         ResultActions resultActions = mockMvc.perform(MockMvcRequestBuilders.put(URI)
                 .content(objectMapper.writeValueAsString(expectedRoute))
                 .contentType(MediaType.APPLICATION_JSON)
@@ -239,6 +291,7 @@ class RouteControllerTest {
 
 
         Mockito.when(routeRepository.findById(7L)).thenReturn(Optional.of(OrangeLine));
+        Mockito.when(routeRepository.save(OrangeLine)).thenReturn(OrangeLine);
         ResultActions resultActions = mockMvc.perform(MockMvcRequestBuilders.post(URI)
                 .content(objectMapper.writeValueAsString(stationToAdd))
                 .contentType(MediaType.APPLICATION_JSON)
@@ -283,6 +336,7 @@ class RouteControllerTest {
                 .build();
 
         Mockito.when(routeRepository.findById(7L)).thenReturn(Optional.of(OrangeLine));
+        Mockito.when(routeRepository.save(OrangeLine)).thenReturn(OrangeLine);
         ResultActions resultActions = mockMvc.perform(MockMvcRequestBuilders.delete(URI)
                 .param("stationId", "1"))
                 .andDo(print()).andExpect(status().isOk());
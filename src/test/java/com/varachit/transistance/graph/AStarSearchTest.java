@@ -0,0 +1,77 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AStarSearchTest {
+    private static final int GRID_SIZE = 20;
+
+    @Test
+    void shortestPath_AssertionSucceeds_IfAStarAndDijkstraAgreeOnTheWeightOfEveryJourney() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getGridRoutesTestcase()).build(1L);
+        Random random = new Random(2310);
+
+        for(Criteria criteria : Criteria.values()) {
+            for(int query = 0; query < 200; query++) {
+                int source = random.nextInt(graph.getNodeCount());
+                int target = random.nextInt(graph.getNodeCount());
+                Path expected = DijkstraSearch.shortestPath(graph, source, target, criteria);
+                Path actual = AStarSearch.shortestPath(graph, source, target, criteria);
+                assertEquals(expected.getWeight(), actual.getWeight());
+                assertEquals(source, actual.node(0));
+                assertEquals(target, actual.node(actual.length() - 1));
+            }
+        }
+    }
+
+    @Test
+    void shortestPath_AssertionSucceeds_IfAStarSettlesFewerNodesThanDijkstraAcrossTheNetwork() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getGridRoutesTestcase()).build(1L);
+        int source = graph.indexOf(code(GRID_SIZE / 2, 0));
+        int target = graph.indexOf(code(GRID_SIZE / 2, GRID_SIZE - 1));
+
+        for(Criteria criteria : Criteria.values()) {
+            Path dijkstra = DijkstraSearch.shortestPath(graph, source, target, criteria);
+            Path aStar = AStarSearch.shortestPath(graph, source, target, criteria);
+            assertEquals(dijkstra.getWeight(), aStar.getWeight());
+            assertTrue(aStar.getSettledNodes() < dijkstra.getSettledNodes());
+        }
+    }
+
+    // A square lattice of BTS lines running east-west crossed by MRT lines running north-south
+    List<Route> getGridRoutesTestcase() {
+        List<Route> routes = new ArrayList<>();
+        for(int row = 0; row < GRID_SIZE; row++) {
+            List<Station> stations = new ArrayList<>();
+            for(int column = 0; column < GRID_SIZE; column++) {
+                stations.add(station(row, column));
+            }
+            routes.add(new Route("Row " + row, "East West Line", StationType.BTS, stations));
+        }
+        for(int column = 0; column < GRID_SIZE; column++) {
+            List<Station> stations = new ArrayList<>();
+            for(int row = 0; row < GRID_SIZE; row++) {
+                stations.add(station(row, column));
+            }
+            routes.add(new Route("Column " + column, "North South Line", StationType.MRT, stations));
+        }
+        return routes;
+    }
+
+    Station station(int row, int column) {
+        return new Station("Station " + row + " " + column, code(row, column),
+                13.70 + row * 0.01, 100.50 + column * 0.01, StationType.BTS);
+    }
+
+    String code(int row, int column) {
+        return "G" + row + "X" + column;
+    }
+}
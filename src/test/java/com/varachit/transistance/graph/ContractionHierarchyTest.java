@@ -0,0 +1,122 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractionHierarchyTest {
+
+    @Test
+    void shortestPath_AssertionSucceeds_IfHierarchyAndDijkstraAgreeOnEveryJourney() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRandomRoutesTestcase(false)).build(1L);
+        Random random = new Random(42);
+
+        for(Criteria criteria : Criteria.values()) {
+            ContractionHierarchy hierarchy = ContractionHierarchy.build(graph, criteria);
+            for(int query = 0; query < 300; query++) {
+                int source = random.nextInt(graph.getNodeCount());
+                int target = random.nextInt(graph.getNodeCount());
+                Path expected = DijkstraSearch.shortestPath(graph, source, target, criteria);
+                Path actual = hierarchy.shortestPath(source, target);
+                if(expected == null) {
+                    assertNull(actual);
+                    continue;
+                }
+                assertEquals(expected.getWeight(), actual.getWeight());
+                assertPathIsConnected(graph, actual, source, target, criteria);
+            }
+        }
+    }
+
+    @Test
+    void shortestPath_AssertionSucceeds_IfClosedStationsAreNeverPassedThrough() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRandomRoutesTestcase(true)).build(1L);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph, Criteria.TIME);
+        Random random = new Random(7);
+
+        for(int query = 0; query < 300; query++) {
+            int source = random.nextInt(graph.getNodeCount());
+            int target = random.nextInt(graph.getNodeCount());
+            if(graph.isClosed(source) || graph.isClosed(target)) {
+                continue;
+            }
+            Path expected = DijkstraSearch.shortestPath(graph, source, target, Criteria.TIME);
+            Path actual = hierarchy.shortestPath(source, target);
+            assertEquals(expected == null, actual == null);
+            if(actual != null) {
+                assertEquals(expected.getWeight(), actual.getWeight());
+                for(int index = 1; index < actual.length() - 1; index++) {
+                    assertFalse(graph.isClosed(actual.node(index)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void shortestPath_AssertionSucceeds_IfQuerySettlesFewerNodesThanDijkstra() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRandomRoutesTestcase(false)).build(1L);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph, Criteria.DISTANCE);
+        Random random = new Random(99);
+
+        long dijkstraSettled = 0;
+        long hierarchySettled = 0;
+        for(int query = 0; query < 100; query++) {
+            int source = random.nextInt(graph.getNodeCount());
+            int target = random.nextInt(graph.getNodeCount());
+            Path expected = DijkstraSearch.shortestPath(graph, source, target, Criteria.DISTANCE);
+            Path actual = hierarchy.shortestPath(source, target);
+            if(expected != null) {
+                dijkstraSettled += expected.getSettledNodes();
+                hierarchySettled += actual.getSettledNodes();
+            }
+        }
+        assertTrue(hierarchySettled < dijkstraSettled);
+    }
+
+    void assertPathIsConnected(TransitGraph graph, Path path, int source, int target, Criteria criteria) {
+        assertEquals(source, path.node(0));
+        assertEquals(target, path.node(path.length() - 1));
+        int weight = 0;
+        for(int index = 1; index < path.length(); index++) {
+            int edge = path.edge(index);
+            assertEquals(path.node(index), graph.target(edge));
+            weight += graph.weight(edge, criteria);
+        }
+        assertEquals(path.getWeight(), weight);
+    }
+
+    // Random lines criss-crossing a city, sharing stations wherever they pass the same grid point
+    List<Route> getRandomRoutesTestcase(boolean withClosedStations) {
+        Random random = new Random(2310);
+        List<Route> routes = new ArrayList<>();
+        for(int line = 0; line < 40; line++) {
+            List<Station> stations = new ArrayList<>();
+            int row = random.nextInt(30);
+            int column = random.nextInt(30);
+            for(int stop = 0; stop < 25; stop++) {
+                Station station = new Station("Station " + row + " " + column, "R" + row + "C" + column,
+                        13.60 + row * 0.01 + (row * column % 7) * 0.001, 100.40 + column * 0.01,
+                        StationType.values()[line % 4]);
+                if(withClosedStations && (row + column) % 11 == 0) {
+                    station.setStatus(StationStatus.CLOSED);
+                }
+                stations.add(station);
+                if(random.nextBoolean()) {
+                    row = Math.max(0, Math.min(29, row + (random.nextBoolean() ? 1 : -1)));
+                } else {
+                    column = Math.max(0, Math.min(29, column + (random.nextBoolean() ? 1 : -1)));
+                }
+            }
+            routes.add(new Route("Line " + line, "Random line", StationType.values()[line % 4], stations));
+        }
+        return routes;
+    }
+}
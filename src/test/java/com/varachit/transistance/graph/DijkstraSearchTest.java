@@ -0,0 +1,85 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DijkstraSearchTest {
+    private static final int GRID_SIZE = 12;
+
+    @Test
+    void shortestPaths_AssertionSucceeds_IfEveryPathEqualsThePointToPointSearch() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getGridRoutesTestcase()).build(1L);
+        Random random = new Random(2310);
+
+        for(Criteria criteria : Criteria.values()) {
+            int source = random.nextInt(graph.getNodeCount());
+            int[] targets = new int[30];
+            for(int index = 0; index < targets.length; index++) {
+                targets[index] = random.nextInt(graph.getNodeCount());
+            }
+            targets[1] = targets[0];
+
+            Path[] paths = DijkstraSearch.shortestPaths(graph, source, targets, criteria);
+            assertEquals(targets.length, paths.length);
+            for(int index = 0; index < targets.length; index++) {
+                Path expected = DijkstraSearch.shortestPath(graph, source, targets[index], criteria);
+                assertEquals(expected.getWeight(), paths[index].getWeight());
+                assertEquals(source, paths[index].node(0));
+                assertEquals(targets[index], paths[index].node(paths[index].length() - 1));
+            }
+        }
+    }
+
+    @Test
+    void shortestPaths_AssertionSucceeds_IfUnreachableTargetsAreNull() {
+        List<Route> routes = getGridRoutesTestcase();
+        List<Station> island = new ArrayList<>();
+        island.add(new Station("Tao Poon", "PP16", 13.806133, 100.5285723, StationType.MRT));
+        island.add(new Station("Bang Son", "PP15", 13.8161, 100.5285723, StationType.MRT));
+        routes.add(new Route("Purple Line", "MRT Skytrain Purple Line", StationType.MRT, island));
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(routes).build(1L);
+
+        int source = graph.indexOf(code(0, 0));
+        Path[] paths = DijkstraSearch.shortestPaths(graph, source,
+                new int[]{graph.indexOf("PP16"), graph.indexOf(code(1, 1))}, Criteria.DISTANCE);
+        assertNull(paths[0]);
+        assertNotNull(paths[1]);
+    }
+
+    // A square lattice of BTS lines running east-west crossed by MRT lines running north-south
+    List<Route> getGridRoutesTestcase() {
+        List<Route> routes = new ArrayList<>();
+        for(int row = 0; row < GRID_SIZE; row++) {
+            List<Station> stations = new ArrayList<>();
+            for(int column = 0; column < GRID_SIZE; column++) {
+                stations.add(station(row, column));
+            }
+            routes.add(new Route("Row " + row, "East West Line", StationType.BTS, stations));
+        }
+        for(int column = 0; column < GRID_SIZE; column++) {
+            List<Station> stations = new ArrayList<>();
+            for(int row = 0; row < GRID_SIZE; row++) {
+                stations.add(station(row, column));
+            }
+            routes.add(new Route("Column " + column, "North South Line", StationType.MRT, stations));
+        }
+        return routes;
+    }
+
+    Station station(int row, int column) {
+        return new Station("Station " + row + " " + column, code(row, column),
+                13.70 + row * 0.01, 100.50 + column * 0.01, StationType.BTS);
+    }
+
+    String code(int row, int column) {
+        return "G" + row + "X" + column;
+    }
+}
@@ -0,0 +1,91 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsochroneSearchTest {
+    private static final int GRID_SIZE = 12;
+
+    @Test
+    void reachable_AssertionSucceeds_IfExactlyTheStationsWithinTheBudgetAreReturnedWithTheirDijkstraTimes() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getGridRoutesTestcase()).build(1L);
+        int source = graph.indexOf(code(GRID_SIZE / 2, GRID_SIZE / 2));
+        int budget = 600;
+
+        IsochroneSearch.Reachability reachability = IsochroneSearch.reachable(graph, source, budget);
+        int[] times = new int[graph.getNodeCount()];
+        java.util.Arrays.fill(times, -1);
+        for(int index = 0; index < reachability.size(); index++) {
+            times[reachability.node(index)] = reachability.time(index);
+            if(index > 0) {
+                assertTrue(reachability.time(index - 1) <= reachability.time(index));
+            }
+        }
+
+        int reached = 0;
+        for(int target = 0; target < graph.getNodeCount(); target++) {
+            Path path = DijkstraSearch.shortestPath(graph, source, target, Criteria.TIME);
+            if(path.getWeight() <= budget) {
+                assertEquals(path.getWeight(), times[target]);
+                reached++;
+            } else {
+                assertEquals(-1, times[target]);
+            }
+        }
+        assertEquals(reached, reachability.size());
+        assertTrue(reached > 1 && reached < graph.getNodeCount());
+    }
+
+    @Test
+    void reachable_AssertionSucceeds_IfClosedStationsAreNeitherReturnedNorPassedThrough() {
+        List<Station> stations = new ArrayList<>();
+        for(int column = 0; column < 4; column++) {
+            stations.add(station(0, column));
+        }
+        stations.get(1).setStatus(StationStatus.UNDER_CONSTRUCTION);
+        List<Route> routes = new ArrayList<>();
+        routes.add(new Route("Row 0", "East West Line", StationType.BTS, stations));
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(routes).build(1L);
+
+        IsochroneSearch.Reachability reachability = IsochroneSearch.reachable(graph, graph.indexOf(code(0, 0)), 3600);
+        assertEquals(1, reachability.size());
+        assertEquals(0, reachability.time(0));
+    }
+
+    // A square lattice of BTS lines running east-west crossed by MRT lines running north-south
+    List<Route> getGridRoutesTestcase() {
+        List<Route> routes = new ArrayList<>();
+        for(int row = 0; row < GRID_SIZE; row++) {
+            List<Station> stations = new ArrayList<>();
+            for(int column = 0; column < GRID_SIZE; column++) {
+                stations.add(station(row, column));
+            }
+            routes.add(new Route("Row " + row, "East West Line", StationType.BTS, stations));
+        }
+        for(int column = 0; column < GRID_SIZE; column++) {
+            List<Station> stations = new ArrayList<>();
+            for(int row = 0; row < GRID_SIZE; row++) {
+                stations.add(station(row, column));
+            }
+            routes.add(new Route("Column " + column, "North South Line", StationType.MRT, stations));
+        }
+        return routes;
+    }
+
+    Station station(int row, int column) {
+        return new Station("Station " + row + " " + column, code(row, column),
+                13.70 + row * 0.01, 100.50 + column * 0.01, StationType.BTS);
+    }
+
+    String code(int row, int column) {
+        return "G" + row + "X" + column;
+    }
+}
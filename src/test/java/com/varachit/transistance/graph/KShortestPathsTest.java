@@ -0,0 +1,118 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KShortestPathsTest {
+    private static final int GRID_SIZE = 4;
+
+    @Test
+    void shortestPaths_AssertionSucceeds_IfWeightsEqualTheKLightestSimplePathsOfAnExhaustiveSearch() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getGridRoutesTestcase()).build(1L);
+        int source = graph.indexOf(code(0, 0));
+        int target = graph.indexOf(code(GRID_SIZE - 1, GRID_SIZE - 1));
+
+        for(Criteria criteria : Criteria.values()) {
+            List<Integer> expected = new ArrayList<>();
+            enumerate(graph, graph.weights(criteria), source, target, new boolean[graph.getNodeCount()], 0, expected);
+            expected.sort(Integer::compare);
+
+            List<Path> paths = KShortestPaths.shortestPaths(graph, source, target, criteria, 20, Long.MAX_VALUE);
+            assertEquals(20, paths.size());
+            Set<List<Integer>> sequences = new HashSet<>();
+            for(int index = 0; index < paths.size(); index++) {
+                Path path = paths.get(index);
+                assertEquals(expected.get(index).intValue(), path.getWeight());
+                assertValidSimplePath(graph, graph.weights(criteria), path, source, target);
+                List<Integer> sequence = new ArrayList<>();
+                for(int edge : path.getEdges()) {
+                    sequence.add(edge);
+                }
+                assertTrue(sequences.add(sequence));
+            }
+        }
+    }
+
+    @Test
+    void shortestPaths_AssertionSucceeds_IfFirstPathEqualsDijkstraAndAnExpiredDeadlineKeepsOnlyIt() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getGridRoutesTestcase()).build(1L);
+        int source = graph.indexOf(code(0, 0));
+        int target = graph.indexOf(code(GRID_SIZE - 1, GRID_SIZE - 1));
+
+        List<Path> paths = KShortestPaths.shortestPaths(graph, source, target, Criteria.TIME, 5, System.nanoTime() - 1);
+        assertEquals(1, paths.size());
+        assertEquals(DijkstraSearch.shortestPath(graph, source, target, Criteria.TIME).getWeight(),
+                paths.get(0).getWeight());
+    }
+
+    void assertValidSimplePath(TransitGraph graph, int[] weights, Path path, int source, int target) {
+        assertEquals(source, path.node(0));
+        assertEquals(target, path.node(path.length() - 1));
+        Set<Integer> visited = new HashSet<>();
+        int weight = 0;
+        for(int index = 0; index < path.length(); index++) {
+            assertTrue(visited.add(path.node(index)));
+            if(index > 0) {
+                int edge = path.edge(index);
+                assertTrue(edge >= graph.firstEdge(path.node(index - 1)) && edge < graph.endEdge(path.node(index - 1)));
+                assertEquals(path.node(index), graph.target(edge));
+                weight += weights[edge];
+            }
+        }
+        assertEquals(path.getWeight(), weight);
+    }
+
+    // Depth-first enumeration of every simple path, one entry per distinct edge sequence
+    void enumerate(TransitGraph graph, int[] weights, int node, int target, boolean[] visited, int weight,
+                   List<Integer> weightsFound) {
+        if(node == target) {
+            weightsFound.add(weight);
+            return;
+        }
+        visited[node] = true;
+        for(int edge = graph.firstEdge(node); edge < graph.endEdge(node); edge++) {
+            if(!visited[graph.target(edge)]) {
+                enumerate(graph, weights, graph.target(edge), target, visited, weight + weights[edge], weightsFound);
+            }
+        }
+        visited[node] = false;
+    }
+
+    // A square lattice of BTS lines running east-west crossed by MRT lines running north-south
+    List<Route> getGridRoutesTestcase() {
+        List<Route> routes = new ArrayList<>();
+        for(int row = 0; row < GRID_SIZE; row++) {
+            List<Station> stations = new ArrayList<>();
+            for(int column = 0; column < GRID_SIZE; column++) {
+                stations.add(station(row, column));
+            }
+            routes.add(new Route("Row " + row, "East West Line", StationType.BTS, stations));
+        }
+        for(int column = 0; column < GRID_SIZE; column++) {
+            List<Station> stations = new ArrayList<>();
+            for(int row = 0; row < GRID_SIZE; row++) {
+                stations.add(station(row, column));
+            }
+            routes.add(new Route("Column " + column, "North South Line", StationType.MRT, stations));
+        }
+        return routes;
+    }
+
+    Station station(int row, int column) {
+        return new Station("Station " + row + " " + column, code(row, column),
+                13.70 + row * 0.01 + column * 0.0013, 100.50 + column * 0.01 + row * 0.0007, StationType.BTS);
+    }
+
+    String code(int row, int column) {
+        return "G" + row + "X" + column;
+    }
+}
@@ -0,0 +1,107 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitGraphPatchTest {
+
+    @Test
+    void apply_AssertionSucceeds_IfClosingAStationLeavesTheOriginalGraphUntouched() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRoutesTestcase()).build(1L);
+        TransitGraph patched = new TransitGraphPatch(graph).setClosed(graph.indexOf("E2"), true).apply(2L);
+
+        assertEquals(2L, patched.getVersion());
+        assertTrue(patched.isClosed(patched.indexOf("E2")));
+        assertFalse(graph.isClosed(graph.indexOf("E2")));
+        assertNull(DijkstraSearch.shortestPath(patched, patched.indexOf("CEN"), patched.indexOf("E4"), Criteria.TIME));
+        assertNotNull(DijkstraSearch.shortestPath(graph, graph.indexOf("CEN"), graph.indexOf("E4"), Criteria.TIME));
+
+        List<Route> routes = getRoutesTestcase();
+        routes.get(0).getStations().get(2).setStatus(StationStatus.CLOSED);
+        assertSameDistances(new TransitGraphBuilder().addRoutes(routes).build(3L), patched);
+    }
+
+    @Test
+    void apply_AssertionSucceeds_IfRemovingAStationFromARouteMatchesABuildWithoutIt() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRoutesTestcase()).build(1L);
+        int sukhumvit = graph.indexOfRoute("Sukhumvit");
+        int chitLom = graph.indexOf("E1");
+        int phloenChit = graph.indexOf("E2");
+        int nana = graph.indexOf("E3");
+        TransitGraph patched = new TransitGraphPatch(graph)
+                .removeRouteEdges(phloenChit, chitLom, sukhumvit)
+                .removeRouteEdges(phloenChit, nana, sukhumvit)
+                .addRouteEdge(chitLom, nana, sukhumvit, StationType.BTS)
+                .apply(2L);
+
+        assertEquals(graph.getEdgeCount() - 2, patched.getEdgeCount());
+        assertEquals(0, patched.endEdge(phloenChit) - patched.firstEdge(phloenChit));
+        assertEquals(2, graph.endEdge(phloenChit) - graph.firstEdge(phloenChit));
+
+        List<Route> routes = getRoutesTestcase();
+        routes.get(0).getStations().remove(2);
+        assertSameDistances(new TransitGraphBuilder().addRoutes(routes).build(3L), patched);
+    }
+
+    @Test
+    void apply_AssertionSucceeds_IfAppendingAStationToARouteMatchesABuildWithIt() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRoutesTestcase()).build(1L);
+        int blueLine = graph.indexOfRoute("Blue Line");
+        TransitGraph patched = new TransitGraphPatch(graph)
+                .addRouteEdge(graph.indexOf("BL24"), graph.indexOf("E4"), blueLine, StationType.MRT)
+                .apply(2L);
+
+        List<Route> routes = getRoutesTestcase();
+        routes.get(1).getStations().add(new Station("Asok", "E4", 13.7361653,100.5588965, StationType.BTS));
+        assertSameDistances(new TransitGraphBuilder().addRoutes(routes).build(3L), patched);
+        assertNull(DijkstraSearch.shortestPath(graph, graph.indexOf("CEN"), graph.indexOf("BL22"), Criteria.TIME));
+    }
+
+    // Every pair of stations present in both graphs is equally far apart in each, or unreachable in both
+    void assertSameDistances(TransitGraph expected, TransitGraph actual) {
+        for(Criteria criteria : Criteria.values()) {
+            for(int from = 0; from < expected.getNodeCount(); from++) {
+                for(int to = 0; to < expected.getNodeCount(); to++) {
+                    Path expectedPath = DijkstraSearch.shortestPath(expected, from, to, criteria);
+                    Path actualPath = DijkstraSearch.shortestPath(actual, actual.indexOf(expected.code(from)),
+                            actual.indexOf(expected.code(to)), criteria);
+                    assertEquals(expectedPath == null, actualPath == null);
+                    if(expectedPath != null) {
+                        assertEquals(expectedPath.getWeight(), actualPath.getWeight());
+                    }
+                }
+            }
+        }
+    }
+
+    List<Route> getRoutesTestcase() {
+        return Arrays.asList(
+                new Route("Sukhumvit", "BTS Skytrain Sukhumvit Line", StationType.BTS, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                            new Station("Chit Lom", "E1", 13.7481608, 100.5409774, StationType.BTS),
+                            new Station("Phloen Chit", "E2", 13.743768,100.5446164, StationType.BTS),
+                            new Station("Nana", "E3", 13.7408864,100.5492513, StationType.BTS),
+                            new Station("Asok", "E4", 13.7361653,100.5588965, StationType.BTS)
+                        )
+                )),
+
+                new Route("Blue Line", "MRT Underground Train Blue Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Sukhumvit", "BL22", 13.7380479,100.5603774, StationType.MRT),
+                            new Station("Queen Sirikit National Convention Centre", "BL23", 13.7231519,100.5601019, StationType.MRT),
+                            new Station("Khlong Toei", "BL24", 13.7223044,100.5517262, StationType.MRT)
+                        )
+                ))
+        );
+    }
+}
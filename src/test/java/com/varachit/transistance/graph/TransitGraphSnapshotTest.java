@@ -0,0 +1,104 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitGraphSnapshotTest {
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("transit-graph", ".snapshot");
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void read_AssertionSucceeds_IfTheSnapshotRestoresEveryArrayOfTheGraph() throws IOException {
+        List<Route> routes = getRoutesTestcase();
+        routes.get(0).getStations().get(2).setStatus(StationStatus.CLOSED);
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(routes).addTransfers(300).build(7L);
+        TransitGraphSnapshot.write(graph, 42L, file);
+
+        TransitGraph restored = TransitGraphSnapshot.read(file, 42L);
+        assertNotNull(restored);
+        assertEquals(7L, restored.getVersion());
+        assertEquals(graph.getNodeCount(), restored.getNodeCount());
+        assertEquals(graph.getEdgeCount(), restored.getEdgeCount());
+        for(int node = 0; node < graph.getNodeCount(); node++) {
+            assertEquals(node, restored.indexOf(graph.code(node)));
+            assertEquals(graph.name(node), restored.name(node));
+            assertEquals(graph.stationId(node), restored.stationId(node));
+            assertEquals(graph.latitude(node), restored.latitude(node));
+            assertEquals(graph.longitude(node), restored.longitude(node));
+            assertEquals(graph.type(node), restored.type(node));
+            assertEquals(graph.isClosed(node), restored.isClosed(node));
+            assertEquals(graph.firstEdge(node), restored.firstEdge(node));
+            assertEquals(graph.endEdge(node), restored.endEdge(node));
+        }
+        for(int edge = 0; edge < graph.getEdgeCount(); edge++) {
+            assertEquals(graph.target(edge), restored.target(edge));
+            assertEquals(graph.distance(edge), restored.distance(edge));
+            assertEquals(graph.time(edge), restored.time(edge));
+            assertEquals(graph.routeName(graph.route(edge)), restored.routeName(restored.route(edge)));
+        }
+    }
+
+    @Test
+    void read_ReturnNull_ThenAssertionSucceeds_IfTheDatabaseChangedSinceTheSnapshotWasWritten() throws IOException {
+        TransitGraphSnapshot.write(new TransitGraphBuilder().addRoutes(getRoutesTestcase()).build(1L), 42L, file);
+        assertNull(TransitGraphSnapshot.read(file, 43L));
+        assertNull(TransitGraphSnapshot.read(new File(file.getPath() + ".missing"), 42L));
+    }
+
+    @Test
+    void read_ThrowIOException_ThenAssertionSucceeds_IfTheSnapshotIsCorrupted() throws IOException {
+        TransitGraphSnapshot.write(new TransitGraphBuilder().addRoutes(getRoutesTestcase()).build(1L), 42L, file);
+        try(RandomAccessFile corrupted = new RandomAccessFile(file, "rw")) {
+            corrupted.seek(60);
+            int value = corrupted.read();
+            corrupted.seek(60);
+            corrupted.write(value ^ 0xFF);
+        }
+        assertThrows(IOException.class, () -> TransitGraphSnapshot.read(file, 42L));
+    }
+
+    List<Route> getRoutesTestcase() {
+        return Arrays.asList(
+                new Route("Sukhumvit", "BTS Skytrain Sukhumvit Line", StationType.BTS, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                            new Station("Chit Lom", "E1", 13.7481608, 100.5409774, StationType.BTS),
+                            new Station("Phloen Chit", "E2", 13.743768,100.5446164, StationType.BTS),
+                            new Station("Nana", "E3", 13.7408864,100.5492513, StationType.BTS),
+                            new Station("Asok", "E4", 13.7361653,100.5588965, StationType.BTS)
+                        )
+                )),
+
+                new Route("Blue Line", "MRT Underground Train Blue Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Sukhumvit", "BL22", 13.7380479,100.5603774, StationType.MRT),
+                            new Station("Queen Sirikit National Convention Centre", "BL23", 13.7231519,100.5601019, StationType.MRT),
+                            new Station("Khlong Toei", "BL24", 13.7223044,100.5517262, StationType.MRT)
+                        )
+                ))
+        );
+    }
+}
@@ -0,0 +1,112 @@
+package com.varachit.transistance.graph;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitGraphTest {
+
+    @Test
+    void build_AssertionSucceeds_IfEveryConsecutiveStationPairIsConnectedInBothDirections() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRoutesTestcase()).build(1L);
+
+        assertEquals(1L, graph.getVersion());
+        assertEquals(8, graph.getNodeCount());
+        // (5 - 1) hops on the Sukhumvit line and (3 - 1) hops on the Blue line, both directions
+        assertEquals(12, graph.getEdgeCount());
+
+        int nana = graph.indexOf("E3");
+        assertEquals("Nana", graph.name(nana));
+        assertEquals(StationType.BTS, graph.type(nana));
+        assertEquals(2, graph.endEdge(nana) - graph.firstEdge(nana));
+        assertEquals(1, graph.endEdge(graph.indexOf("E4")) - graph.firstEdge(graph.indexOf("E4")));
+        assertEquals(-1, graph.indexOf("XX1"));
+    }
+
+    @Test
+    void addTransfers_AssertionSucceeds_IfOnlyNearbyStationsOfDifferentRoutesAreConnected() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRoutesTestcase()).addTransfers(300).build(1L);
+
+        // Asok and Sukhumvit are about 260 metres apart, every other pair is on the same route or further away
+        assertEquals(14, graph.getEdgeCount());
+        int asok = graph.indexOf("E4");
+        int sukhumvit = graph.indexOf("BL22");
+        assertTrue(graph.isInterchange(asok));
+        assertTrue(graph.isInterchange(sukhumvit));
+        assertFalse(graph.isInterchange(graph.indexOf("E3")));
+
+        Path path = DijkstraSearch.shortestPath(graph, graph.indexOf("E3"), graph.indexOf("BL24"), Criteria.TIME);
+        assertNotNull(path);
+        assertEquals(sukhumvit, path.node(2));
+        assertTrue(graph.isTransfer(path.edge(2)));
+        assertEquals(TransitGraph.TRANSFER, graph.route(path.edge(2)));
+        assertNull(graph.routeName(graph.route(path.edge(2))));
+    }
+
+    @Test
+    void shortestPath_AssertionSucceeds_IfPathFollowsTheRouteAndWeightIsTheSumOfItsEdges() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRoutesTestcase()).build(1L);
+        int siam = graph.indexOf("CEN");
+        int asok = graph.indexOf("E4");
+
+        Path path = DijkstraSearch.shortestPath(graph, siam, asok, Criteria.DISTANCE);
+        assertNotNull(path);
+        assertEquals(5, path.length());
+        assertEquals("CEN", graph.code(path.node(0)));
+        assertEquals("E4", graph.code(path.node(4)));
+
+        int weight = 0;
+        for(int index = 1; index < path.length(); index++) {
+            weight += graph.distance(path.edge(index));
+        }
+        assertEquals(weight, path.getWeight());
+        assertTrue(path.getWeight() > 1500 && path.getWeight() < 3500);
+    }
+
+    @Test
+    void shortestPath_ReturnNull_ThenAssertionSucceeds_IfTargetIsOnAnUnconnectedRoute() {
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(getRoutesTestcase()).build(1L);
+        assertNull(DijkstraSearch.shortestPath(graph, graph.indexOf("E4"), graph.indexOf("BL24"), Criteria.DISTANCE));
+    }
+
+    @Test
+    void shortestPath_ReturnNull_ThenAssertionSucceeds_IfTheOnlyPathPassesAClosedStation() {
+        List<Route> routes = getRoutesTestcase();
+        routes.get(0).getStations().get(2).setStatus(StationStatus.CLOSED); // Phloen Chit
+        TransitGraph graph = new TransitGraphBuilder().addRoutes(routes).build(1L);
+
+        assertTrue(graph.isClosed(graph.indexOf("E2")));
+        assertNull(DijkstraSearch.shortestPath(graph, graph.indexOf("CEN"), graph.indexOf("E4"), Criteria.DISTANCE));
+        assertNotNull(DijkstraSearch.shortestPath(graph, graph.indexOf("CEN"), graph.indexOf("E1"), Criteria.DISTANCE));
+    }
+
+    List<Route> getRoutesTestcase() {
+        return Arrays.asList(
+                new Route("Sukhumvit", "BTS Skytrain Sukhumvit Line", StationType.BTS, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                            new Station("Chit Lom", "E1", 13.7481608, 100.5409774, StationType.BTS),
+                            new Station("Phloen Chit", "E2", 13.743768,100.5446164, StationType.BTS),
+                            new Station("Nana", "E3", 13.7408864,100.5492513, StationType.BTS),
+                            new Station("Asok", "E4", 13.7361653,100.5588965, StationType.BTS)
+                        )
+                )),
+
+                new Route("Blue Line", "MRT Underground Train Blue Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Sukhumvit", "BL22", 13.7380479,100.5603774, StationType.MRT),
+                            new Station("Queen Sirikit National Convention Centre", "BL23", 13.7231519,100.5601019, StationType.MRT),
+                            new Station("Khlong Toei", "BL24", 13.7223044,100.5517262, StationType.MRT)
+                        )
+                ))
+        );
+    }
+}
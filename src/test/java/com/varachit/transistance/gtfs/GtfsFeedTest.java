@@ -0,0 +1,111 @@
+package com.varachit.transistance.gtfs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GtfsFeedTest {
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("gtfs", ".zip");
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void read_AssertionSucceeds_IfQuotedFieldsByteOrderMarksAndCarriageReturnsAreParsed() throws IOException {
+        writeFeed(file, stopTimesTestcase(3));
+        GtfsFeed feed = GtfsFeed.read(file, 2);
+
+        assertEquals("Bangkok Mass Transit, \"BTS\"", feed.getRoutes().get(0).getAgencyName());
+        assertEquals("Sukhumvit Line", feed.getRoutes().get(0).getLongName());
+        assertEquals(3, feed.getStops().size());
+        assertEquals("Siam", feed.getStops().get(0).getName());
+        assertTrue(feed.getStops().get(0).isStation());
+        assertEquals("CEN", feed.getStops().get(1).getParentId());
+        assertEquals(13.7455902, feed.getStops().get(2).getLatitude());
+        assertEquals(1, feed.getFrequencies(0).size());
+        assertEquals(5 * 3600 + 30 * 60, feed.getFrequencies(0).get(0).getStart());
+
+        assertEquals(9, feed.stopTimeCount());
+        assertEquals(2, feed.stopTimeStop(0));
+        assertEquals(25 * 3600 + 60, feed.stopTimeArrival(1));
+        assertEquals(-1, feed.stopTimeDeparture(2));
+    }
+
+    @Test
+    void read_AssertionSucceeds_IfStopTimesParsedInSmallParallelBlocksMatchASingleBlock() throws IOException {
+        writeFeed(file, stopTimesTestcase(500));
+        GtfsFeed expected = GtfsFeed.read(file, 1, 1 << 20);
+        // Blocks shorter than a record force the buffer to grow, short blocks cut records at every boundary
+        for(int blockSize : new int[] {8, 64, 1000}) {
+            GtfsFeed actual = GtfsFeed.read(file, 4, blockSize);
+            assertEquals(expected.stopTimeCount(), actual.stopTimeCount());
+            for(int row = 0; row < expected.stopTimeCount(); row++) {
+                assertEquals(expected.stopTimeTrip(row), actual.stopTimeTrip(row));
+                assertEquals(expected.stopTimeStop(row), actual.stopTimeStop(row));
+                assertEquals(expected.stopTimeSequence(row), actual.stopTimeSequence(row));
+                assertEquals(expected.stopTimeArrival(row), actual.stopTimeArrival(row));
+                assertEquals(expected.stopTimeDeparture(row), actual.stopTimeDeparture(row));
+            }
+        }
+    }
+
+    @Test
+    void read_ThrowIllegalArgumentException_ThenAssertionSucceeds_IfAStopTimeNamesAnUnknownStop() throws IOException {
+        writeFeed(file, "trip_id,arrival_time,departure_time,stop_id,stop_sequence\nT0,05:30:00,05:30:00,X9,1\n");
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> GtfsFeed.read(file, 2));
+        assertTrue(exception.getMessage().contains("Unknown stop X9"));
+    }
+
+    // Trips T0..T(count - 1) calling at E1, the Siam platform and E1 again on the next service day
+    String stopTimesTestcase(int count) {
+        StringBuilder stopTimes = new StringBuilder("trip_id,arrival_time,departure_time,stop_id,stop_sequence\r\n");
+        for(int trip = 0; trip < count; trip++) {
+            stopTimes.append("T").append(trip).append(",24:59:00,25:00:00,E1,1\r\n")
+                     .append("T").append(trip).append(",25:01:00,25:01:30,\"CEN1\",2\r\n")
+                     .append("T").append(trip).append(",,,E1,3\r\n");
+        }
+        return stopTimes.toString();
+    }
+
+    void writeFeed(File file, String stopTimes) throws IOException {
+        StringBuilder trips = new StringBuilder("trip_id,route_id,trip_headsign\n");
+        for(int trip = 0; trip < 500; trip++) {
+            trips.append("T").append(trip).append(",SUK,Kheha\n");
+        }
+        try(ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            write(zip, "agency.txt", "\uFEFFagency_id,agency_name\nBTSC,\"Bangkok Mass Transit, \"\"BTS\"\"\"\n");
+            write(zip, "stops.txt", "stop_id,stop_name,stop_lat,stop_lon,location_type,parent_station\r\n" +
+                    "CEN,Siam,13.7455902,100.5331048,1,\r\n" +
+                    "CEN1,Siam Platform 1,13.7455902,100.5331048,0,CEN\r\n" +
+                    "CEN-E,Siam Exit 1,13.7455,100.5331,2,CEN\r\n" +
+                    "E1,Chit Lom,13.7455902,100.5409774,,\r\n");
+            write(zip, "routes.txt", "route_id,agency_id,route_short_name,route_long_name,route_type\n" +
+                    "SUK,BTSC,Sukhumvit,\"Sukhumvit Line\",0\n");
+            write(zip, "trips.txt", trips.toString());
+            write(zip, "frequencies.txt", "trip_id,start_time,end_time,headway_secs\nT0,05:30:00,24:00:00,300\n");
+            write(zip, "stop_times.txt", stopTimes);
+        }
+    }
+
+    void write(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
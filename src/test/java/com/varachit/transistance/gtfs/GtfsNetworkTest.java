@@ -0,0 +1,136 @@
+package com.varachit.transistance.gtfs;
+
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.gtfs.GtfsNetwork.LinePattern;
+import com.varachit.transistance.gtfs.GtfsNetwork.TripStops;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GtfsNetworkTest {
+    // Trip indices in trips.txt order
+    private static final int SUKHUMVIT_OUTBOUND = 0;
+    private static final int SUKHUMVIT_INBOUND = 1;
+    private static final int SUKHUMVIT_SHORT = 2;
+    private static final int BLUE_LINE = 3;
+    private static final int BUS = 4;
+
+    private File file;
+    private GtfsNetwork network;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("gtfs", ".zip");
+        writeFeed(file);
+        network = GtfsNetwork.build(GtfsFeed.read(file, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void build_AssertionSucceeds_IfOppositeDirectionsShareOneLineAndEachStopSequenceIsALine() {
+        List<LinePattern> patterns = network.getPatterns();
+        assertEquals(3, patterns.size());
+        assertEquals(network.getTripPattern(SUKHUMVIT_OUTBOUND), network.getTripPattern(SUKHUMVIT_INBOUND));
+        assertNotEquals(network.getTripPattern(SUKHUMVIT_OUTBOUND), network.getTripPattern(SUKHUMVIT_SHORT));
+        assertEquals(-1, network.getTripPattern(BUS));
+
+        LinePattern sukhumvit = patterns.get(network.getTripPattern(SUKHUMVIT_OUTBOUND));
+        assertEquals("Sukhumvit 1", sukhumvit.getName());
+        assertEquals("Sukhumvit Line", sukhumvit.getDescription(network.getFeed()));
+        assertEquals("Blue Line", patterns.get(network.getTripPattern(BLUE_LINE)).getName());
+    }
+
+    @Test
+    void build_AssertionSucceeds_IfPlatformsAreMergedIntoTheirParentStation() {
+        LinePattern sukhumvit = network.getPatterns().get(network.getTripPattern(SUKHUMVIT_OUTBOUND));
+        assertEquals(4, sukhumvit.getStations().length);
+        assertEquals("Siam", network.stationName(sukhumvit.getStations()[1]));
+        assertEquals("SUKHUMVITP1CEN", sukhumvit.stationCode(network.getFeed(), 1));
+        // Names outside the validated character set are cleaned up
+        assertEquals("Phloen Chit BTS", network.stationName(sukhumvit.getStations()[3]));
+    }
+
+    @Test
+    void tripStops_AssertionSucceeds_IfTheInboundTripRunsTheLineBackwardsWithInterpolatedTimes() {
+        TripStops outbound = network.tripStops(SUKHUMVIT_OUTBOUND);
+        assertArrayEquals(new int[] {0, 1, 2, 3}, outbound.getPositions());
+        // Chit Lom has no times, it is placed halfway between the Siam departure and the Phloen Chit arrival
+        assertEquals(6 * 3600 + 3 * 60 + 30, outbound.getArrivals()[2]);
+        // Arrival at the first platform of Siam, departure from the second
+        assertEquals(6 * 3600 + 60, outbound.getArrivals()[1]);
+        assertEquals(6 * 3600 + 2 * 60, outbound.getDepartures()[1]);
+
+        TripStops inbound = network.tripStops(SUKHUMVIT_INBOUND);
+        assertArrayEquals(new int[] {3, 2, 1, 0}, inbound.getPositions());
+        assertEquals(7 * 3600, inbound.getDepartures()[0]);
+    }
+
+    @Test
+    void stationType_AssertionSucceeds_IfTheAgencyOrRouteTypeTellsTheMode() {
+        assertEquals(StationType.BTS, network.getRouteType(0));
+        assertEquals(StationType.MRT, network.getRouteType(1));
+        assertNull(network.getRouteType(2));
+        assertEquals(StationType.ARL, GtfsNetwork.stationType(
+                new GtfsFeed.Route("ARL", "State Railway of Thailand", "ARL", "Airport Rail Link", "", 2)));
+        assertEquals(StationType.SRL, GtfsNetwork.stationType(
+                new GtfsFeed.Route("DR", "", "Dark Red", "Dark Red Line", "", 2)));
+    }
+
+    void writeFeed(File file) throws IOException {
+        try(ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            write(zip, "agency.txt", "agency_id,agency_name\nBTSC,BTS Skytrain\nBEM,Bangkok Expressway and Metro\n");
+            write(zip, "stops.txt", "stop_id,stop_code,stop_name,stop_lat,stop_lon,location_type,parent_station\n" +
+                    "CEN,CEN,Siam,13.7455902,100.5331048,1,\n" +
+                    "CEN1,,Siam Platform 1,13.7455902,100.5331048,0,CEN\n" +
+                    "CEN2,,Siam Platform 2,13.7455902,100.5331048,0,CEN\n" +
+                    "N1,N1,Ratchathewi,13.7474478,100.5331504,0,\n" +
+                    "E1,E1,Chit Lom,13.7481608,100.5409774,0,\n" +
+                    "E2,E2,Phloen-Chit (BTS),13.743768,100.5446164,0,\n" +
+                    "BL22,BL22,Sukhumvit,13.7380479,100.5603774,0,\n" +
+                    "BL23,BL23,Queen Sirikit National Convention Centre,13.7231519,100.5601019,0,\n" +
+                    "B1,B1,Bus Stop,13.74,100.54,0,\n");
+            write(zip, "routes.txt", "route_id,agency_id,route_short_name,route_long_name,route_type\n" +
+                    "SUK,BTSC,Sukhumvit,Sukhumvit Line,2\n" +
+                    "BLUE,BEM,,Blue Line,1\n" +
+                    "BUS1,BEM,1,Bus,3\n");
+            write(zip, "trips.txt", "trip_id,route_id,trip_headsign\n" +
+                    "S1,SUK,Phloen Chit\nS2,SUK,Ratchathewi\nS3,SUK,Siam\nB1,BLUE,\nX1,BUS1,\n");
+            write(zip, "stop_times.txt", "trip_id,arrival_time,departure_time,stop_id,stop_sequence\n" +
+                    "S1,06:00:00,06:00:00,N1,1\n" +
+                    "S1,06:01:00,06:01:00,CEN1,2\n" +
+                    "S1,06:02:00,06:02:00,CEN2,3\n" +
+                    "S1,06:05:00,06:05:00,E2,5\n" +
+                    "S1,,,E1,4\n" +
+                    "S2,07:00:00,07:00:00,E2,1\n" +
+                    "S2,07:02:00,07:02:00,E1,2\n" +
+                    "S2,07:04:00,07:04:00,CEN2,3\n" +
+                    "S2,07:06:00,07:06:00,N1,4\n" +
+                    "S3,08:00:00,08:00:00,N1,1\n" +
+                    "S3,08:02:00,08:02:00,CEN1,2\n" +
+                    "B1,09:00:00,09:00:00,BL22,1\n" +
+                    "B1,09:03:00,09:03:00,BL23,2\n" +
+                    "X1,10:00:00,10:00:00,B1,1\n" +
+                    "X1,10:05:00,10:05:00,BL22,2\n");
+        }
+    }
+
+    void write(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,92 @@
+package com.varachit.transistance.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutocompleteIndexTest {
+
+    @Test
+    void suggest_AssertionSucceeds_IfNamePrefixesRankAboveLaterWordsAndShorterNamesFirst() {
+        AutocompleteIndex index = stations();
+        assertArrayEquals(new long[]{3, 4}, index.suggest("phr", 10));
+        assertArrayEquals(new long[]{4}, index.suggest("Khan", 10));
+        assertArrayEquals(new long[]{3}, index.suggest("phrom phong", 10));
+        // Exact code first, then names starting with the query, then later words
+        assertArrayEquals(new long[]{6, 1, 5}, index.suggest("si", 10));
+        assertArrayEquals(new long[]{6, 1}, index.suggest("si", 2));
+    }
+
+    @Test
+    void suggest_AssertionSucceeds_IfQueriesAreNormalisedAndCodesAreCompleted() {
+        AutocompleteIndex index = stations();
+        assertArrayEquals(new long[]{5}, index.suggest("  BL23 ", 10));
+        assertArrayEquals(new long[]{3}, index.suggest("PHROM-PHONG", 10));
+        assertArrayEquals(new long[]{2}, index.suggest("Sukhumv\u00edt", 10));
+        assertEquals(0, index.suggest("   ", 10).length);
+    }
+
+    @Test
+    void suggest_AssertionSucceeds_IfMistypedNamesAreFoundByTrigramSimilarity() {
+        AutocompleteIndex index = stations();
+        assertArrayEquals(new long[]{2}, index.suggest("sukumvit", 10));
+        assertArrayEquals(new long[]{3}, index.suggest("phrom pong", 10));
+        assertEquals(0, index.suggest("xyz", 10).length);
+    }
+
+    @Test
+    void put_AssertionSucceeds_IfRenamedAndRemovedStationsLeaveNoStaleTerms() {
+        AutocompleteIndex index = stations();
+        index.put(3, "Benchasiri Park", "E5");
+        assertArrayEquals(new long[]{4}, index.suggest("phr", 10));
+        assertArrayEquals(new long[]{3}, index.suggest("bench", 10));
+
+        index.remove(4);
+        assertEquals(0, index.suggest("phr", 10).length);
+        assertEquals(0, index.suggest("khanong", 10).length);
+        assertEquals(5, index.size());
+
+        // The freed slot is reused and the trie still splits and joins edges correctly
+        index.put(7, "Phra Ram 9", "BL20");
+        index.put(8, "Phran Nok", "BL32");
+        assertArrayEquals(new long[]{8, 7}, index.suggest("phra", 10));
+        assertArrayEquals(new long[]{8}, index.suggest("phran", 1));
+    }
+
+    @Test
+    void suggest_AssertionSucceeds_IfEveryNameIsItsOwnBestSuggestionInALargeIndex() {
+        Random random = new Random(23);
+        AutocompleteIndex index = new AutocompleteIndex();
+        String[] names = new String[5000];
+        for(int id = 0; id < names.length; id++) {
+            StringBuilder name = new StringBuilder();
+            for(int word = 0; word < 1 + random.nextInt(3); word++) {
+                if(word > 0) {
+                    name.append(' ');
+                }
+                for(int letter = 0; letter < 3 + random.nextInt(6); letter++) {
+                    name.append((char) ('a' + random.nextInt(26)));
+                }
+            }
+            names[id] = name.toString();
+            index.put(id, names[id], "C" + id);
+        }
+        for(int id = 0; id < names.length; id += 7) {
+            assertEquals(id, index.suggest(names[id], 1)[0]);
+            assertEquals(id, index.suggest("c" + id, 1)[0]);
+        }
+    }
+
+    private AutocompleteIndex stations() {
+        AutocompleteIndex index = new AutocompleteIndex();
+        index.put(1, "Siam", "CEN");
+        index.put(2, "Sukhumvit", "BL22");
+        index.put(3, "Phrom Phong", "E5");
+        index.put(4, "Phra Khanong", "E8");
+        index.put(5, "Queen Sirikit National Convention Centre", "BL23");
+        index.put(6, "Si Lom", "SI");
+        return index;
+    }
+}
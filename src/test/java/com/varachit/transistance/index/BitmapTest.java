@@ -0,0 +1,118 @@
+package com.varachit.transistance.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitmapTest {
+
+    @Test
+    void and_AssertionSucceeds_IfSparseAndDenseBitmapsCombineLikeBitSets() {
+        Random random = new Random(25);
+        int universe = 3000;
+        // From a handful of ordinals, kept as an array, to most of them, kept as words
+        double[] densities = {0.001, 0.01, 0.05, 0.5, 0.95};
+        for(double left : densities) {
+            for(double right : densities) {
+                BitSet leftSet = randomSet(random, universe, left);
+                BitSet rightSet = randomSet(random, universe, right);
+                Bitmap leftBitmap = Bitmap.of(universe, leftSet.stream().toArray());
+                Bitmap rightBitmap = Bitmap.of(universe, rightSet.stream().toArray());
+
+                BitSet and = (BitSet) leftSet.clone();
+                and.and(rightSet);
+                BitSet or = (BitSet) leftSet.clone();
+                or.or(rightSet);
+                assertArrayEquals(and.stream().toArray(), leftBitmap.and(rightBitmap).toArray());
+                assertArrayEquals(or.stream().toArray(), leftBitmap.or(rightBitmap).toArray());
+                assertEquals(or.cardinality(), rightBitmap.or(leftBitmap).cardinality());
+            }
+        }
+    }
+
+    @Test
+    void full_AssertionSucceeds_IfOnlyOrdinalsBelowTheUniverseAreSet() {
+        Bitmap full = Bitmap.full(130);
+        assertEquals(130, full.cardinality());
+        assertTrue(full.contains(129));
+        assertFalse(full.contains(130));
+        assertEquals(0, Bitmap.full(0).cardinality());
+
+        Bitmap some = Bitmap.of(130, 1, 64, 129);
+        assertArrayEquals(new int[]{1, 64, 129}, full.and(some).toArray());
+        assertTrue(some.and(Bitmap.empty(130)).isEmpty());
+        assertFalse(some.contains(2));
+        assertTrue(some.contains(64));
+    }
+
+    @Test
+    void insert_AssertionSucceeds_IfOrdinalsShiftLikeASortedListOfRows() {
+        Random random = new Random(22);
+        for(double density : new double[]{0.01, 0.5, 0.95}) {
+            for(int universe : new int[]{0, 63, 64, 65, 200}) {
+                BitSet set = randomSet(random, universe, density);
+                Bitmap bitmap = Bitmap.of(universe, set.stream().toArray());
+                for(int step = 0; step < 40; step++) {
+                    int size = universe + step;
+                    int ordinal = random.nextInt(size + 1);
+                    boolean value = random.nextBoolean();
+                    BitSet shifted = new BitSet();
+                    set.stream().forEach(bit -> shifted.set(bit < ordinal ? bit : bit + 1));
+                    shifted.set(ordinal, value);
+                    set = shifted;
+                    bitmap = bitmap.insert(ordinal, value);
+                    assertArrayEquals(set.stream().toArray(), bitmap.toArray());
+                    assertFalse(bitmap.contains(size + 1));
+                }
+            }
+        }
+    }
+
+    @Test
+    void remove_AssertionSucceeds_IfOrdinalsShiftLikeASortedListOfRows() {
+        Random random = new Random(22);
+        for(double density : new double[]{0.01, 0.5, 0.95}) {
+            for(int universe : new int[]{64, 65, 129, 200}) {
+                BitSet set = randomSet(random, universe, density);
+                Bitmap bitmap = Bitmap.of(universe, set.stream().toArray());
+                for(int size = universe; size > 0; size--) {
+                    int ordinal = random.nextInt(size);
+                    BitSet shifted = new BitSet();
+                    set.stream().filter(bit -> bit != ordinal)
+                            .forEach(bit -> shifted.set(bit < ordinal ? bit : bit - 1));
+                    set = shifted;
+                    bitmap = bitmap.remove(ordinal);
+                    assertArrayEquals(set.stream().toArray(), bitmap.toArray());
+                    assertEquals(set.cardinality(), bitmap.cardinality());
+                }
+            }
+        }
+    }
+
+    @Test
+    void with_AssertionSucceeds_IfOrdinalsAreSetAndClearedInPlace() {
+        Bitmap sparse = Bitmap.of(130, 1, 64);
+        assertArrayEquals(new int[]{1, 5, 64}, sparse.with(5).toArray());
+        assertArrayEquals(new int[]{64}, sparse.without(1).toArray());
+        assertSame(sparse, sparse.with(64));
+        assertSame(sparse, sparse.without(2));
+
+        Bitmap dense = Bitmap.full(130).without(129);
+        assertEquals(129, dense.cardinality());
+        assertFalse(dense.contains(129));
+        assertEquals(130, dense.with(129).cardinality());
+    }
+
+    private BitSet randomSet(Random random, int universe, double density) {
+        BitSet set = new BitSet(universe);
+        for(int ordinal = 0; ordinal < universe; ordinal++) {
+            if(random.nextDouble() < density) {
+                set.set(ordinal);
+            }
+        }
+        return set;
+    }
+}
@@ -0,0 +1,219 @@
+package com.varachit.transistance.index;
+
+import com.varachit.transistance.dto.RouteSummary;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogueSnapshotTest {
+
+    @Test
+    void build_AssertionSucceeds_IfStationsAreIndexedByIdCodeNameAndTypeInIdOrder() {
+        List<Station> stations = stations();
+        Collections.reverse(stations);
+        CatalogueSnapshot snapshot = CatalogueSnapshot.build(stations, List.of());
+        assertEquals(4, snapshot.stationCount());
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(snapshot.getStations()));
+        assertEquals("Asok", snapshot.findStation(3L).orElseThrow().getName());
+        assertTrue(snapshot.findStation(5L).isEmpty());
+        assertEquals(4L, snapshot.findStationByCode("BL22").orElseThrow().getId().longValue());
+        assertEquals(List.of(1L), ids(snapshot.findStationsByName("Siam")));
+        assertEquals(List.of(1L, 2L, 3L), ids(snapshot.findStationsByType(StationType.BTS)));
+        assertTrue(snapshot.findStationsByType(StationType.ARL).isEmpty());
+        assertEquals(List.of(3L, 4L), ids(snapshot.stationsAfter(2L, 10)));
+        assertEquals(List.of(1L, 2L), ids(snapshot.stationsAfter(0L, 2)));
+    }
+
+    @Test
+    void build_AssertionSucceeds_IfLaterChangesToTheEntitiesDoNotReachTheSnapshot() {
+        List<Station> stations = stations();
+        CatalogueSnapshot snapshot = CatalogueSnapshot.build(stations, List.of());
+        stations.get(0).setName("Siam Square");
+        assertEquals("Siam", snapshot.findStation(1L).orElseThrow().getName());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getStations().remove(0));
+    }
+
+    @Test
+    void withStation_AssertionSucceeds_IfRoutesCallingAtTheStationSeeTheNewCopy() {
+        List<Station> stations = stations();
+        Route sukhumvit = Route.builder().id(10L).name("Sukhumvit").type(StationType.BTS)
+                .stations(new LinkedList<>(stations.subList(0, 3))).build();
+        CatalogueSnapshot snapshot = CatalogueSnapshot.build(stations, List.of(sukhumvit));
+        assertSame(snapshot.findStation(2L).orElseThrow(), snapshot.findRoute(10L).orElseThrow().getStations().get(1));
+
+        Station chitLom = Station.builder().id(2L).name("Chit Lom").code("E1").type(StationType.BTS).build();
+        CatalogueSnapshot patched = snapshot.withStation(chitLom);
+        assertEquals("Chit Lom", patched.findRoute(10L).orElseThrow().getStations().get(1).getName());
+        assertEquals(List.of(2L), ids(patched.findStationsByName("Chit Lom")));
+        assertTrue(patched.findStationsByName("Ratchathewi").isEmpty());
+        // The previous snapshot is untouched
+        assertEquals("Ratchathewi", snapshot.findRoute(10L).orElseThrow().getStations().get(1).getName());
+
+        CatalogueSnapshot removed = patched.withoutStation(2L);
+        assertTrue(removed.findStation(2L).isEmpty());
+        assertEquals(List.of(1L, 3L), ids(removed.findRoute(10L).orElseThrow().getStations()));
+        assertEquals(2L, removed.getRouteSummaries().get(0).getStationCount().longValue());
+    }
+
+    @Test
+    void withRoute_AssertionSucceeds_IfTheRouteAndItsNewStationsAreAddedOrReplaced() {
+        List<Station> stations = stations();
+        CatalogueSnapshot snapshot = CatalogueSnapshot.build(stations, List.of());
+        Station khlongToei = Station.builder().id(5L).name("Khlong Toei").code("BL24").type(StationType.MRT).build();
+        Route blue = Route.builder().id(20L).name("Blue Line").type(StationType.MRT)
+                .stations(new LinkedList<>(List.of(stations.get(3), khlongToei))).build();
+
+        CatalogueSnapshot added = snapshot.withRoute(blue);
+        assertEquals(List.of(20L), ids(added.getRoutes()));
+        assertEquals("BL24", added.findStation(5L).orElseThrow().getCode());
+        assertEquals(List.of(4L, 5L), ids(added.findStationsByType(StationType.MRT)));
+
+        Route renamed = Route.builder().id(20L).name("MRT Blue Line").type(StationType.MRT)
+                .stations(new LinkedList<>(List.of(khlongToei))).build();
+        CatalogueSnapshot replaced = added.withRoute(renamed);
+        assertEquals(1, replaced.getRoutes().size());
+        assertEquals("MRT Blue Line", replaced.findRoute(20L).orElseThrow().getName());
+        assertEquals(1L, replaced.getRouteSummaries().get(0).getStationCount().longValue());
+
+        // Deleting the route deletes its stations too
+        CatalogueSnapshot removed = replaced.withoutRoute(20L);
+        assertTrue(removed.getRoutes().isEmpty());
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(removed.getStations()));
+        assertTrue(removed.findStationByCode("BL24").isEmpty());
+        assertEquals(List.of(4L), ids(removed.stationsIn(removed.stationsOfType(StationType.MRT))));
+    }
+
+    @Test
+    void stationsIn_AssertionSucceeds_IfTypeAndStatusBitmapsCombineAndFollowChanges() {
+        List<Station> stations = stations();
+        stations.forEach(station -> station.setStatus(StationStatus.OPENED));
+        stations.get(1).setStatus(StationStatus.UNDER_CONSTRUCTION);
+        CatalogueSnapshot snapshot = CatalogueSnapshot.build(stations, List.of());
+        Bitmap openedBtsOrMrt = snapshot.stationsWithStatus(StationStatus.OPENED)
+                .and(snapshot.stationsOfType(StationType.BTS).or(snapshot.stationsOfType(StationType.MRT)));
+        assertEquals(List.of(1L, 3L, 4L), ids(snapshot.stationsIn(openedBtsOrMrt)));
+        assertEquals(List.of(2L), ids(snapshot.stationsIn(snapshot.stationsNamed("Ratchathewi"))));
+        assertTrue(snapshot.stationsOfType(StationType.ARL).isEmpty());
+        assertEquals(4, snapshot.allStations().cardinality());
+
+        Station closed = stations.get(0).toBuilder().status(StationStatus.CLOSED).build();
+        CatalogueSnapshot patched = snapshot.withStation(closed);
+        assertEquals(List.of(1L), ids(patched.stationsIn(patched.stationsWithStatus(StationStatus.CLOSED))));
+        assertEquals(List.of(3L, 4L), ids(patched.stationsIn(patched.stationsWithStatus(StationStatus.OPENED))));
+    }
+
+    @Test
+    void withStation_AssertionSucceeds_IfAnOlderVersionDoesNotReplaceTheCurrentCopy() {
+        List<Station> stations = stations();
+        stations.get(0).setVersion(2L);
+        Route sukhumvit = Route.builder().id(10L).name("Sukhumvit").type(StationType.BTS).version(3L)
+                .stations(new LinkedList<>(stations.subList(0, 2))).build();
+        CatalogueSnapshot snapshot = CatalogueSnapshot.build(stations, List.of(sukhumvit));
+
+        // Events of two writes to the same row handled in the opposite order
+        Station older = stations.get(0).toBuilder().name("Siam Square").version(1L).build();
+        assertSame(snapshot, snapshot.withStation(older));
+        Station newer = stations.get(0).toBuilder().name("Siam Interchange").version(3L).build();
+        assertEquals("Siam Interchange", snapshot.withStation(newer).findStation(1L).orElseThrow().getName());
+
+        Route olderRoute = sukhumvit.toBuilder().name("BTS Sukhumvit").version(2L).build();
+        assertSame(snapshot, snapshot.withRoute(olderRoute));
+        Route olderStations = sukhumvit.toBuilder().version(4L).stations(new LinkedList<>(List.of(older))).build();
+        CatalogueSnapshot patched = snapshot.withRoute(olderStations);
+        assertEquals("Siam", patched.findRoute(10L).orElseThrow().getStations().get(0).getName());
+    }
+
+    @Test
+    void withStation_AssertionSucceeds_IfPatchedSnapshotsMatchASnapshotBuiltFromTheSameRows() {
+        Random random = new Random(22);
+        StationType[] types = StationType.values();
+        StationStatus[] statuses = StationStatus.values();
+        Map<Long, Station> rows = new TreeMap<>();
+        Map<Long, Route> routeRows = new TreeMap<>();
+        CatalogueSnapshot snapshot = CatalogueSnapshot.build(List.of(), List.of());
+        for(int step = 0; step < 400; step++) {
+            long id = 1 + random.nextInt(150);
+            int action = random.nextInt(10);
+            if(action < 6) {
+                Station station = Station.builder().id(id).code("S" + id).name("Station " + random.nextInt(20))
+                        .type(types[random.nextInt(types.length)])
+                        .status(statuses[random.nextInt(statuses.length)]).build();
+                rows.put(id, station);
+                snapshot = snapshot.withStation(station);
+            } else if(action < 8) {
+                rows.remove(id);
+                routeRows.replaceAll((routeId, route) -> route.toBuilder().stations(route.getStations().stream()
+                        .filter(station -> station.getId() != id).collect(Collectors.toList())).build());
+                snapshot = snapshot.withoutStation(id);
+            } else if(!rows.isEmpty()) {
+                List<Station> known = new ArrayList<>(rows.values());
+                List<Station> routeStations = new ArrayList<>();
+                for(int stop = 0; stop < 5; stop++) {
+                    routeStations.add(known.get(random.nextInt(known.size())));
+                }
+                Route route = Route.builder().id(id % 7).name("Route " + id).type(StationType.BTS)
+                        .stations(routeStations).build();
+                routeRows.put(route.getId(), route);
+                snapshot = snapshot.withRoute(route);
+            }
+
+            CatalogueSnapshot expected = CatalogueSnapshot.build(rows.values(), routeRows.values());
+            assertEquals(ids(expected.getStations()), ids(snapshot.getStations()));
+            assertEquals(ids(expected.getRoutes()), ids(snapshot.getRoutes()));
+            for(StationType type : types) {
+                assertEquals(ids(expected.findStationsByType(type)), ids(snapshot.findStationsByType(type)));
+                assertEquals(ids(expected.stationsIn(expected.stationsOfType(type))),
+                        ids(snapshot.stationsIn(snapshot.stationsOfType(type))));
+            }
+            for(StationStatus status : statuses) {
+                assertEquals(ids(expected.stationsIn(expected.stationsWithStatus(status))),
+                        ids(snapshot.stationsIn(snapshot.stationsWithStatus(status))));
+            }
+            for(int name = 0; name < 20; name++) {
+                assertEquals(ids(expected.findStationsByName("Station " + name)),
+                        ids(snapshot.findStationsByName("Station " + name)));
+            }
+            for(Route route : expected.getRoutes()) {
+                Route patched = snapshot.findRoute(route.getId()).orElseThrow();
+                assertEquals(ids(route.getStations()), ids(patched.getStations()));
+                for(Station station : patched.getStations()) {
+                    assertSame(snapshot.findStation(station.getId()).orElseThrow(), station);
+                }
+            }
+            assertEquals(expected.getRouteSummaries().stream().map(RouteSummary::getStationCount)
+                            .collect(Collectors.toList()),
+                    snapshot.getRouteSummaries().stream().map(RouteSummary::getStationCount)
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    private List<Station> stations() {
+        List<Station> stations = new ArrayList<>();
+        stations.add(Station.builder().id(1L).name("Siam").code("CEN").type(StationType.BTS).build());
+        stations.add(Station.builder().id(2L).name("Ratchathewi").code("N1").type(StationType.BTS).build());
+        stations.add(Station.builder().id(3L).name("Asok").code("E4").type(StationType.BTS).build());
+        stations.add(Station.builder().id(4L).name("Sukhumvit").code("BL22").type(StationType.MRT).build());
+        return stations;
+    }
+
+    private <T> List<Long> ids(List<T> rows) {
+        List<Long> ids = new ArrayList<>();
+        for(T row : rows) {
+            ids.add(row instanceof Station ? ((Station) row).getId() : ((Route) row).getId());
+        }
+        return ids;
+    }
+}
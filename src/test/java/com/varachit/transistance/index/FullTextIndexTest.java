@@ -0,0 +1,71 @@
+package com.varachit.transistance.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FullTextIndexTest {
+
+    @Test
+    void search_AssertionSucceeds_IfDocumentsMatchingMoreAndRarerWordsRankFirst() {
+        FullTextIndex<String> index = catalogue();
+        assertEquals(List.of("route:1", "station:2"), keys(index.search("skytrain sukhumvit", 10)));
+        assertEquals(List.of("route:3", "station:4"), keys(index.search("Airport", 10)));
+        assertEquals(List.of("station:5"), keys(index.search("convention", 10)));
+        assertEquals(List.of("station:2"), keys(index.search("bl22", 10)));
+        assertEquals(List.of("route:1"), keys(index.search("skytrain sukhumvit", 1)));
+        assertTrue(index.search("monorail", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void search_AssertionSucceeds_IfRepeatedWordsCountAndLongDocumentsArePenalised() {
+        FullTextIndex<String> index = catalogue();
+        // Sukhumvit Line says "line" twice; so does Blue Line, but its long description drops it below Airport Line
+        List<FullTextIndex.Hit<String>> hits = index.search("line", 10);
+        assertEquals(List.of("route:1", "route:3", "route:6"), keys(hits));
+        for(int rank = 1; rank < hits.size(); rank++) {
+            assertTrue(hits.get(rank - 1).getScore() >= hits.get(rank).getScore());
+        }
+    }
+
+    @Test
+    void put_AssertionSucceeds_IfReplacedAndRemovedDocumentsLeaveNoStalePostings() {
+        FullTextIndex<String> index = catalogue();
+        index.put("station:4", "Lat Krabang", "A2");
+        assertEquals(List.of("route:3"), keys(index.search("airport", 10)));
+        assertEquals(List.of("station:4"), keys(index.search("krabang", 10)));
+
+        index.remove("route:3");
+        index.remove("route:3");
+        assertTrue(index.search("airport", 10).isEmpty());
+        assertEquals(5, index.size());
+
+        // The freed ordinal is reused
+        index.put("route:7", "Airport Rail Link", "City line to the airport");
+        assertEquals(List.of("route:7"), keys(index.search("airport", 10)));
+        assertEquals(6, index.size());
+    }
+
+    private FullTextIndex<String> catalogue() {
+        FullTextIndex<String> index = new FullTextIndex<>();
+        index.put("route:1", "Sukhumvit Line", "BTS Skytrain line along Sukhumvit Road");
+        index.put("station:2", "Sukhumvit", "BL22");
+        index.put("route:3", "Airport Line", "Airport rail link");
+        index.put("station:4", "Suvarnabhumi Airport", "A1");
+        index.put("station:5", "Queen Sirikit National Convention Centre", "BL23");
+        index.put("route:6", "Blue Line", "MRT underground line looping around the city centre, runs through Silom", null);
+        return index;
+    }
+
+    private List<String> keys(List<FullTextIndex.Hit<String>> hits) {
+        List<String> keys = new ArrayList<>();
+        for(FullTextIndex.Hit<String> hit : hits) {
+            keys.add(hit.getKey());
+        }
+        return keys;
+    }
+}
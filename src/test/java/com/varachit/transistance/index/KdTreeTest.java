@@ -0,0 +1,58 @@
+package com.varachit.transistance.index;
+
+import com.varachit.transistance.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KdTreeTest {
+
+    @Test
+    void nearest_AssertionSucceeds_IfResultEqualsTheKClosestPointsOfABruteForceScan() {
+        Random random = new Random(2310);
+        double[] latitudes = new double[3000];
+        double[] longitudes = new double[3000];
+        for(int point = 0; point < latitudes.length; point++) {
+            latitudes[point] = 13.4 + random.nextDouble() * 0.8;
+            longitudes[point] = 100.2 + random.nextDouble() * 0.8;
+        }
+        KdTree tree = KdTree.build(latitudes, longitudes);
+        assertEquals(latitudes.length, tree.size());
+
+        for(int query = 0; query < 100; query++) {
+            double latitude = 13.4 + random.nextDouble() * 0.8;
+            double longitude = 100.2 + random.nextDouble() * 0.8;
+            int k = 1 + random.nextInt(20);
+            int[] expected = IntStream.range(0, latitudes.length).boxed()
+                    .sorted(Comparator.comparingDouble(point -> GeoUtils.haversine(latitude, longitude,
+                            latitudes[point], longitudes[point])))
+                    .limit(k).mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(expected, tree.nearest(latitude, longitude, k));
+        }
+    }
+
+    @Test
+    void nearest_AssertionSucceeds_IfKLargerThanTheTreeReturnsEveryPoint() {
+        KdTree tree = KdTree.build(new double[]{13.7455902, 13.7361653}, new double[]{100.5331048, 100.5588965});
+        int[] nearest = tree.nearest(13.7380479, 100.5603774, 5);
+        assertArrayEquals(new int[]{1, 0}, nearest);
+        assertEquals(0, KdTree.build(new double[0], new double[0]).nearest(13.7, 100.5, 5).length);
+    }
+
+    @Test
+    void toMetres_AssertionSucceeds_IfChordConvertsBackToTheHaversineDistance() {
+        double latitude = Math.toRadians(13.7361653);
+        double longitude = Math.toRadians(100.5588965);
+        double otherLatitude = Math.toRadians(13.7380479);
+        double otherLongitude = Math.toRadians(100.5603774);
+        double dx = Math.cos(latitude) * Math.cos(longitude) - Math.cos(otherLatitude) * Math.cos(otherLongitude);
+        double dy = Math.cos(latitude) * Math.sin(longitude) - Math.cos(otherLatitude) * Math.sin(otherLongitude);
+        double dz = Math.sin(latitude) - Math.sin(otherLatitude);
+        double expected = GeoUtils.haversine(13.7361653, 100.5588965, 13.7380479, 100.5603774);
+        assertEquals(expected, KdTree.toMetres(dx * dx + dy * dy + dz * dz), 0.01);
+    }
+}
@@ -0,0 +1,99 @@
+package com.varachit.transistance.index;
+
+import com.varachit.transistance.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridTest {
+
+    @Test
+    void withinRadius_AssertionSucceeds_IfResultEqualsABruteForceScan() {
+        Random random = new Random(2310);
+        double[] latitudes = new double[2000];
+        double[] longitudes = new double[2000];
+        for(int point = 0; point < latitudes.length; point++) {
+            latitudes[point] = 13.5 + random.nextDouble() * 0.5;
+            longitudes[point] = 100.3 + random.nextDouble() * 0.5;
+        }
+        SpatialGrid grid = SpatialGrid.build(latitudes, longitudes, 500);
+
+        for(int query = 0; query < 50; query++) {
+            double latitude = 13.5 + random.nextDouble() * 0.5;
+            double longitude = 100.3 + random.nextDouble() * 0.5;
+            double radius = 100 + random.nextDouble() * 2000;
+            int[] expected = IntStream.range(0, latitudes.length)
+                    .filter(point -> GeoUtils.haversine(latitude, longitude,
+                            latitudes[point], longitudes[point]) <= radius)
+                    .toArray();
+            int[] actual = grid.withinRadius(latitude, longitude, radius);
+            Arrays.sort(actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void withinBox_AssertionSucceeds_IfResultEqualsABruteForceScan() {
+        Random random = new Random(42);
+        double[] latitudes = new double[1000];
+        double[] longitudes = new double[1000];
+        for(int point = 0; point < latitudes.length; point++) {
+            latitudes[point] = 13.5 + random.nextDouble() * 0.5;
+            longitudes[point] = 100.3 + random.nextDouble() * 0.5;
+        }
+        SpatialGrid grid = SpatialGrid.build(latitudes, longitudes, 250);
+
+        for(int query = 0; query < 50; query++) {
+            double minLatitude = 13.5 + random.nextDouble() * 0.4;
+            double minLongitude = 100.3 + random.nextDouble() * 0.4;
+            double maxLatitude = minLatitude + random.nextDouble() * 0.1;
+            double maxLongitude = minLongitude + random.nextDouble() * 0.1;
+            int[] expected = IntStream.range(0, latitudes.length)
+                    .filter(point -> latitudes[point] >= minLatitude && latitudes[point] <= maxLatitude
+                            && longitudes[point] >= minLongitude && longitudes[point] <= maxLongitude)
+                    .toArray();
+            int[] actual = grid.withinBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+            Arrays.sort(actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void withinBox_AssertionSucceeds_IfAWideViewportOverASparseGridEqualsABruteForceScan() {
+        Random random = new Random(7);
+        double[] latitudes = new double[300];
+        double[] longitudes = new double[300];
+        // Clusters on both sides of the equator and the prime meridian, far apart on a fine grid
+        for(int point = 0; point < latitudes.length; point++) {
+            latitudes[point] = (point % 3 - 1) * 20 + random.nextDouble() * 0.01;
+            longitudes[point] = (point % 5 - 2) * 30 + random.nextDouble() * 0.01;
+        }
+        SpatialGrid grid = SpatialGrid.build(latitudes, longitudes, 50);
+
+        for(int query = 0; query < 50; query++) {
+            double minLatitude = -30 + random.nextDouble() * 40;
+            double minLongitude = -70 + random.nextDouble() * 90;
+            double maxLatitude = minLatitude + random.nextDouble() * 40;
+            double maxLongitude = minLongitude + random.nextDouble() * 90;
+            int[] expected = IntStream.range(0, latitudes.length)
+                    .filter(point -> latitudes[point] >= minLatitude && latitudes[point] <= maxLatitude
+                            && longitudes[point] >= minLongitude && longitudes[point] <= maxLongitude)
+                    .toArray();
+            int[] actual = grid.withinBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+            Arrays.sort(actual);
+            assertArrayEquals(expected, actual);
+        }
+        assertEquals(latitudes.length, grid.withinBox(-90, -180, 90, 180).length);
+    }
+
+    @Test
+    void withinRadius_AssertionSucceeds_IfEmptyGridReturnsNoPoints() {
+        SpatialGrid grid = SpatialGrid.build(new double[0], new double[0], 100);
+        assertEquals(0, grid.size());
+        assertEquals(0, grid.withinRadius(13.7, 100.5, 1000).length);
+    }
+}
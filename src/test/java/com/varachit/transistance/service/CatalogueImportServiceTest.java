@@ -0,0 +1,143 @@
+package com.varachit.transistance.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.varachit.transistance.dto.ImportResult;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+class CatalogueImportServiceTest {
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private RouteRepository routeRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private CatalogueImportService catalogueImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalogueImportService = new CatalogueImportService(stationRepository, routeRepository,
+                new StationCodeService(stationRepository), entityManager, transactionManager, eventPublisher,
+                new ObjectMapper());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importStations_AssertionSucceeds_IfEveryLineIsSavedInChunksOfTheBatchSize() {
+        List<Integer> chunkSizes = new ArrayList<>();
+        given(stationRepository.saveAllAndFlush(any(Iterable.class))).willAnswer(invocation -> {
+            List<Station> chunk = invocation.getArgument(0);
+            chunkSizes.add(chunk.size());
+            return chunk;
+        });
+        int count = CatalogueImportService.CHUNK_SIZE + 1;
+        StringBuilder lines = new StringBuilder();
+        for(int index = 0; index < count; index++) {
+            lines.append(stationLine("Station " + index, "S" + index)).append('\n');
+        }
+
+        ImportResult result = catalogueImportService.importStations(ndjson(lines.toString()));
+        assertEquals(count, result.getImported());
+        assertEquals(List.of(CatalogueImportService.CHUNK_SIZE, 1), chunkSizes);
+        verify(entityManager, times(2)).clear();
+
+        ArgumentCaptor<CatalogueImportedEvent> event = ArgumentCaptor.forClass(CatalogueImportedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(count, event.getValue().getStationCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importStations_ThrowResponseStatusException400_ThenAssertionSucceeds_IfARecordIsInvalid() {
+        String lines = stationLine("Siam", "CEN") + "\n" + stationLine("Chit Lom", "e1") + "\n";
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> catalogueImportService.importStations(ndjson(lines)));
+        assertTrue(exception.getMessage().contains("Invalid station record 2: Invalid station code"));
+        verify(stationRepository, never()).saveAllAndFlush(any(Iterable.class));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importRoutes_ThrowResponseStatusException400_ThenAssertionSucceeds_IfTwoRoutesShareAStationCode() {
+        String lines = "{\"name\":\"Silom\",\"description\":\"BTS Silom Line\",\"type\":\"BTS\",\"stations\":[" +
+                       stationLine("National Stadium", "W1") + "]}\n" +
+                       "{\"name\":\"Gold Line\",\"description\":\"Gold Line\",\"type\":\"BTS\",\"stations\":[" +
+                       stationLine("Krung Thon Buri", "W1") + "]}\n";
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> catalogueImportService.importRoutes(ndjson(lines)));
+        assertTrue(exception.getMessage().contains("the code W1 already exists"));
+        verify(routeRepository, never()).saveAllAndFlush(any(Iterable.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importRoutes_AssertionSucceeds_IfRoutesAndTheirStationsAreCounted() {
+        given(routeRepository.saveAllAndFlush(any(Iterable.class))).willAnswer(invocation -> invocation.getArgument(0));
+        String lines = "{\"name\":\"Silom\",\"description\":\"BTS Silom Line\",\"type\":\"BTS\",\"stations\":[" +
+                       stationLine("National Stadium", "W1") + "," + stationLine("Sala Daeng", "S2") + "]}\n";
+
+        ImportResult result = catalogueImportService.importRoutes(ndjson(lines));
+        assertEquals(1, result.getImported());
+        ArgumentCaptor<List<Route>> routes = ArgumentCaptor.forClass(List.class);
+        verify(routeRepository).saveAllAndFlush(routes.capture());
+        assertEquals(2, routes.getValue().get(0).getStations().size());
+        ArgumentCaptor<CatalogueImportedEvent> event = ArgumentCaptor.forClass(CatalogueImportedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(2, event.getValue().getStationCount());
+        assertEquals(1, event.getValue().getRouteCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importStations_ThrowResponseStatusException400_ThenAssertionSucceeds_IfTheFlushHitsAUniqueKey() {
+        // A station with the same code committed by another request after the import checked the codes
+        given(stationRepository.saveAllAndFlush(any(Iterable.class))).willThrow(new DataIntegrityViolationException(
+                "could not execute batch", new ConstraintViolationException("uk_station_code", null, "UK_STATION_CODE")));
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> catalogueImportService.importStations(ndjson(stationLine("Siam", "CEN") + "\n")));
+        String expectedMessage = "400 BAD_REQUEST \"Unable to import stations due to a code or name already exists\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+        verify(entityManager, never()).flush();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    String stationLine(String name, String code) {
+        return "{\"name\":\"" + name + "\",\"code\":\"" + code + "\",\"latitude\":13.7,\"longitude\":100.5," +
+               "\"type\":\"BTS\"}";
+    }
+
+    InputStream ndjson(String lines) {
+        return new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,135 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.dto.SearchHit;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CatalogueSearchServiceTest {
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private RouteRepository routeRepository;
+    private CatalogueReadModel catalogueReadModel;
+    private CatalogueSearchService catalogueSearchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalogueReadModel = new CatalogueReadModel(stationRepository, routeRepository);
+        catalogueSearchService = new CatalogueSearchService(catalogueReadModel);
+    }
+
+    @Test
+    void search_AssertionSucceeds_IfStationsAndRoutesAreRankedTogether() {
+        List<Station> stations = getStationsTestcase();
+        given(stationRepository.findAll()).willReturn(stations);
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase(stations));
+
+        List<SearchHit> hits = catalogueSearchService.search("skytrain sukhumvit", 10);
+        assertEquals(List.of("ROUTE:Sukhumvit Line", "STATION:Sukhumvit"), names(hits));
+        assertEquals("BL22", hits.get(1).getCode());
+        assertNull(hits.get(0).getCode());
+        assertEquals(List.of("STATION:Queen Sirikit National Convention Centre"),
+                names(catalogueSearchService.search("Convention", 10)));
+        assertTrue(catalogueSearchService.search("monorail", 10).isEmpty());
+    }
+
+    @Test
+    void search_AssertionSucceeds_IfWritesAreAppliedWithoutReloading() {
+        List<Station> stations = getStationsTestcase();
+        given(stationRepository.findAll()).willReturn(stations);
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase(stations));
+        assertEquals(1, catalogueSearchService.search("convention", 10).size());
+
+        Station suvarnabhumi = Station.builder().id(4L).name("Suvarnabhumi Airport").code("A1")
+                .type(StationType.ARL).build();
+        Route airportRailLink = Route.builder().id(20L).name("Airport Rail Link").description("City line")
+                .type(StationType.ARL).stations(new LinkedList<>(List.of(suvarnabhumi))).build();
+        StationChangedEvent stationDeleted = new StationChangedEvent(stations.get(2), ChangeType.DELETED);
+        RouteChangedEvent routeCreated = new RouteChangedEvent(airportRailLink, ChangeType.CREATED,
+                suvarnabhumi, ChangeType.CREATED);
+        catalogueReadModel.onStationChanged(stationDeleted);
+        catalogueSearchService.onStationChanged(stationDeleted);
+        catalogueReadModel.onRouteChanged(routeCreated);
+        catalogueSearchService.onRouteChanged(routeCreated);
+
+        assertTrue(catalogueSearchService.search("convention", 10).isEmpty());
+        assertEquals(List.of("STATION:Suvarnabhumi Airport", "ROUTE:Airport Rail Link"),
+                names(catalogueSearchService.search("airport", 10)));
+        verify(stationRepository, times(1)).findAll();
+    }
+
+    @Test
+    void search_AssertionSucceeds_IfStationsOfCreatedRoutesAreAddedAndThoseOfDeletedRoutesRemoved() {
+        List<Station> stations = getStationsTestcase();
+        given(stationRepository.findAll()).willReturn(stations);
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase(stations));
+        assertEquals(List.of("ROUTE:Blue Line"), names(catalogueSearchService.search("blue", 1)));
+
+        Station bluePort = Station.builder().id(10L).name("Blue Port").code("BP1").type(StationType.MRT).build();
+        Route harbourLine = Route.builder().id(20L).name("Harbour Line").description("Riverside shuttle")
+                .type(StationType.MRT).stations(new LinkedList<>(List.of(bluePort))).build();
+        RouteChangedEvent created = new RouteChangedEvent(harbourLine, ChangeType.CREATED);
+        catalogueReadModel.onRouteChanged(created);
+        catalogueSearchService.onRouteChanged(created);
+        assertEquals(List.of("STATION:Blue Port"), names(catalogueSearchService.search("blue", 1)));
+
+        // The deleted station must not keep the only slot and leave the results empty
+        RouteChangedEvent deleted = new RouteChangedEvent(harbourLine, ChangeType.DELETED);
+        catalogueReadModel.onRouteChanged(deleted);
+        catalogueSearchService.onRouteChanged(deleted);
+        assertEquals(List.of("ROUTE:Blue Line"), names(catalogueSearchService.search("blue", 1)));
+        assertTrue(catalogueSearchService.search("riverside", 10).isEmpty());
+    }
+
+    @Test
+    void search_ThrowResponseStatusException400_ThenAssertionSucceeds_IfNumberOfResultsIsInvalid() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> catalogueSearchService.search("airport", 0));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid number of results\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    private List<String> names(List<SearchHit> hits) {
+        return hits.stream().map(hit -> hit.getKind() + ":" + hit.getName()).collect(Collectors.toList());
+    }
+
+    private List<Station> getStationsTestcase() {
+        List<Station> stations = new ArrayList<>();
+        stations.add(Station.builder().id(1L).name("Asok").code("E4").type(StationType.BTS).build());
+        stations.add(Station.builder().id(2L).name("Sukhumvit").code("BL22").type(StationType.MRT).build());
+        stations.add(Station.builder().id(3L).name("Queen Sirikit National Convention Centre").code("BL23")
+                .type(StationType.MRT).build());
+        return stations;
+    }
+
+    private List<Route> getRoutesTestcase(List<Station> stations) {
+        Route sukhumvitLine = Route.builder().id(10L).name("Sukhumvit Line")
+                .description("BTS Skytrain line along Sukhumvit Road").type(StationType.BTS)
+                .stations(new LinkedList<>(stations.subList(0, 1))).build();
+        Route blueLine = Route.builder().id(11L).name("Blue Line").description("MRT underground loop")
+                .type(StationType.MRT).stations(new LinkedList<>(stations.subList(1, 3))).build();
+        return List.of(sukhumvitLine, blueLine);
+    }
+}
@@ -0,0 +1,211 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.dto.BatchJourney;
+import com.varachit.transistance.dto.Journey;
+import com.varachit.transistance.dto.JourneyPair;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.graph.Criteria;
+import com.varachit.transistance.graph.SearchMode;
+import com.varachit.transistance.graph.TransitGraph;
+import com.varachit.transistance.repository.RouteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+
+class JourneyBatchServiceTest {
+    @Mock
+    private RouteRepository routeRepository;
+    private TransitGraphService transitGraphService;
+    private JourneyService journeyService;
+    private JourneyBatchService journeyBatchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        transitGraphService = new TransitGraphService(routeRepository, Runnable::run, 300);
+        journeyService = new JourneyService(transitGraphService);
+        journeyBatchService = new JourneyBatchService(journeyService, transitGraphService, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journeyBatchService.shutdown();
+    }
+
+    @Test
+    void planJourneys_AssertionSucceeds_IfEveryPairMatchesTheSingleJourneyEndpoint() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        List<JourneyPair> pairs = Arrays.asList(new JourneyPair("N8", "E4"), new JourneyPair("BL26", "N8"),
+                new JourneyPair("N8", "BL24"), new JourneyPair("CEN", "E3"), new JourneyPair("N8", "N8"));
+
+        List<BatchJourney> results = new ArrayList<>();
+        journeyBatchService.planJourneys(pairs, Criteria.TIME, results::add);
+
+        assertEquals(pairs.size(), results.size());
+        for(BatchJourney result : results) {
+            Journey expected = journeyService.planJourney(result.getFrom(), result.getTo(),
+                    Criteria.TIME, SearchMode.DIJKSTRA);
+            assertNull(result.getError());
+            assertEquals(expected.getDuration(), result.getDuration());
+            assertEquals(expected.getStops().stream().map(stop -> stop.getCode()).collect(Collectors.toList()),
+                    result.getStops());
+        }
+    }
+
+    @Test
+    void planJourneys_AssertionSucceeds_IfFailedPairsAreReportedWithoutFailingTheBatch() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        List<JourneyPair> pairs = Arrays.asList(new JourneyPair("XX1", "E4"), new JourneyPair("N8", "PP15"),
+                new JourneyPair("N8", "XX2"), new JourneyPair("N8", "E1"));
+
+        List<BatchJourney> results = new ArrayList<>();
+        journeyBatchService.planJourneys(pairs, Criteria.DISTANCE, results::add);
+
+        assertEquals(4, results.size());
+        assertEquals("Station with the specified code is not served by any route", find(results, "XX1", "E4").getError());
+        assertEquals("Unable to find a journey between the specified stations", find(results, "N8", "PP15").getError());
+        assertEquals("Station with the specified code is not served by any route", find(results, "N8", "XX2").getError());
+        assertNull(find(results, "N8", "E1").getError());
+        assertTrue(find(results, "N8", "E1").getDistance() > 0);
+    }
+
+    @Test
+    void planJourneys_AssertionSucceeds_IfNoResultIsLostWhenWaitingForSlowOriginsTimesOut() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        // Each origin takes longer than the result poll, so the calling thread times out between origins
+        JourneyService slowJourneyService = new JourneyService(transitGraphService) {
+            @Override
+            int findNode(TransitGraph graph, String code) {
+                try {
+                    Thread.sleep(60);
+                } catch(InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.findNode(graph, code);
+            }
+        };
+        JourneyBatchService slowBatchService = new JourneyBatchService(slowJourneyService, transitGraphService, 4);
+        List<String> codes = Arrays.asList("N8", "N7", "N6", "N5", "N4", "N3", "N2", "N1", "CEN", "E1", "E2", "E3",
+                "E4", "BL22", "BL23", "BL24", "BL25", "BL26");
+        List<JourneyPair> pairs = new ArrayList<>();
+        for(String from : codes) {
+            pairs.add(new JourneyPair(from, "E4"));
+        }
+
+        List<BatchJourney> results = new ArrayList<>();
+        try {
+            slowBatchService.planJourneys(pairs, Criteria.TIME, results::add);
+        } finally {
+            slowBatchService.shutdown();
+        }
+        assertEquals(pairs.size(), results.size());
+        assertEquals(codes, results.stream().map(BatchJourney::getFrom).sorted(Comparator.comparing(codes::indexOf))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void planJourneys_AssertionSucceeds_IfOriginsNotStartedAreSkippedAfterTheSinkFails() throws InterruptedException {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        AtomicInteger lookups = new AtomicInteger();
+        JourneyService slowJourneyService = new JourneyService(transitGraphService) {
+            @Override
+            int findNode(TransitGraph graph, String code) {
+                lookups.incrementAndGet();
+                try {
+                    Thread.sleep(20);
+                } catch(InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.findNode(graph, code);
+            }
+        };
+        JourneyBatchService slowBatchService = new JourneyBatchService(slowJourneyService, transitGraphService, 2);
+        List<String> codes = Arrays.asList("N8", "N7", "N6", "N5", "N4", "N3", "N2", "N1", "CEN", "E1", "E2", "E3",
+                "E4", "BL22", "BL23", "BL24", "BL25", "BL26");
+        List<JourneyPair> pairs = new ArrayList<>();
+        for(String from : codes) {
+            pairs.add(new JourneyPair(from, "E4"));
+        }
+
+        try {
+            assertThrows(IllegalStateException.class, () -> slowBatchService.planJourneys(pairs, Criteria.TIME,
+                    result -> { throw new IllegalStateException("Client went away"); }));
+            // Every origin would have been planned by now if the searches kept running
+            Thread.sleep(800);
+        } finally {
+            slowBatchService.shutdown();
+        }
+        // Each planned origin looks up its origin and its destination
+        assertTrue(lookups.get() / 2 < codes.size());
+    }
+
+    @Test
+    void planJourneys_ThrowResponseStatusException400_ThenAssertionSucceeds_IfAPairIsIncomplete() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> journeyBatchService.planJourneys(Arrays.asList(new JourneyPair("N8", null)),
+                        Criteria.DISTANCE, result -> { }));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid journey pair\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    BatchJourney find(List<BatchJourney> results, String from, String to) {
+        return results.stream().filter(result -> result.getFrom().equals(from) && result.getTo().equals(to))
+                .findFirst().orElseThrow();
+    }
+
+    List<Route> getRoutesTestcase() {
+        return Arrays.asList(
+                new Route("Sukhumvit", "BTS Skytrain Sukhumvit Line", StationType.BTS, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Mo Chit", "N8", 13.7990075, 100.5524655, StationType.BTS),
+                            new Station("Saphan Khwai", "N7", 13.7919983, 100.5491032, StationType.BTS),
+                            new Station("Sena Ruam", "N6", 13.7873954, 100.5470566, StationType.BTS),
+                            new Station("Ari", "N5", 13.7791812, 100.5458335, StationType.BTS),
+                            new Station("Sanam Pao", "N4", 13.7592238,100.5404675, StationType.BTS),
+                            new Station("Victory Monument", "N3", 13.7600783, 100.5372488, StationType.BTS),
+                            new Station("Phaya Thai", "N2", 13.7523875, 100.5342018, StationType.BTS),
+                            new Station("Ratchathewi", "N1", 13.7474478, 100.5331504, StationType.BTS),
+                            new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                            new Station("Chit Lom", "E1", 13.7481608, 100.5409774, StationType.BTS),
+                            new Station("Phloen Chit", "E2", 13.743768,100.5446164, StationType.BTS),
+                            new Station("Nana", "E3", 13.7408864,100.5492513, StationType.BTS),
+                            new Station("Asok", "E4", 13.7361653,100.5588965, StationType.BTS)
+                        )
+                )),
+
+                new Route("Blue Line", "MRT Underground Train Blue Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Sukhumvit", "BL22", 13.7380479,100.5603774, StationType.MRT),
+                            new Station("Queen Sirikit National Convention Centre", "BL23", 13.7231519,100.5601019, StationType.MRT),
+                            new Station("Khlong Toei", "BL24", 13.7223044,100.5517262, StationType.MRT),
+                            new Station("Lumphini", "BL25", 13.7264811,100.5418382, StationType.MRT),
+                            new Station("Si Lom", "BL26", 13.7293055,100.5350227, StationType.MRT)
+                        )
+                )),
+
+                new Route("Purple Line", "MRT Skytrain Purple Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Tao Poon", "PP16", 13.806133,100.5285723, StationType.MRT),
+                            new Station("Bang Son", "PP15", 13.806133,100.5285723, StationType.MRT)
+                        )
+                ))
+        );
+    }
+}
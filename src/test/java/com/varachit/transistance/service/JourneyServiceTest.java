@@ -0,0 +1,412 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.dto.Isochrone;
+import com.varachit.transistance.dto.Journey;
+import com.varachit.transistance.dto.JourneyStop;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.graph.Criteria;
+import com.varachit.transistance.graph.SearchMode;
+import com.varachit.transistance.graph.TransitNetwork;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.repository.TableFingerprint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class JourneyServiceTest {
+    @Mock
+    private RouteRepository routeRepository;
+    @Mock
+    private StationRepository stationRepository;
+    private TransitGraphService transitGraphService;
+    private JourneyService journeyService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        transitGraphService = new TransitGraphService(routeRepository, Runnable::run, 300);
+        journeyService = new JourneyService(transitGraphService);
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfJourneyVisitsEveryStationBetweenOriginAndDestination() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        Journey journey = journeyService.planJourney("N8", "E4");
+
+        assertEquals("N8", journey.getFrom());
+        assertEquals("E4", journey.getTo());
+        assertEquals(13, journey.getStops().size());
+        assertNull(journey.getStops().get(0).getRoute());
+        assertEquals("Sukhumvit", journey.getStops().get(1).getRoute());
+        assertEquals("CEN", journey.getStops().get(8).getCode());
+        assertTrue(journey.getDistance() > 0);
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfAStarReturnsTheSameJourneyAsDijkstraForEveryCriteria() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        for(Criteria criteria : Criteria.values()) {
+            Journey expected = journeyService.planJourney("N8", "E4", criteria, SearchMode.DIJKSTRA);
+            Journey actual = journeyService.planJourney("N8", "E4", criteria, SearchMode.ASTAR);
+            assertEquals(expected.getDistance(), actual.getDistance());
+            assertEquals(expected.getDuration(), actual.getDuration());
+            assertEquals(SearchMode.ASTAR, actual.getMode());
+            assertTrue(actual.getSettledNodes() <= expected.getSettledNodes());
+        }
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfContractionHierarchyReturnsTheSameStopsAsDijkstra() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        for(Criteria criteria : Criteria.values()) {
+            Journey expected = journeyService.planJourney("E4", "N8", criteria, SearchMode.DIJKSTRA);
+            Journey actual = journeyService.planJourney("E4", "N8", criteria, SearchMode.CH);
+            assertEquals(expected.getDistance(), actual.getDistance());
+            assertEquals(expected.getStops().size(), actual.getStops().size());
+            for(int index = 0; index < expected.getStops().size(); index++) {
+                assertEquals(expected.getStops().get(index).getCode(), actual.getStops().get(index).getCode());
+                assertEquals(expected.getStops().get(index).getRoute(), actual.getStops().get(index).getRoute());
+            }
+        }
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfGraphIsBuiltOnceAndRebuiltAfterARouteChange() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        journeyService.planJourney("N8", "E4");
+        journeyService.planJourney("E4", "N8");
+        verify(routeRepository, times(1)).findAll();
+
+        long version = transitGraphService.getGraph().getVersion();
+        transitGraphService.onRouteChanged(new RouteChangedEvent(getRoutesTestcase().get(1), ChangeType.UPDATED));
+        journeyService.planJourney("BL22", "BL26");
+        verify(routeRepository, times(2)).findAll();
+        assertTrue(transitGraphService.getGraph().getVersion() > version);
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfStationStatusChangesArePatchedWithoutRebuildingTheGraph() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        journeyService.planJourney("N8", "E4");
+        long version = transitGraphService.getGraph().getVersion();
+
+        Station siam = new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS);
+        siam.setStatus(StationStatus.CLOSED);
+        transitGraphService.onStationChanged(new StationChangedEvent(siam, ChangeType.UPDATED));
+        assertThrows(ResponseStatusException.class, () -> journeyService.planJourney("N8", "E4"));
+        assertThrows(ResponseStatusException.class,
+                () -> journeyService.planJourney("N8", "E4", Criteria.TIME, SearchMode.CH));
+        assertTrue(transitGraphService.getGraph().getVersion() > version);
+
+        siam.setStatus(StationStatus.OPENED);
+        transitGraphService.onStationChanged(new StationChangedEvent(siam, ChangeType.UPDATED));
+        assertEquals(13, journeyService.planJourney("N8", "E4").getStops().size());
+        verify(routeRepository, times(1)).findAll();
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfAStationRemovedFromARouteIsPatchedOutOfTheJourney() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        journeyService.planJourney("E3", "BL24");
+
+        // Asok stays in the network through its walking transfer to Sukhumvit
+        Route sukhumvit = getRoutesTestcase().get(0);
+        Station asok = sukhumvit.getStations().remove(12);
+        transitGraphService.onRouteChanged(new RouteChangedEvent(sukhumvit, ChangeType.UPDATED, asok,
+                ChangeType.DELETED));
+        assertThrows(ResponseStatusException.class,
+                () -> journeyService.planJourney("E3", "BL24", Criteria.TIME, SearchMode.CH));
+        Journey journey = journeyService.planJourney("E4", "BL24", Criteria.TIME, SearchMode.CH);
+
+        assertEquals(List.of("E4", "BL22", "BL23", "BL24"),
+                journey.getStops().stream().map(JourneyStop::getCode).collect(Collectors.toList()));
+        verify(routeRepository, times(1)).findAll();
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfAStationAddedToARouteIsPatchedIntoTheJourney() {
+        TransitGraphService service = spy(transitGraphService);
+        JourneyService journeys = new JourneyService(service);
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        long version = service.getNetwork().getVersion();
+
+        Route blueLine = getRoutesTestcase().get(1);
+        Station samYan = new Station("Sam Yan", "BL27", 13.7325, 100.5297, StationType.MRT);
+        blueLine.getStations().add(samYan);
+        service.onRouteChanged(new RouteChangedEvent(blueLine, ChangeType.UPDATED, samYan, ChangeType.CREATED));
+        Journey journey = journeys.planJourney("BL24", "BL27", Criteria.TIME, SearchMode.CH);
+
+        assertTrue(service.getNetwork().getVersion() > version);
+        assertEquals(List.of("BL24", "BL25", "BL26", "BL27"),
+                journey.getStops().stream().map(JourneyStop::getCode).collect(Collectors.toList()));
+        verify(service, never()).requestRebuild();
+        verify(routeRepository, times(1)).findAll();
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfARestartedServiceLoadsTheSnapshotUntilTheDatabaseChanges() throws IOException {
+        File snapshot = File.createTempFile("transit-graph", ".snapshot");
+        snapshot.delete();
+        try {
+            given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+            given(routeRepository.findFingerprint()).willReturn(fingerprint(3L, 3L, 3L));
+            given(stationRepository.findFingerprint()).willReturn(fingerprint(20L, 0L, 20L));
+            new JourneyService(restart(snapshot)).planJourney("N8", "E4");
+            assertTrue(snapshot.isFile());
+
+            Journey journey = new JourneyService(restart(snapshot)).planJourney("E3", "BL24");
+            assertEquals("BL24", journey.getStops().get(journey.getStops().size() - 1).getCode());
+            verify(routeRepository, times(1)).findAll();
+
+            // A station status update bumps its version, so the snapshot no longer matches the database
+            given(stationRepository.findFingerprint()).willReturn(fingerprint(20L, 1L, 20L));
+            new JourneyService(restart(snapshot)).planJourney("N8", "E4");
+            verify(routeRepository, times(2)).findAll();
+        } finally {
+            snapshot.delete();
+        }
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfTheNetworkIsBuiltWhenTheApplicationIsReady() {
+        // A database that is not reachable yet leaves the build to the first query
+        given(routeRepository.findAll()).willThrow(new IllegalStateException("connection refused"));
+        transitGraphService.onApplicationReady();
+        verify(routeRepository, times(1)).findAll();
+
+        willReturn(getRoutesTestcase()).given(routeRepository).findAll();
+        transitGraphService.onApplicationReady();
+        verify(routeRepository, times(2)).findAll();
+        Journey journey = journeyService.planJourney("N8", "E4");
+        assertEquals("E4", journey.getStops().get(journey.getStops().size() - 1).getCode());
+        verify(routeRepository, times(2)).findAll();
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfCachedJourneysAreOnlyReusedForTheSameNetworkVersion() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        Journey journey = journeyService.planJourney("N8", "E4", Criteria.TIME, SearchMode.ASTAR);
+        assertSame(journey, journeyService.planJourney("N8", "E4", Criteria.TIME, SearchMode.ASTAR));
+        assertNotSame(journey, journeyService.planJourney("N8", "E4", Criteria.DISTANCE, SearchMode.ASTAR));
+
+        transitGraphService.onRouteChanged(new RouteChangedEvent(getRoutesTestcase().get(1), ChangeType.UPDATED));
+        Journey replanned = journeyService.planJourney("N8", "E4", Criteria.TIME, SearchMode.ASTAR);
+        assertNotSame(journey, replanned);
+        assertEquals(journey.getDuration(), replanned.getDuration());
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfJourneyWalksBetweenNearbyStationsOfDifferentRoutes() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        Journey journey = journeyService.planJourney("E3", "BL24");
+
+        assertEquals(List.of("E3", "E4", "BL22", "BL23", "BL24"),
+                journey.getStops().stream().map(JourneyStop::getCode).collect(Collectors.toList()));
+        assertEquals(JourneyService.WALKING_TRANSFER, journey.getStops().get(2).getRoute());
+        assertEquals("Blue Line", journey.getStops().get(3).getRoute());
+        assertTrue(transitGraphService.isInterchange("E4"));
+        assertTrue(transitGraphService.isInterchange("BL22"));
+        assertFalse(transitGraphService.isInterchange("E3"));
+        assertFalse(transitGraphService.isInterchange("PP16"));
+    }
+
+    @Test
+    void planJourney_ThrowResponseStatusException404_ThenAssertionSucceeds_IfStationCodeIsNotServed() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> journeyService.planJourney("N8", "XX1"));
+        String expectedMessage = "404 NOT_FOUND \"Station with the specified code is not served by any route\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void planJourney_ThrowResponseStatusException404_ThenAssertionSucceeds_IfNoJourneyConnectsTheStations() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> journeyService.planJourney("N8", "PP15"));
+        String expectedMessage = "404 NOT_FOUND \"Unable to find a journey between the specified stations\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void planAlternatives_AssertionSucceeds_IfJourneysViaEachInterchangeAreReturnedShortestFirst() {
+        List<Route> routes = new LinkedList<>(getRoutesTestcase());
+        routes.add(new Route("Silom", "BTS Skytrain Silom Line", StationType.BTS, new LinkedList<>(
+                Arrays.asList(
+                    new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                    new Station("Ratchadamri", "S1", 13.7395, 100.5392, StationType.BTS),
+                    new Station("Sala Daeng", "S2", 13.7285, 100.5343, StationType.BTS)
+                )
+        )));
+        given(routeRepository.findAll()).willReturn(routes);
+        Journey shortest = journeyService.planJourney("E3", "BL24", Criteria.TIME, SearchMode.DIJKSTRA);
+        List<Journey> journeys = journeyService.planAlternatives("E3", "BL24", Criteria.TIME, 5);
+
+        // Only two loopless journeys exist: via Asok and Sukhumvit, or via Siam and Sala Daeng to Si Lom
+        assertEquals(2, journeys.size());
+        assertEquals(shortest.getDuration(), journeys.get(0).getDuration());
+        assertTrue(journeys.get(1).getDuration() >= journeys.get(0).getDuration());
+        List<String> firstCodes = journeys.get(0).getStops().stream().map(stop -> stop.getCode())
+                .collect(Collectors.toList());
+        List<String> secondCodes = journeys.get(1).getStops().stream().map(stop -> stop.getCode())
+                .collect(Collectors.toList());
+        assertTrue(firstCodes.contains("E4"));
+        assertTrue(secondCodes.containsAll(Arrays.asList("CEN", "S2", "BL26")));
+    }
+
+    @Test
+    void planAlternatives_ThrowResponseStatusException400_ThenAssertionSucceeds_IfNumberOfJourneysIsInvalid() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> journeyService.planAlternatives("E3", "BL24", Criteria.TIME, 11));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid number of journeys\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void isochrone_AssertionSucceeds_IfStationsWithinTheBudgetAreReturnedInOrderOfTravelTime() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        Isochrone isochrone = journeyService.isochrone("CEN", 5);
+
+        assertEquals("CEN", isochrone.getFrom());
+        assertEquals(journeyService.getNetworkVersion(), isochrone.getVersion());
+        assertEquals("CEN", isochrone.getStations().get(0).getCode());
+        assertEquals(0, isochrone.getStations().get(0).getDuration());
+        List<String> codes = isochrone.getStations().stream().map(stop -> stop.getCode())
+                .collect(Collectors.toList());
+        assertTrue(codes.containsAll(Arrays.asList("N1", "E1")));
+        assertFalse(codes.contains("N8"));
+        assertTrue(isochrone.getStations().stream().allMatch(stop -> stop.getDuration() <= 300));
+
+        Isochrone wider = journeyService.isochrone("CEN", 60);
+        assertTrue(wider.getStations().size() > isochrone.getStations().size());
+    }
+
+    @Test
+    void getFingerprint_AssertionSucceeds_IfRestartsAgreeUntilTheDatabaseChanges() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        given(routeRepository.findFingerprint()).willReturn(fingerprint(3L, 3L, 3L));
+        given(stationRepository.findFingerprint()).willReturn(fingerprint(20L, 0L, 20L));
+        TransitGraphService first = restart(null);
+        long fingerprint = new JourneyService(first).getNetwork().getFingerprint();
+        assertEquals(fingerprint, first.getNetwork().getFingerprint());
+        verify(stationRepository, times(1)).findFingerprint();
+
+        // A second instance that has rebuilt more often numbers the same rows with another version
+        TransitGraphService second = restart(null);
+        second.onCatalogueImported(new CatalogueImportedEvent(20, 3));
+        second.onCatalogueImported(new CatalogueImportedEvent(20, 3));
+        assertNotEquals(first.getNetwork().getVersion(), second.getNetwork().getVersion());
+        assertEquals(fingerprint, second.getNetwork().getFingerprint());
+
+        given(stationRepository.findFingerprint()).willReturn(fingerprint(21L, 0L, 21L));
+        first.onCatalogueImported(new CatalogueImportedEvent(21, 3));
+        assertNotEquals(fingerprint, first.getNetwork().getFingerprint());
+    }
+
+    @Test
+    void getFingerprint_AssertionSucceeds_IfAPatchedNetworkCarriesTheFingerprintOfTheWrite() {
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+        given(routeRepository.findFingerprint()).willReturn(fingerprint(3L, 3L, 3L));
+        given(stationRepository.findFingerprint()).willReturn(fingerprint(20L, 0L, 20L));
+        TransitGraphService service = restart(null);
+        long fingerprint = service.getNetwork().getFingerprint();
+
+        Station siam = new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS);
+        siam.setStatus(StationStatus.CLOSED);
+        given(stationRepository.findFingerprint()).willReturn(fingerprint(20L, 1L, 20L));
+        service.onStationChanged(new StationChangedEvent(siam, ChangeType.UPDATED));
+        TransitNetwork patched = service.getNetwork();
+
+        // Reading the fingerprint of the current network never goes to the database
+        assertEquals(patched.getFingerprint(), service.getNetwork().getFingerprint());
+        verify(stationRepository, times(2)).findFingerprint();
+        verify(routeRepository, times(1)).findAll();
+        assertNotEquals(fingerprint, patched.getFingerprint());
+        assertEquals(service.fingerprint(), patched.getFingerprint());
+    }
+
+    @Test
+    void isochrone_ThrowResponseStatusException400_ThenAssertionSucceeds_IfBudgetIsInvalid() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> journeyService.isochrone("CEN", 0));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid travel-time budget\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    TransitGraphService restart(File snapshot) {
+        return new TransitGraphService(routeRepository, stationRepository, Runnable::run, 300, snapshot);
+    }
+
+    TableFingerprint fingerprint(Long rowCount, Long versionSum, Long maxId) {
+        return new TableFingerprint() {
+            public Long getRowCount() { return rowCount; }
+            public Long getVersionSum() { return versionSum; }
+            public Long getMaxId() { return maxId; }
+        };
+    }
+
+    List<Route> getRoutesTestcase() {
+        return Arrays.asList(
+                new Route("Sukhumvit", "BTS Skytrain Sukhumvit Line", StationType.BTS, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Mo Chit", "N8", 13.7990075, 100.5524655, StationType.BTS),
+                            new Station("Saphan Khwai", "N7", 13.7919983, 100.5491032, StationType.BTS),
+                            new Station("Sena Ruam", "N6", 13.7873954, 100.5470566, StationType.BTS),
+                            new Station("Ari", "N5", 13.7791812, 100.5458335, StationType.BTS),
+                            new Station("Sanam Pao", "N4", 13.7592238,100.5404675, StationType.BTS),
+                            new Station("Victory Monument", "N3", 13.7600783, 100.5372488, StationType.BTS),
+                            new Station("Phaya Thai", "N2", 13.7523875, 100.5342018, StationType.BTS),
+                            new Station("Ratchathewi", "N1", 13.7474478, 100.5331504, StationType.BTS),
+                            new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                            new Station("Chit Lom", "E1", 13.7481608, 100.5409774, StationType.BTS),
+                            new Station("Phloen Chit", "E2", 13.743768,100.5446164, StationType.BTS),
+                            new Station("Nana", "E3", 13.7408864,100.5492513, StationType.BTS),
+                            new Station("Asok", "E4", 13.7361653,100.5588965, StationType.BTS)
+                        )
+                )),
+
+                new Route("Blue Line", "MRT Underground Train Blue Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Sukhumvit", "BL22", 13.7380479,100.5603774, StationType.MRT),
+                            new Station("Queen Sirikit National Convention Centre", "BL23", 13.7231519,100.5601019, StationType.MRT),
+                            new Station("Khlong Toei", "BL24", 13.7223044,100.5517262, StationType.MRT),
+                            new Station("Lumphini", "BL25", 13.7264811,100.5418382, StationType.MRT),
+                            new Station("Si Lom", "BL26", 13.7293055,100.5350227, StationType.MRT)
+                        )
+                )),
+
+                new Route("Purple Line", "MRT Skytrain Purple Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Tao Poon", "PP16", 13.806133,100.5285723, StationType.MRT),
+                            new Station("Bang Son", "PP15", 13.806133,100.5285723, StationType.MRT)
+                        )
+                ))
+        );
+    }
+}
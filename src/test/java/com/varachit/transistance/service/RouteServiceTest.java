@@ -3,15 +3,21 @@ package com.varachit.transistance.service;
 import com.varachit.transistance.entity.Route;
 import com.varachit.transistance.entity.Station;
 import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
 import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.repository.StationRepository.StationCodeRow;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
@@ -19,17 +25,26 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class RouteServiceTest {
     @Mock
     private RouteRepository routeRepository;
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private StationCodeService stationCodeService;
     private RouteService routeService;
     final Logger logger = LoggerFactory.getLogger(RouteServiceTest.class);
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        routeService = new RouteService(routeRepository);
+        stationCodeService = new StationCodeService(stationRepository);
+        routeService = new RouteService(routeRepository, eventPublisher,
+                new CatalogueReadModel(stationRepository, routeRepository), stationCodeService);
     }
 
     @Test
@@ -44,15 +59,15 @@ class RouteServiceTest {
     @Test
     void getRoute_AssertionSucceeds_IfARouteWithAnIdIsExistsAndEqualToAnExpectedRoute() {
         Route expectedRoute = getAllRoutesTestcase().get(1);
-        given(routeRepository.findById(1L)).willReturn(Optional.of(expectedRoute));
-        Route actualRoute = routeService.getRoute(1L);
+        given(routeRepository.findAll()).willReturn(getAllRoutesTestcase());
+        Route actualRoute = routeService.getRoute(2L);
         assertEquals(expectedRoute.getName(), actualRoute.getName());
         logStatus("getRoute", expectedRoute.hashCode(), actualRoute.hashCode());
     }
 
     @Test
     void getRoute_ThrowResponseStatusException404_ThenAssertionSucceeds_IfARouteWithAnIdDoesNotExist() {
-        given(routeRepository.findById(2L)).willReturn(Optional.empty());
+        given(routeRepository.findAll()).willReturn(getAllRoutesTestcase().subList(0, 1));
         Exception exception = assertThrows(ResponseStatusException.class, () -> routeService.getRoute(2L));
         String expectedMessage = "404 NOT_FOUND \"Route with the specified ID does not exist\"";
         String actualMessage = exception.getMessage();
@@ -95,6 +110,7 @@ class RouteServiceTest {
     @Test
     void updateRoute_AssertionSucceeds_IfARouteUpdatedSuccessfullyAndIsEqualToAnExpectedRoute() {
         Route originalRoute = Route.builder()
+                .id(3L)
                 .name("Airport Link") //
                 .description("The line provides an airport rail link from or to Suvarnabhumi Airport")
                 .type(StationType.SRL) // should be ARL (Airport Rail Link) instead of SRL (State Railway Line)
@@ -116,7 +132,9 @@ class RouteServiceTest {
                 .stations(new LinkedList<>(List.of(A1)))
                 .build();
 
+        given(routeRepository.findAll()).willReturn(List.of(originalRoute));
         given(routeRepository.findById(3L)).willReturn(Optional.of(originalRoute));
+        given(routeRepository.save(originalRoute)).willReturn(originalRoute);
         Route existingRouteId = routeService.getRoute(3L);
         assertEquals(originalRoute, existingRouteId);
 
@@ -130,12 +148,14 @@ class RouteServiceTest {
     @Test
     void deleteRoute_AssertionSucceeds_IfARouteDeletedSuccessfully() {
         Route BlueLine = Route.builder()
+                .id(4L)
                 .name("Blue Line")
                 .description("MRT Railways from Lak Song from or to Tha Phra")
                 .type(StationType.MRT)
                 .stations(new LinkedList<>())
                 .build();
 
+        given(routeRepository.findAll()).willReturn(List.of(BlueLine));
         given(routeRepository.findById(4L)).willReturn(Optional.of(BlueLine));
         Route existingRouteId = routeService.getRoute(4L);
         assertEquals(BlueLine, existingRouteId);
@@ -180,6 +200,7 @@ class RouteServiceTest {
                 .build();
 
         given(routeRepository.findById(6L)).willReturn(Optional.of(PurpleLine));
+        given(routeRepository.save(PurpleLine)).willReturn(PurpleLine);
         Route updatedStation = routeService.addStationToRoute(6L, PP01);
         assertEquals(1, updatedStation.getStations().size());
         assertEquals(PP01.getName(), updatedStation.getStations().get(0).getName());
@@ -257,6 +278,7 @@ class RouteServiceTest {
                 .build();
 
         given(routeRepository.findById(9L)).willReturn(Optional.of(SilomLine));
+        given(routeRepository.save(SilomLine)).willReturn(SilomLine);
         Route updatedRoute = routeService.deleteStationFromRoute(9L, S9.getId());
         assertEquals(0, updatedRoute.getStations().size());
         assertEquals(expectedRoute.getStations().size(), updatedRoute.getStations().size());
@@ -292,6 +314,91 @@ class RouteServiceTest {
         logStatus("deleteStationFromRoute", expectedMessage.hashCode(), actualMessage.hashCode());
     }
 
+    @Test
+    void streamRoutes_AssertionSucceeds_IfEveryRouteIsConsumedInIdOrder() {
+        List<Route> routes = new ArrayList<>();
+        for(long id = 101; id >= 1; id--) {
+            routes.add(Route.builder().id(id).name("Route " + id).type(StationType.BTS).build());
+        }
+        given(routeRepository.findAll()).willReturn(routes);
+
+        List<Route> streamedRoutes = new ArrayList<>();
+        routeService.streamRoutes(streamedRoutes::add);
+        assertEquals(routes.size(), streamedRoutes.size());
+        for(int index = 0; index < streamedRoutes.size(); index++) {
+            assertEquals(index + 1L, streamedRoutes.get(index).getId().longValue());
+        }
+    }
+
+    @Test
+    void getRouteSummaries_AssertionSucceeds_IfStationCountsFollowRouteEventsWithoutReloading() {
+        CatalogueReadModel catalogueReadModel = new CatalogueReadModel(stationRepository, routeRepository);
+        routeService = new RouteService(routeRepository, eventPublisher, catalogueReadModel, stationCodeService);
+        List<Route> routes = getAllRoutesTestcase();
+        given(routeRepository.findAll()).willReturn(routes);
+        assertEquals(25L, routeService.getRouteSummaries().get(0).getStationCount().longValue());
+
+        Route sukhumvitLine = routes.get(0);
+        sukhumvitLine.addStation(Station.builder().id(100L).name("Samrong").code("E15")
+                .latitude(13.6464372).longitude(100.5961117).type(StationType.BTS).build());
+        catalogueReadModel.onRouteChanged(new RouteChangedEvent(sukhumvitLine, ChangeType.UPDATED));
+        assertEquals(26L, routeService.getRouteSummaries().get(0).getStationCount().longValue());
+        assertEquals("E15", routeService.getRoute(1L).getStations().get(25).getCode());
+
+        catalogueReadModel.onRouteChanged(new RouteChangedEvent(sukhumvitLine, ChangeType.DELETED));
+        assertThrows(ResponseStatusException.class, () -> routeService.getRoute(1L));
+        verify(routeRepository, times(1)).findAll();
+    }
+
+    @Test
+    void addStationToRoute_ThrowResponseStatusException400_ThenAssertionSucceeds_IfTheCodeIsUsedOnAnotherRoute() {
+        given(stationRepository.findCodeRows()).willReturn(List.of(codeRow(1L, "CEN")));
+        Route goldLine = Route.builder().id(8L).name("Gold Line").type(StationType.BTS)
+                .stations(new LinkedList<>()).build();
+        given(routeRepository.findById(8L)).willReturn(Optional.of(goldLine));
+        Station siam = new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS);
+
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> routeService.addStationToRoute(8L, siam));
+        String expectedMessage = "400 BAD_REQUEST \"Unable to add station to route due to the specified code already exists\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+        assertTrue(goldLine.getStations().isEmpty());
+    }
+
+    @Test
+    void addRoute_ThrowResponseStatusException400_ThenAssertionSucceeds_IfAStationCodeIsUsedOnAnotherRoute() {
+        given(stationRepository.findCodeRows()).willReturn(List.of(codeRow(1L, "CEN")));
+        Route silomLine = new Route("Silom", "BTS Skytrain Silom Line", StationType.BTS, new LinkedList<>(List.of(
+                new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                new Station("Ratchadamri", "S1", 13.7395, 100.5393, StationType.BTS))));
+        given(routeRepository.findByName("Silom")).willReturn(Optional.empty());
+
+        Exception exception = assertThrows(ResponseStatusException.class, () -> routeService.addRoute(silomLine));
+        String expectedMessage = "400 BAD_REQUEST \"Unable to add route due to a station code already exists\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void onRouteChanged_AssertionSucceeds_IfStationCodesFollowTheStationsOfCreatedAndDeletedRoutes() {
+        given(stationRepository.findCodeRows()).willReturn(List.of());
+        Station siam = Station.builder().id(1L).name("Siam").code("CEN").type(StationType.BTS).build();
+        Route silomLine = Route.builder().id(2L).name("Silom").type(StationType.BTS)
+                .stations(new LinkedList<>(List.of(siam))).build();
+        assertFalse(stationCodeService.exists("CEN"));
+
+        stationCodeService.onRouteChanged(new RouteChangedEvent(silomLine, ChangeType.CREATED));
+        assertEquals(Optional.of(1L), stationCodeService.findId("CEN"));
+        stationCodeService.onRouteChanged(new RouteChangedEvent(silomLine, ChangeType.DELETED));
+        assertFalse(stationCodeService.exists("CEN"));
+    }
+
+    StationCodeRow codeRow(Long id, String code) {
+        return new StationCodeRow() {
+            public Long getId() { return id; }
+            public String getCode() { return code; }
+        };
+    }
+
     void logStatus(String methodName, int expectedHashCode, int actualHashCode) {
         if(expectedHashCode == actualHashCode) {
             logger.info(methodName + " : PASSED");
@@ -300,8 +407,9 @@ class RouteServiceTest {
         }
     }
 
+    // Routes are given ids in list order, as the database would on first insert
     List<Route> getAllRoutesTestcase() {
-        return Arrays.asList(
+        List<Route> routes = Arrays.asList(
                 new Route("Sukhumvit", "BTS Skytrain Sukhumvit Line", StationType.BTS, new LinkedList<>(
                         Arrays.asList(
                             new Station("Sena Nikhom", "N12", 13.8363601, 100.5714222, StationType.BTS),
@@ -349,6 +457,10 @@ class RouteServiceTest {
                         )
                 ))
         );
+        for(int index = 0; index < routes.size(); index++) {
+            routes.get(index).setId(index + 1L);
+        }
+        return routes;
     }
 
 
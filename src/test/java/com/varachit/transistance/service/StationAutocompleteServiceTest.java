@@ -0,0 +1,121 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.event.CatalogueImportedEvent;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.RouteChangedEvent;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class StationAutocompleteServiceTest {
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private RouteRepository routeRepository;
+    private CatalogueReadModel catalogueReadModel;
+    private StationAutocompleteService stationAutocompleteService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalogueReadModel = new CatalogueReadModel(stationRepository, routeRepository);
+        stationAutocompleteService = new StationAutocompleteService(catalogueReadModel);
+    }
+
+    @Test
+    void suggest_AssertionSucceeds_IfNamesAndCodesAreCompletedBestFirst() {
+        given(stationRepository.findAll()).willReturn(getStationsTestcase());
+        assertEquals(List.of("E5", "E8"), codes(stationAutocompleteService.suggest("phr", 10)));
+        assertEquals(List.of("E8"), codes(stationAutocompleteService.suggest("khan", 10)));
+        assertEquals(List.of("BL22"), codes(stationAutocompleteService.suggest("sukumvit", 10)));
+        assertEquals(List.of("E5"), codes(stationAutocompleteService.suggest("phr", 1)));
+        assertTrue(stationAutocompleteService.suggest(" ", 10).isEmpty());
+    }
+
+    @Test
+    void suggest_AssertionSucceeds_IfStationWritesAreAppliedWithoutReloading() {
+        List<Station> stations = getStationsTestcase();
+        given(stationRepository.findAll()).willReturn(stations);
+        assertEquals(List.of("E5", "E8"), codes(stationAutocompleteService.suggest("phr", 10)));
+
+        Station renamed = stations.get(2).toBuilder().name("Benchasiri Park").build();
+        Station added = Station.builder().id(5L).name("Phaya Thai").code("N2").type(StationType.BTS).build();
+        for(StationChangedEvent event : List.of(new StationChangedEvent(renamed, ChangeType.UPDATED),
+                new StationChangedEvent(added, ChangeType.CREATED),
+                new StationChangedEvent(stations.get(3), ChangeType.DELETED))) {
+            catalogueReadModel.onStationChanged(event);
+            stationAutocompleteService.onStationChanged(event);
+        }
+        assertTrue(stationAutocompleteService.suggest("phr", 10).isEmpty());
+        assertEquals(List.of("N2"), codes(stationAutocompleteService.suggest("pha", 10)));
+        assertEquals(List.of("E5"), codes(stationAutocompleteService.suggest("bench", 10)));
+        verify(stationRepository, times(1)).findAll();
+
+        // A bulk import rebuilds the index from the reloaded catalogue
+        given(stationRepository.findAll()).willReturn(getStationsTestcase());
+        CatalogueImportedEvent imported = new CatalogueImportedEvent(4, 0);
+        catalogueReadModel.onCatalogueImported(imported);
+        stationAutocompleteService.onCatalogueImported(imported);
+        assertEquals(List.of("E5", "E8"), codes(stationAutocompleteService.suggest("phr", 10)));
+        verify(stationRepository, times(2)).findAll();
+    }
+
+    @Test
+    void suggest_AssertionSucceeds_IfStationsOfCreatedRoutesAreAddedAndThoseOfDeletedRoutesRemoved() {
+        given(stationRepository.findAll()).willReturn(getStationsTestcase());
+        assertEquals(List.of("CEN"), codes(stationAutocompleteService.suggest("s", 1)));
+
+        Station sai = Station.builder().id(10L).name("Sai").code("E15").type(StationType.BTS).build();
+        Route extension = Route.builder().id(20L).name("Sukhumvit Extension").description("Southern extension")
+                .type(StationType.BTS).stations(new LinkedList<>(List.of(sai))).build();
+        RouteChangedEvent created = new RouteChangedEvent(extension, ChangeType.CREATED);
+        catalogueReadModel.onRouteChanged(created);
+        stationAutocompleteService.onRouteChanged(created);
+        assertEquals(List.of("E15"), codes(stationAutocompleteService.suggest("s", 1)));
+
+        // The deleted station must not keep the only slot and leave the suggestions empty
+        RouteChangedEvent deleted = new RouteChangedEvent(extension, ChangeType.DELETED);
+        catalogueReadModel.onRouteChanged(deleted);
+        stationAutocompleteService.onRouteChanged(deleted);
+        assertEquals(List.of("CEN"), codes(stationAutocompleteService.suggest("s", 1)));
+    }
+
+    @Test
+    void suggest_ThrowResponseStatusException400_ThenAssertionSucceeds_IfNumberOfSuggestionsIsInvalid() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> stationAutocompleteService.suggest("siam", 51));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid number of suggestions\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    private List<String> codes(List<Station> stations) {
+        return stations.stream().map(Station::getCode).collect(Collectors.toList());
+    }
+
+    private List<Station> getStationsTestcase() {
+        List<Station> stations = new ArrayList<>();
+        stations.add(Station.builder().id(1L).name("Siam").code("CEN").type(StationType.BTS).build());
+        stations.add(Station.builder().id(2L).name("Sukhumvit").code("BL22").type(StationType.MRT).build());
+        stations.add(Station.builder().id(3L).name("Phrom Phong").code("E5").type(StationType.BTS).build());
+        stations.add(Station.builder().id(4L).name("Phra Khanong").code("E8").type(StationType.BTS).build());
+        return stations;
+    }
+}
@@ -0,0 +1,157 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class StationLocatorServiceTest {
+    @Mock
+    private StationRepository stationRepository;
+    @Mock
+    private RouteRepository routeRepository;
+    private CatalogueReadModel catalogueReadModel;
+    private TransitGraphService transitGraphService;
+    private StationLocatorService stationLocatorService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalogueReadModel = new CatalogueReadModel(stationRepository, routeRepository);
+        transitGraphService = new TransitGraphService(routeRepository, Runnable::run, 300);
+        stationLocatorService = new StationLocatorService(catalogueReadModel, transitGraphService);
+    }
+
+    @Test
+    void nearestStations_AssertionSucceeds_IfStationsAreReturnedNearestFirst() {
+        given(stationRepository.findAll()).willReturn(getStationsTestcase());
+        // Terminal 21, between Asok and Sukhumvit
+        List<Station> stations = stationLocatorService.nearestStations(13.7376, 100.5602, 3);
+        List<String> codes = stations.stream().map(Station::getCode).collect(Collectors.toList());
+        assertEquals(List.of("BL22", "E4", "E3"), codes);
+    }
+
+    @Test
+    void nearestStations_AssertionSucceeds_IfIndexFollowsTheReadModelWithoutReadingTheTable() {
+        given(stationRepository.findAll()).willReturn(getStationsTestcase());
+        assertEquals("BL22", stationLocatorService.nearestStations(13.7376, 100.5602, 1).get(0).getCode());
+        assertEquals("BL22", stationLocatorService.nearestStations(13.7376, 100.5602, 1).get(0).getCode());
+
+        Station terminal = new Station("Terminal", "T21", 13.7376, 100.5602, StationType.MRT);
+        terminal.setId(6L);
+        catalogueReadModel.onStationChanged(new StationChangedEvent(terminal, ChangeType.CREATED));
+
+        assertEquals("T21", stationLocatorService.nearestStations(13.7376, 100.5602, 1).get(0).getCode());
+        verify(stationRepository, times(1)).findAll();
+    }
+
+    @Test
+    void nearestStations_AssertionSucceeds_IfStationsAreFlaggedAsInterchangesOfTheCurrentNetwork() {
+        List<Station> stations = getStationsTestcase();
+        given(stationRepository.findAll()).willReturn(stations);
+        // Asok and Sukhumvit are a short walk apart, Nana is only served by the Sukhumvit Line
+        given(routeRepository.findAll()).willReturn(List.of(
+                new Route("Sukhumvit Line", "BTS Skytrain", StationType.BTS,
+                        new LinkedList<>(List.of(stations.get(0), stations.get(1), stations.get(2)))),
+                new Route("Blue Line", "MRT Underground", StationType.MRT,
+                        new LinkedList<>(List.of(stations.get(3))))));
+
+        // Reads never build the network, until it is published no station is flagged
+        List<Station> cold = stationLocatorService.nearestStations(13.7376, 100.5602, 3);
+        assertTrue(cold.stream().noneMatch(Station::isInterchangeable));
+        // Only the catalogue snapshot has read the routes
+        verify(routeRepository, times(1)).findAll();
+
+        transitGraphService.getNetwork();
+        List<Station> nearest = stationLocatorService.nearestStations(13.7376, 100.5602, 3);
+        assertEquals(List.of(true, true, false),
+                nearest.stream().map(Station::isInterchangeable).collect(Collectors.toList()));
+        List<Station> nana = stationLocatorService.stationsWithinRadius(13.7405452, 100.5548826, 100.0, null, null);
+        assertFalse(nana.get(0).isInterchangeable());
+    }
+
+    @Test
+    void nearestStations_ThrowResponseStatusException400_ThenAssertionSucceeds_IfNumberOfStationsIsInvalid() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> stationLocatorService.nearestStations(13.7376, 100.5602, 0));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid number of stations\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void nearestStations_ThrowResponseStatusException400_ThenAssertionSucceeds_IfLatitudeIsInvalid() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> stationLocatorService.nearestStations(91.0, 100.5602, 5));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid station latitude coordinate\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void stationsWithinRadius_AssertionSucceeds_IfOnlyStationsInsideTheRadiusAreReturnedNearestFirst() {
+        given(stationRepository.findAll()).willReturn(getStationsTestcase());
+        List<Station> stations = stationLocatorService.stationsWithinRadius(13.7376, 100.5602, 800.0, null, null);
+        List<String> codes = stations.stream().map(Station::getCode).collect(Collectors.toList());
+        assertEquals(List.of("BL22", "E4", "E3"), codes);
+
+        List<Station> mrtStations = stationLocatorService.stationsWithinRadius(13.7376, 100.5602, 800.0,
+                StationType.MRT, null);
+        assertEquals(1, mrtStations.size());
+        assertEquals("BL22", mrtStations.get(0).getCode());
+    }
+
+    @Test
+    void stationsWithinBox_AssertionSucceeds_IfStationsInsideTheBoxMatchTheTypeAndStatus() {
+        List<Station> stations = getStationsTestcase();
+        stations.get(1).setStatus(StationStatus.UNDER_CONSTRUCTION);
+        given(stationRepository.findAll()).willReturn(stations);
+
+        List<String> codes = stationLocatorService.stationsWithinBox(13.73, 100.54, 13.75, 100.57, null, null)
+                .stream().map(Station::getCode).sorted().collect(Collectors.toList());
+        assertEquals(List.of("BL22", "E3", "E4"), codes);
+
+        List<String> openedBtsCodes = stationLocatorService.stationsWithinBox(13.73, 100.54, 13.75, 100.57,
+                        StationType.BTS, StationStatus.OPENED)
+                .stream().map(Station::getCode).collect(Collectors.toList());
+        assertEquals(List.of("E4"), openedBtsCodes);
+    }
+
+    @Test
+    void stationsWithinBox_ThrowResponseStatusException400_ThenAssertionSucceeds_IfCornersAreSwapped() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> stationLocatorService.stationsWithinBox(13.75, 100.54, 13.73, 100.57, null, null));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid bounding box\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    List<Station> getStationsTestcase() {
+        List<Station> stations = new ArrayList<>();
+        stations.add(new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS));
+        stations.add(new Station("Nana", "E3", 13.7405452, 100.5548826, StationType.BTS));
+        stations.add(new Station("Asok", "E4", 13.7370436, 100.5603257, StationType.BTS));
+        stations.add(new Station("Sukhumvit", "BL22", 13.7380479, 100.5603774, StationType.MRT));
+        stations.add(new Station("Lat Krabang", "A2", 13.7278286, 100.7451841, StationType.ARL));
+        for(int index = 0; index < stations.size(); index++) {
+            stations.get(index).setId(index + 1L);
+        }
+        return stations;
+    }
+}
@@ -1,9 +1,14 @@
 package com.varachit.transistance.service;
 
+import com.varachit.transistance.dto.CursorPage;
 import com.varachit.transistance.entity.Station;
 import com.varachit.transistance.entity.StationStatus;
 import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.event.ChangeType;
+import com.varachit.transistance.event.StationChangedEvent;
+import com.varachit.transistance.repository.RouteRepository;
 import com.varachit.transistance.repository.StationRepository;
+import com.varachit.transistance.repository.StationRepository.StationCodeRow;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -11,23 +16,34 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class StationServiceTest {
     @Mock
     private StationRepository stationRepository;
+    @Mock
+    private RouteRepository routeRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private StationCodeService stationCodeService;
     private StationService stationService;
     final Logger logger = LoggerFactory.getLogger(StationServiceTest.class);
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        stationService = new StationService(stationRepository);
+        stationCodeService = new StationCodeService(stationRepository);
+        stationService = new StationService(stationRepository, eventPublisher,
+                new TransitGraphService(routeRepository, Runnable::run, 300), stationCodeService,
+                new CatalogueReadModel(stationRepository, routeRepository));
     }
 
     @Test
@@ -44,7 +60,7 @@ class StationServiceTest {
     @Order(2)
     void getStation_AssertionSucceeds_IfAStationWithAnIdIsExistsAndEqualToAnExpectedStation() {
         Station expectedStation = getAllStationsTestcase().get(0); // Get 13th index of station from testcase
-        given(stationRepository.findById(1L)).willReturn(Optional.ofNullable(expectedStation));
+        given(stationRepository.findAll()).willReturn(getAllStationsTestcase());
         Station actualStation = stationService.getStation(1L);
         assert expectedStation != null;
         assertEquals(expectedStation.getName(), actualStation.getName());
@@ -54,7 +70,7 @@ class StationServiceTest {
     @Test
     @Order(3)
     void getStation_ThrowResponseStatusException404_ThenAssertionSucceeds_IfAStationWithAnIdDoesNotExist() {
-        given(stationRepository.findById(2L)).willReturn(Optional.ofNullable(getAllStationsTestcase().get(1)));
+        given(stationRepository.findAll()).willReturn(getAllStationsTestcase().subList(0, 2));
         Exception exception = assertThrows(ResponseStatusException.class, () -> stationService.getStation(3L));
         String expectedMessage = "404 NOT_FOUND \"Station with the specified ID does not exist\"";
         String actualMessage = exception.getMessage();
@@ -66,6 +82,7 @@ class StationServiceTest {
     @Order(4)
     void searchStation_AssertionSucceeds_IfAStationWithNameAndTypeIsExistsAndEqualToAnExpectedStation() {
         Station expectedStation = Station.builder()
+                .id(13L)
                 .name("Siam")
                 .code("CEN")
                 .latitude(13.7455902).longitude(100.5331048)
@@ -75,7 +92,7 @@ class StationServiceTest {
         List<Station> expectedStations = new ArrayList<>();
         expectedStations.add(expectedStation);
 
-        given(stationRepository.searchStationsByNameAndType("Siam", StationType.BTS)).willReturn(expectedStations);
+        given(stationRepository.findAll()).willReturn(getAllStationsTestcase());
         List<Station> actualStations = stationService.searchStation("Siam", StationType.BTS);
         assertEquals(expectedStations.get(0).getName(), actualStations.get(0).getName());
         logStatus("searchStation", expectedStations.hashCode(), actualStations.hashCode());
@@ -85,6 +102,7 @@ class StationServiceTest {
     @Order(5)
     void searchStation_AssertionSucceeds_IfAStationWithNameIsExistsAndEqualToAnExpectedStation() {
         Station expectedStation = Station.builder()
+                .id(8L)
                 .name("Ari")
                 .code("N5")
                 .latitude(13.7791812)
@@ -95,7 +113,7 @@ class StationServiceTest {
         List<Station> expectedStations = new ArrayList<>();
         expectedStations.add(expectedStation);
 
-        given(stationRepository.searchStationsByName("Ari")).willReturn(expectedStations);
+        given(stationRepository.findAll()).willReturn(getAllStationsTestcase());
         List<Station> actualStations = stationService.searchStation("Ari", null);
         assertEquals(expectedStations.get(0).getName(), actualStations.get(0).getName());
         logStatus("searchStation", expectedStations.hashCode(), actualStations.hashCode());
@@ -105,6 +123,7 @@ class StationServiceTest {
     @Order(6)
     void searchStation_AssertionSucceeds_IfAStationWithTypeIsExistsAndEqualToAnExpectedStation() {
         Station expectedStation = Station.builder()
+                .id(26L)
                 .name("Sukhumvit")
                 .code("BL22")
                 .latitude(13.7380479)
@@ -115,7 +134,7 @@ class StationServiceTest {
         List<Station> expectedStations = new ArrayList<>();
         expectedStations.add(expectedStation);
 
-        given(stationRepository.searchStationsByType(StationType.MRT)).willReturn(expectedStations);
+        given(stationRepository.findAll()).willReturn(getAllStationsTestcase());
         List<Station> actualStations = stationService.searchStation("", StationType.MRT);
         assertEquals(expectedStations.get(0).getName(), actualStations.get(0).getName());
         logStatus("searchStation", expectedStations.hashCode(), actualStations.hashCode());
@@ -124,8 +143,7 @@ class StationServiceTest {
     @Test
     @Order(7)
     void searchStation_ThrowResponseStatusException404_ThenAssertionSucceeds_IfStationWithNameAndTypeDoesNotExist() {
-        given(stationRepository.searchStationsByNameAndType("Salaya", StationType.BTS))
-                .willReturn(new ArrayList<>());
+        given(stationRepository.findAll()).willReturn(getAllStationsTestcase());
 
         Exception exception = assertThrows(ResponseStatusException.class,
                 () -> stationService.searchStation("Salaya", StationType.BTS));
@@ -162,7 +180,7 @@ class StationServiceTest {
                 .type(StationType.MRT)
                 .build();
 
-        given(stationRepository.findByCode(HuaLamphong.getCode())).willReturn(Optional.of(HuaLamphong));
+        given(stationRepository.findCodeRows()).willReturn(List.of(codeRow(28L, HuaLamphong.getCode())));
         Exception exception = assertThrows(ResponseStatusException.class, () -> stationService.addStation(HuaLamphong));
         String expectedMessage = "400 BAD_REQUEST \"Unable to add station due to the specified code already exists\"";
         String actualMessage = exception.getMessage();
@@ -174,6 +192,7 @@ class StationServiceTest {
     @Order(10)
     void updateStation_AssertionSucceeds_IfAStationUpdatedSuccessfullyAndIsEqualToAnExpectedStation() {
         Station originalStation = Station.builder()
+                .id(3L)
                 .name("TaoPoon") // Bad format, require updating
                 .code("BL11") // Wrong station code must be BL10, require updating
                 .latitude(13.8061278).longitude(100.530761)
@@ -187,7 +206,7 @@ class StationServiceTest {
                 .type(StationType.MRT)
                 .build();
 
-        given(stationRepository.findById(3L)).willReturn(Optional.ofNullable(originalStation));
+        given(stationRepository.findAll()).willReturn(List.of(originalStation));
         Station existingStationId = stationService.getStation(3L);
         assertEquals(originalStation, existingStationId);
 
@@ -203,11 +222,13 @@ class StationServiceTest {
     @Order(11)
     void updateStation_ThrowResponseStatusException400_ThenAssertionSucceeds_IfStationWithCodeIsExists() {
         Station S2 = Station.builder()
+                .id(3L)
                 .name("Sala Daeng")
                 .code("S2")
                 .latitude(13.7285329).longitude(100.532207)
                 .type(StationType.BTS).build();
 
+        given(stationRepository.findAll()).willReturn(List.of(S2));
         given(stationRepository.findById(3L)).willReturn(Optional.of(S2));
         Station existingStationId = stationService.getStation(3L);
         assertEquals(S2, existingStationId);
@@ -219,7 +240,7 @@ class StationServiceTest {
                 .type(StationType.BTS)
                 .build();
 
-        given(stationRepository.findByCode("CEN")).willReturn(Optional.of(stationWithCodeCEN));
+        given(stationRepository.findCodeRows()).willReturn(List.of(codeRow(1L, stationWithCodeCEN.getCode())));
         Exception exception = assertThrows(ResponseStatusException.class, () -> stationService.updateStation(
                 3L, S2.getName(), "CEN", S2.getLatitude(), S2.getLongitude(), S2.getType()));
         String expectedMessage = "400 BAD_REQUEST \"Unable to update station code due to the specified code already exists\"";
@@ -279,6 +300,108 @@ class StationServiceTest {
         logStatus("deleteStation", expectedMessage.hashCode(), actualMessage.hashCode());
     }
 
+    @Test
+    @Order(15)
+    void updateStation_AssertionSucceeds_IfAStationKeepsItsCodeAndTheCodeIsFreedAfterDeletion() {
+        Station siam = Station.builder()
+                .id(1L).name("Siam").code("CEN")
+                .latitude(13.7455902).longitude(100.5331048)
+                .type(StationType.BTS).build();
+        given(stationRepository.findCodeRows()).willReturn(List.of(codeRow(1L, "CEN")));
+        given(stationRepository.findById(1L)).willReturn(Optional.of(siam));
+
+        Station updatedStation = stationService.updateStation(1L, "Siam Square", "CEN",
+                siam.getLatitude(), siam.getLongitude(), StationType.BTS);
+        assertEquals("Siam Square", updatedStation.getName());
+
+        assertEquals(Optional.of(1L), stationCodeService.findId("CEN"));
+        stationCodeService.onStationChanged(new StationChangedEvent(siam, ChangeType.DELETED));
+        assertTrue(stationCodeService.findId("CEN").isEmpty());
+        verify(stationRepository, times(1)).findCodeRows();
+    }
+
+    @Test
+    @Order(16)
+    void getStationPage_AssertionSucceeds_IfTheNextCursorSeeksPastTheLastStationOfThePreviousPage() {
+        given(stationRepository.findAll()).willReturn(getAllStationsTestcase().subList(0, 3));
+
+        CursorPage<Station> firstPage = stationService.getStationPage(null, 2);
+        assertEquals(2, firstPage.getItems().size());
+        assertNotNull(firstPage.getNextCursor());
+
+        CursorPage<Station> lastPage = stationService.getStationPage(firstPage.getNextCursor(), 2);
+        assertEquals("N10", lastPage.getItems().get(0).getCode());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    @Order(17)
+    void getStationPage_ThrowResponseStatusException400_ThenAssertionSucceeds_IfTheCursorIsNotAValidToken() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> stationService.getStationPage("not a cursor", 10));
+        assertTrue(exception.getMessage().contains("400 BAD_REQUEST \"Invalid cursor\""));
+        exception = assertThrows(ResponseStatusException.class, () -> stationService.getStationPage(null, 0));
+        assertTrue(exception.getMessage().contains("400 BAD_REQUEST \"Invalid page size\""));
+    }
+
+    @Test
+    @Order(18)
+    void getStation_AssertionSucceeds_IfTheReadModelIsPatchedByStationEventsWithoutReloading() {
+        CatalogueReadModel catalogueReadModel = new CatalogueReadModel(stationRepository, routeRepository);
+        stationService = new StationService(stationRepository, eventPublisher,
+                new TransitGraphService(routeRepository, Runnable::run, 300), stationCodeService, catalogueReadModel);
+        List<Station> stations = getAllStationsTestcase();
+        given(stationRepository.findAll()).willReturn(stations);
+        assertEquals("Siam", stationService.getStation(13L).getName());
+
+        Station siam = stations.get(12);
+        siam.setName("Siam Square");
+        assertEquals("Siam", stationService.getStation(13L).getName());
+        catalogueReadModel.onStationChanged(new StationChangedEvent(siam, ChangeType.UPDATED));
+        assertEquals("Siam Square", stationService.getStation(13L).getName());
+        assertEquals(13L, stationService.searchStation("Siam Square", StationType.BTS).get(0).getId().longValue());
+
+        catalogueReadModel.onStationChanged(new StationChangedEvent(siam, ChangeType.DELETED));
+        assertThrows(ResponseStatusException.class, () -> stationService.getStation(13L));
+        assertEquals(stations.size() - 1, stationService.getStations().size());
+        verify(stationRepository, times(1)).findAll();
+    }
+
+    @Test
+    @Order(19)
+    void searchStations_AssertionSucceeds_IfTypesAndStatusesCombineWithAndAcrossAndOrWithin() {
+        List<Station> stations = getAllStationsTestcase();
+        stations.get(27).setStatus(StationStatus.UNDER_CONSTRUCTION); // Khlong Toei
+        stations.get(28).setStatus(StationStatus.CLOSED); // Lumphini
+        given(stationRepository.findAll()).willReturn(stations);
+
+        List<Station> openedMrtOrArl = stationService.searchStations(null,
+                List.of(StationType.MRT, StationType.ARL), List.of(StationStatus.OPENED));
+        assertEquals(List.of("BL22", "BL23", "BL26"), codes(openedMrtOrArl));
+        assertEquals(List.of("BL24", "BL25"), codes(stationService.searchStations("", List.of(),
+                List.of(StationStatus.CLOSED, StationStatus.UNDER_CONSTRUCTION))));
+        assertEquals(List.of("BL25"), codes(stationService.searchStations("Lumphini", null,
+                List.of(StationStatus.CLOSED))));
+        assertTrue(stationService.searchStations(null, List.of(StationType.BTS),
+                List.of(StationStatus.CLOSED)).isEmpty());
+        assertEquals(stations.size(), stationService.searchStations(null, null, null).size());
+    }
+
+    List<String> codes(List<Station> stations) {
+        List<String> codes = new ArrayList<>();
+        for(Station station : stations) {
+            codes.add(station.getCode());
+        }
+        return codes;
+    }
+
+    StationCodeRow codeRow(Long id, String code) {
+        return new StationCodeRow() {
+            public Long getId() { return id; }
+            public String getCode() { return code; }
+        };
+    }
+
     void logStatus(String methodName, int expectedHashCode, int actualHashCode) {
         if(expectedHashCode == actualHashCode) {
             logger.info(methodName + " : PASSED");
@@ -287,8 +410,9 @@ class StationServiceTest {
         }
     }
 
+    // Stations are given ids 1 to 30 in list order, as the database would on first insert
     List<Station> getAllStationsTestcase() {
-        return Arrays.asList(
+        List<Station> stations = Arrays.asList(
             new Station("Sena Nikhom", "N12", 13.8363601, 100.5714222, StationType.BTS),
             new Station("Ratchayothin", "N11", 13.8308609, 100.5680845, StationType.BTS),
             new Station("Phahon Yothin", "N10", 13.8142104, 100.5451057, StationType.BTS),
@@ -320,5 +444,9 @@ class StationServiceTest {
             new Station("Lumphini", "BL25", 13.7264811,100.5418382, StationType.MRT),
             new Station("Si Lom", "BL26", 13.7293055,100.5350227, StationType.MRT)
         );
+        for(int index = 0; index < stations.size(); index++) {
+            stations.get(index).setId(index + 1L);
+        }
+        return stations;
     }
 }
\ No newline at end of file
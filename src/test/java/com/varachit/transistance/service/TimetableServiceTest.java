@@ -0,0 +1,201 @@
+package com.varachit.transistance.service;
+
+import com.varachit.transistance.dto.TimetableJourney;
+import com.varachit.transistance.entity.Route;
+import com.varachit.transistance.entity.Station;
+import com.varachit.transistance.entity.StationStatus;
+import com.varachit.transistance.entity.StationType;
+import com.varachit.transistance.repository.RouteRepository;
+import com.varachit.transistance.repository.TripRepository;
+import com.varachit.transistance.repository.TripRepository.StopTimeRow;
+import com.varachit.transistance.repository.TripRepository.TripRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TimetableServiceTest {
+    @Mock
+    private RouteRepository routeRepository;
+    @Mock
+    private TripRepository tripRepository;
+    private TimetableService timetableService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        timetableService = new TimetableService(tripRepository,
+                new TransitGraphService(routeRepository, Runnable::run, 300));
+        given(routeRepository.findAll()).willReturn(getRoutesTestcase());
+    }
+
+    @Test
+    void planJourney_AssertionSucceeds_IfJourneyRidesWalksTheInterchangeAndRidesAgain() {
+        given(tripRepository.findTripRows()).willReturn(getTripRowsTestcase());
+        given(tripRepository.findStopTimeRows()).willReturn(getStopTimeRowsTestcase(StationStatus.OPENED));
+
+        TimetableJourney journey = timetableService.planJourney("N1", "BL23", "07:01");
+
+        assertEquals("07:01:00", journey.getDeparture());
+        assertEquals(3, journey.getLegs().size());
+        assertEquals("Sukhumvit", journey.getLegs().get(0).getRoute());
+        // The next Sukhumvit run leaves Mo Chit at 07:00 and departs Ratchathewi 7 minutes later
+        assertEquals("07:07:00", journey.getLegs().get(0).getDeparture());
+        assertEquals(JourneyService.WALKING_TRANSFER, journey.getLegs().get(1).getRoute());
+        assertEquals("E4", journey.getLegs().get(1).getFrom());
+        assertEquals("BL22", journey.getLegs().get(1).getTo());
+        assertEquals("Blue Line", journey.getLegs().get(2).getRoute());
+        assertEquals(2L, journey.getLegs().get(2).getTripId());
+        assertTrue(journey.getDuration() > 0);
+        verify(tripRepository, times(1)).findStopTimeRows();
+    }
+
+    @Test
+    void planJourney_ThrowResponseStatusException404_ThenAssertionSucceeds_IfStationIsClosed() {
+        given(tripRepository.findTripRows()).willReturn(getTripRowsTestcase());
+        given(tripRepository.findStopTimeRows()).willReturn(getStopTimeRowsTestcase(StationStatus.UNDER_CONSTRUCTION));
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> timetableService.planJourney("N1", "BL23", "07:01"));
+        String expectedMessage = "404 NOT_FOUND \"Station with the specified code is not served by any trip\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void planJourney_ThrowResponseStatusException404_ThenAssertionSucceeds_IfServiceHasEnded() {
+        given(tripRepository.findTripRows()).willReturn(getTripRowsTestcase());
+        given(tripRepository.findStopTimeRows()).willReturn(getStopTimeRowsTestcase(StationStatus.OPENED));
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> timetableService.planJourney("N1", "BL23", "23:00"));
+        String expectedMessage = "404 NOT_FOUND \"Unable to find a journey between the specified stations\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void planJourney_ThrowResponseStatusException400_ThenAssertionSucceeds_IfDepartureTimeIsInvalid() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> timetableService.planJourney("N1", "BL23", "7 o'clock"));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid time\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void planParetoJourneys_AssertionSucceeds_IfOnlyTheJourneyWithOneTransferReachesTheDestination() {
+        given(tripRepository.findTripRows()).willReturn(getTripRowsTestcase());
+        given(tripRepository.findStopTimeRows()).willReturn(getStopTimeRowsTestcase(StationStatus.OPENED));
+
+        List<TimetableJourney> journeys = timetableService.planParetoJourneys("N1", "BL23", "07:01", 4);
+
+        assertEquals(1, journeys.size());
+        assertEquals(1, journeys.get(0).getTransfers());
+        assertEquals(timetableService.planJourney("N1", "BL23", "07:01").getArrival(), journeys.get(0).getArrival());
+    }
+
+    @Test
+    void planParetoJourneys_ThrowResponseStatusException404_ThenAssertionSucceeds_IfTransfersAreNotAllowed() {
+        given(tripRepository.findTripRows()).willReturn(getTripRowsTestcase());
+        given(tripRepository.findStopTimeRows()).willReturn(getStopTimeRowsTestcase(StationStatus.OPENED));
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> timetableService.planParetoJourneys("N1", "BL23", "07:01", 0));
+        String expectedMessage = "404 NOT_FOUND \"Unable to find a journey between the specified stations\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    @Test
+    void planParetoJourneys_ThrowResponseStatusException400_ThenAssertionSucceeds_IfNumberOfTransfersIsInvalid() {
+        Exception exception = assertThrows(ResponseStatusException.class,
+                () -> timetableService.planParetoJourneys("N1", "BL23", "07:01", TimetableService.MAX_TRANSFERS + 1));
+        String expectedMessage = "400 BAD_REQUEST \"Invalid number of transfers\"";
+        assertTrue(exception.getMessage().contains(expectedMessage));
+    }
+
+    // Sukhumvit runs southbound every 10 minutes and the Blue Line every 5 minutes, from 06:00 to 09:00
+    List<TripRow> getTripRowsTestcase() {
+        return Arrays.asList(tripRow(1L, "Sukhumvit", "Asok", 600), tripRow(2L, "Blue Line", "Si Lom", 300));
+    }
+
+    List<StopTimeRow> getStopTimeRowsTestcase(StationStatus blueLineStatus) {
+        List<StopTimeRow> rows = new ArrayList<>();
+        String[] sukhumvit = {"N8", "N7", "N6", "N5", "N4", "N3", "N2", "N1", "CEN", "E1", "E2", "E3", "E4"};
+        for(int index = 0; index < sukhumvit.length; index++) {
+            rows.add(stopTimeRow(1L, sukhumvit[index], StationStatus.OPENED, 21600 + index * 60 - 30, 21600 + index * 60));
+        }
+        String[] blueLine = {"BL22", "BL23", "BL24", "BL25", "BL26"};
+        for(int index = 0; index < blueLine.length; index++) {
+            StationStatus status = blueLine[index].equals("BL23") ? blueLineStatus : StationStatus.OPENED;
+            rows.add(stopTimeRow(2L, blueLine[index], status, 21600 + index * 120 - 30, 21600 + index * 120));
+        }
+        return rows;
+    }
+
+    TripRow tripRow(Long tripId, String routeName, String headsign, Integer headway) {
+        return new TripRow() {
+            public Long getTripId() { return tripId; }
+            public String getRouteName() { return routeName; }
+            public String getHeadsign() { return headsign; }
+            public Integer getFrequencyStart() { return 21600; }
+            public Integer getFrequencyEnd() { return 32400; }
+            public Integer getHeadway() { return headway; }
+        };
+    }
+
+    StopTimeRow stopTimeRow(Long tripId, String code, StationStatus status, Integer arrival, Integer departure) {
+        return new StopTimeRow() {
+            public Long getTripId() { return tripId; }
+            public String getStationCode() { return code; }
+            public String getStationName() { return code; }
+            public StationStatus getStationStatus() { return status; }
+            public Integer getArrivalTime() { return Math.max(arrival, 21600); }
+            public Integer getDepartureTime() { return departure; }
+        };
+    }
+
+    List<Route> getRoutesTestcase() {
+        return Arrays.asList(
+                new Route("Sukhumvit", "BTS Skytrain Sukhumvit Line", StationType.BTS, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Mo Chit", "N8", 13.7990075, 100.5524655, StationType.BTS),
+                            new Station("Saphan Khwai", "N7", 13.7919983, 100.5491032, StationType.BTS),
+                            new Station("Sena Ruam", "N6", 13.7873954, 100.5470566, StationType.BTS),
+                            new Station("Ari", "N5", 13.7791812, 100.5458335, StationType.BTS),
+                            new Station("Sanam Pao", "N4", 13.7592238,100.5404675, StationType.BTS),
+                            new Station("Victory Monument", "N3", 13.7600783, 100.5372488, StationType.BTS),
+                            new Station("Phaya Thai", "N2", 13.7523875, 100.5342018, StationType.BTS),
+                            new Station("Ratchathewi", "N1", 13.7474478, 100.5331504, StationType.BTS),
+                            new Station("Siam", "CEN", 13.7455902, 100.5331048, StationType.BTS),
+                            new Station("Chit Lom", "E1", 13.7481608, 100.5409774, StationType.BTS),
+                            new Station("Phloen Chit", "E2", 13.743768,100.5446164, StationType.BTS),
+                            new Station("Nana", "E3", 13.7408864,100.5492513, StationType.BTS),
+                            new Station("Asok", "E4", 13.7361653,100.5588965, StationType.BTS)
+                        )
+                )),
+
+                new Route("Blue Line", "MRT Underground Train Blue Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Sukhumvit", "BL22", 13.7380479,100.5603774, StationType.MRT),
+                            new Station("Queen Sirikit National Convention Centre", "BL23", 13.7231519,100.5601019, StationType.MRT),
+                            new Station("Khlong Toei", "BL24", 13.7223044,100.5517262, StationType.MRT),
+                            new Station("Lumphini", "BL25", 13.7264811,100.5418382, StationType.MRT),
+                            new Station("Si Lom", "BL26", 13.7293055,100.5350227, StationType.MRT)
+                        )
+                )),
+
+                new Route("Purple Line", "MRT Skytrain Purple Line", StationType.MRT, new LinkedList<>(
+                        Arrays.asList(
+                            new Station("Tao Poon", "PP16", 13.806133,100.5285723, StationType.MRT),
+                            new Station("Bang Son", "PP15", 13.806133,100.5285723, StationType.MRT)
+                        )
+                ))
+        );
+    }
+}
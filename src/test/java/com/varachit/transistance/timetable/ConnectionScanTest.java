@@ -0,0 +1,149 @@
+package com.varachit.transistance.timetable;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionScanTest {
+    private static final int STOPS = 30;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    @Test
+    void earliestArrival_AssertionSucceeds_IfArrivalEqualsAFixpointOverEveryRunAndFootpath() {
+        Random random = new Random(2310);
+        for(int round = 0; round < 20; round++) {
+            int[][][] runs = getRunsTestcase(random);
+            Timetable timetable = build(runs);
+
+            for(int query = 0; query < 30; query++) {
+                int source = random.nextInt(STOPS);
+                int departure = 6 * 3600 + random.nextInt(4 * 3600);
+                int[] expected = fixpoint(runs, source, departure);
+                for(int target = 0; target < STOPS; target++) {
+                    Itinerary itinerary = ConnectionScan.earliestArrival(timetable, stop(timetable, source),
+                            stop(timetable, target), departure);
+                    if(expected[target] == INFINITY) {
+                        assertNull(itinerary);
+                    } else {
+                        assertEquals(expected[target], itinerary.getArrival());
+                        assertConsistent(itinerary, stop(timetable, source), stop(timetable, target), departure);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void earliestArrival_AssertionSucceeds_IfRiderWaitsForTheNextRunAndWalksBetweenNearbyStops() {
+        TimetableBuilder builder = new TimetableBuilder();
+        int a = builder.addStop("A", "Alpha");
+        int b = builder.addStop("B", "Bravo");
+        int c = builder.addStop("C", "Charlie");
+        int d = builder.addStop("D", "Delta");
+        int first = builder.addTrip(1L, "Red", "Bravo");
+        int second = builder.addTrip(2L, "Blue", "Delta");
+        for(int leave = 28800; leave < 32400; leave += 600) {
+            builder.addRun(first, new int[]{a, b}, new int[]{leave, leave + 300}, new int[]{leave, leave + 300});
+        }
+        builder.addRun(second, new int[]{c, d}, new int[]{29900, 30200}, new int[]{29900, 30200});
+        builder.addFootpath("B", "C", 120);
+        Timetable timetable = builder.build(1L);
+
+        Itinerary itinerary = ConnectionScan.earliestArrival(timetable, a, d, 28860);
+        assertEquals(30200, itinerary.getArrival());
+        assertEquals(3, itinerary.getLegs().size());
+        assertEquals(29400, itinerary.getLegs().get(0).getDeparture());
+        assertTrue(itinerary.getLegs().get(1).isWalk());
+        assertEquals(c, itinerary.getLegs().get(2).getFromStop());
+        assertEquals(29900, itinerary.getLegs().get(2).getDeparture());
+    }
+
+    void assertConsistent(Itinerary itinerary, int source, int target, int departure) {
+        int stop = source;
+        int time = departure;
+        for(Itinerary.Leg leg : itinerary.getLegs()) {
+            assertEquals(stop, leg.getFromStop());
+            assertTrue(leg.getDeparture() >= time);
+            assertTrue(leg.getArrival() >= leg.getDeparture());
+            stop = leg.getToStop();
+            time = leg.getArrival();
+        }
+        assertEquals(target, stop);
+        assertEquals(itinerary.getArrival(), time);
+    }
+
+    // Relax every run from every stop it can be boarded at, and every footpath, until nothing improves
+    int[] fixpoint(int[][][] runs, int source, int departure) {
+        int[] arrival = new int[STOPS];
+        Arrays.fill(arrival, INFINITY);
+        arrival[source] = departure;
+        relaxFootpath(arrival, source, departure);
+        boolean improved = true;
+        while(improved) {
+            improved = false;
+            for(int[][] run : runs) {
+                int[] stops = run[0];
+                int[] times = run[1];
+                boolean onBoard = false;
+                for(int index = 0; index < stops.length; index++) {
+                    if(onBoard && times[index] < arrival[stops[index]]) {
+                        arrival[stops[index]] = times[index];
+                        relaxFootpath(arrival, stops[index], times[index]);
+                        improved = true;
+                    }
+                    if(arrival[stops[index]] <= times[index]) {
+                        onBoard = true;
+                    }
+                }
+            }
+        }
+        return arrival;
+    }
+
+    // Footpaths link stop 2n with stop 2n + 1 for stops below 10
+    void relaxFootpath(int[] arrival, int stop, int time) {
+        if(stop < 10) {
+            int other = stop ^ 1;
+            arrival[other] = Math.min(arrival[other], time + 90);
+        }
+    }
+
+    Timetable build(int[][][] runs) {
+        TimetableBuilder builder = new TimetableBuilder();
+        for(int stop = 0; stop < STOPS; stop++) {
+            builder.addStop("S" + stop, "Stop " + stop);
+        }
+        for(int index = 0; index < runs.length; index++) {
+            int trip = builder.addTrip(index, "Route " + index, null);
+            int[] stops = Arrays.stream(runs[index][0]).toArray();
+            assertTrue(builder.addRun(trip, stops, runs[index][1], runs[index][1]));
+        }
+        for(int stop = 0; stop < 10; stop += 2) {
+            builder.addFootpath("S" + stop, "S" + (stop + 1), 90);
+        }
+        return builder.build(1L);
+    }
+
+    int stop(Timetable timetable, int stop) {
+        return timetable.indexOf("S" + stop);
+    }
+
+    // Runs of distinct stops with strictly increasing times, {stops, times}
+    int[][][] getRunsTestcase(Random random) {
+        int[][][] runs = new int[60][][];
+        for(int index = 0; index < runs.length; index++) {
+            int length = 2 + random.nextInt(7);
+            int[] stops = random.ints(0, STOPS).distinct().limit(length).toArray();
+            int[] times = new int[length];
+            times[0] = 6 * 3600 + random.nextInt(6 * 3600);
+            for(int stop = 1; stop < length; stop++) {
+                times[stop] = times[stop - 1] + 60 + random.nextInt(600);
+            }
+            runs[index] = new int[][]{stops, times};
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,209 @@
+package com.varachit.transistance.timetable;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RaptorTest {
+    private static final int STOPS = 30;
+    private static final int ROUNDS = 12;
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    @Test
+    void paretoJourneys_AssertionSucceeds_IfEveryJourneyMatchesTheRideBoundedFixpointAndTheLastMatchesCsa() {
+        Random random = new Random(2310);
+        for(int round = 0; round < 20; round++) {
+            List<int[][]> runs = getRunsTestcase(random);
+            Timetable timetable = build(runs);
+
+            for(int query = 0; query < 30; query++) {
+                int source = random.nextInt(STOPS);
+                int target = random.nextInt(STOPS);
+                int departure = 6 * 3600 + random.nextInt(4 * 3600);
+                int[] expected = boundedArrivals(runs, source, target, departure);
+
+                List<Itinerary> journeys = Raptor.paretoJourneys(timetable, stop(timetable, source),
+                        stop(timetable, target), departure, ROUNDS);
+                List<Integer> expectedArrivals = new ArrayList<>();
+                for(int rides = 0; rides <= ROUNDS; rides++) {
+                    if(expected[rides] != INFINITY && (rides == 0 || expected[rides] < expected[rides - 1])) {
+                        expectedArrivals.add(expected[rides]);
+                    }
+                }
+                assertEquals(expectedArrivals.size(), journeys.size());
+                int previousRides = -1;
+                for(int index = 0; index < journeys.size(); index++) {
+                    Itinerary journey = journeys.get(index);
+                    assertEquals(expectedArrivals.get(index).intValue(), journey.getArrival());
+                    int rides = assertConsistent(timetable, journey, stop(timetable, source), stop(timetable, target));
+                    assertTrue(rides > previousRides);
+                    previousRides = rides;
+                }
+
+                Itinerary fastest = ConnectionScan.earliestArrival(timetable, stop(timetable, source),
+                        stop(timetable, target), departure);
+                if(fastest != null && !journeys.isEmpty() && source != target) {
+                    assertEquals(fastest.getArrival(), journeys.get(journeys.size() - 1).getArrival());
+                }
+            }
+        }
+    }
+
+    @Test
+    void paretoJourneys_AssertionSucceeds_IfADirectRideIsOfferedBesideAFasterJourneyWithATransfer() {
+        TimetableBuilder builder = new TimetableBuilder();
+        int a = builder.addStop("A", "Alpha");
+        int b = builder.addStop("B", "Bravo");
+        int c = builder.addStop("C", "Charlie");
+        int slow = builder.addTrip(1L, "Slow", "Charlie");
+        int fast = builder.addTrip(2L, "Express", "Charlie");
+        int feeder = builder.addTrip(3L, "Feeder", "Bravo");
+        builder.addRun(slow, new int[]{a, b, c}, new int[]{28800, 30000, 33000}, new int[]{28800, 30000, 33000});
+        builder.addRun(feeder, new int[]{a, b}, new int[]{28800, 29400}, new int[]{28800, 29400});
+        builder.addRun(fast, new int[]{b, c}, new int[]{29700, 30600}, new int[]{29700, 30600});
+        Timetable timetable = builder.build(1L);
+
+        List<Itinerary> journeys = Raptor.paretoJourneys(timetable, a, c, 28000, 4);
+        assertEquals(2, journeys.size());
+        assertEquals(33000, journeys.get(0).getArrival());
+        assertEquals(1, journeys.get(0).getLegs().size());
+        assertEquals(30600, journeys.get(1).getArrival());
+        assertEquals(2, journeys.get(1).getLegs().size());
+        assertEquals(29700, journeys.get(1).getLegs().get(1).getDeparture());
+    }
+
+    @Test
+    void paretoJourneys_AssertionSucceeds_IfARiderChangesToARunOfTheSameRouteThatOvertakes() {
+        TimetableBuilder builder = new TimetableBuilder();
+        int a = builder.addStop("A", "Alpha");
+        int b = builder.addStop("B", "Bravo");
+        int c = builder.addStop("C", "Charlie");
+        int d = builder.addStop("D", "Delta");
+        int rapid = builder.addTrip(1L, "Sukhumvit", "Delta");
+        int stopping = builder.addTrip(2L, "Sukhumvit", "Delta");
+        // The stopping run reaches C first and waits there while the rapid run passes it
+        builder.addRun(rapid, new int[]{a, b, c, d}, new int[]{28700, 29300, 30100, 30900},
+                new int[]{28700, 29300, 30150, 30900});
+        builder.addRun(stopping, new int[]{a, b, c, d}, new int[]{28800, 29400, 30000, 31800},
+                new int[]{28800, 29400, 30600, 31800});
+        Timetable timetable = builder.build(1L);
+
+        // Too late for the rapid run at B, so the fastest journey changes to it at C
+        Itinerary fastest = ConnectionScan.earliestArrival(timetable, b, d, 29350);
+        assertEquals(30900, fastest.getArrival());
+        List<Itinerary> journeys = Raptor.paretoJourneys(timetable, b, d, 29350, 4);
+        assertEquals(2, journeys.size());
+        assertEquals(31800, journeys.get(0).getArrival());
+        assertEquals(fastest.getArrival(), journeys.get(1).getArrival());
+        assertEquals(2, journeys.get(1).getLegs().size());
+        assertEquals(30150, journeys.get(1).getLegs().get(1).getDeparture());
+        assertTrue(timetable.isInterchange(c));
+    }
+
+    // Returns the number of rides after checking the legs chain from source to target in time order
+    int assertConsistent(Timetable timetable, Itinerary itinerary, int source, int target) {
+        int stop = source;
+        int time = itinerary.getDeparture();
+        int rides = 0;
+        for(Itinerary.Leg leg : itinerary.getLegs()) {
+            assertEquals(stop, leg.getFromStop());
+            assertTrue(leg.getDeparture() >= time);
+            assertTrue(leg.getArrival() >= leg.getDeparture());
+            if(!leg.isWalk()) {
+                rides++;
+            }
+            stop = leg.getToStop();
+            time = leg.getArrival();
+        }
+        assertEquals(target, stop);
+        assertEquals(itinerary.getArrival(), time);
+        return rides;
+    }
+
+    // Earliest arrival at the target using at most k rides, k = 0 .. ROUNDS, by relaxing every run each round
+    int[] boundedArrivals(List<int[][]> runs, int source, int target, int departure) {
+        int[] previous = new int[STOPS];
+        Arrays.fill(previous, INFINITY);
+        previous[source] = departure;
+        relaxFootpath(previous, previous, source);
+        int[] result = new int[ROUNDS + 1];
+        result[0] = previous[target];
+        for(int round = 1; round <= ROUNDS; round++) {
+            int[] rides = new int[STOPS];
+            Arrays.fill(rides, INFINITY);
+            for(int[][] run : runs) {
+                boolean onBoard = false;
+                for(int index = 0; index < run[0].length; index++) {
+                    if(onBoard) {
+                        rides[run[0][index]] = Math.min(rides[run[0][index]], run[1][index]);
+                    }
+                    if(previous[run[0][index]] <= run[1][index]) {
+                        onBoard = true;
+                    }
+                }
+            }
+            int[] current = previous.clone();
+            for(int stop = 0; stop < STOPS; stop++) {
+                current[stop] = Math.min(current[stop], rides[stop]);
+            }
+            for(int stop = 0; stop < STOPS; stop++) {
+                relaxFootpath(rides, current, stop);
+            }
+            result[round] = current[target];
+            previous = current;
+        }
+        return result;
+    }
+
+    // Footpaths link stop 2n with stop 2n + 1 for stops below 10
+    void relaxFootpath(int[] from, int[] to, int stop) {
+        if(stop < 10 && from[stop] != INFINITY) {
+            int other = stop ^ 1;
+            to[other] = Math.min(to[other], from[stop] + 90);
+        }
+    }
+
+    Timetable build(List<int[][]> runs) {
+        TimetableBuilder builder = new TimetableBuilder();
+        for(int stop = 0; stop < STOPS; stop++) {
+            builder.addStop("S" + stop, "Stop " + stop);
+        }
+        for(int index = 0; index < runs.size(); index++) {
+            int trip = builder.addTrip(index, "Route " + runs.get(index)[2][0], null);
+            assertTrue(builder.addRun(trip, runs.get(index)[0], runs.get(index)[1], runs.get(index)[1]));
+        }
+        for(int stop = 0; stop < 10; stop += 2) {
+            builder.addFootpath("S" + stop, "S" + (stop + 1), 90);
+        }
+        return builder.build(1L);
+    }
+
+    int stop(Timetable timetable, int stop) {
+        return timetable.indexOf("S" + stop);
+    }
+
+    // Route templates run several times at uneven speeds, so some runs overtake others: {stops, times, {route}}
+    List<int[][]> getRunsTestcase(Random random) {
+        List<int[][]> runs = new ArrayList<>();
+        for(int route = 0; route < 25; route++) {
+            int length = 2 + random.nextInt(7);
+            int[] stops = random.ints(0, STOPS).distinct().limit(length).toArray();
+            int[] hops = random.ints(length, 60, 600).toArray();
+            int first = 6 * 3600 + random.nextInt(3 * 3600);
+            for(int repeat = 1 + random.nextInt(5); repeat > 0; repeat--) {
+                int[] times = new int[length];
+                times[0] = first + random.nextInt(3600);
+                for(int stop = 1; stop < length; stop++) {
+                    times[stop] = times[stop - 1] + hops[stop] * (2 + random.nextInt(3)) / 3;
+                }
+                runs.add(new int[][]{stops, times, {route}});
+            }
+        }
+        return runs;
+    }
+}
@@ -0,0 +1,101 @@
+package com.varachit.transistance.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void execute_AssertionSucceeds_IfConcurrentIdenticalCallsShareOneComputation() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>(5000);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<Object> leader = executor.submit(() -> singleFlight.execute("N8-E4", () -> {
+                computations.incrementAndGet();
+                started.countDown();
+                await(release);
+                return new Object();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<Object>> followers = new ArrayList<>();
+            for(int caller = 0; caller < 7; caller++) {
+                followers.add(executor.submit(() -> singleFlight.execute("N8-E4", () -> {
+                    computations.incrementAndGet();
+                    return new Object();
+                })));
+            }
+            // Give every follower time to join the call before the leader finishes
+            Thread.sleep(100);
+            release.countDown();
+
+            Object result = leader.get(5, TimeUnit.SECONDS);
+            for(Future<Object> follower : followers) {
+                assertSame(result, follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+            assertEquals(0, singleFlight.inFlightCount());
+            assertNotSame(result, singleFlight.execute("N8-E4", Object::new));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_ThrowResponseStatusException503_ThenAssertionSucceeds_IfTheComputationOutlastsTheTimeout()
+            throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> leader = executor.submit(() -> singleFlight.execute("N8-E4", () -> {
+                started.countDown();
+                await(release);
+                return "journey";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Exception exception = assertThrows(ResponseStatusException.class,
+                    () -> singleFlight.execute("N8-E4", () -> "other"));
+            assertTrue(exception.getMessage().contains("503 SERVICE_UNAVAILABLE"));
+
+            release.countDown();
+            assertEquals("journey", leader.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_ThrowResponseStatusException404_ThenAssertionSucceeds_IfTheComputationFails() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(50);
+        Exception exception = assertThrows(ResponseStatusException.class, () -> singleFlight.execute("XX", () -> {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Station with the specified code is not served by any route");
+        }));
+        assertTrue(exception.getMessage().contains("404 NOT_FOUND"));
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}